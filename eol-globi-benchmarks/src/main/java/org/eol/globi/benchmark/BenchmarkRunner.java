@@ -0,0 +1,35 @@
+package org.eol.globi.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options, but writes results
+ * as json to [jmh-result.json] unless another result format or file is specified.
+ * <p>
+ * Build and run with:
+ * <pre>
+ * mvn -Pbenchmarks -pl eol-globi-benchmarks -am package -DskipTests
+ * java -jar eol-globi-benchmarks/target/benchmarks.jar [jmh options]
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdLineOptions = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(cmdLineOptions)
+                .resultFormat(cmdLineOptions.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(cmdLineOptions.getResult().orElse(DEFAULT_RESULT_FILE))
+                .build();
+        new Runner(options).run();
+    }
+
+}
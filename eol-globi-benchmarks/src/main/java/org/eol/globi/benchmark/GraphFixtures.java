@@ -0,0 +1,104 @@
+package org.eol.globi.benchmark;
+
+import org.eol.globi.data.BatchTransaction;
+import org.eol.globi.data.DatasetImporterForTSV;
+import org.eol.globi.data.NodeFactory;
+import org.eol.globi.data.NodeFactoryNeo4j;
+import org.eol.globi.data.NodeFactoryWithDatasetContext;
+import org.eol.globi.data.StudyImporterException;
+import org.eol.globi.db.GraphServiceFactoryProxy;
+import org.eol.globi.geo.LatLng;
+import org.eol.globi.process.InteractionImporter;
+import org.eol.globi.process.InteractionListener;
+import org.eol.globi.service.GeoNamesService;
+import org.eol.globi.taxon.NonResolvingTaxonIndex;
+import org.eol.globi.tool.NameResolver;
+import org.eol.globi.tool.NullImportLogger;
+import org.eol.globi.util.CSVTSVUtil;
+import org.globalbioticinteractions.dataset.DatasetImpl;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Embedded graphs and interaction records derived from {@link SyntheticFixtures}.
+ */
+public final class GraphFixtures {
+
+    public static final String NAMESPACE = "globalbioticinteractions/benchmark";
+
+    private static final GeoNamesService NO_GEONAMES = new GeoNamesService() {
+        @Override
+        public boolean hasTermForLocale(String locality) {
+            return false;
+        }
+
+        @Override
+        public LatLng findLatLng(String locality) {
+            return null;
+        }
+    };
+
+    private GraphFixtures() {
+    }
+
+    public static GraphDatabaseService startGraph(File storeDir) {
+        return new GraphDatabaseFactory()
+                .newEmbeddedDatabaseBuilder(storeDir)
+                .newGraphDatabase();
+    }
+
+    public static List<Map<String, String>> interactionRecords(int numberOfRows, int numberOfTaxa) {
+        String[] lines = SyntheticFixtures.interactionsTSV(numberOfRows, numberOfTaxa).split("\n");
+        String[] header = CSVTSVUtil.splitTSV(lines[0]);
+        List<Map<String, String>> records = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            String[] values = CSVTSVUtil.splitTSV(lines[i]);
+            Map<String, String> record = new TreeMap<>();
+            for (int j = 0; j < header.length && j < values.length; j++) {
+                record.put(header[j], values[j]);
+            }
+            record.put(DatasetImporterForTSV.REFERENCE_ID, record.get(DatasetImporterForTSV.REFERENCE_CITATION));
+            record.put(DatasetImporterForTSV.DATASET_CITATION, "synthetic benchmark dataset");
+            records.add(record);
+        }
+        return records;
+    }
+
+    public static DatasetImpl dataset() {
+        return new DatasetImpl(NAMESPACE, URI.create("http://example.org/benchmark"), in -> in);
+    }
+
+    public static InteractionListener interactionImporter(NodeFactory nodeFactory) {
+        return new InteractionImporter(
+                new NodeFactoryWithDatasetContext(nodeFactory, dataset()),
+                new NullImportLogger(),
+                NO_GEONAMES);
+    }
+
+    /**
+     * Imports the records into the graph and links the original taxa to themselves, so that
+     * the graph has the shape that exporters expect.
+     */
+    public static void importAndLink(GraphDatabaseService graphDb, List<Map<String, String>> records) throws StudyImporterException {
+        NodeFactoryNeo4j nodeFactory = new NodeFactoryNeo4j(graphDb);
+        InteractionListener importer = interactionImporter(nodeFactory);
+        for (int i = 0; i < records.size(); i += 1000) {
+            try (BatchTransaction batch = nodeFactory.beginBatch()) {
+                for (Map<String, String> record : records.subList(i, Math.min(records.size(), i + 1000))) {
+                    importer.on(record);
+                }
+                batch.success();
+            }
+        }
+        new NameResolver(new NonResolvingTaxonIndex(graphDb))
+                .index(new GraphServiceFactoryProxy(graphDb));
+    }
+
+}
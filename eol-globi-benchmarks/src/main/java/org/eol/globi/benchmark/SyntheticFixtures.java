@@ -0,0 +1,181 @@
+package org.eol.globi.benchmark;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.eol.globi.domain.InteractType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates deterministic, synthetic fixtures so that benchmarks run offline and
+ * measure the same workload across runs.
+ */
+public final class SyntheticFixtures {
+
+    public static final String[] INTERACTIONS_TSV_COLUMNS = {
+            "sourceTaxonId",
+            "sourceTaxonName",
+            "interactionTypeId",
+            "interactionTypeName",
+            "targetTaxonId",
+            "targetTaxonName",
+            "localityId",
+            "localityName",
+            "decimalLatitude",
+            "decimalLongitude",
+            "observationDateTime",
+            "referenceDoi",
+            "referenceCitation"
+    };
+
+    private static final long SEED = 42L;
+
+    private static final String[] SYLLABLES = {
+            "ar", "bo", "ci", "da", "el", "fu", "ga", "hy", "ix", "lo", "ma", "ne", "or", "pa", "qu", "ri", "sa", "tu"
+    };
+
+    private static final InteractType[] INTERACT_TYPES = {
+            InteractType.ATE,
+            InteractType.PREYS_UPON,
+            InteractType.PARASITE_OF,
+            InteractType.POLLINATES,
+            InteractType.VISITS_FLOWERS_OF,
+            InteractType.INTERACTS_WITH
+    };
+
+    private SyntheticFixtures() {
+    }
+
+    public static List<String> taxonNames(int numberOfNames) {
+        Random random = new Random(SEED);
+        List<String> names = new ArrayList<>(numberOfNames);
+        for (int i = 0; i < numberOfNames; i++) {
+            names.add(taxonName(random, i));
+        }
+        return names;
+    }
+
+    public static String taxonId(int index) {
+        return "TEST:" + index;
+    }
+
+    public static String interactionsTSV(int numberOfRows, int numberOfTaxa) {
+        Random random = new Random(SEED);
+        List<String> names = taxonNames(numberOfTaxa);
+        StringBuilder tsv = new StringBuilder();
+        tsv.append(StringUtils.join(INTERACTIONS_TSV_COLUMNS, '\t')).append('\n');
+        for (int i = 0; i < numberOfRows; i++) {
+            int source = random.nextInt(numberOfTaxa);
+            int target = random.nextInt(numberOfTaxa);
+            InteractType type = INTERACT_TYPES[random.nextInt(INTERACT_TYPES.length)];
+            int locality = random.nextInt(100);
+            tsv.append(taxonId(source)).append('\t')
+                    .append(names.get(source)).append('\t')
+                    .append(type.getIRI()).append('\t')
+                    .append(type.getLabel()).append('\t')
+                    .append(taxonId(target)).append('\t')
+                    .append(names.get(target)).append('\t')
+                    .append("GEO:").append(locality).append('\t')
+                    .append("locality ").append(locality).append('\t')
+                    .append(String.format(Locale.ROOT, "%.4f", locality * 0.5 - 25.0)).append('\t')
+                    .append(String.format(Locale.ROOT, "%.4f", locality * 1.2 - 60.0)).append('\t')
+                    .append(String.format(Locale.ROOT, "20%02d-%02d-%02d", random.nextInt(20), 1 + random.nextInt(12), 1 + random.nextInt(28))).append('\t')
+                    .append("10.1234/ref.").append(i % 50).append('\t')
+                    .append("some reference ").append(i % 50)
+                    .append('\n');
+        }
+        return tsv.toString();
+    }
+
+    /**
+     * Writes a Darwin Core archive with occurrences that reference their associated taxa.
+     *
+     * @return archive directory
+     */
+    public static File darwinCoreArchive(File dir, int numberOfOccurrences, int numberOfTaxa) throws IOException {
+        FileUtils.forceMkdir(dir);
+        FileUtils.writeStringToFile(new File(dir, "meta.xml"), "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<archive xmlns=\"http://rs.tdwg.org/dwc/text/\">\n" +
+                "    <core encoding=\"UTF-8\" fieldsTerminatedBy=\"\\t\" linesTerminatedBy=\"\\n\" fieldsEnclosedBy=\"\"" +
+                " ignoreHeaderLines=\"1\" rowType=\"http://rs.tdwg.org/dwc/terms/Occurrence\">\n" +
+                "        <files>\n" +
+                "            <location>occurrences.txt</location>\n" +
+                "        </files>\n" +
+                "        <id index=\"0\"/>\n" +
+                "        <field index=\"0\" term=\"http://rs.tdwg.org/dwc/terms/occurrenceID\"/>\n" +
+                "        <field index=\"1\" term=\"http://rs.tdwg.org/dwc/terms/scientificName\"/>\n" +
+                "        <field index=\"2\" term=\"http://rs.tdwg.org/dwc/terms/associatedTaxa\"/>\n" +
+                "        <field index=\"3\" term=\"http://rs.tdwg.org/dwc/terms/eventDate\"/>\n" +
+                "        <field index=\"4\" term=\"http://rs.tdwg.org/dwc/terms/decimalLatitude\"/>\n" +
+                "        <field index=\"5\" term=\"http://rs.tdwg.org/dwc/terms/decimalLongitude\"/>\n" +
+                "    </core>\n" +
+                "</archive>\n", StandardCharsets.UTF_8);
+
+        Random random = new Random(SEED);
+        List<String> names = taxonNames(numberOfTaxa);
+        StringBuilder occurrences = new StringBuilder("occurrenceID\tscientificName\tassociatedTaxa\teventDate\tdecimalLatitude\tdecimalLongitude\n");
+        for (int i = 0; i < numberOfOccurrences; i++) {
+            InteractType type = INTERACT_TYPES[random.nextInt(INTERACT_TYPES.length)];
+            occurrences.append("occ:").append(i).append('\t')
+                    .append(names.get(random.nextInt(numberOfTaxa))).append('\t')
+                    .append(type.getLabel()).append(": ").append(names.get(random.nextInt(numberOfTaxa))).append('\t')
+                    .append(String.format(Locale.ROOT, "20%02d-%02d-%02d", random.nextInt(20), 1 + random.nextInt(12), 1 + random.nextInt(28))).append('\t')
+                    .append(String.format(Locale.ROOT, "%.4f", random.nextDouble() * 90.0)).append('\t')
+                    .append(String.format(Locale.ROOT, "%.4f", random.nextDouble() * 180.0))
+                    .append('\n');
+        }
+        FileUtils.writeStringToFile(new File(dir, "occurrences.txt"), occurrences.toString(), StandardCharsets.UTF_8);
+        return dir;
+    }
+
+    /**
+     * Writes a taxon cache (taxonCache.tsv) and taxon map (taxonMap.tsv) that resolve all
+     * generated taxon names and ids.
+     */
+    public static void taxonCacheAndMap(File dir, int numberOfTaxa) throws IOException {
+        FileUtils.forceMkdir(dir);
+        List<String> names = taxonNames(numberOfTaxa);
+        StringBuilder taxonCache = new StringBuilder("id\tname\trank\tcommonNames\tpath\tpathIds\tpathNames\texternalUrl\tthumbnailUrl\n");
+        StringBuilder taxonMap = new StringBuilder("providedTaxonId\tprovidedTaxonName\tresolvedTaxonId\tresolvedTaxonName\n");
+        for (int i = 0; i < numberOfTaxa; i++) {
+            String name = names.get(i);
+            String genus = StringUtils.substringBefore(name, " ");
+            taxonCache.append(taxonId(i)).append('\t')
+                    .append(name).append('\t')
+                    .append("species").append('\t')
+                    .append("common ").append(name).append(" @en").append('\t')
+                    .append("Animalia | ").append(genus).append(" | ").append(name).append('\t')
+                    .append("TEST:K | TEST:G").append(genus).append(" | ").append(taxonId(i)).append('\t')
+                    .append("kingdom | genus | species").append('\t')
+                    .append("http://example.org/taxon/").append(i).append('\t')
+                    .append('\n');
+            taxonMap.append(taxonId(i)).append('\t')
+                    .append(name).append('\t')
+                    .append(taxonId(i)).append('\t')
+                    .append(name)
+                    .append('\n');
+        }
+        FileUtils.writeStringToFile(new File(dir, "taxonCache.tsv"), taxonCache.toString(), StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "taxonMap.tsv"), taxonMap.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static String taxonName(Random random, int index) {
+        String genus = StringUtils.capitalize(word(random, 3));
+        return genus + " " + word(random, 3) + index;
+    }
+
+    private static String word(Random random, int numberOfSyllables) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < numberOfSyllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+}
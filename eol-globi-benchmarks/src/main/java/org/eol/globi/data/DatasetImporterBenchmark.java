@@ -0,0 +1,84 @@
+package org.eol.globi.data;
+
+import org.apache.commons.io.FileUtils;
+import org.eol.globi.benchmark.GraphFixtures;
+import org.eol.globi.benchmark.SyntheticFixtures;
+import org.globalbioticinteractions.dataset.DatasetImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses synthetic tsv and Darwin Core archive datasets into an interaction listener that
+ * only consumes the parsed interactions, so that parsing is measured without graph writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DatasetImporterBenchmark {
+
+    @Param({"10000"})
+    public int numberOfRecords;
+
+    private File tmpDir;
+    private byte[] interactionsTSV;
+    private URI archiveURI;
+
+    @Setup
+    public void init() throws IOException {
+        tmpDir = Files.createTempDirectory("dataset-importer-benchmark").toFile();
+        interactionsTSV = SyntheticFixtures.interactionsTSV(numberOfRecords, 1000).getBytes(StandardCharsets.UTF_8);
+        archiveURI = SyntheticFixtures.darwinCoreArchive(new File(tmpDir, "dwca"), numberOfRecords, 1000).toURI();
+    }
+
+    @TearDown
+    public void cleanup() {
+        FileUtils.deleteQuietly(tmpDir);
+    }
+
+    @Benchmark
+    public void importTSV(Blackhole blackhole) throws StudyImporterException {
+        DatasetImporterForTSV importer = new DatasetImporterForTSV(null, null);
+        importer.setDataset(new DatasetImpl(GraphFixtures.NAMESPACE, URI.create("http://example.org/benchmark"), in -> in) {
+            @Override
+            public InputStream retrieve(URI resourceName) throws IOException {
+                return "/interactions.tsv".equals(resourceName.toString())
+                        ? new ByteArrayInputStream(interactionsTSV)
+                        : null;
+            }
+        });
+        importer.setInteractionListener(blackhole::consume);
+        importer.importStudy();
+    }
+
+    @Benchmark
+    public void importDwCA(Blackhole blackhole) throws StudyImporterException {
+        DatasetImporterForDwCA importer = new DatasetImporterForDwCA(null, null);
+        importer.setDataset(new DatasetImpl(GraphFixtures.NAMESPACE, archiveURI, in -> in));
+        importer.setInteractionListener(blackhole::consume);
+        importer.importStudy();
+    }
+
+}
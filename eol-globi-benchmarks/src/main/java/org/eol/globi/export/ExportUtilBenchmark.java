@@ -0,0 +1,83 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullWriter;
+import org.eol.globi.benchmark.GraphFixtures;
+import org.eol.globi.benchmark.SyntheticFixtures;
+import org.eol.globi.data.StudyImporterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes query results and property rows to a writer that discards its output, so that
+ * query execution and row formatting are measured without disk io.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExportUtilBenchmark {
+
+    @Param({"10000"})
+    public int numberOfInteractions;
+
+    private File storeDir;
+    private GraphDatabaseService graphDb;
+    private List<Map<String, String>> records;
+    private ExportUtil.Appender appender;
+
+    @Setup
+    public void init() throws IOException, StudyImporterException {
+        storeDir = Files.createTempDirectory("export-benchmark").toFile();
+        graphDb = GraphFixtures.startGraph(storeDir);
+        records = GraphFixtures.interactionRecords(numberOfInteractions, 1000);
+        GraphFixtures.importAndLink(graphDb, records);
+        appender = ExportUtil.AppenderWriter.of(new NullWriter());
+    }
+
+    @TearDown
+    public void shutdown() {
+        graphDb.shutdown();
+        FileUtils.deleteQuietly(storeDir);
+    }
+
+    @Benchmark
+    public void writeResultsForCitations() throws IOException {
+        ExportUtil.writeResults(appender, graphDb, ExportCitations.CYPHER_QUERY, new TreeMap<>(), true);
+    }
+
+    @Benchmark
+    public void writeResultsForFlatInteractions() throws IOException {
+        new ExportFlatInteractions(new ExportUtil.TsvValueJoiner(), "interactions.tsv.gz")
+                .export(graphDb, appender);
+    }
+
+    @Benchmark
+    public void writeProperties() throws IOException {
+        for (Map<String, String> record : records) {
+            ExportUtil.writeProperties(appender, record, SyntheticFixtures.INTERACTIONS_TSV_COLUMNS);
+        }
+    }
+
+}
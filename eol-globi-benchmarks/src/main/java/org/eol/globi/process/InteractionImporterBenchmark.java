@@ -0,0 +1,96 @@
+package org.eol.globi.process;
+
+import org.apache.commons.io.FileUtils;
+import org.eol.globi.benchmark.GraphFixtures;
+import org.eol.globi.data.BatchTransaction;
+import org.eol.globi.data.NodeFactoryNeo4j;
+import org.eol.globi.data.StudyImporterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports interaction records into an embedded graph, one record per invocation. A new graph is
+ * started for every iteration, so that iterations do not measure an ever growing graph.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class InteractionImporterBenchmark {
+
+    // 0 commits every interaction in its own transaction
+    @Param({"0", "1000"})
+    public int batchSize;
+
+    private List<Map<String, String>> records;
+
+    private File storeDir;
+    private GraphDatabaseService graphDb;
+    private NodeFactoryNeo4j nodeFactory;
+    private InteractionListener importer;
+    private BatchTransaction batch;
+    private int recordIndex;
+
+    @Setup(Level.Trial)
+    public void createRecords() {
+        records = GraphFixtures.interactionRecords(100000, 5000);
+    }
+
+    @Setup(Level.Iteration)
+    public void startGraph() throws IOException {
+        storeDir = Files.createTempDirectory("interaction-importer-benchmark").toFile();
+        graphDb = GraphFixtures.startGraph(storeDir);
+        nodeFactory = new NodeFactoryNeo4j(graphDb);
+        importer = GraphFixtures.interactionImporter(nodeFactory);
+        recordIndex = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopGraph() {
+        commitBatch();
+        graphDb.shutdown();
+        FileUtils.deleteQuietly(storeDir);
+    }
+
+    @Benchmark
+    public void on() throws StudyImporterException {
+        if (batchSize > 0 && batch == null) {
+            batch = nodeFactory.beginBatch();
+        }
+        importer.on(records.get(recordIndex));
+        recordIndex = (recordIndex + 1) % records.size();
+        if (batchSize > 0 && recordIndex % batchSize == 0) {
+            commitBatch();
+        }
+    }
+
+    private void commitBatch() {
+        if (batch != null) {
+            batch.success();
+            batch.close();
+            batch = null;
+        }
+    }
+
+}
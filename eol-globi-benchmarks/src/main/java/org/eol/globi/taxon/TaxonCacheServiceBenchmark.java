@@ -0,0 +1,93 @@
+package org.eol.globi.taxon;
+
+import org.apache.commons.io.FileUtils;
+import org.eol.globi.benchmark.SyntheticFixtures;
+import org.eol.globi.domain.Term;
+import org.eol.globi.domain.TermImpl;
+import org.eol.globi.service.PropertyEnricherException;
+import org.eol.globi.util.TermUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches batches of names and ids against a taxon cache that is built once per trial, so that
+ * only lookups are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaxonCacheServiceBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"100000"})
+    public int numberOfTaxa;
+
+    private File tmpDir;
+    private TaxonCacheService taxonCacheService;
+    private List<Term> terms;
+
+    @Setup
+    public void init() throws IOException, PropertyEnricherException {
+        tmpDir = Files.createTempDirectory("taxon-cache-benchmark").toFile();
+        File fixtureDir = new File(tmpDir, "fixtures");
+        SyntheticFixtures.taxonCacheAndMap(fixtureDir, numberOfTaxa);
+
+        taxonCacheService = new TaxonCacheService(
+                new File(fixtureDir, "taxonCache.tsv").toURI().toString(),
+                new File(fixtureDir, "taxonMap.tsv").toURI().toString());
+        taxonCacheService.setCacheDir(new File(tmpDir, "mapdb"));
+        // builds the cache
+        taxonCacheService.match(TermUtil.toNamesToTerms(Collections.singletonList("Homo sapiens")), (requestId, providedTerm, resolvedTaxon, nameType) -> {
+        });
+
+        Random random = new Random(42L);
+        List<String> names = SyntheticFixtures.taxonNames(numberOfTaxa);
+        terms = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int index = random.nextInt(numberOfTaxa);
+            if (i % 10 == 0) {
+                terms.add(new TermImpl(null, "no such name " + i));
+            } else if (i % 3 == 0) {
+                terms.add(new TermImpl(SyntheticFixtures.taxonId(index), null));
+            } else {
+                terms.add(new TermImpl(null, names.get(index)));
+            }
+        }
+    }
+
+    @TearDown
+    public void shutdown() throws IOException {
+        taxonCacheService.shutdown();
+        FileUtils.deleteQuietly(tmpDir);
+    }
+
+    @Benchmark
+    public void match(Blackhole blackhole) throws PropertyEnricherException {
+        taxonCacheService.match(terms, (requestId, providedTerm, resolvedTaxon, nameType) -> blackhole.consume(resolvedTaxon));
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.eol.globi.util;
+
+import org.eol.globi.benchmark.SyntheticFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVTSVUtilBenchmark {
+
+    @Param({"10000"})
+    public int numberOfLines;
+
+    private String[] lines;
+    private List<String> pipedValues;
+
+    @Setup
+    public void init() {
+        lines = SyntheticFixtures.interactionsTSV(numberOfLines, 1000).split("\n");
+        pipedValues = new ArrayList<>(lines.length);
+        for (String line : lines) {
+            pipedValues.add(line.replace('\t', '|'));
+        }
+    }
+
+    @Benchmark
+    public void splitTSV(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(CSVTSVUtil.splitTSV(line));
+        }
+    }
+
+    @Benchmark
+    public void splitPipes(Blackhole blackhole) {
+        for (String value : pipedValues) {
+            blackhole.consume(CSVTSVUtil.splitPipes(value));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.eol.globi.util;
+
+import com.Ostermiller.util.LabeledCSVParser;
+import org.eol.globi.domain.InteractType;
+import org.eol.globi.service.ResourceService;
+import org.eol.globi.service.TermLookupServiceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up interaction types using the default interaction type mapping that ships with eol-globi-lib,
+ * with a mix of mapped labels, ignored labels, known ids and unknown names. The chained mapper is the cached
+ * custom/default/RO mapper that importers get for a dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InteractTypeMapperBenchmark {
+
+    private InteractTypeMapper mapper;
+    private InteractTypeMapper chainedMapper;
+    private String[] namesOrIds;
+
+    @Setup
+    public void init() throws TermLookupServiceException, IOException {
+        ResourceService resourceService = InteractTypeMapperFactoryImpl
+                .getResourceServiceForDefaultInteractionTypeMapping(new ResourceServiceLocal());
+        mapper = new InteractTypeMapperFactoryImpl().mapperForResourceService(resourceService);
+        chainedMapper = new InteractTypeMapperFactoryImpl(resourceService).create();
+
+        List<String> values = new ArrayList<>();
+        values.addAll(valuesOf(resourceService, InteractTypeMapperFactoryImpl.TYPE_MAP_URI_DEFAULT, "provided_interaction_type_label"));
+        values.addAll(valuesOf(resourceService, InteractTypeMapperFactoryImpl.TYPE_IGNORED_URI_DEFAULT, "interaction_type_ignored"));
+        for (InteractType type : InteractType.values()) {
+            values.add(type.getIRI());
+            values.add(type.getLabel());
+        }
+        int numberOfKnownValues = values.size();
+        for (int i = 0; i < numberOfKnownValues / 4; i++) {
+            values.add("unknown interaction type " + i);
+        }
+        namesOrIds = values.toArray(new String[0]);
+    }
+
+    private static List<String> valuesOf(ResourceService resourceService, URI resource, String columnName) throws IOException {
+        List<String> values = new ArrayList<>();
+        try (InputStream is = resourceService.retrieve(resource)) {
+            LabeledCSVParser parser = CSVTSVUtil.createLabeledCSVParser(is);
+            while (parser.getLine() != null) {
+                values.add(parser.getValueByLabel(columnName));
+            }
+        }
+        return values;
+    }
+
+    @Benchmark
+    public void getInteractType(Blackhole blackhole) {
+        for (String nameOrId : namesOrIds) {
+            blackhole.consume(mapper.getInteractType(nameOrId));
+        }
+    }
+
+    @Benchmark
+    public void shouldIgnoreInteractionType(Blackhole blackhole) {
+        for (String nameOrId : namesOrIds) {
+            blackhole.consume(mapper.shouldIgnoreInteractionType(nameOrId));
+        }
+    }
+
+    @Benchmark
+    public void getInteractTypeChained(Blackhole blackhole) {
+        for (String nameOrId : namesOrIds) {
+            blackhole.consume(chainedMapper.getInteractType(nameOrId));
+        }
+    }
+
+    @Benchmark
+    public void typeOf(Blackhole blackhole) {
+        for (String nameOrId : namesOrIds) {
+            blackhole.consume(InteractType.typeOf(nameOrId));
+        }
+    }
+
+}
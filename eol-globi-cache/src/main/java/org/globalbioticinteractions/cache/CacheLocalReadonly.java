@@ -9,7 +9,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.JarURLConnection;
@@ -58,23 +57,11 @@ public class CacheLocalReadonly implements Cache {
             String hashCandidate = getHashCandidate(resourceURI, cacheDirForNamespace.toURI());
             accessFile = ProvenanceLog.findProvenanceLogFile(namespace, cachePath);
             if (accessFile.exists()) {
-                try (InputStream is = new FileInputStream(accessFile)) {
-                    ProvenanceLog.parseProvenanceStream(is, new ProvenanceLog.ProvenanceEntryListener() {
-                        @Override
-                        public void onValues(String[] values) {
-                            if (values.length > 3) {
-                                URI sourceURI = URI.create(values[1]);
-                                String sha256 = values[2];
-                                String accessedAt = StringUtils.trim(values[3]);
-                                if (StringUtils.isNotBlank(sha256)) {
-                                    ContentProvenance provenance = getProvenance(resourceURI, hashCandidate, sourceURI, sha256, accessedAt, cacheDirForNamespace, namespace);
-                                    if (provenance != null) {
-                                        meta.set(provenance);
-                                    }
-                                }
-                            }
-                        }
-                    });
+                ProvenanceIndex.Entry entry = ProvenanceIndex
+                        .forProvenanceLog(accessFile)
+                        .findLastEntry(resourceURI.toString(), hashCandidate);
+                if (entry != null) {
+                    meta.set(getProvenance(resourceURI, hashCandidate, URI.create(entry.getSourceURI()), entry.getSha256(), entry.getAccessedAt(), cacheDirForNamespace, namespace));
                 }
             }
         } catch (IOException | DatasetRegistryException e) {
@@ -0,0 +1,202 @@
+package org.globalbioticinteractions.cache;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.globalbioticinteractions.dataset.DatasetRegistryException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of a provenance log (access.tsv), keyed by namespace, source URI and sha256.
+ * <p>
+ * An index is built once per provenance log file and kept in sync by parsing only the lines
+ * appended since the last lookup. If the log shrinks or is rewritten, the index is rebuilt.
+ */
+public class ProvenanceIndex {
+
+    private static final int MAX_CACHED_INDEXES = 1024;
+
+    private static final Map<String, ProvenanceIndex> INDEXES = new LinkedHashMap<String, ProvenanceIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProvenanceIndex> eldest) {
+            return size() > MAX_CACHED_INDEXES;
+        }
+    };
+
+    private final File provenanceLog;
+
+    private long indexedLength = 0;
+    private long indexedLastModified = 0;
+    private long numberOfLines = 0;
+
+    private final Map<String, Entry> lastEntryBySha256 = new HashMap<>();
+    private final Map<String, Entry> lastEntryBySourceURI = new HashMap<>();
+    private final Map<String, Entry> lastEntryByNamespaceAndType = new HashMap<>();
+    private final Map<String, Collection<String>> namespacesByType = new HashMap<>();
+
+    ProvenanceIndex(File provenanceLog) {
+        this.provenanceLog = provenanceLog;
+    }
+
+    public static ProvenanceIndex forProvenanceLog(File provenanceLog) {
+        String key = provenanceLog.getAbsolutePath();
+        synchronized (INDEXES) {
+            return INDEXES.computeIfAbsent(key, k -> new ProvenanceIndex(provenanceLog));
+        }
+    }
+
+    static void onAppend(File provenanceLog) throws DatasetRegistryException {
+        ProvenanceIndex index;
+        synchronized (INDEXES) {
+            index = INDEXES.get(provenanceLog.getAbsolutePath());
+        }
+        if (index != null) {
+            index.refresh();
+        }
+    }
+
+    public static void clear() {
+        synchronized (INDEXES) {
+            INDEXES.clear();
+        }
+    }
+
+    /**
+     * @return last entry with a non-blank sha256 that either matches the provided sha256 or was retrieved from the provided source URI
+     */
+    public synchronized Entry findLastEntry(String sourceURI, String sha256) throws DatasetRegistryException {
+        refresh();
+        Entry bySha256 = StringUtils.isBlank(sha256) ? null : lastEntryBySha256.get(sha256);
+        Entry bySourceURI = sourceURI == null ? null : lastEntryBySourceURI.get(sourceURI);
+        Entry lastEntry = bySha256;
+        if (bySourceURI != null && (lastEntry == null || bySourceURI.getLine() > lastEntry.getLine())) {
+            lastEntry = bySourceURI;
+        }
+        return lastEntry;
+    }
+
+    /**
+     * @return last entry of given type for namespace, namespace and type are compared ignoring case and surrounding whitespace
+     */
+    public synchronized Entry findLastEntryForNamespace(String namespace, String type) throws DatasetRegistryException {
+        refresh();
+        return lastEntryByNamespaceAndType.get(namespaceAndTypeKey(namespace, type));
+    }
+
+    public synchronized Collection<String> findNamespaces(String type) throws DatasetRegistryException {
+        refresh();
+        Collection<String> namespaces = namespacesByType.get(type);
+        return namespaces == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableCollection(new TreeSet<>(namespaces));
+    }
+
+    synchronized void refresh() throws DatasetRegistryException {
+        long length = provenanceLog.length();
+        long lastModified = provenanceLog.lastModified();
+        if (length < indexedLength
+                || (length == indexedLength && lastModified != indexedLastModified)) {
+            reset();
+        }
+
+        if (length > indexedLength) {
+            try (InputStream is = new FileInputStream(provenanceLog)) {
+                IOUtils.skipFully(is, indexedLength);
+                ProvenanceLog.parseProvenanceStream(new BoundedInputStream(is, length - indexedLength), this::onValues);
+            } catch (IOException e) {
+                reset();
+                throw new DatasetRegistryException("failed to index [" + provenanceLog.getAbsolutePath() + "]", e);
+            }
+            indexedLength = length;
+        }
+        indexedLastModified = lastModified;
+    }
+
+    private void reset() {
+        indexedLength = 0;
+        indexedLastModified = 0;
+        numberOfLines = 0;
+        lastEntryBySha256.clear();
+        lastEntryBySourceURI.clear();
+        lastEntryByNamespaceAndType.clear();
+        namespacesByType.clear();
+    }
+
+    private void onValues(String[] values) {
+        long line = numberOfLines++;
+        if (values.length > 3) {
+            Entry entry = new Entry(line,
+                    values[0],
+                    values[1],
+                    values[2],
+                    StringUtils.trim(values[3]),
+                    values.length > 4 ? values[4] : null);
+            if (StringUtils.isNotBlank(entry.getSha256())) {
+                lastEntryBySha256.put(entry.getSha256(), entry);
+                lastEntryBySourceURI.put(entry.getSourceURI(), entry);
+            }
+            if (entry.getType() != null) {
+                lastEntryByNamespaceAndType.put(namespaceAndTypeKey(entry.getNamespace(), entry.getType()), entry);
+                namespacesByType
+                        .computeIfAbsent(entry.getType(), k -> new TreeSet<>())
+                        .add(entry.getNamespace());
+            }
+        }
+    }
+
+    private static String namespaceAndTypeKey(String namespace, String type) {
+        return StringUtils.lowerCase(StringUtils.trim(namespace)) + "\t" + StringUtils.trim(type);
+    }
+
+    public static class Entry {
+        private final long line;
+        private final String namespace;
+        private final String sourceURI;
+        private final String sha256;
+        private final String accessedAt;
+        private final String type;
+
+        Entry(long line, String namespace, String sourceURI, String sha256, String accessedAt, String type) {
+            this.line = line;
+            this.namespace = namespace;
+            this.sourceURI = sourceURI;
+            this.sha256 = sha256;
+            this.accessedAt = accessedAt;
+            this.type = type;
+        }
+
+        long getLine() {
+            return line;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public String getSourceURI() {
+            return sourceURI;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public String getAccessedAt() {
+            return accessedAt;
+        }
+
+        public String getType() {
+            return type;
+        }
+    }
+}
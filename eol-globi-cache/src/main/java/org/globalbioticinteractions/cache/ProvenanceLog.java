@@ -43,6 +43,11 @@ public class ProvenanceLog {
         } catch (IOException ex) {
             throw new IOException("failed to write to [" + accessLog.getAbsolutePath() + "]", ex);
         }
+        try {
+            ProvenanceIndex.onAppend(accessLog);
+        } catch (DatasetRegistryException ex) {
+            throw new IOException("failed to update index of [" + accessLog.getAbsolutePath() + "]", ex);
+        }
     }
 
     static List<String> compileLogEntries(ContentProvenance contentProvenance) {
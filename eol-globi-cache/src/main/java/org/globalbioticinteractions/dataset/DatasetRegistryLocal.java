@@ -3,22 +3,20 @@ package org.globalbioticinteractions.dataset;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.FileFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
-import org.apache.commons.lang3.StringUtils;
 import org.eol.globi.util.InputStreamFactory;
 import org.globalbioticinteractions.cache.CacheFactory;
 import org.globalbioticinteractions.cache.CacheUtil;
+import org.globalbioticinteractions.cache.ProvenanceIndex;
 import org.globalbioticinteractions.cache.ProvenanceLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicReference;
 
 public class DatasetRegistryLocal implements DatasetRegistry {
     private final static Logger LOG = LoggerFactory.getLogger(DatasetRegistryLocal.class);
@@ -57,44 +55,30 @@ public class DatasetRegistryLocal implements DatasetRegistry {
         }, TrueFileFilter.INSTANCE);
 
         Collection<String> namespaces = new TreeSet<>();
-        ProvenanceLog.ProvenanceEntryListener lineListener = values -> {
-            if (values.length >= 5
-                    && StringUtils.equals(values[4], CacheUtil.MIME_TYPE_GLOBI)) {
-                namespaces.add(values[0]);
-            }
-        };
-
         for (File accessFile : accessFiles) {
-            try (FileInputStream is = new FileInputStream(accessFile)) {
-                ProvenanceLog.parseProvenanceStream(is, lineListener);
-            } catch (IOException e) {
-                throw new DatasetRegistryException("failed to access [" + accessFile.getAbsolutePath() + "]", e);
-            }
+            namespaces.addAll(ProvenanceIndex
+                    .forProvenanceLog(accessFile)
+                    .findNamespaces(CacheUtil.MIME_TYPE_GLOBI));
         }
         return namespaces;
     }
 
 
     private URI findLastCachedDatasetURI(String namespace) throws DatasetRegistryException {
-        AtomicReference<URI> sourceURI = new AtomicReference<>();
-        ProvenanceLog.ProvenanceEntryListener provenanceEntryListener = values -> {
-            if (values.length > 4
-                    && StringUtils.equalsIgnoreCase(StringUtils.trim(values[0]), namespace)
-                    && StringUtils.equals(StringUtils.trim(values[4]), CacheUtil.MIME_TYPE_GLOBI)) {
-                sourceURI.set(URI.create(values[1]));
-            }
-
-        };
+        URI sourceURI = null;
         File accessFile;
         try {
             accessFile = ProvenanceLog.findProvenanceLogFile(namespace, cacheDir);
             if (accessFile.exists()) {
-                ProvenanceLog.parseProvenanceStream(new FileInputStream(accessFile), provenanceEntryListener);
+                ProvenanceIndex.Entry entry = ProvenanceIndex
+                        .forProvenanceLog(accessFile)
+                        .findLastEntryForNamespace(namespace, CacheUtil.MIME_TYPE_GLOBI);
+                sourceURI = entry == null ? null : URI.create(entry.getSourceURI());
             }
         } catch (IOException e) {
             throw new DatasetRegistryException("issue accessing provenance log", e);
         }
-        return sourceURI.get();
+        return sourceURI;
     }
 
 
@@ -0,0 +1,100 @@
+package org.globalbioticinteractions.cache;
+
+import org.apache.commons.io.FileUtils;
+import org.globalbioticinteractions.dataset.DatasetRegistryException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+
+public class ProvenanceIndexTest {
+
+    private File tempDirectory;
+
+    @Before
+    public void init() throws IOException {
+        tempDirectory = new File("target/provenance-index-test" + UUID.randomUUID());
+        FileUtils.forceMkdir(tempDirectory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ProvenanceIndex.clear();
+        FileUtils.deleteDirectory(tempDirectory);
+    }
+
+    @Test
+    public void findLastEntry() throws IOException, DatasetRegistryException {
+        File log = new File(tempDirectory, ProvenanceLog.PROVENANCE_LOG_FILENAME);
+        FileUtils.writeStringToFile(log,
+                "some/namespace\thttp://example.com\t1234\t1970-01-01T00:00:00Z\tapplication/globi\n" +
+                        "some/namespace\thttp://example.com/data.csv\t5678\t1970-01-01T00:00:01Z\n" +
+                        "some/namespace\thttp://example.com\t4321\t1970-01-01T00:00:02Z\tapplication/globi",
+                StandardCharsets.UTF_8);
+
+        ProvenanceIndex index = ProvenanceIndex.forProvenanceLog(log);
+
+        assertThat(index.findLastEntry("http://example.com", null).getSha256(), is("4321"));
+        assertThat(index.findLastEntry("http://example.com", "1234").getSha256(), is("4321"));
+        assertThat(index.findLastEntry("http://other.com", "1234").getSha256(), is("1234"));
+        assertThat(index.findLastEntry("http://example.com/data.csv", null).getAccessedAt(), is("1970-01-01T00:00:01Z"));
+        assertThat(index.findLastEntry("http://other.com", null), is(nullValue()));
+
+        assertThat(index.findLastEntryForNamespace(" Some/Namespace", CacheUtil.MIME_TYPE_GLOBI).getSha256(), is("4321"));
+        assertThat(index.findLastEntryForNamespace("other/namespace", CacheUtil.MIME_TYPE_GLOBI), is(nullValue()));
+        assertThat(index.findNamespaces(CacheUtil.MIME_TYPE_GLOBI), contains("some/namespace"));
+    }
+
+    @Test
+    public void keepInSyncWithAppendedEntries() throws IOException, DatasetRegistryException {
+        ContentProvenance first = new ContentProvenance("some/namespace",
+                URI.create("http://example.com"),
+                URI.create("cached:file.zip"), "1234",
+                "1970-01-01T00:00:00Z");
+        ProvenanceLog.appendProvenanceLog(tempDirectory, first);
+
+        File log = ProvenanceLog.findProvenanceLogFile("some/namespace", tempDirectory.getAbsolutePath());
+        ProvenanceIndex index = ProvenanceIndex.forProvenanceLog(log);
+        assertThat(index.findLastEntry("http://example.com", null).getSha256(), is("1234"));
+
+        ContentProvenance second = new ContentProvenance("some/namespace",
+                URI.create("http://example.com"),
+                URI.create("cached:file.zip"), "5678",
+                "1970-01-01T00:00:01Z");
+        ProvenanceLog.appendProvenanceLog(tempDirectory, second);
+
+        assertThat(index.findLastEntry("http://example.com", null).getSha256(), is("5678"));
+        assertThat(index.findLastEntry("http://example.com", "1234").getSha256(), is("5678"));
+        assertThat(index.findLastEntry("http://other.com", "1234").getSha256(), is("1234"));
+    }
+
+    @Test
+    public void rebuildOnRewrite() throws IOException, DatasetRegistryException {
+        File log = new File(tempDirectory, ProvenanceLog.PROVENANCE_LOG_FILENAME);
+        FileUtils.writeStringToFile(log,
+                "some/namespace\thttp://example.com\t1234\t1970-01-01T00:00:00Z\tapplication/globi",
+                StandardCharsets.UTF_8);
+
+        ProvenanceIndex index = ProvenanceIndex.forProvenanceLog(log);
+        assertThat(index.findLastEntry("http://example.com", null).getSha256(), is("1234"));
+
+        FileUtils.writeStringToFile(log,
+                "some/namespace\thttp://example.com\t56\t1970-01-01T00:00:00Z",
+                StandardCharsets.UTF_8);
+
+        assertThat(index.findLastEntry("http://other.com", "1234"), is(nullValue()));
+        assertThat(index.findLastEntry("http://example.com", null).getSha256(), is("56"));
+        assertThat(index.findNamespaces(CacheUtil.MIME_TYPE_GLOBI).isEmpty(), is(true));
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.eol.globi.data;
+
+/**
+ * Groups the graph writes of many operations, so that they are committed, or rolled back, as a whole.
+ * Like a graph transaction, writes are only committed on {@link #close()} if {@link #success()} was called.
+ */
+public interface BatchTransaction extends AutoCloseable {
+
+    BatchTransaction NONE = new BatchTransaction() {
+        @Override
+        public void success() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    void success();
+
+    /**
+     * @return true if the batch holds enough work to be committed, regardless of the number of operations in it
+     */
+    default boolean isFull() {
+        return false;
+    }
+
+    @Override
+    void close();
+}
@@ -7,18 +7,35 @@ import org.globalbioticinteractions.dataset.Dataset;
 import org.globalbioticinteractions.dataset.DatasetFactory;
 import org.globalbioticinteractions.dataset.DatasetRegistry;
 import org.globalbioticinteractions.dataset.DatasetRegistryException;
+import org.eol.globi.process.InteractionImporter;
+import org.eol.globi.process.InteractionListener;
+import org.eol.globi.process.InteractionListenerImpl;
 import org.eol.globi.service.StudyImporterFactoryImpl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class DatasetImporterForRegistry extends NodeBasedImporter {
     private static final Logger LOG = LoggerFactory.getLogger(DatasetImporterForRegistry.class);
 
+    private static final int WRITE_QUEUE_CAPACITY = 10000;
+    private static final int WRITE_BATCH_SIZE = 1000;
+
     private final DatasetRegistry registry;
     private Predicate<Dataset> datasetFilter = x -> true;
+    private int numberOfWorkers = 1;
+    private Supplier<BatchTransaction> transactionFactory = null;
 
     public DatasetImporterForRegistry(ParserFactory parserFactory, NodeFactory nodeFactory, DatasetRegistry registry) {
         super(parserFactory, nodeFactory);
@@ -36,11 +53,20 @@ public class DatasetImporterForRegistry extends NodeBasedImporter {
 
 
         List<String> repositoriesWithIssues = new ArrayList<>();
-        for (String namespace : namespaces) {
-            try {
-                importData(namespace);
-            } catch (StudyImporterException e) {
-                repositoriesWithIssues.add(namespace);
+        if (getNumberOfWorkers() > 1) {
+            Collection<String> failedNamespaces = importInParallel(namespaces);
+            for (String namespace : namespaces) {
+                if (failedNamespaces.contains(namespace)) {
+                    repositoriesWithIssues.add(namespace);
+                }
+            }
+        } else {
+            for (String namespace : namespaces) {
+                try {
+                    importData(namespace);
+                } catch (StudyImporterException e) {
+                    repositoriesWithIssues.add(namespace);
+                }
             }
         }
 
@@ -68,11 +94,158 @@ public class DatasetImporterForRegistry extends NodeBasedImporter {
         }
     }
 
-    private DatasetRegistry getRegistry() {
-        return registry;
+    /**
+     * Datasets are retrieved and parsed by a pool of workers. Parsed interactions are expanded, mapped and
+     * validated on the worker threads, after which they are queued for a single writer (the calling thread)
+     * that applies them to the graph. Importers that write to the node factory
+     * directly (i.e., without an interaction listener) are run by the writer as a whole.
+     * <p>
+     * If a transaction factory is set, queued writes are applied in batch transactions. A batch that fails,
+     * either because one of its writes failed or because it failed to commit, is rolled back as a whole and its
+     * writes are then applied again, each in its own transaction, so that only the namespace that caused the
+     * failure is reported as failed. Importers that run as a whole are not batched, because they can neither be
+     * rolled back nor applied again cheaply.
+     *
+     * @return namespaces that failed to import
+     */
+    private Collection<String> importInParallel(Collection<String> namespaces) throws StudyImporterException {
+        LOG.info("importing [" + namespaces.size() + "] datasets using [" + getNumberOfWorkers() + "] workers...");
+        Set<String> failedNamespaces = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        BlockingQueue<Write> writeQueue = new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY);
+
+        ExecutorService workers = Executors.newFixedThreadPool(getNumberOfWorkers());
+        try {
+            for (String namespace : namespaces) {
+                workers.submit(() -> {
+                    try {
+                        parseData(namespace, writeQueue, failedNamespaces);
+                    } catch (StudyImporterException | DatasetRegistryException ex) {
+                        LOG.error("failed to import data from repo [" + namespace + "]", ex);
+                        failedNamespaces.add(namespace);
+                    } catch (InterruptedException ex) {
+                        failedNamespaces.add(namespace);
+                        Thread.currentThread().interrupt();
+                    } catch (Throwable th) {
+                        LOG.error("unexpected failure while importing data from repo [" + namespace + "]", th);
+                        failedNamespaces.add(namespace);
+                    }
+                });
+            }
+            workers.shutdown();
+            applyWrites(writeQueue, workers, failedNamespaces);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StudyImporterException("interrupted while importing datasets", e);
+        } finally {
+            workers.shutdownNow();
+        }
+        return failedNamespaces;
     }
 
-    public void importData(Dataset dataset) throws StudyImporterException {
+    private void parseData(String namespace, BlockingQueue<Write> writeQueue, Set<String> failedNamespaces) throws StudyImporterException, DatasetRegistryException, InterruptedException {
+        LOG.info("retrieving dataset from [" + namespace + "]...");
+        Dataset dataset = new DatasetFactory(getRegistry()).datasetFor(namespace);
+        if (datasetFilter.test(dataset)) {
+            LOG.info("importing dataset from [" + namespace + "]...");
+            writeQueue.put(new Write(namespace, () -> getNodeFactory().getOrCreateDataset(dataset)));
+            DatasetImporter importer = createImporter(dataset);
+            if (importer instanceof DatasetImporterWithListener) {
+                InteractionImporter interactionImporter = new InteractionImporter(
+                        new NodeFactoryWithDatasetContext(getNodeFactory(), dataset),
+                        getLogger(),
+                        getGeoNamesService());
+                InteractionListener writeListener = interaction -> {
+                    if (failedNamespaces.contains(namespace)) {
+                        throw new StudyImporterException("aborting import of [" + namespace + "] after failed write");
+                    }
+                    try {
+                        writeQueue.put(new Write(namespace, () -> interactionImporter.on(interaction)));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new StudyImporterException("interrupted while importing [" + namespace + "]", e);
+                    }
+                };
+                ((DatasetImporterWithListener) importer)
+                        .setInteractionListener(new InteractionListenerImpl(writeListener, getLogger(), dataset));
+                importer.importStudy();
+            } else if (importer != null) {
+                writeQueue.put(new Write(namespace, importer::importStudy, false));
+            }
+            writeQueue.put(new Write(namespace, () -> LOG.info("importing github repo [" + namespace + "] done.")));
+        } else {
+            LOG.info("skipping (deprecated) dataset from [" + namespace + "]...");
+        }
+    }
+
+    private void applyWrites(BlockingQueue<Write> writeQueue, ExecutorService workers, Set<String> failedNamespaces) throws InterruptedException {
+        List<Write> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        while (!workers.isTerminated() || !writeQueue.isEmpty()) {
+            Write first = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                batch.add(first);
+                writeQueue.drainTo(batch, WRITE_BATCH_SIZE - 1);
+                applyBatch(batch, failedNamespaces);
+                batch.clear();
+            }
+        }
+    }
+
+    private void applyBatch(List<Write> batch, Set<String> failedNamespaces) {
+        int next = 0;
+        while (next < batch.size()) {
+            if (transactionFactory != null && batch.get(next).isBatchable()) {
+                next = applyInTransaction(batch, next, failedNamespaces);
+            } else {
+                applyEach(batch.subList(next, next + 1), failedNamespaces);
+                next++;
+            }
+        }
+    }
+
+    /**
+     * Applies consecutive batchable writes in a single transaction, until a write that cannot be batched is found
+     * or the transaction is full.
+     *
+     * @return index of the first write not applied
+     */
+    private int applyInTransaction(List<Write> batch, int start, Set<String> failedNamespaces) {
+        int end = start;
+        try (BatchTransaction tx = transactionFactory.get()) {
+            while (end < batch.size() && batch.get(end).isBatchable() && !tx.isFull()) {
+                Write write = batch.get(end++);
+                if (!failedNamespaces.contains(write.getNamespace())) {
+                    write.apply();
+                }
+            }
+            tx.success();
+        } catch (StudyImporterException | RuntimeException ex) {
+            LOG.warn("failed to apply batch of [" + (end - start) + "] writes, applying them one by one", ex);
+            applyEach(batch.subList(start, end), failedNamespaces);
+        }
+        return end;
+    }
+
+    private void applyEach(List<Write> writes, Set<String> failedNamespaces) {
+        for (Write write : writes) {
+            if (!failedNamespaces.contains(write.getNamespace())) {
+                try (BatchTransaction tx = transactionFor(write)) {
+                    write.apply();
+                    tx.success();
+                } catch (StudyImporterException | RuntimeException ex) {
+                    LOG.error("failed to import data from repo [" + write.getNamespace() + "]", ex);
+                    failedNamespaces.add(write.getNamespace());
+                }
+            }
+        }
+    }
+
+    private BatchTransaction transactionFor(Write write) {
+        return transactionFactory != null && write.isBatchable()
+                ? transactionFactory.get()
+                : BatchTransaction.NONE;
+    }
+
+    private DatasetImporter createImporter(Dataset dataset) throws StudyImporterException {
         DatasetImporter importer = new StudyImporterFactoryImpl(getNodeFactory()).createImporter(dataset);
         if (importer != null) {
             if (getLogger() != null) {
@@ -81,6 +254,17 @@ public class DatasetImporterForRegistry extends NodeBasedImporter {
             if (getGeoNamesService() != null) {
                 importer.setGeoNamesService(getGeoNamesService());
             }
+        }
+        return importer;
+    }
+
+    private DatasetRegistry getRegistry() {
+        return registry;
+    }
+
+    public void importData(Dataset dataset) throws StudyImporterException {
+        DatasetImporter importer = createImporter(dataset);
+        if (importer != null) {
             importer.importStudy();
         }
     }
@@ -88,4 +272,52 @@ public class DatasetImporterForRegistry extends NodeBasedImporter {
     public void setDatasetFilter(Predicate<Dataset> datasetFilter) {
         this.datasetFilter = datasetFilter;
     }
+
+    public int getNumberOfWorkers() {
+        return numberOfWorkers;
+    }
+
+    public void setNumberOfWorkers(int numberOfWorkers) {
+        this.numberOfWorkers = numberOfWorkers;
+    }
+
+    /**
+     * @param transactionFactory used to group the graph writes of many interactions into batches when importing
+     *                           with more than one worker
+     */
+    public void setTransactionFactory(Supplier<BatchTransaction> transactionFactory) {
+        this.transactionFactory = transactionFactory;
+    }
+
+    private interface WriteAction {
+        void apply() throws StudyImporterException;
+    }
+
+    private static class Write {
+        private final String namespace;
+        private final WriteAction action;
+        private final boolean batchable;
+
+        Write(String namespace, WriteAction action) {
+            this(namespace, action, true);
+        }
+
+        Write(String namespace, WriteAction action, boolean batchable) {
+            this.namespace = namespace;
+            this.action = action;
+            this.batchable = batchable;
+        }
+
+        String getNamespace() {
+            return namespace;
+        }
+
+        boolean isBatchable() {
+            return batchable;
+        }
+
+        void apply() throws StudyImporterException {
+            action.apply();
+        }
+    }
 }
@@ -1,14 +1,13 @@
 package org.eol.globi.data;
 
-import com.Ostermiller.util.LabeledCSVParser;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.eol.globi.domain.PropertyAndValueDictionary;
 import org.eol.globi.process.InteractionListener;
 import org.eol.globi.service.TaxonUtil;
-import org.eol.globi.util.CSVTSVUtil;
 import org.eol.globi.util.ExternalIdUtil;
 import org.eol.globi.util.InteractUtil;
+import org.eol.globi.util.TabularTokenizer;
 import org.globalbioticinteractions.dataset.CitationUtil;
 
 import java.io.IOException;
@@ -201,63 +200,80 @@ public class DatasetImporterForTSV extends DatasetImporterWithListener {
 
     private void importResource(String namespace, String sourceCitation, String resourceName, char newDelim, List<IOException> parserExceptions) throws IOException, StudyImporterException {
         URI resourceURI = URI.create(resourceName);
-        LabeledCSVParser parser = null;
+        TabularTokenizer tokenizer = null;
         try {
             InputStream is = getDataset().retrieve(resourceURI);
             if (is == null) {
                 parserExceptions.add(new IOException("failed to access [" + resourceName + "] as individual resource (e.g. local/remote data/file)."));
             } else {
-                parser = ParserFactoryForDataset.getLabeledCSVParser(is, CharsetConstant.UTF8);
-                parser.changeDelimiter(newDelim);
+                tokenizer = new TabularTokenizer(FileUtils.getUncompressedBufferedReader(is, CharsetConstant.UTF8), newDelim);
             }
         } catch (IOException ex) {
             parserExceptions.add(new IOException("failed to access [" + resourceURI.toString() + "]", ex));
         }
-        if (parser != null) {
-            importResource(namespace, sourceCitation, getInteractionListener(), resourceURI, parser);
+        if (tokenizer != null) {
+            try {
+                importResource(namespace, sourceCitation, getInteractionListener(), resourceURI, tokenizer);
+            } finally {
+                tokenizer.close();
+            }
         }
     }
 
-    private void importResource(String namespace, String sourceCitation, InteractionListener interactionListener, URI resourceURI, LabeledCSVParser parser) throws IOException, StudyImporterException {
-        while (parser.getLine() != null) {
+    private void importResource(String namespace, String sourceCitation, InteractionListener interactionListener, URI resourceURI, TabularTokenizer tokenizer) throws IOException, StudyImporterException {
+        String[] labels = tokenizer.readHeader();
+        if (labels == null) {
+            return;
+        }
+        // bind columns once, the last of duplicate labels wins
+        int[] columns = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            columns[i] = tokenizer.indexOf(labels[i]);
+        }
+        String datasetCitation = CitationUtil.sourceCitationLastAccessed(getDataset(), sourceCitation == null ? "" : sourceCitation + ". ");
+
+        while (tokenizer.next()) {
             final Map<String, String> link = new TreeMap<>();
-            final String referenceDoi = StringUtils.replace(parser.getValueByLabel(REFERENCE_DOI), " ", "");
+            final String referenceDoi = StringUtils.replace(tokenizer.getValue(REFERENCE_DOI), " ", "");
             InteractUtil.putNotBlank(link, REFERENCE_DOI, referenceDoi);
-            InteractUtil.putNotBlank(link, REFERENCE_CITATION, CSVTSVUtil.valueOrNull(parser, REFERENCE_CITATION));
-            InteractUtil.putNotBlank(link, REFERENCE_URL, CSVTSVUtil.valueOrNull(parser, REFERENCE_URL));
-            InteractUtil.putNotBlank(link, DATASET_CITATION, CitationUtil.sourceCitationLastAccessed(getDataset(), sourceCitation == null ? "" : sourceCitation + ". "));
+            InteractUtil.putNotBlank(link, REFERENCE_CITATION, valueOrNull(tokenizer, REFERENCE_CITATION));
+            InteractUtil.putNotBlank(link, REFERENCE_URL, valueOrNull(tokenizer, REFERENCE_URL));
+            InteractUtil.putNotBlank(link, DATASET_CITATION, datasetCitation);
 
-            InteractUtil.putNotBlank(link, SOURCE_TAXON_ID, StringUtils.trimToNull(parser.getValueByLabel(SOURCE_TAXON_ID)));
-            InteractUtil.putNotBlank(link, TARGET_TAXON_ID, StringUtils.trimToNull(parser.getValueByLabel(TARGET_TAXON_ID)));
+            InteractUtil.putNotBlank(link, SOURCE_TAXON_ID, StringUtils.trimToNull(tokenizer.getValue(SOURCE_TAXON_ID)));
+            InteractUtil.putNotBlank(link, TARGET_TAXON_ID, StringUtils.trimToNull(tokenizer.getValue(TARGET_TAXON_ID)));
 
-            InteractUtil.putIfKeyNotExistsAndValueNotBlank(link, DatasetImporterForMetaTable.EVENT_DATE, StringUtils.trimToNull(parser.getValueByLabel("observationDateTime")));
-            InteractUtil.putIfKeyNotExistsAndValueNotBlank(link, DatasetImporterForMetaTable.EVENT_DATE, StringUtils.trimToNull(parser.getValueByLabel("eventDate")));
-            InteractUtil.putIfKeyNotExistsAndValueNotBlank(link, DatasetImporterForMetaTable.EVENT_DATE, StringUtils.trimToNull(parser.getValueByLabel(DatasetImporterForMetaTable.EVENT_DATE)));
+            InteractUtil.putIfKeyNotExistsAndValueNotBlank(link, DatasetImporterForMetaTable.EVENT_DATE, StringUtils.trimToNull(tokenizer.getValue("observationDateTime")));
+            InteractUtil.putIfKeyNotExistsAndValueNotBlank(link, DatasetImporterForMetaTable.EVENT_DATE, StringUtils.trimToNull(tokenizer.getValue("eventDate")));
+            InteractUtil.putIfKeyNotExistsAndValueNotBlank(link, DatasetImporterForMetaTable.EVENT_DATE, StringUtils.trimToNull(tokenizer.getValue(DatasetImporterForMetaTable.EVENT_DATE)));
 
-            String argumentTypeId = StringUtils.trim(parser.getValueByLabel(ARGUMENT_TYPE_ID));
+            String argumentTypeId = StringUtils.trim(tokenizer.getValue(ARGUMENT_TYPE_ID));
             if (StringUtils.isBlank(argumentTypeId)) {
-                String negated = StringUtils.trim(parser.getValueByLabel("isNegated"));
+                String negated = StringUtils.trim(tokenizer.getValue("isNegated"));
                 argumentTypeId = StringUtils.equalsIgnoreCase(negated, "true")
                         ? PropertyAndValueDictionary.REFUTES
                         : PropertyAndValueDictionary.SUPPORTS;
             }
             InteractUtil.putNotBlank(link, ARGUMENT_TYPE_ID, argumentTypeId);
 
-            InteractUtil.putNotBlank(link, RESOURCE_LINE_NUMBER, Integer.toString(parser.getLastLineNumber()));
+            // line numbers are relative to the header, like LabeledCSVParser#getLastLineNumber
+            InteractUtil.putNotBlank(link, RESOURCE_LINE_NUMBER, Integer.toString(tokenizer.getLineNumber() - 1));
             InteractUtil.putNotBlank(link, RESOURCE_URI, resourceURI.toString());
 
             attemptToGenerateReferencePropertiesIfMissing(namespace, link);
 
-            for (String label : parser.getLabels()) {
-                InteractUtil.putIfKeyNotExistsAndValueNotBlank(link, label, parser.getValueByLabel(label));
+            for (int i = 0; i < labels.length; i++) {
+                if (!tokenizer.isBlank(columns[i]) && StringUtils.isBlank(link.get(labels[i]))) {
+                    link.put(labels[i], tokenizer.getValue(columns[i]));
+                }
             }
 
             interactionListener.on(TaxonUtil.enrichTaxonNames(link));
         }
     }
 
-    private void doIdentifyMap(LabeledCSVParser parser, Map<String, String> link, String propertyName) {
-        InteractUtil.putNotBlank(link, propertyName, StringUtils.trim(parser.getValueByLabel(propertyName)));
+    private static String valueOrNull(TabularTokenizer tokenizer, String label) {
+        return tokenizer.isBlank(label) ? null : tokenizer.getValue(label);
     }
 
     private void attemptToGenerateReferencePropertiesIfMissing(String namespace, Map<String, String> link) {
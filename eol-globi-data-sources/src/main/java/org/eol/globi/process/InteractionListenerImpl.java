@@ -23,6 +23,12 @@ public class InteractionListenerImpl implements InteractionListener {
                                    GeoNamesService geoNamesService,
                                    ImportLogger logger,
                                    Dataset dataset) {
+        this(new InteractionImporter(nodeFactory, logger, geoNamesService), logger, dataset);
+    }
+
+    public InteractionListenerImpl(InteractionListener importer,
+                                   ImportLogger logger,
+                                   Dataset dataset) {
         InteractionListener queue = interaction -> {
             if (interaction != null) {
                 outbox.add(interaction);
@@ -34,7 +40,7 @@ public class InteractionListenerImpl implements InteractionListener {
                         new InteractionExpander(queue, logger),
                         createMappingListener(logger, dataset, queue),
                         new InteractionValidator(queue, logger),
-                        new InteractionImporter(nodeFactory, logger, geoNamesService)
+                        importer
                 );
     }
 
@@ -8,13 +8,18 @@ import org.globalbioticinteractions.dataset.DatasetRegistry;
 import org.globalbioticinteractions.dataset.DatasetRegistryException;
 import org.hamcrest.core.Is;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -42,6 +47,128 @@ public class DatasetImporterForRegistryTest {
         }
     }
 
+    @Test(expected = StudyImporterException.class)
+    public void throwOnMissingConfigInParallel() throws StudyImporterException {
+        DatasetImporterForRegistry importer = new DatasetImporterForRegistry(null, null, new DatasetRegistry() {
+            @Override
+            public Collection<String> findNamespaces() throws DatasetRegistryException {
+                return Arrays.asList("some/namespace", "other/namespace");
+            }
+
+            @Override
+            public Dataset datasetFor(String namespace) throws DatasetRegistryException {
+                return new DatasetImpl(namespace, URI.create("some:uri"), in -> in);
+            }
+        });
+        importer.setNumberOfWorkers(2);
+
+        try {
+            importer.importStudy();
+        } catch (StudyImporterException ex) {
+            assertThat(ex.getMessage(), Is.is("failed to import one or more repositories: [some/namespace, other/namespace]"));
+            throw ex;
+        }
+    }
+
+    @Test
+    public void importSequentiallyByDefault() throws StudyImporterException {
+        List<String> imported = new ArrayList<>();
+        NodeFactory nodeFactory = Mockito.mock(NodeFactory.class);
+        Mockito.when(nodeFactory.getOrCreateDataset(Mockito.any(Dataset.class))).then(invocation -> {
+            Dataset dataset = (Dataset) invocation.getArguments()[0];
+            imported.add(dataset.getNamespace());
+            return dataset;
+        });
+
+        DatasetImporterForRegistry importer = new DatasetImporterForRegistry(null, nodeFactory, new DatasetRegistry() {
+            @Override
+            public Collection<String> findNamespaces() throws DatasetRegistryException {
+                return Arrays.asList("bad/namespace", "good/namespace", "other/bad/namespace");
+            }
+
+            @Override
+            public Dataset datasetFor(String namespace) throws DatasetRegistryException {
+                if (StringUtils.contains(namespace, "bad/")) {
+                    throw new DatasetRegistryException("kaboom!");
+                }
+                return datasetWithInteractions(namespace);
+            }
+        });
+        AtomicInteger transactions = new AtomicInteger(0);
+        importer.setTransactionFactory(() -> {
+            transactions.incrementAndGet();
+            return BatchTransaction.NONE;
+        });
+
+        String failure = null;
+        try {
+            importer.importStudy();
+        } catch (StudyImporterException ex) {
+            failure = ex.getMessage();
+        }
+        assertThat(failure, Is.is("failed to import one or more repositories: [bad/namespace, other/bad/namespace]"));
+        assertThat(imported, Is.is(Collections.singletonList("good/namespace")));
+        assertThat(transactions.get(), Is.is(0));
+    }
+
+    @Test
+    public void failedWriteInBatch() throws StudyImporterException {
+        List<String> pending = new ArrayList<>();
+        List<String> committed = new ArrayList<>();
+        AtomicInteger rollbacks = new AtomicInteger(0);
+
+        NodeFactory nodeFactory = Mockito.mock(NodeFactory.class);
+        Mockito.when(nodeFactory.getOrCreateDataset(Mockito.any(Dataset.class))).then(invocation -> {
+            Dataset dataset = (Dataset) invocation.getArguments()[0];
+            pending.add(dataset.getNamespace());
+            if (StringUtils.equals(dataset.getNamespace(), "bad/namespace")) {
+                throw new IllegalStateException("kaboom!");
+            }
+            return dataset;
+        });
+
+        DatasetImporterForRegistry importer = new DatasetImporterForRegistry(null, nodeFactory, new DatasetRegistry() {
+            @Override
+            public Collection<String> findNamespaces() throws DatasetRegistryException {
+                return Arrays.asList("good/namespace", "bad/namespace");
+            }
+
+            @Override
+            public Dataset datasetFor(String namespace) throws DatasetRegistryException {
+                return datasetWithInteractions(namespace);
+            }
+        });
+        importer.setNumberOfWorkers(2);
+        importer.setTransactionFactory(() -> new BatchTransaction() {
+            private boolean success = false;
+
+            @Override
+            public void success() {
+                success = true;
+            }
+
+            @Override
+            public void close() {
+                if (success) {
+                    committed.addAll(pending);
+                } else {
+                    rollbacks.incrementAndGet();
+                }
+                pending.clear();
+            }
+        });
+
+        String failure = null;
+        try {
+            importer.importStudy();
+        } catch (StudyImporterException ex) {
+            failure = ex.getMessage();
+        }
+        assertThat(failure, Is.is("failed to import one or more repositories: [bad/namespace]"));
+        assertThat(committed, Is.is(Collections.singletonList("good/namespace")));
+        assertThat(rollbacks.get() > 0, Is.is(true));
+    }
+
     @Test
     public void filteredDatasets() throws StudyImporterException {
         DatasetImporterForRegistry importer = new DatasetImporterForRegistry(
@@ -72,4 +199,18 @@ public class DatasetImporterForRegistryTest {
         importer.importStudy();
     }
 
+    private static Dataset datasetWithInteractions(String namespace) {
+        return new DatasetImpl(namespace, URI.create("some:uri"), in -> in) {
+            @Override
+            public InputStream retrieve(URI resource) throws IOException {
+                if (StringUtils.endsWith(resource.toString(), "globi.json")) {
+                    return IOUtils.toInputStream("{\"format\":\"globi\"}", StandardCharsets.UTF_8);
+                } else if (StringUtils.endsWith(resource.toString(), "interactions.tsv")) {
+                    return IOUtils.toInputStream("sourceTaxonName\tinteractionTypeId\ttargetTaxonName\n", StandardCharsets.UTF_8);
+                }
+                throw new IOException();
+            }
+        };
+    }
+
 }
\ No newline at end of file
@@ -151,6 +151,91 @@ public enum InteractType implements RelType {
         put("http://purl.obolibrary.org/obo/RO_0002434", INTERACTS_WITH);
     }};
 
+    private static final String RO_PREFIX = "RO:";
+
+    private static final TypeTable TYPE_TABLE = new TypeTable();
+
+    /**
+     * Open addressing table of iris, names and labels, compared like {@link String#equalsIgnoreCase(String)}, and of
+     * synonyms, compared exactly. Keys are added in declaration order, so the first type with a matching iri, name or
+     * label wins. Lookups hash and compare the (possibly prefixed) candidate in place, without allocating.
+     */
+    private static final class TypeTable {
+        private final String[] keys;
+        private final InteractType[] types;
+        private final boolean[] exact;
+        private final int mask;
+
+        TypeTable() {
+            int capacity = Integer.highestOneBit((values().length * 3 + SYNONYMS_OR_HYPONYMS.size()) * 4);
+            keys = new String[capacity];
+            types = new InteractType[capacity];
+            exact = new boolean[capacity];
+            mask = capacity - 1;
+            for (InteractType type : values()) {
+                put(type.getIRI(), type, false);
+                put(type.name(), type, false);
+                put(type.getLabel(), type, false);
+            }
+            for (Map.Entry<String, InteractType> synonym : SYNONYMS_OR_HYPONYMS.entrySet()) {
+                put(synonym.getKey(), synonym.getValue(), true);
+            }
+        }
+
+        private void put(String key, InteractType type, boolean exactMatch) {
+            if (lookup("", key, 0) == null) {
+                int slot = hash("", key, 0) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                types[slot] = type;
+                exact[slot] = exactMatch;
+            }
+        }
+
+        InteractType lookup(String prefix, String value, int offset) {
+            int slot = hash(prefix, value, offset) & mask;
+            while (keys[slot] != null) {
+                if (matches(slot, prefix, value, offset)) {
+                    return types[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private boolean matches(int slot, String prefix, String value, int offset) {
+            String key = keys[slot];
+            if (key.length() != prefix.length() + value.length() - offset) {
+                return false;
+            }
+            for (int i = 0; i < key.length(); i++) {
+                char actual = i < prefix.length() ? prefix.charAt(i) : value.charAt(offset + i - prefix.length());
+                char expected = key.charAt(i);
+                if (actual != expected && (exact[slot] || fold(actual) != fold(expected))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(String prefix, String value, int offset) {
+            int hash = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                hash = 31 * hash + fold(prefix.charAt(i));
+            }
+            for (int i = offset; i < value.length(); i++) {
+                hash = 31 * hash + fold(value.charAt(i));
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private static char fold(char c) {
+            return Character.toLowerCase(Character.toUpperCase(c));
+        }
+    }
+
 
     InteractType(String iri, String label) {
         this(iri, label, InteractionRole.NOT_DEFINED, InteractionRole.NOT_DEFINED);
@@ -172,20 +257,12 @@ public enum InteractType implements RelType {
     }
 
     public static InteractType typeOf(String iri) {
-        if (StringUtils.startsWith(iri, "RO:")) {
-            iri = StringUtils.replace(iri, "RO:", PropertyAndValueDictionary.RO_NAMESPACE);
-        }
-        InteractType[] values = values();
-        for (InteractType interactType : values) {
-            if (StringUtils.equalsIgnoreCase(iri, interactType.getIRI())) {
-                return interactType;
-            } else if (StringUtils.equalsIgnoreCase(iri, interactType.name())) {
-                return interactType;
-            } else if (StringUtils.equalsIgnoreCase(iri, interactType.getLabel())) {
-                return interactType;
-            }
+        if (iri == null) {
+            return null;
         }
-        return SYNONYMS_OR_HYPONYMS.get(iri);
+        return StringUtils.startsWith(iri, RO_PREFIX)
+                ? TYPE_TABLE.lookup(PropertyAndValueDictionary.RO_NAMESPACE, iri, RO_PREFIX.length())
+                : TYPE_TABLE.lookup("", iri, 0);
     }
 
     public static Collection<InteractType> hasTypes(InteractType type) {
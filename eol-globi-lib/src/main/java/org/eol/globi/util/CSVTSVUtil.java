@@ -1,7 +1,6 @@
 package org.eol.globi.util;
 
 import com.Ostermiller.util.CSVParse;
-import com.Ostermiller.util.CSVParser;
 import com.Ostermiller.util.CSVPrint;
 import com.Ostermiller.util.ExcelCSVPrinter;
 import com.Ostermiller.util.LabeledCSVParser;
@@ -16,6 +15,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.Arrays;
@@ -28,15 +28,15 @@ import java.util.zip.ZipInputStream;
 public class CSVTSVUtil {
 
     public static LabeledCSVParser createLabeledCSVParser(InputStream inputStream) throws IOException {
-        return new LabeledCSVParser(new AutoCloseCSVParser(inputStream));
+        return new LabeledCSVParser(createCSVParser(inputStream));
     }
 
     public static LabeledCSVParser createLabeledCSVParser(Reader reader) throws IOException {
-        return new LabeledCSVParser(new AutoCloseCSVParser(reader));
+        return new LabeledCSVParser(new TabularTokenizerParse(reader, ','));
     }
 
     public static LabeledCSVParser createLabeledTSVParser(InputStream is) throws IOException {
-        return new LabeledCSVParser(new AutoCloseCSVParser(is, '\t'));
+        return new LabeledCSVParser(createCSVParse(is, '\t'));
     }
 
     public static LabeledCSVParser createLabeledCSVParser(CSVParse parser) throws IOException {
@@ -71,7 +71,7 @@ public class CSVTSVUtil {
     }
 
     public static String escapeTSV(String text) {
-        return StringUtils.replaceAll(text, "[\t\n\r]", " ");
+        return StringUtils.replaceChars(text, "\t\n\r", "   ");
     }
 
     public static String valueOrNull(LabeledCSVParser labeledCSVParser, String columnName) {
@@ -93,17 +93,16 @@ public class CSVTSVUtil {
     }
 
     public static CSVParse createTSVParser(Reader reader) {
-        final CSVParser parser = new AutoCloseCSVParser(reader);
-        parser.changeDelimiter('\t');
-        return parser;
+        return new TabularTokenizerParse(reader, '\t');
     }
 
     public static CSVParse createCSVParser(InputStream inputStream) {
-        return new AutoCloseCSVParser(inputStream);
+        return createCSVParse(inputStream, ',');
     }
 
     public static CSVParse createCSVParse(InputStream inputStream, char delimiter) {
-        return new AutoCloseCSVParser(inputStream, delimiter);
+        // like the Ostermiller parser, streams are read using the platform charset
+        return new TabularTokenizerParse(new InputStreamReader(inputStream), delimiter);
     }
 
     public static CSVParse createExcelCSVParse(InputStream inputStream) {
@@ -133,8 +132,41 @@ public class CSVTSVUtil {
     }
 
     public static Stream<String> mapEscapedValues(Stream<String> stream) {
-        return stream.map(value -> StringUtils.isBlank(value) ? "" : value.replaceAll("[\t\r\n]+", " "))
-                .map(StringUtils::trim);
+        return stream.map(value -> {
+            StringBuilder builder = new StringBuilder();
+            appendEscapedValue(builder, value);
+            return builder.toString();
+        });
+    }
+
+    /**
+     * Appends a value escaped like {@link #mapEscapedValues(Stream)} does, without creating intermediate strings.
+     */
+    public static void appendEscapedValue(StringBuilder builder, String value) {
+        if (StringUtils.isBlank(value)) {
+            return;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        boolean previousReplaced = false;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == '\t' || c == '\r' || c == '\n') {
+                if (!previousReplaced) {
+                    builder.append(' ');
+                }
+                previousReplaced = true;
+            } else {
+                builder.append(c);
+                previousReplaced = false;
+            }
+        }
     }
 
     public static String[] splitTSV(String aline) {
@@ -17,6 +17,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 public class ExternalIdUtil {
@@ -66,46 +68,77 @@ public class ExternalIdUtil {
 
     }};
 
+    private static final Map<String, String> URL_SUFFIX_MAP = new HashMap<String, String>() {{
+        put(TaxonomyProvider.ID_BIO_INFO_REFERENCE, ".htm");
+    }};
+
+    private static final PrefixTrie ID_PREFIXES = new PrefixTrie(PREFIX_MAP.keySet());
+
+    private static final Map<String, TaxonomyProvider> PROVIDER_FOR_PREFIX = new HashMap<String, TaxonomyProvider>() {{
+        for (TaxonomyProvider provider : TaxonomyProvider.values()) {
+            for (String idPrefix : provider.getIdPrefixes()) {
+                if (idPrefix != null) {
+                    put(idPrefix, provider);
+                }
+            }
+        }
+    }};
+
+    private static final PrefixTrie PROVIDER_PREFIXES = new PrefixTrie(PROVIDER_FOR_PREFIX.keySet());
+
+    private static final int URL_CACHE_MAX_SIZE = 8192;
+    private static final String NO_URL = "";
+    private static final ConcurrentMap<String, String> URL_CACHE = new ConcurrentHashMap<>();
+
     private static final Logger LOG = LoggerFactory.getLogger(ExternalIdUtil.class);
 
     private static final Pattern LIKELY_ID_PATTERN = Pattern.compile(".*[:-].*");
 
     public static String urlForExternalId(String externalId) {
-        URI uri = null;
         String url = null;
         if (externalId != null) {
-            for (Map.Entry<String, String> idPrefixToUrlPrefix : getURLPrefixMap().entrySet()) {
-                String idPrefix = idPrefixToUrlPrefix.getKey();
-                if (StringUtils.startsWith(externalId, idPrefix)) {
-                    if (isIRMNG(idPrefix)) {
-                        url = urlForIRMNG(externalId, idPrefix);
-                    } else if (DOI.isCommonlyUsedDoiPrefix(idPrefix)) {
-                        try {
-                            DOI doi = DOI.create(externalId);
-                            url = doi.toURI().toString();
-                        } catch (MalformedDOIException e) {
-                            LOG.warn("found malformed doi [" + externalId + "]", e);
-                        }
-                    } else {
-                        url = idPrefixToUrlPrefix.getValue() + externalId.replaceAll(idPrefix, "");
-                    }
-                    String suffix = getURLSuffixMap().get(idPrefix);
-                    if (StringUtils.isNotBlank(suffix)) {
-                        url = url + suffix;
-                    }
+            url = URL_CACHE.get(externalId);
+            if (url == null) {
+                url = StringUtils.defaultString(buildUrlForExternalId(externalId), NO_URL);
+                if (URL_CACHE.size() >= URL_CACHE_MAX_SIZE) {
+                    URL_CACHE.clear();
                 }
-                if (url != null) {
-                    try {
-                        URIBuilder uriBuilder = new URIBuilder(url);
-                        uri = uriBuilder.build();
-//                        URL ur= new URL(url);
-//                        uri = new URI(ur.getProtocol(), ur.getUserInfo(), ur.getHost(), ur.getPort(), ur.getPath(), ur.getQuery(), ur.getRef());
-                    } catch (URISyntaxException e) {
-                        //
-                    }
+                URL_CACHE.put(externalId, url);
+            }
+        }
+        return StringUtils.isEmpty(url) ? null : url;
+    }
 
-                    break;
+    private static String buildUrlForExternalId(String externalId) {
+        String url = null;
+        // try matching prefixes from longest to shortest, until one yields a url
+        for (String idPrefix = ID_PREFIXES.longestPrefixOf(externalId, externalId.length());
+             idPrefix != null && url == null;
+             idPrefix = ID_PREFIXES.longestPrefixOf(externalId, idPrefix.length() - 1)) {
+            if (isIRMNG(idPrefix)) {
+                url = urlForIRMNG(externalId, idPrefix);
+            } else if (DOI.isCommonlyUsedDoiPrefix(idPrefix)) {
+                try {
+                    DOI doi = DOI.create(externalId);
+                    url = doi.toURI().toString();
+                } catch (MalformedDOIException e) {
+                    LOG.warn("found malformed doi [" + externalId + "]", e);
                 }
+            } else {
+                url = PREFIX_MAP.get(idPrefix) + StringUtils.removeStart(externalId, idPrefix);
+            }
+            String suffix = URL_SUFFIX_MAP.get(idPrefix);
+            if (StringUtils.isNotBlank(suffix)) {
+                url = url + suffix;
+            }
+        }
+
+        URI uri = null;
+        if (url != null) {
+            try {
+                uri = new URIBuilder(url).build();
+            } catch (URISyntaxException e) {
+                //
             }
         }
         return uri == null ? null : uri.toString();
@@ -117,7 +150,7 @@ public class ExternalIdUtil {
 
     public static String urlForIRMNG(String externalId, String idPrefix) {
         String url;
-        final String id = externalId.replaceAll(idPrefix, "");
+        final String id = StringUtils.removeStart(externalId, idPrefix);
         if (id.length() == 6) {
             url = "http://www.marine.csiro.au/mirrorsearch/ir_search.list_genera?fam_id=" + id;
         } else if (id.length() == 7) {
@@ -133,9 +166,7 @@ public class ExternalIdUtil {
     }
 
     public static Map<String, String> getURLSuffixMap() {
-        return new HashMap<String, String>() {{
-            put(TaxonomyProvider.ID_BIO_INFO_REFERENCE, ".htm");
-        }};
+        return URL_SUFFIX_MAP;
     }
 
     public static boolean isSupported(String externalId) {
@@ -145,12 +176,13 @@ public class ExternalIdUtil {
     public static TaxonomyProvider taxonomyProviderFor(String externalId) {
         TaxonomyProvider provider = null;
         if (StringUtils.isNotBlank(externalId)) {
-            for (TaxonomyProvider prefix : TaxonomyProvider.values()) {
-                for (String idPrefix : prefix.getIdPrefixes()) {
-                    if (StringUtils.startsWith(externalId, idPrefix)) {
-                        provider = prefix;
-                        break;
-                    }
+            // like a scan over all providers, the last declared provider with a matching prefix wins
+            for (String idPrefix = PROVIDER_PREFIXES.longestPrefixOf(externalId, externalId.length());
+                 idPrefix != null;
+                 idPrefix = PROVIDER_PREFIXES.longestPrefixOf(externalId, idPrefix.length() - 1)) {
+                TaxonomyProvider candidate = PROVIDER_FOR_PREFIX.get(idPrefix);
+                if (provider == null || candidate.ordinal() > provider.ordinal()) {
+                    provider = candidate;
                 }
             }
         }
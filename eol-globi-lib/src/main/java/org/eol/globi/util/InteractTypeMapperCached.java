@@ -0,0 +1,71 @@
+package org.eol.globi.util;
+
+import org.eol.globi.domain.InteractType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the outcome of a (chained) interaction type mapper per provided name or id.
+ * <p>
+ * Datasets tend to use a handful of interaction type names for all of their rows, so after the first few rows
+ * every lookup is a single hash map probe. To keep memory bounded for datasets with free text interaction
+ * types, lookups are passed through to the underlying mapper once the maximum number of entries is reached.
+ */
+public class InteractTypeMapperCached implements InteractTypeMapper {
+
+    private static final int MAX_ENTRIES_DEFAULT = 10000;
+
+    private static final class Mapping {
+        private final boolean ignored;
+        private final InteractType type;
+
+        Mapping(boolean ignored, InteractType type) {
+            this.ignored = ignored;
+            this.type = type;
+        }
+    }
+
+    private final InteractTypeMapper mapper;
+    private final int maxEntries;
+    private final ConcurrentMap<String, Mapping> mappings = new ConcurrentHashMap<>();
+
+    public InteractTypeMapperCached(InteractTypeMapper mapper) {
+        this(mapper, MAX_ENTRIES_DEFAULT);
+    }
+
+    public InteractTypeMapperCached(InteractTypeMapper mapper, int maxEntries) {
+        this.mapper = mapper;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public boolean shouldIgnoreInteractionType(String nameOrId) {
+        Mapping mapping = mappingFor(nameOrId);
+        return mapping == null
+                ? mapper.shouldIgnoreInteractionType(nameOrId)
+                : mapping.ignored;
+    }
+
+    @Override
+    public InteractType getInteractType(String nameOrId) {
+        Mapping mapping = mappingFor(nameOrId);
+        return mapping == null
+                ? mapper.getInteractType(nameOrId)
+                : mapping.type;
+    }
+
+    private Mapping mappingFor(String nameOrId) {
+        if (nameOrId == null) {
+            return null;
+        }
+        Mapping mapping = mappings.get(nameOrId);
+        if (mapping == null && mappings.size() < maxEntries) {
+            mapping = new Mapping(mapper.shouldIgnoreInteractionType(nameOrId), mapper.getInteractType(nameOrId));
+            Mapping existing = mappings.putIfAbsent(nameOrId, mapping);
+            mapping = existing == null ? mapping : existing;
+        }
+        return mapping;
+    }
+
+}
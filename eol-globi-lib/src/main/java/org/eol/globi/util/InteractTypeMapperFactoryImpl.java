@@ -73,10 +73,10 @@ public class InteractTypeMapperFactoryImpl implements InteractTypeMapperFactory
         final InteractTypeMapper mapperCustom = mapperForResourceService(resourceService);
         final InteractTypeMapper mapperDefault = mapperForResourceService(getResourceServiceForDefaultInteractionTypeMapping(new ResourceServiceLocal()));
         final InteractTypeMapper mapperRO = new InteractTypeMapperFactoryForRO().create();
-        return new InteractTypeMapperWithFallbackImpl(
+        return new InteractTypeMapperCached(new InteractTypeMapperWithFallbackImpl(
                 mapperCustom,
                 mapperDefault,
-                mapperRO);
+                mapperRO));
     }
 
     public InteractTypeMapperImpl mapperForResourceService(ResourceService resourceService) throws TermLookupServiceException {
@@ -0,0 +1,361 @@
+package org.eol.globi.util;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Counts occurrences of (long, int, long) triples in bounded memory.
+ * <p>
+ * Triples are packed into two primitive longs and counted in an open-addressing hash table backed by a long array.
+ * The table starts small and doubles in size as entries are added, up to the capacity needed for the configured
+ * maximum number of entries. When the table is full at that capacity, its entries are sorted and spilled to disk as a
+ * sorted run. The table is released on {@link #emit(Listener)} and {@link #close()}. On {@link #emit(Listener)},
+ * the runs and the remaining in-memory entries are merged, so that each distinct triple is reported exactly once,
+ * ordered by its first value, together with its total count.
+ * <p>
+ * The middle value is limited to 16 bits and the last value to 47 bits
+ * (e.g., an enum ordinal and a node id respectively).
+ */
+public class LongTripleCounter implements Closeable {
+
+    public interface Listener {
+        void on(long first, int second, long third, long count) throws IOException;
+    }
+
+    private static final int LONGS_PER_SLOT = 3;
+    private static final long MAX_THIRD = (1L << 47) - 1;
+    private static final int MAX_SECOND = (1 << 16) - 1;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+    private static final int MIN_CAPACITY = 16;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int MAX_CAPACITY = Integer.highestOneBit((Integer.MAX_VALUE - 8) / LONGS_PER_SLOT);
+
+    private final int maxCapacity;
+    private final File tmpDir;
+
+    private long[] table = null;
+    private int capacity = 0;
+    private int maxEntries = 0;
+    private int size = 0;
+    private final List<File> runs = new ArrayList<>();
+
+    public LongTripleCounter(int maxEntriesInMemory, File tmpDir) {
+        long requiredCapacity = (long) Math.ceil(Math.max(1, maxEntriesInMemory) / MAX_LOAD_FACTOR);
+        this.maxCapacity = (int) Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, Long.highestOneBit(requiredCapacity - 1) << 1));
+        this.tmpDir = tmpDir;
+    }
+
+    public void increment(long first, int second, long third) throws IOException {
+        add(first, pack(second, third), 1L);
+    }
+
+    private void add(long key1, long key2, long count) throws IOException {
+        if (table == null) {
+            allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+        }
+        if (insert(key1, key2, count) && size >= maxEntries) {
+            if (capacity < maxCapacity) {
+                grow();
+            } else {
+                spill();
+            }
+        }
+    }
+
+    // returns true if a new entry was added
+    private boolean insert(long key1, long key2, long count) {
+        int slot = slotFor(key1, key2);
+        while (true) {
+            int offset = slot * LONGS_PER_SLOT;
+            long existingCount = table[offset + 2];
+            if (existingCount == 0) {
+                table[offset] = key1;
+                table[offset + 1] = key2;
+                table[offset + 2] = count;
+                size++;
+                return true;
+            } else if (table[offset] == key1 && table[offset + 1] == key2) {
+                table[offset + 2] = existingCount + count;
+                return false;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        table = new long[newCapacity * LONGS_PER_SLOT];
+        capacity = newCapacity;
+        maxEntries = (int) (capacity * MAX_LOAD_FACTOR);
+        size = 0;
+    }
+
+    private void grow() {
+        long[] previous = table;
+        allocate(capacity * 2);
+        for (int offset = 0; offset < previous.length; offset += LONGS_PER_SLOT) {
+            if (previous[offset + 2] != 0) {
+                insert(previous[offset], previous[offset + 1], previous[offset + 2]);
+            }
+        }
+    }
+
+    private int slotFor(long key1, long key2) {
+        long hash = mix(key1 * 31 + key2);
+        return (int) (hash & (capacity - 1));
+    }
+
+    private static long mix(long value) {
+        value ^= (value >>> 33);
+        value *= 0xff51afd7ed558ccdL;
+        value ^= (value >>> 33);
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= (value >>> 33);
+        return value;
+    }
+
+    private static long pack(int second, long third) {
+        if (second < 0 || second > MAX_SECOND) {
+            throw new IllegalArgumentException("value [" + second + "] out of range [0," + MAX_SECOND + "]");
+        }
+        if (third < 0 || third > MAX_THIRD) {
+            throw new IllegalArgumentException("value [" + third + "] out of range [0," + MAX_THIRD + "]");
+        }
+        return (third << 16) | second;
+    }
+
+    private static int unpackSecond(long key2) {
+        return (int) (key2 & MAX_SECOND);
+    }
+
+    private static long unpackThird(long key2) {
+        return key2 >>> 16;
+    }
+
+    /**
+     * Reports all counted triples ordered by their first value and resets the counter.
+     */
+    public void emit(Listener listener) throws IOException {
+        int entries = compactAndSort();
+        try {
+            if (runs.isEmpty()) {
+                for (int i = 0; i < entries; i++) {
+                    int offset = i * LONGS_PER_SLOT;
+                    long key2 = table[offset + 1];
+                    listener.on(table[offset], unpackSecond(key2), unpackThird(key2), table[offset + 2]);
+                }
+            } else {
+                writeRun(entries);
+                mergeRuns(listener);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void spill() throws IOException {
+        writeRun(compactAndSort());
+    }
+
+    private void writeRun(int entries) throws IOException {
+        if (entries > 0) {
+            File run = File.createTempFile("triples", ".run", tmpDir);
+            run.deleteOnExit();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+                for (int i = 0; i < entries * LONGS_PER_SLOT; i++) {
+                    out.writeLong(table[i]);
+                }
+            }
+            runs.add(run);
+        }
+        clearTable();
+    }
+
+    private void clearTable() {
+        if (table != null) {
+            Arrays.fill(table, 0L);
+        }
+        size = 0;
+    }
+
+    private void mergeRuns(Listener listener) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        try {
+            for (File run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader head = queue.poll();
+                long key1 = head.key1;
+                long key2 = head.key2;
+                long count = 0;
+                while (head != null && head.key1 == key1 && head.key2 == key2) {
+                    count += head.count;
+                    if (head.next()) {
+                        queue.add(head);
+                    } else {
+                        head.close();
+                    }
+                    head = queue.poll();
+                }
+                if (head != null) {
+                    queue.add(head);
+                }
+                listener.on(key1, unpackSecond(key2), unpackThird(key2), count);
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+    }
+
+    // moves occupied slots to the front of the table and sorts them by key, returns number of entries
+    private int compactAndSort() {
+        int entries = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = slot * LONGS_PER_SLOT;
+            if (table[offset + 2] != 0) {
+                if (slot != entries) {
+                    int target = entries * LONGS_PER_SLOT;
+                    table[target] = table[offset];
+                    table[target + 1] = table[offset + 1];
+                    table[target + 2] = table[offset + 2];
+                    table[offset + 2] = 0L;
+                }
+                entries++;
+            }
+        }
+        sort(0, entries - 1);
+        return entries;
+    }
+
+    private void sort(int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                insertionSort(low, high);
+                return;
+            }
+            int pivot = partition(low, high);
+            if (pivot - low < high - pivot) {
+                sort(low, pivot - 1);
+                low = pivot + 1;
+            } else {
+                sort(pivot + 1, high);
+                high = pivot - 1;
+            }
+        }
+    }
+
+    private int partition(int low, int high) {
+        swap((low + high) >>> 1, high);
+        long pivot1 = table[high * LONGS_PER_SLOT];
+        long pivot2 = table[high * LONGS_PER_SLOT + 1];
+        int i = low;
+        for (int j = low; j < high; j++) {
+            if (compare(j, pivot1, pivot2) < 0) {
+                swap(i, j);
+                i++;
+            }
+        }
+        swap(i, high);
+        return i;
+    }
+
+    private void insertionSort(int low, int high) {
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(j, table[(j - 1) * LONGS_PER_SLOT], table[(j - 1) * LONGS_PER_SLOT + 1]) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private int compare(int entry, long key1, long key2) {
+        int offset = entry * LONGS_PER_SLOT;
+        int cmp = Long.compare(table[offset], key1);
+        return cmp == 0 ? Long.compare(table[offset + 1], key2) : cmp;
+    }
+
+    private void swap(int entryA, int entryB) {
+        if (entryA != entryB) {
+            int offsetA = entryA * LONGS_PER_SLOT;
+            int offsetB = entryB * LONGS_PER_SLOT;
+            for (int i = 0; i < LONGS_PER_SLOT; i++) {
+                long tmp = table[offsetA + i];
+                table[offsetA + i] = table[offsetB + i];
+                table[offsetB + i] = tmp;
+            }
+        }
+    }
+
+    public int getNumberOfSpilledRuns() {
+        return runs.size();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() {
+        for (File run : runs) {
+            FileUtils.deleteQuietly(run);
+        }
+        runs.clear();
+        table = null;
+        capacity = 0;
+        maxEntries = 0;
+        size = 0;
+    }
+
+    private static class RunReader implements Comparable<RunReader>, Closeable {
+        private final DataInputStream in;
+        private long key1;
+        private long key2;
+        private long count;
+
+        RunReader(File run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+        }
+
+        boolean next() throws IOException {
+            try {
+                key1 = in.readLong();
+                key2 = in.readLong();
+                count = in.readLong();
+                return true;
+            } catch (EOFException ex) {
+                return false;
+            }
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            int cmp = Long.compare(key1, other.key1);
+            return cmp == 0 ? Long.compare(key2, other.key2) : cmp;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
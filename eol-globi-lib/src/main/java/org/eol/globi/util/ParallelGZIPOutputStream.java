@@ -0,0 +1,221 @@
+package org.eol.globi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a standard, single member gzip stream, compressing blocks of input in parallel (like pigz).
+ * <p>
+ * Input is cut into fixed size blocks that are deflated independently by a shared pool of compression threads.
+ * Each block is primed with the last 32KiB of the preceding block as dictionary, so that the compression ratio
+ * stays close to that of {@link java.util.zip.GZIPOutputStream}. All blocks but the last end with a sync flush,
+ * so that the compressed blocks concatenate into a single deflate stream. Compressed blocks are written in order,
+ * with at most a few blocks per compression thread in flight.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class ParallelGZIPOutputStream extends FilterOutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int NUMBER_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService COMPRESSORS = Executors.newFixedThreadPool(NUMBER_OF_THREADS, r -> {
+        Thread thread = new Thread(r, "parallel-gzip");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final byte[] HEADER = new byte[]{
+            0x1f, (byte) 0x8b,      // magic
+            Deflater.DEFLATED,      // compression method
+            0,                      // flags
+            0, 0, 0, 0,             // modification time
+            0,                      // extra flags
+            (byte) 0xff             // operating system: unknown
+    };
+
+    private final ExecutorService compressors;
+    private final int level;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<byte[]>> blocksInFlight = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block;
+    private int blockLength = 0;
+    private byte[] dictionary = null;
+    private long uncompressedSize = 0;
+    private boolean closed = false;
+
+    public ParallelGZIPOutputStream(OutputStream out) throws IOException {
+        this(out, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ParallelGZIPOutputStream(OutputStream out, int level) throws IOException {
+        this(out, level, DEFAULT_BLOCK_SIZE, COMPRESSORS, 2 * NUMBER_OF_THREADS);
+    }
+
+    public ParallelGZIPOutputStream(OutputStream out, int level, int blockSize, ExecutorService compressors, int maxBlocksInFlight) throws IOException {
+        super(out);
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be positive, but got [" + blockSize + "]");
+        }
+        this.level = level;
+        this.block = new byte[blockSize];
+        this.compressors = compressors;
+        this.maxBlocksInFlight = Math.max(1, maxBlocksInFlight);
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        crc.update(b, off, len);
+        uncompressedSize += len;
+        while (len > 0) {
+            if (blockLength == block.length) {
+                submitBlock(false);
+            }
+            int n = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes all compressed blocks that are done. Input that does not fill a block yet is held back to keep
+     * the compression ratio, so flush does not guarantee that all input written so far can be decompressed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!blocksInFlight.isEmpty() && blocksInFlight.peekFirst().isDone()) {
+            writeNextBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining input and the gzip trailer, without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (!closed) {
+            submitBlock(true);
+            while (!blocksInFlight.isEmpty()) {
+                writeNextBlock();
+            }
+            writeIntLE((int) crc.getValue());
+            writeIntLE((int) uncompressedSize);
+            closed = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            cancelBlocksInFlight();
+            out.close();
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] input = block;
+        final int inputLength = blockLength;
+        final byte[] inputDictionary = dictionary;
+        blocksInFlight.addLast(compressors.submit(() -> deflate(input, inputLength, inputDictionary, last)));
+
+        if (!last) {
+            dictionary = Arrays.copyOfRange(input, Math.max(0, inputLength - DICTIONARY_SIZE), inputLength);
+            block = new byte[block.length];
+            blockLength = 0;
+        }
+
+        while (blocksInFlight.size() >= maxBlocksInFlight) {
+            writeNextBlock();
+        }
+    }
+
+    private byte[] deflate(byte[] input, int inputLength, byte[] inputDictionary, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (inputDictionary != null) {
+                deflater.setDictionary(inputDictionary);
+            }
+            deflater.setInput(input, 0, inputLength);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(inputLength / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+                    compressed.write(buffer, 0, n);
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        Future<byte[]> next = blocksInFlight.removeFirst();
+        try {
+            out.write(next.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("failed to compress", e.getCause());
+        }
+    }
+
+    private void cancelBlocksInFlight() {
+        for (Future<byte[]> future : blocksInFlight) {
+            future.cancel(true);
+        }
+        blocksInFlight.clear();
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream already finished");
+        }
+    }
+
+}
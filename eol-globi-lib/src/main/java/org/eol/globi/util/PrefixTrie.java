@@ -0,0 +1,71 @@
+package org.eol.globi.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable character trie over a fixed set of prefixes, answering "which of the prefixes does this value start
+ * with?" in a single pass over the value, regardless of the number of prefixes.
+ */
+class PrefixTrie {
+
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private String prefix;
+
+        Node child(char c) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char c) {
+            Node child = child(c);
+            if (child == null) {
+                child = new Node();
+                labels = Arrays.copyOf(labels, labels.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                labels[labels.length - 1] = c;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+    private final Node root = new Node();
+
+    PrefixTrie(Collection<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (prefix != null) {
+                Node node = root;
+                for (int i = 0; i < prefix.length(); i++) {
+                    node = node.addChild(prefix.charAt(i));
+                }
+                node.prefix = prefix;
+            }
+        }
+    }
+
+    /**
+     * @return longest known prefix of value that is no longer than maxLength, or null if none
+     */
+    String longestPrefixOf(String value, int maxLength) {
+        String longest = null;
+        if (value != null) {
+            Node node = root;
+            int length = Math.min(maxLength, value.length());
+            for (int i = 0; node != null && i <= length; i++) {
+                if (node.prefix != null) {
+                    longest = node.prefix;
+                }
+                node = i < length ? node.child(value.charAt(i)) : null;
+            }
+        }
+        return longest;
+    }
+
+}
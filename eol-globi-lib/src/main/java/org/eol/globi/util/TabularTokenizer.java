@@ -0,0 +1,351 @@
+package org.eol.globi.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits tab or comma separated text into records and fields without creating objects per record or field.
+ * <p>
+ * Input is read through a reusable char buffer, and the fields of the current record are kept as offsets into a
+ * reusable record buffer. Fields are only turned into strings when asked for, so importers can skip blank or
+ * unused columns for free. Once {@link #readHeader()} is called, fields can be looked up by column label.
+ * <p>
+ * The dialect follows the Ostermiller CSVParser that was used before, so that existing datasets parse the same:
+ * blank lines are skipped, unquoted values are stripped of surrounding spaces and, within quotes, a backslash
+ * escapes the next character. Unlike the Ostermiller parser, a doubled quote within quotes is read as a quote as
+ * described in RFC 4180.
+ */
+public class TabularTokenizer implements Closeable {
+
+    private static final int EOF = -1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    private char delimiter;
+    private char quote = '"';
+
+    private char[] record = new char[1024];
+    private int recordLength = 0;
+    private int[] fieldStarts = new int[32];
+    private int[] fieldEnds = new int[32];
+    private int fieldCount = 0;
+
+    private int lineNumber = 1;
+    private int recordLineNumber = -1;
+    private boolean closed = false;
+    private boolean lastFieldQuoted = false;
+
+    private String[] labels = null;
+    private Map<String, Integer> labelIndexes = null;
+
+    public TabularTokenizer(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    public static TabularTokenizer forTSV(Reader reader) {
+        return new TabularTokenizer(reader, '\t');
+    }
+
+    public static TabularTokenizer forCSV(Reader reader) {
+        return new TabularTokenizer(reader, ',');
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public void setQuote(char quote) {
+        this.quote = quote;
+    }
+
+    /**
+     * Reads the first record as column labels.
+     *
+     * @return labels, or null if no records are available
+     */
+    public String[] readHeader() throws IOException {
+        if (labels == null && next()) {
+            labels = getValues();
+            labelIndexes = new HashMap<>();
+            for (int i = 0; i < labels.length; i++) {
+                // like LabeledCSVParser, the last of duplicate labels wins
+                labelIndexes.put(labels[i], i);
+            }
+        }
+        return labels;
+    }
+
+    public String[] getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return index of column with given label, or -1 if no such column exists
+     */
+    public int indexOf(String label) {
+        Integer index = labelIndexes == null ? null : labelIndexes.get(label);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Advances to the next non-empty record.
+     *
+     * @return true if a record was read, false if input is exhausted
+     */
+    public boolean next() throws IOException {
+        boolean hasRecord = false;
+        int c = read();
+        while (!hasRecord && c != EOF) {
+            if (c == '\n' || c == '\r') {
+                skipLineBreak(c);
+                c = read();
+            } else {
+                recordLength = 0;
+                fieldCount = 0;
+                recordLineNumber = lineNumber;
+                boolean endOfInput = readRecord(c);
+                // like blank lines, lines with only spaces are skipped, unless they are last
+                hasRecord = fieldCount > 1 || fieldEnds[0] > 0 || lastFieldQuoted || endOfInput;
+                c = hasRecord ? c : read();
+            }
+        }
+        if (!hasRecord) {
+            fieldCount = 0;
+            close();
+        }
+        return hasRecord;
+    }
+
+    /**
+     * @return line number at which the current record starts, not counting line breaks within quotes
+     */
+    public int getLineNumber() {
+        return recordLineNumber;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return view of the field, valid until the next record is read, or null if the record has no such field
+     */
+    public CharSequence getField(int index) {
+        return hasField(index) ? new Field(index) : null;
+    }
+
+    public CharSequence getField(String label) {
+        return getField(indexOf(label));
+    }
+
+    public String getValue(int index) {
+        return hasField(index)
+                ? new String(record, fieldStarts[index], fieldEnds[index] - fieldStarts[index])
+                : null;
+    }
+
+    public String getValue(String label) {
+        return getValue(indexOf(label));
+    }
+
+    public boolean isBlank(int index) {
+        if (hasField(index)) {
+            for (int i = fieldStarts[index]; i < fieldEnds[index]; i++) {
+                if (!Character.isWhitespace(record[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean isBlank(String label) {
+        return isBlank(indexOf(label));
+    }
+
+    public String[] getValues() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = getValue(i);
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            reader.close();
+        }
+    }
+
+    private boolean hasField(int index) {
+        return index >= 0 && index < fieldCount;
+    }
+
+    private boolean readRecord(int first) throws IOException {
+        int c = readField(first);
+        while (c == delimiter) {
+            c = readField(read());
+        }
+        if (c != EOF) {
+            skipLineBreak(c);
+        }
+        return c == EOF;
+    }
+
+    private int readField(int first) throws IOException {
+        int c = first;
+        while (isSpace(c)) {
+            c = read();
+        }
+        startField();
+        lastFieldQuoted = c == quote;
+        if (lastFieldQuoted) {
+            c = readQuoted();
+        } else {
+            while (c != delimiter && c != '\n' && c != '\r' && c != EOF) {
+                append((char) c);
+                c = read();
+            }
+            while (recordLength > fieldStarts[fieldCount] && isSpace(record[recordLength - 1])) {
+                recordLength--;
+            }
+        }
+        fieldEnds[fieldCount++] = recordLength;
+        return c;
+    }
+
+    /**
+     * Collects the quoted value as is, and unescapes it in place once the closing quote is found. Like the
+     * Ostermiller parser, a value with a missing closing quote is kept as is, up to the end of input.
+     */
+    private int readQuoted() throws IOException {
+        append(quote);
+        int c = read();
+        while (c != EOF) {
+            append((char) c);
+            if (c == quote) {
+                if (peek() != quote) {
+                    unescapeQuoted();
+                    // text between a closing quote and the next delimiter is dropped
+                    c = read();
+                    while (c != delimiter && c != '\n' && c != '\r' && c != EOF) {
+                        c = read();
+                    }
+                    return c;
+                }
+                append((char) read());
+            } else if (c == '\\') {
+                c = read();
+                if (c == EOF) {
+                    break;
+                }
+                append((char) c);
+            }
+            c = read();
+        }
+        return EOF;
+    }
+
+    private void unescapeQuoted() {
+        int start = fieldStarts[fieldCount];
+        int end = recordLength - 1;
+        int length = start;
+        for (int i = start + 1; i < end; i++) {
+            char c = record[i];
+            if (c == '\\' || c == quote) {
+                c = record[++i];
+            }
+            record[length++] = c;
+        }
+        recordLength = length;
+    }
+
+    private boolean isSpace(int c) {
+        return (c == ' ' || c == '\t') && c != delimiter;
+    }
+
+    private void skipLineBreak(int c) throws IOException {
+        lineNumber++;
+        if (c == '\r' && peek() == '\n') {
+            position++;
+        }
+    }
+
+    private void startField() {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = recordLength;
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, recordLength * 2);
+        }
+        record[recordLength++] = c;
+    }
+
+    private int read() throws IOException {
+        return position < limit || fill() ? buffer[position++] : EOF;
+    }
+
+    private int peek() throws IOException {
+        return position < limit || fill() ? buffer[position] : EOF;
+    }
+
+    private boolean fill() throws IOException {
+        int read = closed ? EOF : reader.read(buffer, 0, buffer.length);
+        if (read > 0) {
+            position = 0;
+            limit = read;
+        }
+        return read > 0;
+    }
+
+    private final class Field implements CharSequence {
+        private final int start;
+        private final int end;
+
+        Field(int index) {
+            this(fieldStarts[index], fieldEnds[index]);
+        }
+
+        private Field(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return record[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new Field(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(record, start, end - start);
+        }
+    }
+
+}
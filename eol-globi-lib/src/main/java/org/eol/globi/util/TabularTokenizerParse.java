@@ -0,0 +1,97 @@
+package org.eol.globi.util;
+
+import com.Ostermiller.util.BadDelimiterException;
+import com.Ostermiller.util.BadQuoteException;
+import com.Ostermiller.util.CSVParse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Offers a {@link TabularTokenizer} as {@link CSVParse}, so that importers written against (Labeled)CSVParse can
+ * use it as is. The underlying reader is closed once all lines are read.
+ */
+public class TabularTokenizerParse implements CSVParse {
+
+    private final TabularTokenizer tokenizer;
+    private int valueIndex = 0;
+    private boolean hasRecord = false;
+
+    public TabularTokenizerParse(Reader reader, char delimiter) {
+        this.tokenizer = new TabularTokenizer(reader, delimiter);
+    }
+
+    @Override
+    public String nextValue() throws IOException {
+        while (!hasRecord || valueIndex >= tokenizer.getFieldCount()) {
+            if (!nextRecord()) {
+                return null;
+            }
+        }
+        return tokenizer.getValue(valueIndex++);
+    }
+
+    @Override
+    public int lastLineNumber() {
+        return tokenizer.getLineNumber();
+    }
+
+    @Override
+    public String[] getLine() throws IOException {
+        String[] line = null;
+        if (hasRecord && valueIndex > 0 && valueIndex < tokenizer.getFieldCount()) {
+            line = Arrays.copyOfRange(tokenizer.getValues(), valueIndex, tokenizer.getFieldCount());
+            valueIndex = tokenizer.getFieldCount();
+        } else if (nextRecord()) {
+            line = tokenizer.getValues();
+            valueIndex = tokenizer.getFieldCount();
+        }
+        return line;
+    }
+
+    @Override
+    public int getLastLineNumber() {
+        return tokenizer.getLineNumber();
+    }
+
+    @Override
+    public String[][] getAllValues() throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        String[] line;
+        while ((line = getLine()) != null) {
+            lines.add(line);
+        }
+        return lines.isEmpty() ? null : lines.toArray(new String[0][]);
+    }
+
+    @Override
+    public void changeDelimiter(char delimiter) throws BadDelimiterException {
+        if (delimiter == '\n' || delimiter == '\r' || delimiter == ' ') {
+            throw new BadDelimiterException("unsupported delimiter [" + delimiter + "]");
+        }
+        tokenizer.setDelimiter(delimiter);
+    }
+
+    @Override
+    public void changeQuote(char quote) throws BadQuoteException {
+        if (quote == '\n' || quote == '\r' || quote == ' ') {
+            throw new BadQuoteException("unsupported quote [" + quote + "]");
+        }
+        tokenizer.setQuote(quote);
+    }
+
+    @Override
+    public void close() throws IOException {
+        tokenizer.close();
+    }
+
+    private boolean nextRecord() throws IOException {
+        hasRecord = tokenizer.next();
+        valueIndex = 0;
+        return hasRecord;
+    }
+
+}
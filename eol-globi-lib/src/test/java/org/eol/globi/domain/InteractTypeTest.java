@@ -1,5 +1,6 @@
 package org.eol.globi.domain;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 import static org.eol.globi.domain.InteractType.ATE;
@@ -30,6 +31,7 @@ import static org.eol.globi.domain.InteractType.KILLS;
 import static org.eol.globi.domain.InteractType.PARASITE_OF;
 import static org.eol.globi.domain.InteractType.PARASITOID_OF;
 import static org.eol.globi.domain.InteractType.PATHOGEN_OF;
+import static org.eol.globi.domain.InteractType.PERCHING_ON;
 import static org.eol.globi.domain.InteractType.POLLINATED_BY;
 import static org.eol.globi.domain.InteractType.POLLINATES;
 import static org.eol.globi.domain.InteractType.PREYED_UPON_BY;
@@ -43,6 +45,7 @@ import static org.eol.globi.domain.InteractType.values;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.hasItems;
@@ -74,6 +77,38 @@ public class InteractTypeTest {
     }
 
 
+    @Test
+    public void typeOfLikeLinearScan() {
+        for (InteractType type : values()) {
+            for (String value : new String[]{type.getIRI(), type.name(), type.getLabel()}) {
+                for (String candidate : new String[]{value, value.toUpperCase(), value.toLowerCase(), value + " ", "RO:" + value}) {
+                    assertThat("unexpected type for [" + candidate + "]", typeOf(candidate), is(typeOfByLinearScan(candidate)));
+                }
+            }
+        }
+        assertThat(typeOf(PropertyAndValueDictionary.NO_MATCH), is(PERCHING_ON));
+        assertThat(typeOf("RO:0002470"), is(ATE));
+        assertThat(typeOf("ro:0002470"), is(nullValue()));
+        assertThat(typeOf("RO:0001025"), is(INTERACTS_WITH));
+        assertThat(typeOf("http://eol.org/schema/terms/KILLS"), is(nullValue()));
+        assertThat(typeOf(""), is(nullValue()));
+        assertThat(typeOf(null), is(nullValue()));
+    }
+
+    private static InteractType typeOfByLinearScan(String iri) {
+        if (StringUtils.startsWith(iri, "RO:")) {
+            iri = StringUtils.replace(iri, "RO:", PropertyAndValueDictionary.RO_NAMESPACE);
+        }
+        for (InteractType interactType : values()) {
+            if (StringUtils.equalsIgnoreCase(iri, interactType.getIRI())
+                    || StringUtils.equalsIgnoreCase(iri, interactType.name())
+                    || StringUtils.equalsIgnoreCase(iri, interactType.getLabel())) {
+                return interactType;
+            }
+        }
+        return null;
+    }
+
     @Test
     public void hasTypes() {
         for (InteractType type : values()) {
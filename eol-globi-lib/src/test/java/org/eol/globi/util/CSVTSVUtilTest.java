@@ -4,6 +4,7 @@ import com.Ostermiller.util.CSVParse;
 import com.Ostermiller.util.CSVPrint;
 import com.Ostermiller.util.LabeledCSVParser;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -11,6 +12,8 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -83,4 +86,38 @@ public class CSVTSVUtilTest {
         assertThat(CSVTSVUtil.escapeTSV("\t\n\rone"), is("   one"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void escapeValues() {
+        String[] values = {null, "", " ", "\t", "one", " one ", "o\t\tn\ne", "three\r\n\t", "\u0001one\u0002", "a \t b", "a\t \tb"};
+        String[] expected = {"", "", "", "", "one", "one", "o n e", "three", "one", "a   b", "a   b"};
+        assertThat(CSVTSVUtil.escapeValues(values), is(Arrays.asList(expected)));
+        for (int i = 0; i < values.length; i++) {
+            assertAppendEscapedValue(values[i], expected[i]);
+        }
+    }
+
+    @Test
+    public void appendEscapedValueOfRandomValues() {
+        Random random = new Random(42);
+        char[] chars = {'a', ' ', '\t', '\r', '\n', '\u0000', '\u00e9'};
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder value = new StringBuilder();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                value.append(chars[random.nextInt(chars.length)]);
+            }
+            // runs of tabs and line breaks become a single space, after which the value is trimmed
+            String expected = StringUtils.isBlank(value)
+                    ? ""
+                    : StringUtils.trim(value.toString().replaceAll("[\t\r\n]+", " "));
+            assertAppendEscapedValue(value.toString(), expected);
+            assertThat(CSVTSVUtil.escapeValues(new String[]{value.toString()}).get(0), is(expected));
+        }
+    }
+
+    private static void assertAppendEscapedValue(String value, String expected) {
+        StringBuilder escaped = new StringBuilder("prefix");
+        CSVTSVUtil.appendEscapedValue(escaped, value);
+        assertThat("escaped [" + value + "] differently", escaped.toString(), is("prefix" + expected));
+    }
+
+}
@@ -44,6 +44,43 @@ public class ExternalIdUtilTest {
         assertThat(ExternalIdUtil.urlForExternalId("BOLD:ACM3285"), is("http://bins.boldsystems.org/index.php/Public_BarcodeCluster?clusteruri=BOLD:ACM3285"));
     }
 
+    @Test
+    public void mappingStripsLeadingPrefixOnly() {
+        assertThat(ExternalIdUtil.urlForExternalId("http://example.org/?redirect=http://example.com"), is("http://example.org/?redirect=http://example.com"));
+        assertThat(ExternalIdUtil.urlForExternalId("GBIF:GBIF:123"), is("http://www.gbif.org/species/GBIF:123"));
+        assertThat(ExternalIdUtil.urlForExternalId("GBIF:123"), is(ExternalIdUtil.urlForExternalId("GBIF:123")));
+        assertThat(ExternalIdUtil.urlForExternalId("doi:not a doi"), is(nullValue()));
+        assertThat(ExternalIdUtil.urlForExternalId("unknown:123"), is(nullValue()));
+        assertThat(ExternalIdUtil.urlForExternalId(""), is(nullValue()));
+        assertThat(ExternalIdUtil.urlForExternalId(null), is(nullValue()));
+    }
+
+    @Test
+    public void providerForIdOrUrl() {
+        assertThat(ExternalIdUtil.taxonomyProviderFor("BOLD:ACM3285"), is(TaxonomyProvider.BOLD_BIN));
+        assertThat(ExternalIdUtil.taxonomyProviderFor("BOLDTaxon:762659"), is(TaxonomyProvider.BOLD_TAXON));
+        assertThat(ExternalIdUtil.taxonomyProviderFor("INAT_TAXON:406089"), is(TaxonomyProvider.INATURALIST_TAXON));
+        assertThat(ExternalIdUtil.taxonomyProviderFor("unknown:123"), is(nullValue()));
+        assertThat(ExternalIdUtil.taxonomyProviderFor(" "), is(nullValue()));
+        for (TaxonomyProvider provider : TaxonomyProvider.values()) {
+            for (String idPrefix : provider.getIdPrefixes()) {
+                assertThat(ExternalIdUtil.taxonomyProviderFor(idPrefix + "123"), is(lastProviderWithPrefixOf(idPrefix + "123")));
+            }
+        }
+    }
+
+    private static TaxonomyProvider lastProviderWithPrefixOf(String externalId) {
+        TaxonomyProvider last = null;
+        for (TaxonomyProvider provider : TaxonomyProvider.values()) {
+            for (String idPrefix : provider.getIdPrefixes()) {
+                if (externalId.startsWith(idPrefix)) {
+                    last = provider;
+                }
+            }
+        }
+        return last;
+    }
+
     @Test
     public void urlToPrefix() {
         assertThat(ExternalIdUtil.prefixForUrl("http://www.geonames.org/"), is(TaxonomyProvider.GEONAMES.getIdPrefix()));
@@ -0,0 +1,52 @@
+package org.eol.globi.util;
+
+import org.eol.globi.domain.InteractType;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InteractTypeMapperCachedTest {
+
+    @Test
+    public void lookupOnce() {
+        InteractTypeMapper mapper = Mockito.mock(InteractTypeMapper.class);
+        when(mapper.getInteractType("eats")).thenReturn(InteractType.ATE);
+        when(mapper.shouldIgnoreInteractionType("eats")).thenReturn(false);
+        when(mapper.shouldIgnoreInteractionType("shmeats")).thenReturn(true);
+
+        InteractTypeMapper cached = new InteractTypeMapperCached(mapper);
+        for (int i = 0; i < 3; i++) {
+            assertThat(cached.getInteractType("eats"), is(InteractType.ATE));
+            assertThat(cached.shouldIgnoreInteractionType("eats"), is(false));
+            assertThat(cached.getInteractType("shmeats"), is(nullValue()));
+            assertThat(cached.shouldIgnoreInteractionType("shmeats"), is(true));
+        }
+        verify(mapper, times(1)).getInteractType("eats");
+        verify(mapper, times(1)).shouldIgnoreInteractionType("eats");
+        verify(mapper, times(1)).getInteractType("shmeats");
+        verify(mapper, times(1)).shouldIgnoreInteractionType("shmeats");
+    }
+
+    @Test
+    public void passThroughWhenFull() {
+        InteractTypeMapper mapper = Mockito.mock(InteractTypeMapper.class);
+        when(mapper.getInteractType("eats")).thenReturn(InteractType.ATE);
+        when(mapper.getInteractType("kills")).thenReturn(InteractType.KILLS);
+
+        InteractTypeMapper cached = new InteractTypeMapperCached(mapper, 1);
+        assertThat(cached.getInteractType("eats"), is(InteractType.ATE));
+        assertThat(cached.getInteractType("kills"), is(InteractType.KILLS));
+        assertThat(cached.getInteractType("kills"), is(InteractType.KILLS));
+        assertThat(cached.getInteractType(null), is(nullValue()));
+        verify(mapper, times(1)).getInteractType("eats");
+        verify(mapper, times(2)).getInteractType("kills");
+        verify(mapper, times(1)).getInteractType(null);
+    }
+
+}
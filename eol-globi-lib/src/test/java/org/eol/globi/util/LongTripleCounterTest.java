@@ -0,0 +1,102 @@
+package org.eol.globi.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class LongTripleCounterTest {
+
+    private File tmpDir;
+
+    @Before
+    public void createTmpDir() throws IOException {
+        tmpDir = new File("./target/triples" + new Random().nextLong());
+        FileUtils.forceMkdir(tmpDir);
+    }
+
+    @After
+    public void deleteTmpDir() {
+        FileUtils.deleteQuietly(tmpDir);
+    }
+
+    @Test
+    public void countInMemory() throws IOException {
+        LongTripleCounter counter = new LongTripleCounter(100, tmpDir);
+        counter.increment(2L, 1, 3L);
+        counter.increment(1L, 1, 3L);
+        counter.increment(2L, 1, 3L);
+        counter.increment(2L, 2, 3L);
+
+        List<String> emitted = new ArrayList<>();
+        counter.emit((first, second, third, count) -> emitted.add(first + "-" + second + "-" + third + ":" + count));
+
+        assertThat(counter.getNumberOfSpilledRuns(), is(0));
+        assertThat(emitted.size(), is(3));
+        assertThat(emitted.get(0), is("1-1-3:1"));
+        assertThat(emitted.get(1), is("2-1-3:2"));
+        assertThat(emitted.get(2), is("2-2-3:1"));
+    }
+
+    @Test
+    public void countWithSpills() throws IOException {
+        LongTripleCounter counter = new LongTripleCounter(10, tmpDir);
+        TreeMap<String, Long> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            long first = random.nextInt(20);
+            int second = random.nextInt(3);
+            long third = random.nextInt(20);
+            counter.increment(first, second, third);
+            expected.merge(first + "-" + second + "-" + third, 1L, Long::sum);
+        }
+
+        TreeMap<String, Long> actual = new TreeMap<>();
+        List<Long> firstValues = new ArrayList<>();
+        counter.emit((first, second, third, count) -> {
+            Long previous = actual.put(first + "-" + second + "-" + third, count);
+            assertThat(previous == null, is(true));
+            firstValues.add(first);
+        });
+
+        assertThat(actual, is(expected));
+        for (int i = 1; i < firstValues.size(); i++) {
+            assertThat(firstValues.get(i - 1) <= firstValues.get(i), is(true));
+        }
+        assertThat(tmpDir.list().length, is(0));
+    }
+
+    @Test
+    public void growTableOnDemandAndReleaseOnEmit() throws IOException {
+        LongTripleCounter counter = new LongTripleCounter(10000000, tmpDir);
+        assertThat(counter.getCapacity(), is(0));
+        for (int i = 0; i < 20000; i++) {
+            counter.increment(i, 1, i);
+            counter.increment(i, 1, i);
+        }
+        assertThat(counter.getCapacity(), is(1 << 15));
+        assertThat(counter.getNumberOfSpilledRuns(), is(0));
+
+        List<Long> counts = new ArrayList<>();
+        counter.emit((first, second, third, count) -> counts.add(count));
+        assertThat(counts.size(), is(20000));
+        assertThat(counts.stream().allMatch(count -> count == 2L), is(true));
+        assertThat(counter.getCapacity(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfRange() throws IOException {
+        new LongTripleCounter(10, tmpDir).increment(1L, 1, -1L);
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.eol.globi.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ParallelGZIPOutputStreamTest {
+
+    @Test
+    public void roundTripManyBlocks() throws IOException {
+        byte[] content = someContent(1024 * 1024);
+        ExecutorService compressors = Executors.newFixedThreadPool(3);
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream os = new ParallelGZIPOutputStream(compressed, Deflater.DEFAULT_COMPRESSION, 10 * 1024, compressors, 4)) {
+                IOUtils.write(content, os);
+            }
+            assertThat(gunzip(compressed.toByteArray()), is(content));
+        } finally {
+            compressors.shutdownNow();
+        }
+    }
+
+    @Test
+    public void compressionRatioCloseToGZIP() throws IOException {
+        byte[] content = someContent(2 * 1024 * 1024);
+
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        try (OutputStream os = new ParallelGZIPOutputStream(parallel)) {
+            IOUtils.write(content, os);
+        }
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        try (OutputStream os = new GZIPOutputStream(sequential)) {
+            IOUtils.write(content, os);
+        }
+
+        assertThat(gunzip(parallel.toByteArray()), is(content));
+        assertThat(parallel.size() < sequential.size() * 1.05, is(true));
+    }
+
+    @Test
+    public void emptyStream() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGZIPOutputStream(compressed).close();
+        assertThat(gunzip(compressed.toByteArray()).length, is(0));
+    }
+
+    @Test
+    public void singleBytesAndNoCompression() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream os = new ParallelGZIPOutputStream(compressed, Deflater.NO_COMPRESSION, 5, Executors.newSingleThreadExecutor(), 2)) {
+            for (byte b : content) {
+                os.write(b);
+                os.flush();
+            }
+        }
+        assertThat(gunzip(compressed.toByteArray()), is(content));
+    }
+
+    private static byte[] someContent(int size) {
+        Random random = new Random(42);
+        String[] words = new String[]{"Homo sapiens", "eats", "Canis familiaris", "NCBI:9606", "\t", "\n", "interactsWith"};
+        ByteArrayOutputStream content = new ByteArrayOutputStream(size);
+        while (content.size() < size) {
+            byte[] word = words[random.nextInt(words.length)].getBytes(StandardCharsets.UTF_8);
+            content.write(word, 0, word.length);
+            content.write('0' + random.nextInt(10));
+        }
+        return content.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+
+}
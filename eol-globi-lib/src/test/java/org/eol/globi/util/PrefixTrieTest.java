@@ -0,0 +1,39 @@
+package org.eol.globi.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class PrefixTrieTest {
+
+    private final PrefixTrie trie = new PrefixTrie(Arrays.asList("BOLD:", "BOLDTaxon:", "http://", "https://", "B"));
+
+    @Test
+    public void longestPrefix() {
+        assertThat(trie.longestPrefixOf("BOLD:ACM3285", 100), is("BOLD:"));
+        assertThat(trie.longestPrefixOf("BOLDTaxon:762659", 100), is("BOLDTaxon:"));
+        assertThat(trie.longestPrefixOf("BOLDT", 100), is("B"));
+        assertThat(trie.longestPrefixOf("https://example.org", 100), is("https://"));
+        assertThat(trie.longestPrefixOf("http://example.org", 100), is("http://"));
+    }
+
+    @Test
+    public void shorterPrefixes() {
+        assertThat(trie.longestPrefixOf("BOLD:ACM3285", "BOLD:".length() - 1), is("B"));
+        assertThat(trie.longestPrefixOf("BOLD:ACM3285", 0), is(nullValue()));
+        assertThat(trie.longestPrefixOf("BOLD:ACM3285", -1), is(nullValue()));
+    }
+
+    @Test
+    public void noPrefix() {
+        assertThat(trie.longestPrefixOf("GBIF:123", 100), is(nullValue()));
+        assertThat(trie.longestPrefixOf("", 100), is(nullValue()));
+        assertThat(trie.longestPrefixOf(null, 100), is(nullValue()));
+        assertThat(new PrefixTrie(Arrays.asList("", "A")).longestPrefixOf("B", 100), is(""));
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.eol.globi.util;
+
+import com.Ostermiller.util.CSVParser;
+import com.Ostermiller.util.LabeledCSVParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class TabularTokenizerTest {
+
+    @Test
+    public void tsv() throws IOException {
+        TabularTokenizer tokenizer = TabularTokenizer.forTSV(new StringReader("one\ttwo\r\n a \t\"b\tc\"\n\n\nd\t\n"));
+        assertThat(tokenizer.next(), is(true));
+        assertThat(tokenizer.getValues(), is(new String[]{"one", "two"}));
+        assertThat(tokenizer.getLineNumber(), is(1));
+        assertThat(tokenizer.next(), is(true));
+        assertThat(tokenizer.getValues(), is(new String[]{"a", "b\tc"}));
+        assertThat(tokenizer.getLineNumber(), is(2));
+        assertThat(tokenizer.next(), is(true));
+        assertThat(tokenizer.getValues(), is(new String[]{"d", ""}));
+        assertThat(tokenizer.getLineNumber(), is(5));
+        assertThat(tokenizer.next(), is(false));
+        assertThat(tokenizer.next(), is(false));
+    }
+
+    @Test
+    public void csv() throws IOException {
+        TabularTokenizer tokenizer = TabularTokenizer.forCSV(new StringReader("\"multi\nline\",\"say \"\"hello\"\"\",\"back\\\\slash\",'single'\nnext"));
+        assertThat(tokenizer.next(), is(true));
+        assertThat(tokenizer.getValues(), is(new String[]{"multi\nline", "say \"hello\"", "back\\slash", "'single'"}));
+        assertThat(tokenizer.next(), is(true));
+        assertThat(tokenizer.getValues(), is(new String[]{"next"}));
+        assertThat(tokenizer.getLineNumber(), is(2));
+        assertThat(tokenizer.next(), is(false));
+    }
+
+    @Test
+    public void header() throws IOException {
+        TabularTokenizer tokenizer = TabularTokenizer.forTSV(new StringReader("one\ttwo\tone\n1\t \t3\n4\n"));
+        assertThat(tokenizer.readHeader(), is(new String[]{"one", "two", "one"}));
+        assertThat(tokenizer.indexOf("one"), is(2));
+        assertThat(tokenizer.indexOf("three"), is(-1));
+
+        assertThat(tokenizer.next(), is(true));
+        assertThat(tokenizer.getValue("one"), is("3"));
+        assertThat(tokenizer.getValue("two"), is(""));
+        assertThat(tokenizer.isBlank("two"), is(true));
+        assertThat(tokenizer.getField("one").toString(), is("3"));
+        assertThat(tokenizer.getField(0).length(), is(1));
+        assertThat(tokenizer.getValue("three"), is(nullValue()));
+        assertThat(tokenizer.isBlank("three"), is(true));
+
+        assertThat(tokenizer.next(), is(true));
+        assertThat(tokenizer.getValue(0), is("4"));
+        assertThat(tokenizer.getValue("one"), is(nullValue()));
+        assertThat(tokenizer.getField("one"), is(nullValue()));
+        assertThat(tokenizer.next(), is(false));
+    }
+
+    @Test
+    public void emptyInput() throws IOException {
+        TabularTokenizer tokenizer = TabularTokenizer.forTSV(new StringReader("\n\r\n"));
+        assertThat(tokenizer.readHeader(), is(nullValue()));
+        assertThat(tokenizer.next(), is(false));
+    }
+
+    @Test
+    public void recordsLargerThanBuffer() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            input.append(i).append("\t\"value ").append(i).append("\r\nof some length\"\r\n");
+        }
+        TabularTokenizer tokenizer = TabularTokenizer.forTSV(new StringReader(input.toString()));
+        int count = 0;
+        while (tokenizer.next()) {
+            assertThat(tokenizer.getValues(), is(new String[]{Integer.toString(count), "value " + count + "\r\nof some length"}));
+            assertThat(tokenizer.getLineNumber(), is(count + 1));
+            count++;
+        }
+        assertThat(count, is(10000));
+    }
+
+    @Test
+    public void sameAsOstermillerParser() throws IOException {
+        String[] inputs = {
+                "h1\th2\n a \t b \n",
+                "h1\th2\n  \t  \n \n\t\n",
+                "h1\th2\nx\"y\"z\t\"ab\"cd\n",
+                "h1\th2\n\"a\\\"b\"\t\"x\\ny\"\n",
+                "h1\th2\n\"a\tb",
+                "h1\th2\na\rb\tc\r\n\r\n  ",
+                "h1,h2\n a , \"b,c\" \n",
+        };
+        for (String input : inputs) {
+            char delimiter = input.startsWith("h1,") ? ',' : '\t';
+            assertThat("parsed [" + input + "] differently",
+                    linesOf(new LabeledCSVParser(new TabularTokenizerParse(new StringReader(input), delimiter))),
+                    is(linesOf(new LabeledCSVParser(new CSVParser(new StringReader(input), delimiter)))));
+        }
+    }
+
+    @Test
+    public void nextValue() throws IOException {
+        TabularTokenizerParse parse = new TabularTokenizerParse(new StringReader("a\tb\nc\n"), '\t');
+        assertThat(parse.nextValue(), is("a"));
+        assertThat(parse.nextValue(), is("b"));
+        assertThat(parse.nextValue(), is("c"));
+        assertThat(parse.lastLineNumber(), is(2));
+        assertThat(parse.nextValue(), is(nullValue()));
+    }
+
+    private static List<String> linesOf(LabeledCSVParser parser) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String[] line;
+        while ((line = parser.getLine()) != null) {
+            lines.add(parser.getLastLineNumber() + ":" + String.join("|", line)
+                    + " h2=" + parser.getValueByLabel("h2"));
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.eol.globi.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Hands rows over to a writer thread through a bounded queue, so that value escaping, compression and
+ * file i/o do not hold up the thread traversing the graph.
+ * <p>
+ * Rows are appended by a single producer. The writer thread runs {@link #run()} until the appender is closed.
+ */
+class AppenderQueued implements ExportUtil.Appender, Runnable, Closeable {
+
+    private static final String[] END_OF_ROWS = new String[0];
+    private static final long OFFER_TIMEOUT_MS = 100L;
+
+    private final BlockingQueue<String[]> rows;
+    private final Writer writer;
+    private final ExportUtil.ValueJoiner joiner;
+
+    private volatile IOException failure;
+    private final Object done = new Object();
+    private boolean finished = false;
+
+    AppenderQueued(Writer writer, ExportUtil.ValueJoiner joiner, int capacity) {
+        this.writer = writer;
+        this.joiner = joiner;
+        this.rows = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void append(Stream<String> values) throws IOException {
+        checkFailure();
+        enqueue(values.toArray(String[]::new));
+    }
+
+    @Override
+    public void append(String[] values) throws IOException {
+        checkFailure();
+        // callers may re-use the array for the next row
+        enqueue(values.clone());
+    }
+
+    @Override
+    public void run() {
+        try {
+            String[] row;
+            while ((row = rows.take()) != END_OF_ROWS) {
+                if (failure == null) {
+                    write(row);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new InterruptedIOException("interrupted while writing rows");
+        } catch (RuntimeException e) {
+            failure = new IOException("failed to write rows", e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            synchronized (done) {
+                finished = true;
+                done.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits for all queued rows to be written and closes the underlying writer.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!isFinished()) {
+            enqueue(END_OF_ROWS);
+        }
+        synchronized (done) {
+            while (!finished) {
+                try {
+                    done.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for rows to be written");
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    private void write(String[] row) {
+        try {
+            ExportUtil.writeRow(writer, joiner, row);
+        } catch (IOException e) {
+            // keep on draining the queue, so that the producer does not block on a failed writer
+            failure = e;
+        }
+    }
+
+    /**
+     * Queues a row, unless the writer thread stopped, e.g., because it failed, in which case no one would take it.
+     */
+    private void enqueue(String[] row) throws IOException {
+        try {
+            while (!rows.offer(row, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (isFinished()) {
+                    checkFailure();
+                    throw new IOException("writer stopped before all rows were written");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while queueing rows");
+        }
+    }
+
+    private boolean isFinished() {
+        synchronized (done) {
+            return finished;
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
@@ -0,0 +1,283 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.eol.globi.domain.InteractType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Aggregates distinct (study, source taxon, interaction type) -> target taxa in bounded memory.
+ * <p>
+ * Interactions are buffered in memory, with interned taxon ids and interaction types ranked by name. When the buffer
+ * fills up, its interactions are sorted and spilled to disk as a sorted run. On {@link #emit(Listener)}, the runs are
+ * merged, so that each distinct (study, source taxon, interaction type) is reported exactly once, ordered by study id,
+ * source taxon id and interaction type name. Target taxa are reported in the order in which they were first added.
+ */
+public class DistinctInteractions implements Closeable {
+
+    public interface Listener {
+        void on(long studyId, String sourceTaxonId, String interactionType, List<String> targetTaxonIds) throws IOException;
+    }
+
+    private static final String[] INTERACTION_TYPES = sortedInteractionTypes();
+
+    private static final Comparator<Interaction> ORDER = Comparator
+            .comparingLong((Interaction interaction) -> interaction.studyId)
+            .thenComparing(interaction -> interaction.sourceTaxonId)
+            .thenComparingInt(interaction -> interaction.interactionType)
+            .thenComparingLong(interaction -> interaction.sequence);
+
+    private final int maxInteractionsInMemory;
+    private final File tmpDir;
+
+    private final Map<Interaction, Interaction> interactions = new HashMap<>();
+    private final Map<String, String> taxonIds = new HashMap<>();
+    private final List<File> runs = new ArrayList<>();
+    private long sequence = 0;
+
+    public DistinctInteractions(int maxInteractionsInMemory, File tmpDir) {
+        this.maxInteractionsInMemory = Math.max(1, maxInteractionsInMemory);
+        this.tmpDir = tmpDir;
+    }
+
+    public void add(long studyId, String sourceTaxonId, String interactionType, String targetTaxonId) throws IOException {
+        Interaction interaction = new Interaction(studyId, intern(sourceTaxonId), rankOf(interactionType), sequence++, intern(targetTaxonId));
+        interactions.putIfAbsent(interaction, interaction);
+        if (interactions.size() >= maxInteractionsInMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * Reports all distinct interactions and resets the aggregate.
+     */
+    public void emit(Listener listener) throws IOException {
+        try {
+            if (runs.isEmpty()) {
+                emit(sorted().iterator(), listener);
+            } else {
+                spill();
+                mergeRuns(listener);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    public int getNumberOfSpilledRuns() {
+        return runs.size();
+    }
+
+    @Override
+    public void close() {
+        for (File run : runs) {
+            FileUtils.deleteQuietly(run);
+        }
+        runs.clear();
+        clear();
+    }
+
+    private String intern(String taxonId) {
+        String interned = taxonIds.putIfAbsent(taxonId, taxonId);
+        return interned == null ? taxonId : interned;
+    }
+
+    private static int rankOf(String interactionType) {
+        int rank = Arrays.binarySearch(INTERACTION_TYPES, interactionType);
+        if (rank < 0) {
+            throw new IllegalArgumentException("unknown interaction type [" + interactionType + "]");
+        }
+        return rank;
+    }
+
+    private List<Interaction> sorted() {
+        List<Interaction> sorted = new ArrayList<>(interactions.keySet());
+        sorted.sort(ORDER);
+        return sorted;
+    }
+
+    private void clear() {
+        interactions.clear();
+        taxonIds.clear();
+    }
+
+    private void spill() throws IOException {
+        if (!interactions.isEmpty()) {
+            File run = File.createTempFile("interactions", ".run", tmpDir);
+            run.deleteOnExit();
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+                for (Interaction interaction : sorted()) {
+                    interaction.writeTo(out);
+                }
+            }
+        }
+        clear();
+    }
+
+    private void mergeRuns(Listener listener) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator.comparing(reader -> reader.current, ORDER));
+        try {
+            for (File run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            emit(new Iterator<Interaction>() {
+                @Override
+                public boolean hasNext() {
+                    return !queue.isEmpty();
+                }
+
+                @Override
+                public Interaction next() {
+                    RunReader head = queue.poll();
+                    Interaction interaction = head.current;
+                    try {
+                        if (head.next()) {
+                            queue.add(head);
+                        } else {
+                            head.close();
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException("failed to read sorted interactions", e);
+                    }
+                    return interaction;
+                }
+            }, listener);
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+    }
+
+    // interactions are sorted, so all targets of a (study, source taxon, interaction type) are adjacent
+    private static void emit(Iterator<Interaction> sorted, Listener listener) throws IOException {
+        Interaction group = null;
+        Set<String> targetTaxonIds = new LinkedHashSet<>();
+        while (sorted.hasNext()) {
+            Interaction interaction = sorted.next();
+            if (group != null && !group.isSameGroup(interaction)) {
+                emitGroup(group, targetTaxonIds, listener);
+                targetTaxonIds.clear();
+            }
+            group = interaction;
+            targetTaxonIds.add(interaction.targetTaxonId);
+        }
+        if (group != null) {
+            emitGroup(group, targetTaxonIds, listener);
+        }
+    }
+
+    private static void emitGroup(Interaction group, Set<String> targetTaxonIds, Listener listener) throws IOException {
+        listener.on(group.studyId, group.sourceTaxonId, INTERACTION_TYPES[group.interactionType], new ArrayList<>(targetTaxonIds));
+    }
+
+    private static String[] sortedInteractionTypes() {
+        String[] names = new String[InteractType.values().length];
+        for (InteractType interactType : InteractType.values()) {
+            names[interactType.ordinal()] = interactType.name();
+        }
+        Arrays.sort(names);
+        return names;
+    }
+
+    private static final class Interaction {
+        private final long studyId;
+        private final String sourceTaxonId;
+        private final int interactionType;
+        private final long sequence;
+        private final String targetTaxonId;
+
+        Interaction(long studyId, String sourceTaxonId, int interactionType, long sequence, String targetTaxonId) {
+            this.studyId = studyId;
+            this.sourceTaxonId = sourceTaxonId;
+            this.interactionType = interactionType;
+            this.sequence = sequence;
+            this.targetTaxonId = targetTaxonId;
+        }
+
+        boolean isSameGroup(Interaction other) {
+            return studyId == other.studyId
+                    && interactionType == other.interactionType
+                    && sourceTaxonId.equals(other.sourceTaxonId);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(studyId);
+            out.writeUTF(sourceTaxonId);
+            out.writeShort(interactionType);
+            out.writeLong(sequence);
+            out.writeUTF(targetTaxonId);
+        }
+
+        static Interaction readFrom(DataInputStream in) throws IOException {
+            return new Interaction(in.readLong(), in.readUTF(), in.readShort(), in.readLong(), in.readUTF());
+        }
+
+        // the sequence number is not part of the identity: the first added interaction is kept
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Interaction other = (Interaction) o;
+            return isSameGroup(other) && targetTaxonId.equals(other.targetTaxonId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(studyId, sourceTaxonId, interactionType, targetTaxonId);
+        }
+    }
+
+    private static class RunReader implements Closeable {
+        private final DataInputStream in;
+        private Interaction current;
+
+        RunReader(File run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+        }
+
+        boolean next() throws IOException {
+            try {
+                current = Interaction.readFrom(in);
+                return true;
+            } catch (EOFException ex) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
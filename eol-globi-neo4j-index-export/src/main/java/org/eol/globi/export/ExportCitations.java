@@ -3,6 +3,8 @@ package org.eol.globi.export;
 import org.eol.globi.data.StudyImporterException;
 import org.neo4j.graphdb.GraphDatabaseService;
 
+import java.io.IOException;
+
 public class ExportCitations implements GraphExporter {
 
     private final String filename;
@@ -16,9 +18,21 @@ public class ExportCitations implements GraphExporter {
     public static final String CYPHER_QUERY = "CYPHER 2.3 START study = node:studies('*:*') " +
             "RETURN study.doi as doi, study.citation as citation";
 
+    static final String DATASET_CYPHER_QUERY = "CYPHER 2.3 START dataset = node:datasets(namespace={" + ExportFragments.NAMESPACE_PARAM + "}) " +
+            "MATCH dataset<-[:IN_DATASET]-study " +
+            "RETURN study.doi as doi, study.citation as citation";
+
+    static final String NO_DATASET_CYPHER_QUERY = "CYPHER 2.3 START study = node:studies('*:*') " +
+            "WHERE NOT (study-[:IN_DATASET]->()) " +
+            "RETURN study.doi as doi, study.citation as citation";
+
     @Override
     public void export(GraphDatabaseService graphService, String baseDir) throws StudyImporterException {
         ExportUtil.export(graphService, baseDir, filename, CYPHER_QUERY, joiner);
     }
 
+    void export(GraphDatabaseService graphService, ExportUtil.Appender appender) throws IOException {
+        ExportUtil.export(appender, graphService, CYPHER_QUERY);
+    }
+
 }
@@ -0,0 +1,461 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes rows to a Parquet file, so that a few columns of many rows can be read without parsing entire rows.
+ * <p>
+ * The first appended row holds the column names. Columns hold utf-8 strings, unless typed otherwise (e.g.,
+ * coordinates as doubles and dates as timestamps), and empty values are written as nulls. Rows are grouped in row
+ * groups of limited row count and buffered size, so that wide rows do not pile up in memory. Each column chunk is
+ * a single gzip compressed data page, and column chunks with many repeated values (e.g., taxon paths, interaction
+ * types or dataset citations) are dictionary encoded.
+ * <p>
+ * The file layout, page headers and footer follow the Parquet format specification, so that the file can be read
+ * by common Parquet readers. The Parquet libraries themselves depend on Hadoop, so the subset of the format needed
+ * for flat rows is written here directly, see also {@link ExportColumnarReader}.
+ */
+public class ExportColumnar implements ExportUtil.Appender, Closeable {
+
+    static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    // constants of the parquet thrift definitions
+    static final int TYPE_INT64 = 2;
+    static final int TYPE_DOUBLE = 5;
+    static final int TYPE_BYTE_ARRAY = 6;
+    static final int CONVERTED_TYPE_NONE = -1;
+    static final int CONVERTED_TYPE_UTF8 = 0;
+    static final int CONVERTED_TYPE_TIMESTAMP_MILLIS = 9;
+    static final int REPETITION_OPTIONAL = 1;
+    static final int ENCODING_PLAIN = 0;
+    static final int ENCODING_PLAIN_DICTIONARY = 2;
+    static final int ENCODING_RLE = 3;
+    static final int ENCODING_RLE_DICTIONARY = 8;
+    static final int CODEC_UNCOMPRESSED = 0;
+    static final int CODEC_GZIP = 2;
+    static final int PAGE_DATA = 0;
+    static final int PAGE_DICTIONARY = 2;
+
+    static final int DEFAULT_ROW_GROUP_SIZE = 100000;
+    static final long DEFAULT_ROW_GROUP_BYTES = 32L * 1024 * 1024;
+
+    // estimated heap use of a buffered non-empty value, on top of its utf-16 chars: list reference, string and char array
+    private static final int VALUE_OVERHEAD_BYTES = 64;
+    // estimated heap use of a buffered typed value: list reference and boxed number
+    private static final int TYPED_VALUE_BYTES = 32;
+    private static final int REFERENCE_BYTES = 8;
+
+    public enum ColumnType {
+        STRING(TYPE_BYTE_ARRAY, CONVERTED_TYPE_UTF8) {
+            @Override
+            Object parse(String value) {
+                return value;
+            }
+
+            @Override
+            void writePlain(OutputStream out, Object value) throws IOException {
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                writeLittleEndian(out, bytes.length, Integer.BYTES);
+                out.write(bytes);
+            }
+
+            @Override
+            Object readPlain(ByteBuffer in) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        },
+        DOUBLE(TYPE_DOUBLE, CONVERTED_TYPE_NONE) {
+            @Override
+            Object parse(String value) {
+                return Double.parseDouble(value);
+            }
+
+            @Override
+            void writePlain(OutputStream out, Object value) throws IOException {
+                writeLittleEndian(out, Double.doubleToLongBits((Double) value), Long.BYTES);
+            }
+
+            @Override
+            Object readPlain(ByteBuffer in) {
+                return in.getDouble();
+            }
+        },
+        TIMESTAMP_MILLIS(TYPE_INT64, CONVERTED_TYPE_TIMESTAMP_MILLIS) {
+            @Override
+            Object parse(String value) {
+                try {
+                    return Long.parseLong(value);
+                } catch (NumberFormatException ex) {
+                    // e.g., dataset access times are iso 8601 timestamps
+                    return ISODateTimeFormat.dateTimeParser().withZoneUTC().parseMillis(value);
+                }
+            }
+
+            @Override
+            void writePlain(OutputStream out, Object value) throws IOException {
+                writeLittleEndian(out, (Long) value, Long.BYTES);
+            }
+
+            @Override
+            Object readPlain(ByteBuffer in) {
+                return in.getLong();
+            }
+        };
+
+        private final int physicalType;
+        private final int convertedType;
+
+        ColumnType(int physicalType, int convertedType) {
+            this.physicalType = physicalType;
+            this.convertedType = convertedType;
+        }
+
+        abstract Object parse(String value);
+
+        abstract void writePlain(OutputStream out, Object value) throws IOException;
+
+        /**
+         * @param in little endian buffer
+         */
+        abstract Object readPlain(ByteBuffer in);
+
+        static ColumnType of(int physicalType, int convertedType) {
+            for (ColumnType type : values()) {
+                if (type.physicalType == physicalType && type.convertedType == convertedType) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final OutputStream out;
+    private final int rowGroupSize;
+    private final long rowGroupBytes;
+    private final Map<String, ColumnType> columnTypes;
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+    private String[] columns = null;
+    private ColumnType[] types;
+    private List<Object>[] values;
+    private int rowCount = 0;
+    private long bufferedBytes = 0;
+    private long offset = 0;
+    private long totalRowCount = 0;
+    private long rowGroupUncompressedBytes = 0;
+    private final List<byte[]> rowGroups = new ArrayList<>();
+
+    public ExportColumnar(File file) throws IOException {
+        this(file, Collections.emptyMap());
+    }
+
+    /**
+     * @param columnTypes types of columns that are not strings, by column name
+     */
+    public ExportColumnar(File file, Map<String, ColumnType> columnTypes) throws IOException {
+        this(file, columnTypes, DEFAULT_ROW_GROUP_SIZE, DEFAULT_ROW_GROUP_BYTES);
+    }
+
+    ExportColumnar(File file, Map<String, ColumnType> columnTypes, int rowGroupSize, long rowGroupBytes) throws IOException {
+        FileUtils.forceMkdir(file.getAbsoluteFile().getParentFile());
+        this.out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        this.columnTypes = columnTypes;
+        this.rowGroupSize = Math.max(1, rowGroupSize);
+        this.rowGroupBytes = rowGroupBytes;
+        write(MAGIC);
+    }
+
+    @Override
+    public void append(Stream<String> values) throws IOException {
+        append(values.toArray(String[]::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void append(String[] row) throws IOException {
+        if (columns == null) {
+            columns = row.clone();
+            types = new ColumnType[columns.length];
+            values = new List[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                types[i] = columnTypes.getOrDefault(columns[i], ColumnType.STRING);
+                values[i] = new ArrayList<>(Math.min(rowGroupSize, 1024));
+            }
+        } else {
+            if (row.length != columns.length) {
+                throw new IOException("expected [" + columns.length + "] values, but got [" + row.length + "]");
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (row[i] == null || row[i].isEmpty()) {
+                    values[i].add(null);
+                    bufferedBytes += REFERENCE_BYTES;
+                } else if (types[i] == ColumnType.STRING) {
+                    values[i].add(row[i]);
+                    bufferedBytes += VALUE_OVERHEAD_BYTES + 2L * row[i].length();
+                } else {
+                    values[i].add(parse(types[i], columns[i], row[i]));
+                    bufferedBytes += TYPED_VALUE_BYTES;
+                }
+            }
+            if (++rowCount == rowGroupSize || bufferedBytes >= rowGroupBytes) {
+                writeRowGroup();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowCount > 0) {
+                writeRowGroup();
+            }
+            writeFooter();
+        } finally {
+            out.close();
+        }
+    }
+
+    private static Object parse(ColumnType type, String column, String value) throws IOException {
+        try {
+            return type.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("failed to convert [" + value + "] of column [" + column + "] to [" + type + "]", ex);
+        }
+    }
+
+    private void writeRowGroup() throws IOException {
+        long rowGroupOffset = offset;
+        rowGroupUncompressedBytes = 0;
+        ThriftCompact rowGroup = new ThriftCompact().list(1, ThriftCompact.STRUCT, columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            rowGroup.raw(writeColumnChunk(columns[i], types[i], values[i]));
+            values[i].clear();
+        }
+        rowGroups.add(rowGroup
+                .i64(2, rowGroupUncompressedBytes)
+                .i64(3, rowCount)
+                .i64(5, rowGroupOffset)
+                .i64(6, offset - rowGroupOffset)
+                .end()
+                .toByteArray());
+        totalRowCount += rowCount;
+        rowCount = 0;
+        bufferedBytes = 0;
+    }
+
+    /**
+     * @return column chunk metadata
+     */
+    private byte[] writeColumnChunk(String column, ColumnType type, List<Object> columnValues) throws IOException {
+        int[] definitionLevels = new int[columnValues.size()];
+        List<Object> presentValues = new ArrayList<>(columnValues.size());
+        for (int i = 0; i < definitionLevels.length; i++) {
+            if (columnValues.get(i) != null) {
+                definitionLevels[i] = 1;
+                presentValues.add(columnValues.get(i));
+            }
+        }
+
+        Map<Object, Integer> dictionary = new HashMap<>();
+        List<Object> distinctValues = new ArrayList<>();
+        int[] indices = new int[presentValues.size()];
+        boolean useDictionary = indices.length > 0;
+        for (int i = 0; i < indices.length && useDictionary; i++) {
+            Object value = presentValues.get(i);
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = distinctValues.size();
+                dictionary.put(value, index);
+                distinctValues.add(value);
+                // dictionaries only pay off for columns with repeated values
+                useDictionary = distinctValues.size() <= indices.length / 2 + 1;
+            }
+            indices[i] = index;
+        }
+
+        long chunkOffset = offset;
+        long uncompressedBytes = 0;
+        long dictionaryPageOffset = -1;
+        if (useDictionary) {
+            ByteArrayOutputStream page = new ByteArrayOutputStream();
+            for (Object value : distinctValues) {
+                type.writePlain(page, value);
+            }
+            dictionaryPageOffset = offset;
+            uncompressedBytes += writePage(page, PAGE_DICTIONARY, distinctValues.size(), ENCODING_PLAIN_DICTIONARY);
+        }
+
+        ByteArrayOutputStream levels = new ByteArrayOutputStream();
+        writeHybrid(levels, definitionLevels, 1);
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        writeLittleEndian(page, levels.size(), Integer.BYTES);
+        levels.writeTo(page);
+        if (useDictionary) {
+            int bitWidth = bitWidth(distinctValues.size() - 1);
+            page.write(bitWidth);
+            writeHybrid(page, indices, bitWidth);
+        } else {
+            for (Object value : presentValues) {
+                type.writePlain(page, value);
+            }
+        }
+        long dataPageOffset = offset;
+        uncompressedBytes += writePage(page, PAGE_DATA, definitionLevels.length, useDictionary ? ENCODING_PLAIN_DICTIONARY : ENCODING_PLAIN);
+        rowGroupUncompressedBytes += uncompressedBytes;
+
+        ThriftCompact columnChunk = new ThriftCompact()
+                .i64(2, chunkOffset)
+                .struct(3)
+                .i32(1, type.physicalType)
+                .list(2, ThriftCompact.I32, 2)
+                .element(useDictionary ? ENCODING_PLAIN_DICTIONARY : ENCODING_PLAIN)
+                .element(ENCODING_RLE)
+                .list(3, ThriftCompact.BINARY, 1)
+                .element(column)
+                .i32(4, CODEC_GZIP)
+                .i64(5, definitionLevels.length)
+                .i64(6, uncompressedBytes)
+                .i64(7, offset - chunkOffset)
+                .i64(9, dataPageOffset);
+        if (useDictionary) {
+            columnChunk.i64(11, dictionaryPageOffset);
+        }
+        return columnChunk.end().end().toByteArray();
+    }
+
+    /**
+     * @return uncompressed size of the page, including its header
+     */
+    private long writePage(ByteArrayOutputStream page, int pageType, int valueCount, int encoding) throws IOException {
+        compressed.reset();
+        try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+            page.writeTo(gzip);
+        }
+        ThriftCompact header = new ThriftCompact()
+                .i32(1, pageType)
+                .i32(2, page.size())
+                .i32(3, compressed.size());
+        if (pageType == PAGE_DICTIONARY) {
+            header.struct(7)
+                    .i32(1, valueCount)
+                    .i32(2, encoding)
+                    .end();
+        } else {
+            header.struct(5)
+                    .i32(1, valueCount)
+                    .i32(2, encoding)
+                    .i32(3, ENCODING_RLE)
+                    .i32(4, ENCODING_RLE)
+                    .end();
+        }
+        byte[] headerBytes = header.end().toByteArray();
+        write(headerBytes);
+        compressed.writeTo(out);
+        offset += compressed.size();
+        return headerBytes.length + page.size();
+    }
+
+    private void writeFooter() throws IOException {
+        String[] columnNames = columns == null ? new String[0] : columns;
+        ThriftCompact metadata = new ThriftCompact()
+                .i32(1, 1)
+                .list(2, ThriftCompact.STRUCT, columnNames.length + 1)
+                .structElement()
+                .string(4, "schema")
+                .i32(5, columnNames.length)
+                .end();
+        for (int i = 0; i < columnNames.length; i++) {
+            metadata.structElement()
+                    .i32(1, types[i].physicalType)
+                    .i32(3, REPETITION_OPTIONAL)
+                    .string(4, columnNames[i]);
+            if (types[i].convertedType != CONVERTED_TYPE_NONE) {
+                metadata.i32(6, types[i].convertedType);
+            }
+            metadata.end();
+        }
+        metadata.i64(3, totalRowCount)
+                .list(4, ThriftCompact.STRUCT, rowGroups.size());
+        for (byte[] rowGroup : rowGroups) {
+            metadata.raw(rowGroup);
+        }
+        byte[] footer = metadata.end().toByteArray();
+        write(footer);
+        writeLittleEndian(out, footer.length, Integer.BYTES);
+        write(MAGIC);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+        offset += bytes.length;
+    }
+
+    /**
+     * Writes values with the run length and bit packing hybrid encoding: a single run for repeated values, and a
+     * single bit packed run otherwise.
+     */
+    static void writeHybrid(OutputStream out, int[] values, int bitWidth) throws IOException {
+        boolean repeated = values.length > 0;
+        for (int i = 1; i < values.length && repeated; i++) {
+            repeated = values[i] == values[0];
+        }
+        if (repeated) {
+            writeUnsignedVarInt(out, values.length << 1);
+            writeLittleEndian(out, values[0], (bitWidth + 7) / 8);
+        } else {
+            int groups = (values.length + 7) / 8;
+            writeUnsignedVarInt(out, groups << 1 | 1);
+            long buffer = 0;
+            int bits = 0;
+            for (int i = 0; i < groups * 8; i++) {
+                // the last group is padded with zeros
+                buffer |= (i < values.length ? values[i] & 0xffffffffL : 0L) << bits;
+                bits += bitWidth;
+                while (bits >= 8) {
+                    out.write((int) buffer & 0xff);
+                    buffer >>>= 8;
+                    bits -= 8;
+                }
+            }
+        }
+    }
+
+    static int bitWidth(int maxValue) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+    }
+
+    private static void writeUnsignedVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeLittleEndian(OutputStream out, long value, int byteCount) throws IOException {
+        for (int i = 0; i < byteCount; i++) {
+            out.write((int) (value >>> (8 * i)) & 0xff);
+        }
+    }
+
+}
@@ -0,0 +1,246 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads columns of Parquet files written by {@link ExportColumnar}, one column chunk at a time. Only flat schemas
+ * of optional columns, and the encodings and compression codecs used by {@link ExportColumnar} are supported.
+ */
+public class ExportColumnarReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final List<String> columns;
+    private final List<ExportColumnar.ColumnType> types;
+    private final List<Map<Integer, Object>> rowGroups;
+
+    @SuppressWarnings("unchecked")
+    public ExportColumnarReader(File columnarFile) throws IOException {
+        this.file = new RandomAccessFile(columnarFile, "r");
+        try {
+            byte[] magic = ExportColumnar.MAGIC;
+            long footerEnd = file.length() - magic.length - Integer.BYTES;
+            if (footerEnd < magic.length
+                    || !Arrays.equals(read(0, magic.length), magic)
+                    || !Arrays.equals(read(footerEnd + Integer.BYTES, magic.length), magic)) {
+                throw new IOException("[" + columnarFile.getAbsolutePath() + "] is not a parquet file");
+            }
+            int footerLength = ByteBuffer.wrap(read(footerEnd, Integer.BYTES)).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            Map<Integer, Object> metadata = ThriftCompact.readStruct(ByteBuffer.wrap(read(footerEnd - footerLength, footerLength)));
+
+            List<Object> schema = ThriftCompact.get(metadata, 2, List.class);
+            List<String> columnNames = new ArrayList<>();
+            List<ExportColumnar.ColumnType> columnTypes = new ArrayList<>();
+            // the first schema element is the root of the columns
+            for (Object element : schema.subList(1, schema.size())) {
+                Map<Integer, Object> column = (Map<Integer, Object>) element;
+                String name = new String(ThriftCompact.get(column, 4, byte[].class), StandardCharsets.UTF_8);
+                int convertedType = column.containsKey(6) ? ThriftCompact.getInt(column, 6) : ExportColumnar.CONVERTED_TYPE_NONE;
+                ExportColumnar.ColumnType type = ExportColumnar.ColumnType.of(ThriftCompact.getInt(column, 1), convertedType);
+                if (type == null || column.containsKey(5)) {
+                    throw new IOException("unsupported type of column [" + name + "] in [" + columnarFile.getAbsolutePath() + "]");
+                }
+                columnNames.add(name);
+                columnTypes.add(type);
+            }
+            this.columns = Collections.unmodifiableList(columnNames);
+            this.types = columnTypes;
+            this.rowGroups = ThriftCompact.get(metadata, 4, List.class);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e instanceof IOException
+                    ? (IOException) e
+                    : new IOException("failed to read metadata of [" + columnarFile.getAbsolutePath() + "]", e);
+        }
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public ExportColumnar.ColumnType getColumnType(String columnName) {
+        return types.get(indexOf(columnName));
+    }
+
+    public int getRowGroupCount() {
+        return rowGroups.size();
+    }
+
+    public int getRowCount(int rowGroup) throws IOException {
+        return ThriftCompact.getInt(rowGroups.get(rowGroup), 3);
+    }
+
+    /**
+     * @return values of the named column in the provided row group: strings, doubles or timestamps in milliseconds
+     * since the unix epoch, or null for empty values
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> readColumn(int rowGroup, String columnName) throws IOException {
+        int column = indexOf(columnName);
+        ExportColumnar.ColumnType type = types.get(column);
+        List<Object> columnChunks = ThriftCompact.get(rowGroups.get(rowGroup), 1, List.class);
+        Map<Integer, Object> metadata = ThriftCompact.get((Map<Integer, Object>) columnChunks.get(column), 3, Map.class);
+        int codec = ThriftCompact.getInt(metadata, 4);
+        long valueCount = ThriftCompact.getLong(metadata, 5);
+        long start = metadata.containsKey(11) ? ThriftCompact.getLong(metadata, 11) : ThriftCompact.getLong(metadata, 9);
+        ByteBuffer chunk = ByteBuffer.wrap(read(start, (int) ThriftCompact.getLong(metadata, 7)));
+
+        List<Object> values = new ArrayList<>((int) valueCount);
+        try {
+            Object[] dictionary = null;
+            while (values.size() < valueCount) {
+                Map<Integer, Object> header = ThriftCompact.readStruct(chunk);
+                byte[] compressed = new byte[ThriftCompact.getInt(header, 3)];
+                chunk.get(compressed);
+                ByteBuffer page = ByteBuffer
+                        .wrap(decompress(codec, compressed, ThriftCompact.getInt(header, 2)))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                int pageType = ThriftCompact.getInt(header, 1);
+                if (pageType == ExportColumnar.PAGE_DICTIONARY) {
+                    dictionary = new Object[ThriftCompact.getInt(ThriftCompact.get(header, 7, Map.class), 1)];
+                    for (int i = 0; i < dictionary.length; i++) {
+                        dictionary[i] = type.readPlain(page);
+                    }
+                } else if (pageType == ExportColumnar.PAGE_DATA) {
+                    readDataPage(ThriftCompact.get(header, 5, Map.class), page, type, dictionary, values);
+                } else {
+                    throw new IOException("unsupported page type [" + pageType + "]");
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("failed to read column [" + columnName + "]", e);
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static void readDataPage(Map<Integer, Object> header, ByteBuffer page, ExportColumnar.ColumnType type, Object[] dictionary, List<Object> values) throws IOException {
+        int valueCount = ThriftCompact.getInt(header, 1);
+        int encoding = ThriftCompact.getInt(header, 2);
+
+        int levelsLength = page.getInt();
+        ByteBuffer levels = page.duplicate();
+        levels.limit(page.position() + levelsLength);
+        int[] definitionLevels = readHybrid(levels, valueCount, 1);
+        page.position(page.position() + levelsLength);
+
+        if (encoding == ExportColumnar.ENCODING_PLAIN_DICTIONARY || encoding == ExportColumnar.ENCODING_RLE_DICTIONARY) {
+            if (dictionary == null) {
+                throw new IOException("missing dictionary page");
+            }
+            int presentCount = 0;
+            for (int level : definitionLevels) {
+                presentCount += level;
+            }
+            int[] indices = readHybrid(page, presentCount, page.get());
+            int next = 0;
+            for (int level : definitionLevels) {
+                values.add(level == 0 ? null : dictionary[indices[next++]]);
+            }
+        } else if (encoding == ExportColumnar.ENCODING_PLAIN) {
+            for (int level : definitionLevels) {
+                values.add(level == 0 ? null : type.readPlain(page));
+            }
+        } else {
+            throw new IOException("unsupported encoding [" + encoding + "]");
+        }
+    }
+
+    /**
+     * @return values encoded with the run length and bit packing hybrid encoding
+     */
+    static int[] readHybrid(ByteBuffer in, int count, int bitWidth) {
+        int[] values = new int[count];
+        long mask = (1L << bitWidth) - 1;
+        int i = 0;
+        while (i < count) {
+            int header = readUnsignedVarInt(in);
+            if ((header & 1) == 0) {
+                long value = 0;
+                for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                    value |= (long) (in.get() & 0xff) << (8 * b);
+                }
+                for (int run = header >>> 1; run > 0 && i < count; run--) {
+                    values[i++] = (int) value;
+                }
+            } else {
+                long buffer = 0;
+                int bits = 0;
+                for (int packed = (header >>> 1) * 8; packed > 0; packed--) {
+                    while (bits < bitWidth) {
+                        buffer |= (long) (in.get() & 0xff) << bits;
+                        bits += 8;
+                    }
+                    if (i < count) {
+                        values[i++] = (int) (buffer & mask);
+                    }
+                    buffer >>>= bitWidth;
+                    bits -= bitWidth;
+                }
+            }
+        }
+        return values;
+    }
+
+    private static int readUnsignedVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static byte[] decompress(int codec, byte[] compressed, int uncompressedSize) throws IOException {
+        byte[] uncompressed;
+        if (codec == ExportColumnar.CODEC_UNCOMPRESSED) {
+            uncompressed = compressed;
+        } else if (codec == ExportColumnar.CODEC_GZIP) {
+            uncompressed = new byte[uncompressedSize];
+            try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                IOUtils.readFully(is, uncompressed);
+            }
+        } else {
+            throw new IOException("unsupported compression codec [" + codec + "]");
+        }
+        return uncompressed;
+    }
+
+    private int indexOf(String columnName) {
+        int column = columns.indexOf(columnName);
+        if (column < 0) {
+            throw new IllegalArgumentException("no column [" + columnName + "] in " + columns);
+        }
+        return column;
+    }
+
+    private byte[] read(long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        file.seek(offset);
+        file.readFully(bytes);
+        return bytes;
+    }
+
+}
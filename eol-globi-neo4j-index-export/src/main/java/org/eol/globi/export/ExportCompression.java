@@ -0,0 +1,87 @@
+package org.eol.globi.export;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eol.globi.util.ParallelGZIPOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of export files that are named with a .gz suffix. Other export files are never compressed.
+ */
+public enum ExportCompression {
+
+    /**
+     * writes .gz export files uncompressed, dropping the .gz suffix from their names
+     */
+    NONE {
+        @Override
+        OutputStream compress(OutputStream os) {
+            return os;
+        }
+
+        @Override
+        public File fileFor(File file) {
+            return isCompressed(file)
+                    ? new File(file.getParentFile(), StringUtils.removeEnd(file.getName(), GZ_SUFFIX))
+                    : file;
+        }
+    },
+
+    /**
+     * single threaded gzip compression
+     */
+    GZIP {
+        @Override
+        OutputStream compress(OutputStream os) throws IOException {
+            return new GZIPOutputStream(os);
+        }
+    },
+
+    /**
+     * gzip compression of blocks of data in parallel, see {@link ParallelGZIPOutputStream}
+     */
+    PARALLEL_GZIP {
+        @Override
+        OutputStream compress(OutputStream os) throws IOException {
+            return new ParallelGZIPOutputStream(os);
+        }
+    };
+
+    private static final String GZ_SUFFIX = ".gz";
+
+    public static final ExportCompression DEFAULT = PARALLEL_GZIP;
+
+    abstract OutputStream compress(OutputStream os) throws IOException;
+
+    /**
+     * @return the file an export to the provided file is written to
+     */
+    public File fileFor(File file) {
+        return file;
+    }
+
+    /**
+     * @return stream to write the (compressed) export of the provided file to
+     */
+    public OutputStream open(File file) throws IOException {
+        return openMember(file, new BufferedOutputStream(new FileOutputStream(fileFor(file))));
+    }
+
+    /**
+     * @return stream to write a (compressed) part of the export of the provided file to the provided stream;
+     * gzip members written one after the other make up a single gzip file
+     */
+    OutputStream openMember(File file, OutputStream os) throws IOException {
+        return isCompressed(file) ? compress(os) : os;
+    }
+
+    private static boolean isCompressed(File file) {
+        return StringUtils.endsWith(file.getName(), GZ_SUFFIX);
+    }
+
+}
@@ -0,0 +1,155 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.eol.globi.domain.StudyNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Single pass export engine: each study is visited once and handed to all registered study exporters, while
+ * rows of all export files are written by a writer thread per file through bounded queues.
+ * <p>
+ * Independent sources (e.g., cypher queries that export all interactions) can be run in parallel to the study pass
+ * using {@link #submit(Source)}. A row produced once can be written to several files using {@link ExportUtil#fanOut(List)}.
+ */
+class ExportFanOut implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ExportFanOut.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    interface Source {
+        void export() throws IOException;
+    }
+
+    private final ExecutorService writers = Executors.newCachedThreadPool();
+    private final ExecutorService sources;
+    private final List<Future<?>> submittedSources = new ArrayList<>();
+    private final Map<String, Closeable> appenders = new LinkedHashMap<>();
+    private final Map<StudyExporter, ExportUtil.Appender> studyExporters = new LinkedHashMap<>();
+
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private ExportCompression compression = ExportCompression.DEFAULT;
+
+    ExportFanOut(int numberOfSourceWorkers) {
+        this.sources = Executors.newFixedThreadPool(Math.max(1, numberOfSourceWorkers));
+    }
+
+    void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    void setCompression(ExportCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @return an appender that writes rows to the provided file from a dedicated writer thread; files ending with .gz are compressed.
+     */
+    ExportUtil.Appender open(File file, ExportUtil.ValueJoiner joiner) throws IOException {
+        FileUtils.forceMkdir(file.getAbsoluteFile().getParentFile());
+        OutputStream os = compression.open(file);
+        AppenderQueued appender = new AppenderQueued(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)), joiner, queueCapacity);
+        writers.submit(appender);
+        String exportPath = compression.fileFor(file).getAbsolutePath();
+        appenders.put(exportPath, appender);
+        LOG.info("export data to [" + exportPath + "] started...");
+        return appender;
+    }
+
+    /**
+     * @return an appender that writes rows to the provided columnar file, see {@link ExportColumnar}. Rows are encoded
+     * by the appending thread, so the appender should be used by a single source only.
+     */
+    ExportUtil.Appender openColumnar(File file, Map<String, ExportColumnar.ColumnType> columnTypes) throws IOException {
+        ExportColumnar appender = new ExportColumnar(file, columnTypes);
+        String exportPath = file.getAbsolutePath();
+        appenders.put(exportPath, appender);
+        LOG.info("export data to [" + exportPath + "] started...");
+        return appender;
+    }
+
+    void addStudyExporter(StudyExporter exporter, ExportUtil.Appender appender) {
+        studyExporters.put(exporter, appender);
+    }
+
+    void submit(Source source) {
+        submittedSources.add(sources.submit(() -> {
+            source.export();
+            return null;
+        }));
+    }
+
+    void exportStudies(List<StudyNode> studies) throws IOException {
+        int total = studies.size();
+        int count = 0;
+        for (StudyNode study : studies) {
+            boolean includeHeader = count == 0;
+            for (Map.Entry<StudyExporter, ExportUtil.Appender> exporter : studyExporters.entrySet()) {
+                exporter.getKey().exportStudy(study, exporter.getValue(), includeHeader);
+            }
+            count++;
+            if (count % 50 == 0) {
+                LOG.info("exported [" + count + "] of [" + total + "] studies...");
+            }
+        }
+        LOG.info("exported [" + total + "] of [" + total + "] studies.");
+    }
+
+    /**
+     * Waits for submitted sources to complete and for all rows to be written, then closes the export files.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        try {
+            for (Future<?> source : submittedSources) {
+                try {
+                    source.get();
+                } catch (ExecutionException e) {
+                    failure = failure == null ? asIOException(e.getCause()) : failure;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = failure == null ? new InterruptedIOException("interrupted while waiting for export") : failure;
+                }
+            }
+            for (Map.Entry<String, Closeable> appender : appenders.entrySet()) {
+                try {
+                    appender.getValue().close();
+                    LOG.info("export data to [" + appender.getKey() + "] complete.");
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+        } finally {
+            sources.shutdownNow();
+            writers.shutdownNow();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static IOException asIOException(Throwable cause) {
+        return cause instanceof IOException
+                ? (IOException) cause
+                : new IOException("failed to export", cause);
+    }
+
+}
@@ -10,10 +10,22 @@ import org.neo4j.graphdb.GraphDatabaseService;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ExportFlatInteractions implements GraphExporter {
 
+    /**
+     * types of the exported columns that are not strings, e.g., for {@link ExportColumnar}
+     */
+    static final Map<String, ExportColumnar.ColumnType> COLUMN_TYPES = new HashMap<String, ExportColumnar.ColumnType>() {{
+        put("decimalLatitude", ExportColumnar.ColumnType.DOUBLE);
+        put("decimalLongitude", ExportColumnar.ColumnType.DOUBLE);
+        put("eventDateUnixEpoch", ExportColumnar.ColumnType.TIMESTAMP_MILLIS);
+        put("sourceLastSeenAtUnixEpoch", ExportColumnar.ColumnType.TIMESTAMP_MILLIS);
+    }};
+
     private final ExportUtil.ValueJoiner joiner;
     private final String filename;
 
@@ -28,14 +40,21 @@ public class ExportFlatInteractions implements GraphExporter {
 
 
     private List<String> createExportQueries() {
-        return Arrays.asList(ExportFlatInteractions.createQuery(getArgumentType(), getArgumentTypeId()));
+        return Arrays.asList(ExportFlatInteractions.createQuery(getArgumentType(), getArgumentTypeId(), "'namespace:*'"));
+    }
+
+    /**
+     * @return query for the interactions of a single dataset, selected by the {namespace} parameter
+     */
+    String createDatasetQuery() {
+        return ExportFlatInteractions.createQuery(getArgumentType(), getArgumentTypeId(), "namespace={" + ExportFragments.NAMESPACE_PARAM + "}");
     }
 
 
 
-    private static String createQuery(RelTypes argumentTypeRel, String argumentTypeId) {
+    private static String createQuery(RelTypes argumentTypeRel, String argumentTypeId, String datasetSelector) {
         String argumentType = argumentTypeRel.name();
-        return "CYPHER 2.3 START dataset = node:datasets('namespace:*') " +
+        return "CYPHER 2.3 START dataset = node:datasets(" + datasetSelector + ") " +
                 "MATCH dataset<-[:IN_DATASET]-study-[c:" + argumentType + "]->sourceSpecimen-[:CLASSIFIED_AS]->sourceTaxon, " +
                 "sourceSpecimen-[r:" + InteractUtil.allInteractionsCypherClause() + "]->targetSpecimen-[:CLASSIFIED_AS]->targetTaxon " +
                 "WHERE NOT exists(r.inverted) " +
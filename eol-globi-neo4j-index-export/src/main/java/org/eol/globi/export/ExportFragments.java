@@ -0,0 +1,260 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.globalbioticinteractions.dataset.DatasetConstant;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Incremental export of rows that belong to a dataset.
+ * <p>
+ * The rows of each dataset version are kept as fragments in a local store, keyed by namespace and version of the
+ * dataset. Export files are assembled by concatenating fragments, so that only the fragments of new or changed
+ * datasets are generated from the graph. Compressed fragments are complete gzip members, and gzip members written one
+ * after the other make up a valid gzip file.
+ * <p>
+ * Fragments are only re-used for datasets with a known content hash, and only if they were created in the same
+ * export context (e.g., with the same taxon cache and name resolution settings). Exported dataset and study
+ * properties, like the dataset citation with its access date or a study citation found by doi, may change when the
+ * content of a dataset does not, so the version of a dataset is made up of its content hash and these properties.
+ */
+public class ExportFragments {
+    private static final Logger LOG = LoggerFactory.getLogger(ExportFragments.class);
+
+    static final String NAMESPACE_PARAM = "namespace";
+
+    private static final String DATASETS_QUERY = "CYPHER 2.3 START dataset = node:datasets('namespace:*') " +
+            "RETURN dataset." + DatasetConstant.NAMESPACE + " as namespace" +
+            ", dataset." + DatasetConstant.CONTENT_HASH + " as contentHash";
+
+    // dataset and study properties selected by dataset queries
+    private static final String DATASET_PROPERTIES_QUERY = "CYPHER 2.3 START dataset = node:datasets(namespace={" + NAMESPACE_PARAM + "}) " +
+            "OPTIONAL MATCH dataset<-[:IN_DATASET]-study " +
+            "RETURN dataset." + DatasetConstant.CITATION +
+            ", dataset." + DatasetConstant.ARCHIVE_URI +
+            ", dataset." + DatasetConstant.DOI +
+            ", dataset." + DatasetConstant.LAST_SEEN_AT +
+            ", study.citation" +
+            ", study.doi" +
+            ", study.externalUrl";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    interface RowSource {
+        void export(ExportUtil.Appender appender) throws IOException;
+    }
+
+    private final File storeDir;
+    private final String context;
+    private ExportCompression compression = ExportCompression.DEFAULT;
+
+    /**
+     * @param storeDir directory to keep fragments in across export runs
+     * @param context  description of export inputs other than the datasets themselves; fragments created in
+     *                 another context are not re-used
+     */
+    public ExportFragments(File storeDir, String context) {
+        this.storeDir = storeDir;
+        this.context = StringUtils.left(sha256(StringUtils.defaultString(context)), 16);
+    }
+
+    void setCompression(ExportCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Writes the results of the dataset query for each dataset, followed by the results of the (optional) query
+     * for rows that are not in any dataset, to each of the provided files.
+     *
+     * @param name           name of the exported product, used to keep its fragments apart from others
+     * @param datasetQuery   query for rows of a single dataset, selected by the {namespace} parameter
+     * @param noDatasetQuery query for rows outside of datasets, or null if there are none
+     * @param files          files to export to, and the joiners used for their rows
+     */
+    void export(GraphDatabaseService graphService, String name, String datasetQuery, String noDatasetQuery, Map<File, ExportUtil.ValueJoiner> files) throws IOException {
+        Map<String, String> datasets = findDatasets(graphService);
+        List<OutputStream> outputs = new ArrayList<>();
+        try {
+            for (File file : files.keySet()) {
+                FileUtils.forceMkdir(file.getAbsoluteFile().getParentFile());
+                outputs.add(new BufferedOutputStream(new FileOutputStream(compression.fileFor(file))));
+            }
+            writeMembers(outputs, files, appender ->
+                    ExportUtil.writeResults(appender, graphService, datasetQuery, paramsFor(""), true));
+
+            int reused = 0;
+            for (Map.Entry<String, String> dataset : datasets.entrySet()) {
+                RowSource rows = appender ->
+                        ExportUtil.writeResults(appender, graphService, datasetQuery, paramsFor(dataset.getKey()), false);
+                if (StringUtils.isBlank(dataset.getValue())) {
+                    writeMembers(outputs, files, rows);
+                } else {
+                    File fragmentDir = fragmentDirFor(name, dataset.getKey(), versionOf(graphService, dataset.getKey(), dataset.getValue()));
+                    if (hasFragments(fragmentDir, files)) {
+                        reused++;
+                    } else {
+                        createFragments(fragmentDir, files, rows);
+                    }
+                    int i = 0;
+                    for (File file : files.keySet()) {
+                        FileUtils.copyFile(fragmentFor(fragmentDir, file), outputs.get(i++));
+                    }
+                }
+            }
+
+            if (noDatasetQuery != null) {
+                writeMembers(outputs, files, appender ->
+                        ExportUtil.writeResults(appender, graphService, noDatasetQuery, Collections.emptyMap(), false));
+            }
+            LOG.info("exported [" + name + "] re-using fragments of [" + reused + "] out of [" + datasets.size() + "] datasets.");
+        } finally {
+            for (OutputStream output : outputs) {
+                output.close();
+            }
+        }
+    }
+
+    File fragmentDirFor(String name, String namespace, String version) throws UnsupportedEncodingException {
+        File namespaceDir = new File(new File(storeDir, name), URLEncoder.encode(namespace, StandardCharsets.UTF_8.name()));
+        return new File(namespaceDir, version + "-" + context);
+    }
+
+    /**
+     * @return content hash of the dataset, followed by a hash of its exported dataset and study properties
+     */
+    static String versionOf(GraphDatabaseService graphService, String namespace, String contentHash) {
+        List<String> properties = new ArrayList<>();
+        Result result = graphService.execute(DATASET_PROPERTIES_QUERY, paramsFor(namespace));
+        while (result.hasNext()) {
+            Map<String, Object> row = result.next();
+            List<String> values = new ArrayList<>();
+            for (String column : result.columns()) {
+                values.add(Objects.toString(row.get(column), ""));
+            }
+            properties.add(StringUtils.join(values, '\t'));
+        }
+        // studies are not returned in a particular order
+        Collections.sort(properties);
+        return contentHash + "-" + StringUtils.left(sha256(StringUtils.join(properties, '\n')), 16);
+    }
+
+    private File fragmentFor(File fragmentDir, File file) {
+        return compression.fileFor(new File(fragmentDir, file.getName()));
+    }
+
+    private boolean hasFragments(File fragmentDir, Map<File, ExportUtil.ValueJoiner> files) {
+        for (File file : files.keySet()) {
+            if (!fragmentFor(fragmentDir, file).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void createFragments(File fragmentDir, Map<File, ExportUtil.ValueJoiner> files, RowSource rows) throws IOException {
+        File tmpDir = new File(fragmentDir.getParentFile(), fragmentDir.getName() + TMP_SUFFIX);
+        FileUtils.deleteQuietly(tmpDir);
+        FileUtils.forceMkdir(tmpDir);
+        List<OutputStream> outputs = new ArrayList<>();
+        try {
+            for (File file : files.keySet()) {
+                outputs.add(new BufferedOutputStream(new FileOutputStream(fragmentFor(tmpDir, file))));
+            }
+            writeMembers(outputs, files, rows);
+        } finally {
+            for (OutputStream output : outputs) {
+                output.close();
+            }
+        }
+
+        // fragments of previous versions of the dataset are no longer needed
+        File[] versions = fragmentDir.getParentFile().listFiles();
+        if (versions != null) {
+            for (File version : versions) {
+                if (!version.equals(tmpDir)) {
+                    FileUtils.deleteDirectory(version);
+                }
+            }
+        }
+        Files.move(tmpDir.toPath(), fragmentDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeMembers(List<OutputStream> outputs, Map<File, ExportUtil.ValueJoiner> files, RowSource rows) throws IOException {
+        List<Writer> writers = new ArrayList<>();
+        List<ExportUtil.Appender> appenders = new ArrayList<>();
+        try {
+            int i = 0;
+            for (Map.Entry<File, ExportUtil.ValueJoiner> file : files.entrySet()) {
+                OutputStream member = compression.openMember(file.getKey(), new CloseShieldOutputStream(outputs.get(i++)));
+                Writer writer = new BufferedWriter(new OutputStreamWriter(member, StandardCharsets.UTF_8));
+                writers.add(writer);
+                appenders.add(ExportUtil.AppenderWriter.of(writer, file.getValue()));
+            }
+            rows.export(appenders.size() == 1 ? appenders.get(0) : ExportUtil.fanOut(appenders));
+        } finally {
+            for (Writer writer : writers) {
+                writer.close();
+            }
+        }
+    }
+
+    private static Map<String, String> findDatasets(GraphDatabaseService graphService) {
+        Map<String, String> datasets = new TreeMap<>();
+        Result result = graphService.execute(DATASETS_QUERY);
+        while (result.hasNext()) {
+            Map<String, Object> row = result.next();
+            String namespace = (String) row.get("namespace");
+            String contentHash = StringUtils.defaultString((String) row.get("contentHash"));
+            if (StringUtils.isNotBlank(namespace)) {
+                String existing = datasets.get(namespace);
+                // without a single known version, the rows of a dataset are not kept
+                datasets.put(namespace, existing == null || StringUtils.equals(existing, contentHash) ? contentHash : "");
+            }
+        }
+        return datasets;
+    }
+
+    private static Map<String, Object> paramsFor(String namespace) {
+        return Collections.singletonMap(NAMESPACE_PARAM, namespace);
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(value.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("failed to calculate sha256 hash", e);
+        }
+    }
+
+}
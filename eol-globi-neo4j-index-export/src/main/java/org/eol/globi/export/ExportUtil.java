@@ -1,7 +1,6 @@
 package org.eol.globi.export;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.translate.CsvTranslators;
 import org.eol.globi.data.StudyImporterException;
@@ -11,11 +10,10 @@ import org.neo4j.graphdb.Result;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.TreeMap;
@@ -24,7 +22,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.GZIPOutputStream;
 
 public final class ExportUtil {
 
@@ -33,19 +30,19 @@ public final class ExportUtil {
     }
 
     public static void export(GraphDatabaseService graphService, String baseDir, String filename, List<String> cypherQueries, ValueJoiner joiner) throws StudyImporterException {
+        export(graphService, baseDir, filename, cypherQueries, joiner, ExportCompression.DEFAULT);
+    }
+
+    public static void export(GraphDatabaseService graphService, String baseDir, String filename, List<String> cypherQueries, ValueJoiner joiner, ExportCompression compression) throws StudyImporterException {
         try {
             mkdirIfNeeded(baseDir);
-            final FileOutputStream out = new FileOutputStream(new File(baseDir, filename));
-            GZIPOutputStream os = new GZIPOutputStream(out);
-            final Writer writer = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
-            Appender appender = AppenderWriter.of(writer, joiner);
-
-            export(appender, graphService, cypherQueries);
-
-            writer.flush();
-            os.finish();
-            IOUtils.closeQuietly(writer);
-            IOUtils.closeQuietly(os);
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(compression.open(new File(baseDir, filename)), StandardCharsets.UTF_8));
+            try {
+                Appender appender = AppenderWriter.of(writer, joiner);
+                export(appender, graphService, cypherQueries);
+            } finally {
+                writer.close();
+            }
         } catch (IOException e) {
             throw new StudyImporterException("failed to export to [" + filename + "]", e);
         }
@@ -65,8 +62,74 @@ public final class ExportUtil {
         String join(Stream<String> values);
     }
 
+    /**
+     * Writes the escaped and joined values of a row, followed by a newline, straight to a writer.
+     * Produces the same output as {@link ValueJoiner#join(Stream)}, without allocating intermediate strings.
+     */
+    public interface RowWriter {
+        void writeRow(Writer writer, String[] values) throws IOException;
+    }
+
     interface Appender {
         void append(Stream<String> values) throws IOException;
+
+        /**
+         * Appends a row of values. Callers may re-use the provided array for subsequent rows,
+         * so appenders must not hold on to it.
+         */
+        default void append(String[] values) throws IOException {
+            append(Arrays.stream(values));
+        }
+    }
+
+    /**
+     * Re-usable per-thread scratch space to assemble a row before writing it.
+     */
+    static final class RowBuffer {
+        private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+        private static final ThreadLocal<RowBuffer> BUFFERS = ThreadLocal.withInitial(RowBuffer::new);
+
+        private StringBuilder row = new StringBuilder(1024);
+        private char[] chars = new char[1024];
+
+        static StringBuilder start() {
+            RowBuffer buffer = BUFFERS.get();
+            if (buffer.row.capacity() > MAX_RETAINED_CAPACITY) {
+                buffer.row = new StringBuilder(1024);
+                buffer.chars = new char[1024];
+            }
+            buffer.row.setLength(0);
+            return buffer.row;
+        }
+
+        static void writeTo(Writer writer) throws IOException {
+            RowBuffer buffer = BUFFERS.get();
+            int length = buffer.row.length();
+            if (buffer.chars.length < length) {
+                buffer.chars = new char[Math.max(length, 2 * buffer.chars.length)];
+            }
+            buffer.row.getChars(0, length, buffer.chars, 0);
+            writer.write(buffer.chars, 0, length);
+        }
+    }
+
+    /**
+     * @return appender that appends each row to all provided appenders
+     */
+    static Appender fanOut(final List<Appender> appenders) {
+        return new Appender() {
+            @Override
+            public void append(Stream<String> values) throws IOException {
+                append(values.toArray(String[]::new));
+            }
+
+            @Override
+            public void append(String[] values) throws IOException {
+                for (Appender appender : appenders) {
+                    appender.append(values);
+                }
+            }
+        };
     }
 
     public static final class AppenderWriter implements Appender {
@@ -88,6 +151,11 @@ public final class ExportUtil {
             writer.write("\n");
         }
 
+        @Override
+        public void append(String[] values) throws IOException {
+            writeRow(writer, joiner, values);
+        }
+
         public static AppenderWriter of(Writer writer) {
             return new AppenderWriter(writer);
         }
@@ -96,15 +164,37 @@ public final class ExportUtil {
         }
     }
 
-    static final class TsvValueJoiner implements ValueJoiner {
+    static void writeRow(Writer writer, ValueJoiner joiner, String[] values) throws IOException {
+        if (joiner instanceof RowWriter) {
+            ((RowWriter) joiner).writeRow(writer, values);
+        } else {
+            writer.write(joiner.join(Arrays.stream(values)));
+            writer.write("\n");
+        }
+    }
+
+    static final class TsvValueJoiner implements ValueJoiner, RowWriter {
 
         @Override
         public String join(Stream<String> values) {
             return StringUtils.join(CSVTSVUtil.escapeValues(values), '\t');
         }
+
+        @Override
+        public void writeRow(Writer writer, String[] values) throws IOException {
+            StringBuilder row = RowBuffer.start();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    row.append('\t');
+                }
+                CSVTSVUtil.appendEscapedValue(row, values[i]);
+            }
+            row.append('\n');
+            RowBuffer.writeTo(writer);
+        }
     }
 
-    public static class CsvValueJoiner implements ValueJoiner {
+    public static class CsvValueJoiner implements ValueJoiner, RowWriter {
 
         private final CsvTranslators.CsvEscaper escaper = new CsvTranslators.CsvEscaper();
 
@@ -114,15 +204,63 @@ public final class ExportUtil {
                     .map(escaper::translate)
                     .collect(Collectors.joining(","));
         }
+
+        @Override
+        public void writeRow(Writer writer, String[] values) throws IOException {
+            StringBuilder row = RowBuffer.start();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    row.append(',');
+                }
+                appendEscaped(row, values[i]);
+            }
+            row.append('\n');
+            RowBuffer.writeTo(writer);
+        }
+
+        // same as CsvTranslators.CsvEscaper: quote values containing a delimiter, quote or line break
+        private static void appendEscaped(StringBuilder row, String value) {
+            if (StringUtils.containsNone(value, ',', '"', '\r', '\n')) {
+                row.append(value);
+            } else {
+                row.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        row.append('"');
+                    }
+                    row.append(c);
+                }
+                row.append('"');
+            }
+        }
     }
 
-    public static class NQuadValueJoiner implements ValueJoiner {
+    public static class NQuadValueJoiner implements ValueJoiner, RowWriter {
         @Override
         public String join(Stream<String> values) {
             String joined = values
                     .collect(Collectors.joining(" "));
             return StringUtils.isBlank(joined) ? "" : joined + " .";
         }
+
+        @Override
+        public void writeRow(Writer writer, String[] values) throws IOException {
+            StringBuilder row = RowBuffer.start();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    row.append(' ');
+                }
+                row.append(values[i]);
+            }
+            if (StringUtils.isBlank(row)) {
+                row.setLength(0);
+            } else {
+                row.append(" .");
+            }
+            row.append('\n');
+            RowBuffer.writeTo(writer);
+        }
     }
 
     static void writeResults(Appender appender, GraphDatabaseService dbService, String query, Map<String, Object> params, boolean includeHeader) throws IOException {
@@ -134,23 +272,23 @@ public final class ExportUtil {
             Result rows = dbService.execute(query, params);
             List<String> columns = rows.columns();
             if (includeHeader && queries.indexOf(query) == 0) {
-                final String[] values = columns.toArray(new String[0]);
-                appender.append(Stream.of(values));
+                appender.append(columns.toArray(new String[0]));
             }
             appendRow(appender, rows, columns);
         }
     }
 
     static void appendRow(Appender appender, Iterator<Map<String, Object>> rows, List<String> columns) throws IOException {
+        String[] columnNames = columns.toArray(new String[0]);
+        String[] values = new String[columnNames.length];
         Map<String, Object> row;
         while (rows.hasNext()) {
             row = rows.next();
-            List<String> values = new ArrayList<String>();
-            for (String column : columns) {
-                Object value = row.get(column);
-                values.add(value == null ? "" : value.toString());
+            for (int i = 0; i < columnNames.length; i++) {
+                Object value = row.get(columnNames[i]);
+                values[i] = value == null ? "" : value.toString();
             }
-            appender.append(values.stream());
+            appender.append(values);
         }
     }
 
@@ -159,7 +297,7 @@ public final class ExportUtil {
         for (int i = 0; i < fields.length; i++) {
             values[i] = properties.getOrDefault(fields[i], "");
         }
-        appender.append(Stream.of(values));
+        appender.append(values);
     }
 
     static void mkdirIfNeeded(String baseDir) throws IOException {
@@ -8,90 +8,101 @@ import org.eol.globi.domain.TaxonNode;
 import org.eol.globi.util.NodeTypeDirection;
 import org.eol.globi.util.NodeUtil;
 import org.eol.globi.util.StudyNodeListener;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
-import org.mapdb.Fun;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.Writer;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ExporterAggregateUtil {
+
+    // maximum number of distinct interactions aggregated in memory before spilling to disk
+    private static final int MAX_INTERACTIONS_IN_MEMORY = 1000000;
+
     public static void exportDistinctInteractionsByStudy(ExportUtil.Appender writer, GraphDatabaseService graphDatabase, RowWriter rowWriter) throws IOException {
-        DB db = DBMaker
-                .newMemoryDirectDB()
-                .compressionEnable()
-                .transactionDisable()
-                .make();
-        final Map<Fun.Tuple3<Long, String, String>, List<String>> studyOccAggregate = db.createTreeMap("studyOccAggregate").make();
+        exportDistinctInteractionsByStudy(writer, graphDatabase, rowWriter, MAX_INTERACTIONS_IN_MEMORY, new File(System.getProperty("java.io.tmpdir")));
+    }
 
-        NodeUtil.findStudies(graphDatabase, new StudyNodeListener() {
-            @Override
-            public void onStudy(StudyNode aStudy) {
-                collectDistinctInteractions(aStudy, studyOccAggregate);
+    static void exportDistinctInteractionsByStudy(ExportUtil.Appender writer, GraphDatabaseService graphDatabase, RowWriter rowWriter, int maxInteractionsInMemory, File tmpDir) throws IOException {
+        try (DistinctInteractions studyOccAggregate = new DistinctInteractions(maxInteractionsInMemory, tmpDir)) {
+            AtomicReference<IOException> lastException = new AtomicReference<>();
+            NodeUtil.findStudies(graphDatabase, new StudyNodeListener() {
+                @Override
+                public void onStudy(StudyNode aStudy) {
+                    try {
+                        collectDistinctInteractions(aStudy, studyOccAggregate);
+                    } catch (IOException ex) {
+                        lastException.set(ex);
+                    }
+                }
+            });
+            if (lastException.get() != null) {
+                throw lastException.get();
             }
-        });
 
-        for (Map.Entry<Fun.Tuple3<Long, String, String>, List<String>> distinctInteractions : studyOccAggregate.entrySet()) {
-            Transaction transaction = graphDatabase.beginTx();
+            // aggregates are ordered by study, so each study is looked up once, in its own transaction
+            final Transaction[] transaction = {null};
+            final StudyNode[] study = {null};
             try {
-                rowWriter.writeRow(
-                        writer,
-                        new StudyNode(graphDatabase.getNodeById(distinctInteractions.getKey().a)),
-                        distinctInteractions.getKey().b,
-                        distinctInteractions.getKey().c,
-                        distinctInteractions.getValue()
-                );
-                transaction.success();
+                studyOccAggregate.emit((studyId, sourceTaxonId, interactionType, targetTaxonIds) -> {
+                    if (study[0] == null || study[0].getNodeID() != studyId) {
+                        finalizeTx(transaction[0]);
+                        transaction[0] = graphDatabase.beginTx();
+                        study[0] = new StudyNode(graphDatabase.getNodeById(studyId));
+                    }
+                    rowWriter.writeRow(writer, study[0], sourceTaxonId, interactionType, targetTaxonIds);
+                });
+                finalizeTx(transaction[0]);
+                transaction[0] = null;
             } finally {
-                transaction.close();
+                if (transaction[0] != null) {
+                    transaction[0].close();
+                }
             }
-
         }
-        db.close();
     }
 
-    public static void collectDistinctInteractions(StudyNode aStudy, final Map<Fun.Tuple3<Long, String, String>, List<String>> studyOccAggregate) {
-
-
-        {
+    private static void finalizeTx(Transaction transaction) {
+        if (transaction != null) {
+            transaction.success();
+            transaction.close();
+        }
+    }
 
-            NodeUtil.RelationshipListener handler = new NodeUtil.RelationshipListener() {
+    public static void collectDistinctInteractions(StudyNode aStudy, final DistinctInteractions studyOccAggregate) throws IOException {
+        AtomicReference<IOException> lastException = new AtomicReference<>();
+        NodeUtil.RelationshipListener handler = new NodeUtil.RelationshipListener() {
 
-                @Override
-                public void on(Relationship specimen) {
-                    final Iterable<Relationship> interactions = specimen.getEndNode().getRelationships(Direction.OUTGOING, NodeUtil.asNeo4j());
-                    for (Relationship interaction : interactions) {
-                        if (!interaction.hasProperty(PropertyAndValueDictionary.INVERTED)) {
-                            final Node targetSpecimen = interaction.getEndNode();
-                            final Node sourceSpecimen = interaction.getStartNode();
-                            final String sourceTaxonExternalId = getExternalIdForTaxonOf(sourceSpecimen);
-                            final String targetTaxonExternalId = getExternalIdForTaxonOf(targetSpecimen);
-                            if (sourceTaxonExternalId != null && targetTaxonExternalId != null) {
-                                final Fun.Tuple3<Long, String, String> key = new Fun.Tuple3<Long, String, String>(aStudy.getNodeID(), sourceTaxonExternalId, interaction.getType().name());
-                                List<String> targetTaxonExternalIds = studyOccAggregate.get(key);
-                                if (targetTaxonExternalIds == null) {
-                                    targetTaxonExternalIds = new ArrayList<String>();
-                                }
-                                if (!targetTaxonExternalIds.contains(targetTaxonExternalId)) {
-                                    targetTaxonExternalIds.add(targetTaxonExternalId);
-                                }
-                                studyOccAggregate.put(key, targetTaxonExternalIds);
+            @Override
+            public void on(Relationship specimen) {
+                final Iterable<Relationship> interactions = specimen.getEndNode().getRelationships(Direction.OUTGOING, NodeUtil.asNeo4j());
+                for (Relationship interaction : interactions) {
+                    if (!interaction.hasProperty(PropertyAndValueDictionary.INVERTED)) {
+                        final Node targetSpecimen = interaction.getEndNode();
+                        final Node sourceSpecimen = interaction.getStartNode();
+                        final String sourceTaxonExternalId = getExternalIdForTaxonOf(sourceSpecimen);
+                        final String targetTaxonExternalId = getExternalIdForTaxonOf(targetSpecimen);
+                        if (sourceTaxonExternalId != null && targetTaxonExternalId != null) {
+                            try {
+                                studyOccAggregate.add(aStudy.getNodeID(), sourceTaxonExternalId, interaction.getType().name(), targetTaxonExternalId);
+                            } catch (IOException ex) {
+                                lastException.set(ex);
                             }
                         }
                     }
-
                 }
-            };
 
-            NodeUtil.handleCollectedRelationships(new NodeTypeDirection(aStudy.getUnderlyingNode()), handler);
+            }
+        };
+
+        NodeUtil.handleCollectedRelationships(new NodeTypeDirection(aStudy.getUnderlyingNode()), handler);
+        if (lastException.get() != null) {
+            throw lastException.get();
         }
     }
 
@@ -11,7 +11,6 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.stream.Stream;
 
 public abstract class ExporterBase extends DarwinCoreExporter {
 
@@ -47,7 +46,7 @@ public abstract class ExporterBase extends DarwinCoreExporter {
             String fieldSuffix = index > 0 ? field.substring(index + 1) : field;
             headers[i] = fieldSuffix;
         }
-        appender.append(Stream.of(headers));
+        appender.append(headers);
     }
 
     @Override
@@ -3,29 +3,43 @@ package org.eol.globi.export;
 import org.apache.commons.lang3.StringUtils;
 import org.eol.globi.data.StudyImporterException;
 import org.eol.globi.data.export.SiteMapUtils;
-import org.eol.globi.domain.Study;
 import org.eol.globi.domain.StudyNode;
 import org.eol.globi.util.NodeUtil;
 import org.neo4j.graphdb.GraphDatabaseService;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
-class ExporterSiteMapForCitations implements GraphExporter {
+/**
+ * Collects the citations of the studies it is handed, e.g., by the study pass of {@link GraphExporterImpl}, and
+ * writes them as site map.
+ */
+class ExporterSiteMapForCitations implements GraphExporter, StudyExporter {
+
+    private final Set<String> accordingToHits = new HashSet<String>();
+
+    ExporterSiteMapForCitations() {
+        accordingToHits.add("gomexsi");
+    }
 
     @Override
     public void export(GraphDatabaseService graphDb, String baseDirName) throws StudyImporterException {
-        Set<String> accordingToHits = new HashSet<String>();
-        accordingToHits.add("gomexsi");
         // just do it once
-        final List<StudyNode> allStudies = NodeUtil.findAllStudies(graphDb);
-        for (Study allStudy : allStudies) {
-            final String doi = allStudy.getExternalId();
-            if (StringUtils.isNotBlank(doi)) {
-                accordingToHits.add(doi);
-            }
+        for (StudyNode study : NodeUtil.findAllStudies(graphDb)) {
+            exportStudy(study, null, false);
         }
+        writeSiteMap(baseDirName);
+    }
+
+    @Override
+    public void exportStudy(StudyNode study, ExportUtil.Appender appender, boolean includeHeader) {
+        final String doi = study.getExternalId();
+        if (StringUtils.isNotBlank(doi)) {
+            accordingToHits.add(doi);
+        }
+    }
+
+    void writeSiteMap(String baseDirName) throws StudyImporterException {
         final String siteMapLocation = "https://depot.globalbioticinteractions.org/snapshot/target/data/sitemap/citations/";
         SiteMapUtils.generateSiteMap(accordingToHits, baseDirName, "accordingTo=", siteMapLocation);
     }
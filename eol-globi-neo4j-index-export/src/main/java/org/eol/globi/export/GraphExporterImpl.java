@@ -13,14 +13,47 @@ import org.neo4j.graphdb.GraphDatabaseService;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
+/**
+ * Exports the graph in a single pass over its studies: each study is visited once and handed to all study
+ * exporters, i.e., those of the taxon names, the data ontology, the darwin core archives and the site maps.
+ * <p>
+ * Products that do not follow the study, specimen and taxon structure stay separate passes, run next to the
+ * study pass on the workers of {@link ExportFanOut}:
+ * <ul>
+ * <li>flat interactions and citations, which are rows of cypher queries on interactions or datasets, and which
+ * are kept per dataset when exported incrementally (see {@link ExportFragments})</li>
+ * <li>ncbi link-out, which is a distinct query on the taxa with ncbi ids, independent of the studies</li>
+ * </ul>
+ * Exporters keep no state across products: each product, including the references and taxa that are
+ * the same in both darwin core archives, has its own exporter.
+ */
 public class GraphExporterImpl implements GraphExporter {
     private static final Logger LOG = LoggerFactory.getLogger(GraphExporterImpl.class);
 
+    private static final int NUMBER_OF_SOURCE_WORKERS = 3;
+
+    private ExportCompression compression = ExportCompression.DEFAULT;
+    private ExportFragments fragments = null;
+
+    public void setCompression(ExportCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Enables incremental export of interactions and citations, re-using the rows of unchanged datasets kept in
+     * the provided fragment store.
+     */
+    public void setFragments(ExportFragments fragments) {
+        this.fragments = fragments;
+    }
+
     @Override
     public void export(GraphDatabaseService graphService, String baseDir) throws StudyImporterException {
         try {
@@ -29,51 +62,145 @@ public class GraphExporterImpl implements GraphExporter {
             throw new StudyImporterException("failed to create output dir [" + baseDir + "]", e);
         }
 
-        LOG.info("site maps generating... ");
+        List<StudyNode> studies = NodeUtil.findAllStudies(graphService);
+
+        ExporterSiteMapForCitations siteMapForCitations = new ExporterSiteMapForCitations();
+        ExporterSiteMapForNames siteMapForNames = new ExporterSiteMapForNames();
+        Map<String, DarwinCoreExporter> aggregatedByStudy = new HashMap<>();
+        Map<String, DarwinCoreExporter> all = new HashMap<>();
+        try (ExportFanOut fanOut = new ExportFanOut(NUMBER_OF_SOURCE_WORKERS)) {
+            fanOut.setCompression(compression);
+            if (fragments == null) {
+                exportFlatInteractions(graphService, baseDir, fanOut);
+            } else {
+                exportFlatInteractions(graphService, baseDir, fanOut, fragments);
+            }
+            fanOut.submit(() -> exportNCBILinkOut(graphService, baseDir));
+            registerNames(baseDir, fanOut);
+            registerDataOntology(baseDir, fanOut);
+            registerDarwinCoreArchives(baseDir, fanOut, aggregatedByStudy, all);
+            registerSiteMaps(fanOut, siteMapForCitations, siteMapForNames);
+            fanOut.exportStudies(studies);
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to export studies", e);
+        }
+        writeSiteMaps(baseDir, siteMapForCitations, siteMapForNames);
+        writeDarwinCoreMeta(baseDir + "aggregatedByStudy/", aggregatedByStudy);
+        writeDarwinCoreMeta(baseDir + "all/", all);
+    }
+
+    private void registerSiteMaps(ExportFanOut fanOut, StudyExporter... siteMaps) {
+        for (StudyExporter siteMap : siteMaps) {
+            // site maps collect values of studies, and are written once all studies are visited
+            fanOut.addStudyExporter(siteMap, values -> {
+            });
+        }
+    }
+
+    private void writeSiteMaps(String baseDir, ExporterSiteMapForCitations siteMapForCitations, ExporterSiteMapForNames siteMapForNames) throws StudyImporterException {
         File siteMapDir = new File(baseDir, "sitemap");
 
         final File citations = new File(siteMapDir, "citations");
         LOG.info("site maps at [" + citations.getAbsolutePath() + "] generating... ");
-        new ExporterSiteMapForCitations().export(graphService, citations.getAbsolutePath());
+        siteMapForCitations.writeSiteMap(citations.getAbsolutePath());
         LOG.info("site maps at [" + citations.getAbsolutePath() + "] generated.");
 
         final File names = new File(siteMapDir, "names");
         LOG.info("site maps at [" + names.getAbsolutePath() + "] generating... ");
-        final GraphExporter exporter = new ExporterSiteMapForNames();
-        exporter.export(graphService, names.getAbsolutePath());
+        siteMapForNames.writeSiteMap(names.getAbsolutePath());
         LOG.info("site maps at [" + names.getAbsolutePath() + "] generated.");
+    }
 
-        LOG.info("site maps generated... ");
-
-        List<StudyNode> studies = NodeUtil.findAllStudies(graphService);
+    private void exportNCBILinkOut(GraphDatabaseService graphService, String baseDir) throws IOException {
         LOG.info("ncbi linkout files generating... ");
-        exportNCBILinkOut(graphService, baseDir, studies);
+        try {
+            exportNCBILinkOut(graphService, baseDir, null);
+        } catch (StudyImporterException e) {
+            throw new IOException("failed to export ncbi linkout files", e);
+        }
         LOG.info("ncbi linkout files generated. ");
+    }
 
-        exportNames(baseDir, studies);
-        // export to taxa for now, to avoid additional assemblies
-        new ExportFlatInteractions(new ExportUtil.TsvValueJoiner(), "interactions.tsv.gz").export(graphService, "tsv");
+    /**
+     * @return the main files written by an export to the provided dir
+     */
+    public List<File> getOutputFiles(String baseDir) {
+        List<File> files = new ArrayList<>();
+        for (String name : Arrays.asList("interactions", "refuted-interactions", "citations")) {
+            files.add(compression.fileFor(new File(baseDir, "tsv/" + name + ".tsv.gz")));
+            files.add(compression.fileFor(new File(baseDir, "csv/" + name + ".csv.gz")));
+        }
+        files.add(columnar(baseDir, "interactions"));
+        files.add(columnar(baseDir, "refuted-interactions"));
+        files.add(compression.fileFor(new File(baseDir, "taxa/taxonMap.tsv.gz")));
+        files.add(compression.fileFor(new File(baseDir, "taxa/taxonCache.tsv.gz")));
+        files.add(compression.fileFor(new File(baseDir, "interactions.nq.gz")));
+        files.add(new File(baseDir + "aggregatedByStudy/", "meta.xml"));
+        files.add(new File(baseDir + "all/", "meta.xml"));
+        return files;
+    }
 
-        new ExportFlatInteractions(new ExportUtil.TsvValueJoiner(), "refuted-interactions.tsv.gz")
+    private void exportFlatInteractions(GraphDatabaseService graphService, String baseDir, ExportFanOut fanOut) throws IOException {
+        // export to taxa for now, to avoid additional assemblies
+        final ExportUtil.Appender interactions = ExportUtil.fanOut(Arrays.asList(
+                fanOutToTsvAndCsv(fanOut, baseDir, "interactions"),
+                openColumnar(fanOut, baseDir, "interactions")));
+        fanOut.submit(() -> new ExportFlatInteractions(new ExportUtil.TsvValueJoiner(), "interactions.tsv.gz")
+                .export(graphService, interactions));
+
+        final ExportUtil.Appender refutedInteractions = ExportUtil.fanOut(Arrays.asList(
+                fanOutToTsvAndCsv(fanOut, baseDir, "refuted-interactions"),
+                openColumnar(fanOut, baseDir, "refuted-interactions")));
+        fanOut.submit(() -> new ExportFlatInteractions(new ExportUtil.TsvValueJoiner(), "refuted-interactions.tsv.gz")
                 .setArgumentType(RelTypes.REFUTES)
                 .setArgumentTypeId(PropertyAndValueDictionary.REFUTES)
-                .export(graphService, "tsv");
+                .export(graphService, refutedInteractions));
 
-        new ExportCitations(new ExportUtil.TsvValueJoiner(), "citations.tsv.gz").export(graphService, "tsv");
+        final ExportUtil.Appender citations = fanOutToTsvAndCsv(fanOut, baseDir, "citations");
+        fanOut.submit(() -> new ExportCitations(new ExportUtil.TsvValueJoiner(), "citations.tsv.gz")
+                .export(graphService, citations));
+    }
+
+    private void exportFlatInteractions(GraphDatabaseService graphService, String baseDir, ExportFanOut fanOut, ExportFragments fragments) throws IOException {
+        fragments.setCompression(compression);
+        ExportFlatInteractions interactions = new ExportFlatInteractions(new ExportUtil.TsvValueJoiner(), "interactions.tsv.gz");
+        String interactionsQuery = interactions.createDatasetQuery();
+        fanOut.submit(() -> fragments.export(graphService, "interactions", interactionsQuery, null, tsvAndCsv(baseDir, "interactions")));
 
-        new ExportFlatInteractions(new ExportUtil.CsvValueJoiner(), "interactions.csv.gz")
-                .export(graphService, "csv");
-        new ExportFlatInteractions(new ExportUtil.CsvValueJoiner(), "refuted-interactions.csv.gz")
+        ExportFlatInteractions refutedInteractions = new ExportFlatInteractions(new ExportUtil.TsvValueJoiner(), "refuted-interactions.tsv.gz")
                 .setArgumentType(RelTypes.REFUTES)
-                .setArgumentTypeId(PropertyAndValueDictionary.REFUTES)
-                .export(graphService, "csv");
+                .setArgumentTypeId(PropertyAndValueDictionary.REFUTES);
+        String refutedInteractionsQuery = refutedInteractions.createDatasetQuery();
+        fanOut.submit(() -> fragments.export(graphService, "refuted-interactions", refutedInteractionsQuery, null, tsvAndCsv(baseDir, "refuted-interactions")));
 
+        // column chunks span datasets, so columnar files are not assembled from fragments
+        final ExportUtil.Appender columnarInteractions = openColumnar(fanOut, baseDir, "interactions");
+        fanOut.submit(() -> interactions.export(graphService, columnarInteractions));
+        final ExportUtil.Appender columnarRefutedInteractions = openColumnar(fanOut, baseDir, "refuted-interactions");
+        fanOut.submit(() -> refutedInteractions.export(graphService, columnarRefutedInteractions));
 
-        new ExportCitations(new ExportUtil.CsvValueJoiner(), "citations.csv.gz").export(graphService, "csv");
+        fanOut.submit(() -> fragments.export(graphService, "citations", ExportCitations.DATASET_CYPHER_QUERY, ExportCitations.NO_DATASET_CYPHER_QUERY, tsvAndCsv(baseDir, "citations")));
+    }
 
-        exportDataOntology(studies, baseDir);
-        exportDarwinCoreAggregatedByStudy(baseDir, studies);
-        exportDarwinCoreAll(baseDir, studies);
+    private Map<File, ExportUtil.ValueJoiner> tsvAndCsv(String baseDir, String name) {
+        Map<File, ExportUtil.ValueJoiner> files = new LinkedHashMap<>();
+        files.put(new File(baseDir, "tsv/" + name + ".tsv.gz"), new ExportUtil.TsvValueJoiner());
+        files.put(new File(baseDir, "csv/" + name + ".csv.gz"), new ExportUtil.CsvValueJoiner());
+        return files;
+    }
+
+    private static File columnar(String baseDir, String name) {
+        return new File(baseDir, "columnar/" + name + ".parquet");
+    }
+
+    private static ExportUtil.Appender openColumnar(ExportFanOut fanOut, String baseDir, String name) throws IOException {
+        return fanOut.openColumnar(columnar(baseDir, name), ExportFlatInteractions.COLUMN_TYPES);
+    }
+
+    private ExportUtil.Appender fanOutToTsvAndCsv(ExportFanOut fanOut, String baseDir, String name) throws IOException {
+        return ExportUtil.fanOut(Arrays.asList(
+                fanOut.open(new File(baseDir, "tsv/" + name + ".tsv.gz"), new ExportUtil.TsvValueJoiner()),
+                fanOut.open(new File(baseDir, "csv/" + name + ".csv.gz"), new ExportUtil.CsvValueJoiner())));
     }
 
     public void exportNCBILinkOut(GraphDatabaseService graphService, String baseDir, List<StudyNode> studies) throws StudyImporterException {
@@ -122,62 +249,50 @@ public class GraphExporterImpl implements GraphExporter {
         }
     }
 
-    private void exportDarwinCoreAggregatedByStudy(String baseDir, List<StudyNode> studies) throws StudyImporterException {
-        exportDarwinCoreArchive(studies,
-                baseDir + "aggregatedByStudy/", new HashMap<String, DarwinCoreExporter>() {
-                    {
-                        put("association.tsv", new ExporterAssociationAggregates());
-                        put("occurrence.tsv", new ExporterOccurrenceAggregates());
-                        put("references.tsv", new ExporterReferences());
-                        put("taxa.tsv", new ExporterTaxaDistinct());
-                    }
-                }
-        );
-    }
-
-    private void exportDarwinCoreAll(String baseDir, List<StudyNode> studies) throws StudyImporterException {
-        exportDarwinCoreArchive(studies, baseDir + "all/", new HashMap<String, DarwinCoreExporter>() {
-            {
-                put("association.tsv", new ExporterAssociations());
-                put("occurrence.tsv", new ExporterOccurrences());
-                put("references.tsv", new ExporterReferences());
-                put("taxa.tsv", new ExporterTaxaDistinct());
-                put("measurementOrFact.tsv", new ExporterMeasurementOrFact());
-            }
-        });
+    private void registerNames(String baseDir, ExportFanOut fanOut) throws IOException {
+        fanOut.addStudyExporter(new ExportTaxonMap(),
+                fanOut.open(new File(baseDir, "taxa/taxonMap.tsv.gz"), new ExportUtil.TsvValueJoiner()));
+        fanOut.addStudyExporter(new ExportTaxonCache(),
+                fanOut.open(new File(baseDir, "taxa/taxonCache.tsv.gz"), new ExportUtil.TsvValueJoiner()));
     }
 
-    private void exportDataOntology(List<StudyNode> studies, String baseDir) throws StudyImporterException {
-        try {
-            ExporterRDF studyExporter = new ExporterRDF();
-            String exportPath = baseDir + "interactions.nq.gz";
-            OutputStreamWriter writer = openStream(exportPath);
-            int total = studies.size();
-            int count = 1;
-            for (StudyNode study : studies) {
-                studyExporter.exportStudy(study, ExportUtil.AppenderWriter.of(writer, new ExportUtil.NQuadValueJoiner()), true);
-                if (count % 50 == 0) {
-                    LOG.info("added triples for [" + count + "] of [" + total + "] studies...");
-                }
-                count++;
-            }
-            LOG.info("adding triples for [" + total + "] of [" + total + "] studies.");
+    private void registerDataOntology(String baseDir, ExportFanOut fanOut) throws IOException {
+        fanOut.addStudyExporter(new ExporterRDF(),
+                fanOut.open(new File(baseDir, "interactions.nq.gz"), new ExportUtil.NQuadValueJoiner()));
+    }
 
-            LOG.info("writing nquads archive...");
-            closeStream(exportPath, writer);
-        } catch (IOException e) {
-            throw new StudyImporterException("failed to export as owl", e);
+    private void registerDarwinCoreArchives(String baseDir, ExportFanOut fanOut, Map<String, DarwinCoreExporter> aggregatedByStudy, Map<String, DarwinCoreExporter> all) throws IOException {
+        aggregatedByStudy.put("association.tsv", new ExporterAssociationAggregates());
+        aggregatedByStudy.put("occurrence.tsv", new ExporterOccurrenceAggregates());
+        aggregatedByStudy.put("references.tsv", new ExporterReferences());
+        aggregatedByStudy.put("taxa.tsv", new ExporterTaxaDistinct());
+
+        all.put("association.tsv", new ExporterAssociations());
+        all.put("occurrence.tsv", new ExporterOccurrences());
+        all.put("references.tsv", new ExporterReferences());
+        all.put("taxa.tsv", new ExporterTaxaDistinct());
+        all.put("measurementOrFact.tsv", new ExporterMeasurementOrFact());
+
+        registerDarwinCoreFiles(fanOut, baseDir + "aggregatedByStudy/", aggregatedByStudy);
+        registerDarwinCoreFiles(fanOut, baseDir + "all/", all);
+    }
+
+    private void registerDarwinCoreFiles(ExportFanOut fanOut, String pathPrefix, Map<String, DarwinCoreExporter> exporters) throws IOException {
+        for (Map.Entry<String, DarwinCoreExporter> exporter : exporters.entrySet()) {
+            fanOut.addStudyExporter(exporter.getValue(),
+                    fanOut.open(new File(pathPrefix + exporter.getKey()), new ExportUtil.TsvValueJoiner()));
         }
     }
 
-    private void exportDarwinCoreArchive(List<StudyNode> studies, String pathPrefix, Map<String, DarwinCoreExporter> exporters) throws StudyImporterException {
+    private void writeDarwinCoreMeta(String pathPrefix, Map<String, DarwinCoreExporter> exporters) throws StudyImporterException {
         try {
-            FileUtils.forceMkdir(new File(pathPrefix));
+            LOG.info("darwin core meta file writing... ");
             FileWriter darwinCoreMeta = writeMetaHeader(pathPrefix);
             for (Map.Entry<String, DarwinCoreExporter> exporter : exporters.entrySet()) {
-                export(studies, pathPrefix, exporter.getKey(), exporter.getValue(), darwinCoreMeta);
+                exporter.getValue().exportDarwinCoreMetaTable(darwinCoreMeta, exporter.getKey());
             }
             writeMetaFooter(darwinCoreMeta);
+            LOG.info("darwin core meta file written. ");
         } catch (IOException e) {
             throw new StudyImporterException("failed to export result to csv file", e);
         }
@@ -196,31 +311,15 @@ public class GraphExporterImpl implements GraphExporter {
         return darwinCoreMeta;
     }
 
-    private void export(List<StudyNode> importedStudies, String exportPath, String filename, DarwinCoreExporter studyExporter, FileWriter darwinCoreMeta) throws IOException {
-        OutputStreamWriter writer = openStream(exportPath + filename);
-        for (StudyNode importedStudy : importedStudies) {
-            boolean includeHeader = importedStudies.indexOf(importedStudy) == 0;
-            studyExporter.exportStudy(importedStudy, ExportUtil.AppenderWriter.of(writer), includeHeader);
-        }
-        closeStream(exportPath + filename, writer);
-        LOG.info("darwin core meta file writing... ");
-        studyExporter.exportDarwinCoreMetaTable(darwinCoreMeta, filename);
-        LOG.info("darwin core meta file written. ");
-    }
-
     private void closeStream(String exportPath, OutputStreamWriter writer) throws IOException {
         writer.flush();
         writer.close();
-        LOG.info("export data to [" + new File(exportPath).getAbsolutePath() + "] complete.");
+        LOG.info("export data to [" + compression.fileFor(new File(exportPath)).getAbsolutePath() + "] complete.");
     }
 
     private OutputStreamWriter openStream(String exportPath) throws IOException {
-        OutputStream fos = new BufferedOutputStream(new FileOutputStream(exportPath));
-        if (exportPath.endsWith(".gz")) {
-            fos = new GZIPOutputStream(fos);
-        }
-        OutputStreamWriter writer = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-        LOG.info("export data to [" + new File(exportPath).getAbsolutePath() + "] started...");
+        OutputStreamWriter writer = new OutputStreamWriter(compression.open(new File(exportPath)), StandardCharsets.UTF_8);
+        LOG.info("export data to [" + compression.fileFor(new File(exportPath)).getAbsolutePath() + "] started...");
         return writer;
     }
 
@@ -0,0 +1,233 @@
+package org.eol.globi.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thrift compact protocol, as used for the page headers and footer of the Parquet files written by
+ * {@link ExportColumnar}. Structs are written field by field, and read generically as maps of field ids to values.
+ */
+class ThriftCompact {
+
+    static final int BOOLEAN_TRUE = 1;
+    static final int BOOLEAN_FALSE = 2;
+    static final int BYTE = 3;
+    static final int I16 = 4;
+    static final int I32 = 5;
+    static final int I64 = 6;
+    static final int DOUBLE = 7;
+    static final int BINARY = 8;
+    static final int LIST = 9;
+    static final int SET = 10;
+    static final int MAP = 11;
+    static final int STRUCT = 12;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final Deque<Integer> lastFieldIds = new ArrayDeque<>();
+    private int lastFieldId = 0;
+
+    ThriftCompact i32(int fieldId, int value) {
+        writeFieldHeader(fieldId, I32);
+        return element(value);
+    }
+
+    ThriftCompact i64(int fieldId, long value) {
+        writeFieldHeader(fieldId, I64);
+        writeVarLong(zigzag(value));
+        return this;
+    }
+
+    ThriftCompact string(int fieldId, String value) {
+        writeFieldHeader(fieldId, BINARY);
+        return element(value);
+    }
+
+    ThriftCompact struct(int fieldId) {
+        writeFieldHeader(fieldId, STRUCT);
+        return structElement();
+    }
+
+    ThriftCompact list(int fieldId, int elementType, int size) {
+        writeFieldHeader(fieldId, LIST);
+        if (size < 15) {
+            out.write(size << 4 | elementType);
+        } else {
+            out.write(0xf0 | elementType);
+            writeVarLong(size);
+        }
+        return this;
+    }
+
+    ThriftCompact element(int value) {
+        writeVarLong(zigzag(value));
+        return this;
+    }
+
+    ThriftCompact element(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        out.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    ThriftCompact structElement() {
+        lastFieldIds.push(lastFieldId);
+        lastFieldId = 0;
+        return this;
+    }
+
+    /**
+     * @param struct a struct written by another instance, e.g., as element of a list
+     */
+    ThriftCompact raw(byte[] struct) {
+        out.write(struct, 0, struct.length);
+        return this;
+    }
+
+    /**
+     * Ends the current struct, or the top level struct if no other struct was started.
+     */
+    ThriftCompact end() {
+        out.write(0);
+        lastFieldId = lastFieldIds.isEmpty() ? 0 : lastFieldIds.pop();
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    private void writeFieldHeader(int fieldId, int type) {
+        int delta = fieldId - lastFieldId;
+        if (delta > 0 && delta <= 15) {
+            out.write(delta << 4 | type);
+        } else {
+            out.write(type);
+            writeVarLong(zigzag(fieldId));
+        }
+        lastFieldId = fieldId;
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * @return fields of the struct at the position of the buffer, by field id. Integers are returned as longs,
+     * binaries as byte arrays, lists and sets as lists, and structs as maps.
+     */
+    static Map<Integer, Object> readStruct(ByteBuffer in) throws IOException {
+        Map<Integer, Object> struct = new HashMap<>();
+        int fieldId = 0;
+        int header;
+        while ((header = in.get() & 0xff) != 0) {
+            int delta = header >>> 4;
+            fieldId = delta == 0 ? (int) unzigzag(readVarLong(in)) : fieldId + delta;
+            int type = header & 0x0f;
+            struct.put(fieldId, type == BOOLEAN_TRUE || type == BOOLEAN_FALSE ? type == BOOLEAN_TRUE : readValue(in, type));
+        }
+        return struct;
+    }
+
+    static int getInt(Map<Integer, Object> struct, int fieldId) throws IOException {
+        return (int) getLong(struct, fieldId);
+    }
+
+    static long getLong(Map<Integer, Object> struct, int fieldId) throws IOException {
+        Object value = struct.get(fieldId);
+        if (!(value instanceof Long)) {
+            throw new IOException("missing integer field [" + fieldId + "]");
+        }
+        return (Long) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T get(Map<Integer, Object> struct, int fieldId, Class<T> type) throws IOException {
+        Object value = struct.get(fieldId);
+        if (!type.isInstance(value)) {
+            throw new IOException("missing field [" + fieldId + "]");
+        }
+        return (T) value;
+    }
+
+    private static Object readValue(ByteBuffer in, int type) throws IOException {
+        switch (type) {
+            case BOOLEAN_TRUE:
+            case BOOLEAN_FALSE:
+                // booleans in lists, sets and maps are single bytes
+                return in.get() == BOOLEAN_TRUE;
+            case BYTE:
+                return (long) in.get();
+            case I16:
+            case I32:
+            case I64:
+                return unzigzag(readVarLong(in));
+            case DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < Long.BYTES; i++) {
+                    bits |= (long) (in.get() & 0xff) << (8 * i);
+                }
+                return Double.longBitsToDouble(bits);
+            case BINARY:
+                byte[] bytes = new byte[(int) readVarLong(in)];
+                in.get(bytes);
+                return bytes;
+            case LIST:
+            case SET:
+                int header = in.get() & 0xff;
+                int size = header >>> 4 == 15 ? (int) readVarLong(in) : header >>> 4;
+                List<Object> elements = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    elements.add(readValue(in, header & 0x0f));
+                }
+                return elements;
+            case MAP:
+                int entries = (int) readVarLong(in);
+                Map<Object, Object> map = new HashMap<>();
+                if (entries > 0) {
+                    int types = in.get() & 0xff;
+                    for (int i = 0; i < entries; i++) {
+                        map.put(readValue(in, types >>> 4), readValue(in, types & 0x0f));
+                    }
+                }
+                return map;
+            case STRUCT:
+                return readStruct(in);
+            default:
+                throw new IOException("unsupported thrift type [" + type + "]");
+        }
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,132 @@
+package org.eol.globi.data;
+
+import org.apache.commons.lang.time.StopWatch;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.eol.globi.domain.Location;
+import org.eol.globi.domain.LocationNode;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.graphdb.index.IndexHits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps locations to the ids of their location nodes, keyed on (latitude, longitude, altitude, footprintWKT,
+ * locality, localityId).
+ * <p>
+ * One cache is kept per graph. It is warmed from the "locations" index on first use and updated as
+ * locations are created, so that a cache miss means that no matching location exists. Because node ids of
+ * rolled back nodes are reused by the graph, cache hits are checked against the properties of the location node,
+ * and locations created in a transaction that is rolled back are expected to be removed.
+ */
+class LocationCache {
+    private static final Logger LOG = LoggerFactory.getLogger(LocationCache.class);
+
+    private static final Map<GraphDatabaseService, LocationCache> CACHES = new WeakHashMap<>();
+
+    private static final String NULL_VALUE = "\u0001";
+    private static final char SEPARATOR = '\u0000';
+
+    // caches do not reference their graph, so that graphs that are no longer used can be garbage collected
+    private final Map<String, Long> nodeIds = new ConcurrentHashMap<>();
+    private volatile boolean warmedUp = false;
+
+    static LocationCache forGraph(GraphDatabaseService graphDb) {
+        synchronized (CACHES) {
+            return CACHES.computeIfAbsent(graphDb, db -> new LocationCache());
+        }
+    }
+
+    /**
+     * @return matching location node or null if none exists, must be called within a transaction
+     */
+    Node find(Location location, GraphDatabaseService graphDb, Index<Node> locations) {
+        warmUpIfNeeded(graphDb, locations);
+        String key = keyFor(location);
+        Long nodeId = nodeIds.get(key);
+        Node node = null;
+        if (nodeId != null) {
+            node = locationNodeOrNull(graphDb, nodeId, key);
+            if (node == null) {
+                // location was created in a transaction that did not commit
+                nodeIds.remove(key, nodeId);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Drops a cached location, for instance after rolling back the transaction that created it.
+     */
+    void remove(String key, long nodeId) {
+        nodeIds.remove(key, nodeId);
+    }
+
+    private static Node locationNodeOrNull(GraphDatabaseService graphDb, Long nodeId, String key) {
+        Node node;
+        try {
+            node = graphDb.getNodeById(nodeId);
+        } catch (NotFoundException ex) {
+            node = null;
+        }
+        return node != null && StringUtils.equals(key, keyFor(new LocationNode(node))) ? node : null;
+    }
+
+    void add(Location location, Node node) {
+        nodeIds.putIfAbsent(keyFor(location), node.getId());
+    }
+
+    int size() {
+        return nodeIds.size();
+    }
+
+    private void warmUpIfNeeded(GraphDatabaseService graphDb, Index<Node> locations) {
+        if (!warmedUp) {
+            synchronized (this) {
+                if (!warmedUp) {
+                    warmUp(graphDb, locations);
+                    warmedUp = true;
+                }
+            }
+        }
+    }
+
+    private void warmUp(GraphDatabaseService graphDb, Index<Node> locations) {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        try (Transaction tx = graphDb.beginTx()) {
+            IndexHits<Node> hits = locations.query(new MatchAllDocsQuery());
+            for (Node hit : hits) {
+                nodeIds.putIfAbsent(keyFor(new LocationNode(hit)), hit.getId());
+            }
+            hits.close();
+            tx.success();
+        }
+        stopWatch.stop();
+        LOG.info("cached [" + nodeIds.size() + "] locations in [" + stopWatch.getTime() / 1000 + "]s");
+    }
+
+    static String keyFor(Location location) {
+        return new StringBuilder()
+                .append(valueOrNull(location.getLatitude())).append(SEPARATOR)
+                .append(valueOrNull(location.getLongitude())).append(SEPARATOR)
+                .append(valueOrNull(location.getAltitude())).append(SEPARATOR)
+                .append(valueOrNull(location.getFootprintWKT())).append(SEPARATOR)
+                .append(valueOrNull(location.getLocality())).append(SEPARATOR)
+                .append(valueOrNull(location.getLocalityId()))
+                .toString();
+    }
+
+    private static String valueOrNull(Object value) {
+        return value == null ? NULL_VALUE : value.toString();
+    }
+
+}
@@ -1,7 +1,6 @@
 package org.eol.globi.data;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.lucene.queryParser.QueryParser;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.eol.globi.domain.DatasetNode;
@@ -26,6 +25,8 @@ import org.eol.globi.domain.StudyNode;
 import org.eol.globi.domain.Taxon;
 import org.eol.globi.domain.Term;
 import org.eol.globi.domain.TermImpl;
+import org.eol.globi.metrics.IndexerMetrics;
+import org.eol.globi.metrics.StageMetrics;
 import org.eol.globi.service.AuthorIdResolver;
 import org.eol.globi.service.EnvoLookupService;
 import org.eol.globi.service.ORCIDResolverImpl;
@@ -44,7 +45,6 @@ import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.IndexHits;
-import org.neo4j.index.lucene.QueryContext;
 import org.neo4j.index.lucene.ValueContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,7 +53,10 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.eol.globi.domain.LocationUtil.fromLocation;
 
@@ -69,6 +72,13 @@ public class NodeFactoryNeo4j implements NodeFactory {
     private final Index<Node> seasons;
     private final Index<Node> locations;
     private final Index<Node> environments;
+    private final LocationCache locationCache;
+
+    private int maxNodesPerBatch = 100000;
+    private final AtomicLong nodesCreated = new AtomicLong(0);
+    private final AtomicLong interactionsCreated = new AtomicLong(0);
+    private volatile BatchTransactionNeo4j currentBatch = null;
+    private IndexerMetrics metrics = new IndexerMetrics();
 
     private TermLookupService termLookupService;
     private TermLookupService envoLookupService;
@@ -88,121 +98,69 @@ public class NodeFactoryNeo4j implements NodeFactory {
         this.seasons = NodeUtil.forNodes(graphDb, "seasons");
         this.locations = NodeUtil.forNodes(graphDb, "locations");
         this.environments = NodeUtil.forNodes(graphDb, "environments");
+        this.locationCache = LocationCache.forGraph(graphDb);
     }
 
     public GraphDatabaseService getGraphDb() {
         return graphDb;
     }
 
-    @Override
-    public LocationNode findLocation(Location location) throws NodeFactoryException {
-        Node matchingLocation = null;
-        if (hasLatLng(location)) {
-            matchingLocation = findLocationByLatitude(location);
-        }
-        if (matchingLocation == null) {
-            matchingLocation = findLocationByLocality(location);
-        }
-        if (matchingLocation == null) {
-            matchingLocation = findLocationByLocalityId(location);
-        }
-        return matchingLocation == null ? null : new LocationNode(matchingLocation);
+    /**
+     * Starts a transaction that groups the writes of many operations, e.g., those of many imported interactions.
+     * Operations of this factory, and of the nodes it creates, join the batch as nested transactions, so
+     * lookups in a batch see nodes created earlier in the same batch. A failed operation marks the batch as
+     * failed: on close, the batch is then rolled back as a whole, and callers are expected to apply the operations
+     * again in smaller batches. The batch must be closed by the thread that started it.
+     */
+    public BatchTransaction beginBatch() {
+        BatchTransactionNeo4j batch = new BatchTransactionNeo4j(graphDb.beginTx());
+        currentBatch = batch;
+        return batch;
     }
 
-    private boolean hasLatLng(Location location) {
-        return location.getLatitude() != null && location.getLongitude() != null;
+    /**
+     * @param maxNodesPerBatch number of created nodes after which a batch reports to be full
+     */
+    public void setMaxNodesPerBatch(int maxNodesPerBatch) {
+        this.maxNodesPerBatch = maxNodesPerBatch;
     }
 
-    private Node findLocationByLocality(Location location) throws NodeFactoryException {
-        return location.getLocality() == null ? null : findLocationBy(location, LocationConstant.LOCALITY, location.getLocality());
+    /**
+     * @param metrics run metrics that batches report their commits and latency into
+     */
+    public void setMetrics(IndexerMetrics metrics) {
+        this.metrics = metrics;
     }
 
-    private Node findLocationByLocalityId(Location location) throws NodeFactoryException {
-        return location.getLocalityId() == null ? null : findLocationBy(location, LocationConstant.LOCALITY_ID, location.getLocalityId());
+    private Node createNode() {
+        nodesCreated.incrementAndGet();
+        return graphDb.createNode();
     }
 
-    private Node findLocationBy(Location location, String key, String value) {
+    @Override
+    public LocationNode findLocation(Location location) throws NodeFactoryException {
         Node matchingLocation = null;
-        String query = key + ":\"" + QueryParser.escape(value) + "\"";
-        try (Transaction transaction = getGraphDb().beginTx()) {
-            IndexHits<Node> matchingLocations = locations.query(query);
-            for (Node node : matchingLocations) {
-                final LocationNode foundLocation = new LocationNode(node);
-                if (isSameLocation(location, foundLocation)) {
-                    matchingLocation = node;
-                    break;
-                }
+        if (hasLatLng(location)) {
+            validate(location);
+        }
+        if (hasLatLng(location) || location.getLocality() != null || location.getLocalityId() != null) {
+            try (Transaction transaction = getGraphDb().beginTx()) {
+                matchingLocation = locationCache.find(location, getGraphDb(), locations);
+                transaction.success();
             }
-            matchingLocations.close();
-            transaction.success();
         }
-        return matchingLocation;
-    }
-
-    private boolean isSameLocation(Location location, Location foundLocation) {
-        return sameLatitude(location, foundLocation)
-                && sameLongitude(location, foundLocation)
-                && sameAltitude(location, foundLocation)
-                && sameFootprintWKT(location, foundLocation)
-                && sameLocality(location, foundLocation)
-                && sameLocalityId(location, foundLocation);
-    }
-
-    private boolean sameLocalityId(Location location, Location foundLocation) {
-        return foundLocation.getLocalityId() == null && location.getLocalityId() == null
-                || location.getLocalityId() != null && location.getLocalityId().equals(foundLocation.getLocalityId());
-    }
-
-    private boolean sameLocality(Location location, Location foundLocation) {
-        return foundLocation.getLocality() == null && location.getLocality() == null
-                || location.getLocality() != null && location.getLocality().equals(foundLocation.getLocality());
-    }
-
-    private boolean sameFootprintWKT(Location location, Location foundLocation) {
-        return foundLocation.getFootprintWKT() == null && location.getFootprintWKT() == null
-                || location.getFootprintWKT() != null && location.getFootprintWKT().equals(foundLocation.getFootprintWKT());
-    }
-
-    private boolean sameAltitude(Location location, Location foundLocation) {
-        return foundLocation.getAltitude() == null && location.getAltitude() == null
-                || location.getAltitude() != null && location.getAltitude().equals(foundLocation.getAltitude());
-    }
-
-    private boolean sameLatitude(Location location, Location foundLocation) {
-        return foundLocation.getLatitude() == null && location.getLatitude() == null
-                || location.getLatitude() != null && location.getLatitude().equals(foundLocation.getLatitude());
-    }
-
-    private boolean sameLongitude(Location location, Location foundLocation) {
-        return foundLocation.getLongitude() == null && location.getLongitude() == null
-                || location.getLongitude() != null && location.getLongitude().equals(foundLocation.getLongitude());
+        return matchingLocation == null ? null : new LocationNode(matchingLocation);
     }
 
-
-    private Node findLocationByLatitude(Location location) throws NodeFactoryException {
-        Node matchingLocation = null;
-        validate(location);
-        QueryContext queryOrQueryObject = QueryContext.numericRange(LocationConstant.LATITUDE, location.getLatitude(), location.getLatitude());
-        try (Transaction transaction = getGraphDb().beginTx()) {
-            IndexHits<Node> matchingLocations = locations.query(queryOrQueryObject);
-            for (Node node : matchingLocations) {
-                final LocationNode foundLocation = new LocationNode(node);
-                if (isSameLocation(location, foundLocation)) {
-                    matchingLocation = node;
-                    break;
-                }
-            }
-            matchingLocations.close();
-            transaction.success();
-        }
-        return matchingLocation;
+    private boolean hasLatLng(Location location) {
+        return location.getLatitude() != null && location.getLongitude() != null;
     }
 
     @Override
     public SeasonNode createSeason(String seasonNameLower) {
         SeasonNode season;
         try (Transaction transaction = graphDb.beginTx()) {
-            Node node = graphDb.createNode();
+            Node node = createNode();
             season = new SeasonNode(node, seasonNameLower);
             seasons.add(node, SeasonNode.TITLE, seasonNameLower);
             transaction.success();
@@ -214,7 +172,7 @@ public class NodeFactoryNeo4j implements NodeFactory {
         LocationNode locationNode;
 
         try (Transaction transaction = graphDb.beginTx()) {
-            Node node = graphDb.createNode();
+            Node node = createNode();
             locationNode = new LocationNode(node, fromLocation(location));
             if (location.getLatitude() != null) {
                 locations.add(node, LocationConstant.LATITUDE, ValueContext.numeric(location.getLatitude()));
@@ -234,6 +192,11 @@ public class NodeFactoryNeo4j implements NodeFactory {
             if (StringUtils.isNotBlank(location.getLocalityId())) {
                 locations.add(node, LocationConstant.LOCALITY_ID, location.getLocalityId());
             }
+            locationCache.add(locationNode, node);
+            BatchTransactionNeo4j batch = currentBatch;
+            if (batch != null) {
+                batch.locationCreated(locationNode, node);
+            }
             transaction.success();
         }
         return locationNode;
@@ -314,7 +277,7 @@ public class NodeFactoryNeo4j implements NodeFactory {
     private SpecimenNode createSpecimen() {
         SpecimenNode specimen;
         try (Transaction transaction = graphDb.beginTx()) {
-            specimen = new SpecimenNode(graphDb.createNode(), null);
+            specimen = new SpecimenNode(createNode(), null);
             transaction.success();
         }
         return specimen;
@@ -326,7 +289,7 @@ public class NodeFactoryNeo4j implements NodeFactory {
         StudyNode studyNode;
 
         try (Transaction transaction = graphDb.beginTx()) {
-            Node node = graphDb.createNode();
+            Node node = createNode();
             studyNode = new StudyNode(node, study.getTitle());
             studyNode.setCitation(study.getCitation());
             studyNode.setDOI(study.getDOI());
@@ -369,7 +332,7 @@ public class NodeFactoryNeo4j implements NodeFactory {
     }
 
     private Node createDatasetNode(Dataset dataset) {
-        Node datasetNode = graphDb.createNode();
+        Node datasetNode = createNode();
         datasetNode.setProperty(DatasetConstant.NAMESPACE, dataset.getNamespace());
         URI archiveURI = dataset.getArchiveURI();
         if (archiveURI != null) {
@@ -399,12 +362,16 @@ public class NodeFactoryNeo4j implements NodeFactory {
         datasetNode.setProperty(DatasetConstant.CITATION, StringUtils.defaultIfBlank(dataset.getCitation(), "no citation"));
         datasetNode.setProperty(DatasetConstant.SHOULD_RESOLVE_REFERENCES, dataset.getOrDefault(DatasetConstant.SHOULD_RESOLVE_REFERENCES, "true"));
         datasetNode.setProperty(DatasetConstant.LAST_SEEN_AT, dataset.getOrDefault(DatasetConstant.LAST_SEEN_AT, Long.toString(System.currentTimeMillis())));
+        String contentHash = dataset.getOrDefault(DatasetConstant.CONTENT_HASH, null);
+        if (StringUtils.isNotBlank(contentHash)) {
+            datasetNode.setProperty(DatasetConstant.CONTENT_HASH, contentHash);
+        }
         datasets.add(datasetNode, DatasetConstant.NAMESPACE, dataset.getNamespace());
         return datasetNode;
     }
 
     private Node createExternalId(String externalId) {
-        Node externalIdNode = graphDb.createNode();
+        Node externalIdNode = createNode();
         externalIdNode.setProperty(PropertyAndValueDictionary.EXTERNAL_ID, externalId);
         externalIds.add(externalIdNode, PropertyAndValueDictionary.EXTERNAL_ID, externalId);
         return externalIdNode;
@@ -552,7 +519,7 @@ public class NodeFactoryNeo4j implements NodeFactory {
             Environment environment = findEnvironment(term.getName());
             if (environment == null) {
                 try (Transaction transaction = graphDb.beginTx()) {
-                    EnvironmentNode environmentNode = new EnvironmentNode(graphDb.createNode(), term.getId(), term.getName());
+                    EnvironmentNode environmentNode = new EnvironmentNode(createNode(), term.getId(), term.getName());
                     environments.add(environmentNode.getUnderlyingNode(), PropertyAndValueDictionary.NAME, term.getName());
                     transaction.success();
                     environment = environmentNode;
@@ -641,8 +608,8 @@ public class NodeFactoryNeo4j implements NodeFactory {
     public Interaction createInteraction(Study study) throws NodeFactoryException {
         InteractionNode interactionNode;
         try (Transaction transaction = graphDb.beginTx()) {
-            Node node = graphDb.createNode();
             StudyNode studyNode = getOrCreateStudy(study);
+            Node node = createNode();
             interactionNode = new InteractionNode(node);
             interactionNode.createRelationshipTo(studyNode, RelTypes.DERIVED_FROM);
             Dataset dataset = getOrCreateDatasetNoTx(study.getOriginatingDataset());
@@ -651,6 +618,7 @@ public class NodeFactoryNeo4j implements NodeFactory {
             }
             transaction.success();
         }
+        interactionsCreated.incrementAndGet();
         return interactionNode;
     }
 
@@ -679,5 +647,52 @@ public class NodeFactoryNeo4j implements NodeFactory {
         }
         return datasetCreated;
     }
-}
 
+    private class BatchTransactionNeo4j implements BatchTransaction {
+        private final Transaction transaction;
+        private final long startedAt = System.currentTimeMillis();
+        private final long nodesAtStart = nodesCreated.get();
+        private final long interactionsAtStart = interactionsCreated.get();
+        private final Map<String, Long> locationsCreated = new HashMap<>();
+        private boolean success = false;
+
+        BatchTransactionNeo4j(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        @Override
+        public void success() {
+            success = true;
+            transaction.success();
+        }
+
+        @Override
+        public boolean isFull() {
+            return nodesCreated.get() - nodesAtStart >= maxNodesPerBatch;
+        }
+
+        void locationCreated(Location location, Node node) {
+            locationsCreated.put(LocationCache.keyFor(location), node.getId());
+        }
+
+        @Override
+        public void close() {
+            boolean committed = false;
+            StageMetrics stage = metrics.currentStage();
+            try {
+                stage.commit(transaction);
+                committed = success;
+            } finally {
+                if (committed) {
+                    stage.batchCompleted(interactionsCreated.get() - interactionsAtStart, System.currentTimeMillis() - startedAt);
+                } else {
+                    // locations cached in this batch no longer exist
+                    locationsCreated.forEach(locationCache::remove);
+                }
+                if (currentBatch == this) {
+                    currentBatch = null;
+                }
+            }
+        }
+    }
+}
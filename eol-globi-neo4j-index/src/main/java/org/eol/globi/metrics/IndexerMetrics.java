@@ -0,0 +1,162 @@
+package org.eol.globi.metrics;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.eol.globi.util.CSVTSVUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the metrics of the stages of an indexing run and writes them to a json and csv run report.
+ * <p>
+ * Stages are started and stopped by {@link org.eol.globi.tool.IndexerTimed}. Code running within a stage
+ * reports into it through {@link #currentStage()}, which returns the innermost running stage of the run.
+ * Metrics reported outside of any stage are collected in an "unstaged" stage.
+ */
+public class IndexerMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexerMetrics.class);
+
+    public static final String REPORT_NAME = "indexer-metrics";
+
+    private static final String UNSTAGED = "unstaged";
+
+    private final List<StageMetrics> stages = new ArrayList<>();
+    private final Deque<StageMetrics> runningStages = new ArrayDeque<>();
+    private final StageMetrics unstaged = new StageMetrics(UNSTAGED);
+    private final List<ObjectName> registeredMBeans = new ArrayList<>();
+
+    private boolean jmxEnabled = false;
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public synchronized StageMetrics startStage(String name) {
+        StageMetrics parent = runningStages.peek();
+        String stageName = uniqueNameFor(parent == null ? name : parent.getName() + "/" + name);
+        StageMetrics stage = new StageMetrics(stageName);
+        stage.start();
+        stages.add(stage);
+        runningStages.push(stage);
+        if (isJmxEnabled()) {
+            registerMBean(stage);
+        }
+        return stage;
+    }
+
+    public synchronized void stopStage(StageMetrics stage) {
+        stage.stop();
+        runningStages.remove(stage);
+    }
+
+    public synchronized StageMetrics currentStage() {
+        StageMetrics current = runningStages.peek();
+        return current == null ? unstaged : current;
+    }
+
+    public synchronized List<StageMetrics> getStages() {
+        List<StageMetrics> allStages = new ArrayList<>(stages);
+        if (unstaged.getItemsProcessed() > 0 || unstaged.getCommitCount() > 0 || unstaged.getBatchCount() > 0) {
+            allStages.add(unstaged);
+        }
+        return Collections.unmodifiableList(allStages);
+    }
+
+    public void writeReport(File dir) throws IOException {
+        List<Map<String, Object>> stageValues = new ArrayList<>();
+        for (StageMetrics stage : getStages()) {
+            stageValues.add(stage.toMap());
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("stages", stageValues);
+        File jsonReport = new File(dir, REPORT_NAME + ".json");
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(jsonReport, report);
+
+        StringBuilder csv = new StringBuilder("stage,metric,value\n");
+        for (Map<String, Object> stage : stageValues) {
+            appendCSV(csv, String.valueOf(stage.get("name")), "", stage);
+        }
+        File csvReport = new File(dir, REPORT_NAME + ".csv");
+        FileUtils.writeStringToFile(csvReport, csv.toString(), StandardCharsets.UTF_8);
+
+        LOG.info("wrote indexer metrics to [" + jsonReport.getAbsolutePath() + "] and [" + csvReport.getAbsolutePath() + "]");
+    }
+
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registeredMBeans) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warn("failed to unregister [" + objectName + "]", e);
+            }
+        }
+        registeredMBeans.clear();
+    }
+
+    private String uniqueNameFor(String name) {
+        String uniqueName = name;
+        int suffix = 1;
+        while (hasStage(uniqueName)) {
+            uniqueName = name + "#" + (++suffix);
+        }
+        return uniqueName;
+    }
+
+    private boolean hasStage(String name) {
+        for (StageMetrics stage : stages) {
+            if (stage.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void registerMBean(StageMetrics stage) {
+        try {
+            ObjectName objectName = new ObjectName("org.eol.globi:type=IndexerStage,name=" + ObjectName.quote(stage.getName()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stage, objectName);
+            registeredMBeans.add(objectName);
+        } catch (JMException e) {
+            LOG.warn("failed to register metrics of stage [" + stage.getName() + "] with jmx", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendCSV(StringBuilder csv, String stageName, String prefix, Map<String, ?> values) {
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            String metric = prefix + entry.getKey();
+            if (entry.getValue() instanceof Map) {
+                appendCSV(csv, stageName, metric + ".", (Map<String, ?>) entry.getValue());
+            } else if (!"name".equals(metric)) {
+                csv.append('"').append(CSVTSVUtil.escapeCSV(stageName)).append('"')
+                        .append(',')
+                        .append(metric)
+                        .append(',')
+                        .append(entry.getValue())
+                        .append('\n');
+            }
+        }
+    }
+
+}
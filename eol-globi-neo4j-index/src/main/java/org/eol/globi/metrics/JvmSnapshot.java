@@ -0,0 +1,68 @@
+package org.eol.globi.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Heap usage and accumulated garbage collection counts and times at a point in time.
+ */
+public class JvmSnapshot {
+
+    private final long heapUsed;
+    private final long heapCommitted;
+    private final long heapMax;
+    private final long gcCount;
+    private final long gcTimeMillis;
+
+    JvmSnapshot(long heapUsed, long heapCommitted, long heapMax, long gcCount, long gcTimeMillis) {
+        this.heapUsed = heapUsed;
+        this.heapCommitted = heapCommitted;
+        this.heapMax = heapMax;
+        this.gcCount = gcCount;
+        this.gcTimeMillis = gcTimeMillis;
+    }
+
+    public static JvmSnapshot take() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long gcCount = 0;
+        long gcTimeMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcTimeMillis += Math.max(0, gc.getCollectionTime());
+        }
+        return new JvmSnapshot(heap.getUsed(), heap.getCommitted(), heap.getMax(), gcCount, gcTimeMillis);
+    }
+
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    public long getHeapCommitted() {
+        return heapCommitted;
+    }
+
+    public long getHeapMax() {
+        return heapMax;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    public Map<String, Number> toMap() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        values.put("heapUsed", getHeapUsed());
+        values.put("heapCommitted", getHeapCommitted());
+        values.put("heapMax", getHeapMax());
+        values.put("gcCount", getGcCount());
+        values.put("gcTimeMillis", getGcTimeMillis());
+        return values;
+    }
+}
@@ -0,0 +1,83 @@
+package org.eol.globi.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in milliseconds, using buckets with power of two bounds
+ * (0, 1, 2-3, 4-7, 8-15ms, ...). Percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    private static final int NUMBER_OF_BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(long durationMillis) {
+        long duration = Math.max(0, durationMillis);
+        buckets.incrementAndGet(bucketFor(duration));
+        count.incrementAndGet();
+        sum.addAndGet(duration);
+        max.accumulateAndGet(duration, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0.0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile in range [0, 100]
+     * @return upper bound in milliseconds of the bucket that contains the percentile, or 0 if no durations were recorded
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        long percentileValue = 0;
+        if (n > 0) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+            long seen = 0;
+            for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    percentileValue = Math.min(upperBoundOf(i), getMax());
+                    break;
+                }
+            }
+        }
+        return percentileValue;
+    }
+
+    public Map<String, Number> toMap() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        values.put("count", getCount());
+        values.put("mean", getMean());
+        values.put("p50", getPercentile(50));
+        values.put("p90", getPercentile(90));
+        values.put("p99", getPercentile(99));
+        values.put("max", getMax());
+        return values;
+    }
+
+    static int bucketFor(long durationMillis) {
+        int bucket = durationMillis == 0 ? 0 : 64 - Long.numberOfLeadingZeros(durationMillis);
+        return Math.min(bucket, NUMBER_OF_BUCKETS - 1);
+    }
+
+    static long upperBoundOf(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+}
@@ -0,0 +1,183 @@
+package org.eol.globi.metrics;
+
+import org.neo4j.graphdb.Transaction;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of a single indexing stage: items processed, per-batch latencies, transaction commit
+ * times, cache lookups and heap/gc at the start and end of the stage.
+ * <p>
+ * Metrics can be reported concurrently by the workers of a stage.
+ */
+public class StageMetrics implements StageMetricsMXBean {
+
+    private final String name;
+
+    private final AtomicLong itemsProcessed = new AtomicLong(0);
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram commitTime = new LatencyHistogram();
+    private final Map<String, AtomicLong[]> cacheLookups = new ConcurrentHashMap<>();
+
+    private volatile long startedAt;
+    private volatile long stoppedAt = -1;
+    private volatile JvmSnapshot jvmAtStart;
+    private volatile JvmSnapshot jvmAtStop;
+
+    StageMetrics(String name) {
+        this.name = name;
+    }
+
+    void start() {
+        jvmAtStart = JvmSnapshot.take();
+        startedAt = System.currentTimeMillis();
+    }
+
+    void stop() {
+        stoppedAt = System.currentTimeMillis();
+        jvmAtStop = JvmSnapshot.take();
+    }
+
+    public void itemsProcessed(long numberOfItems) {
+        itemsProcessed.addAndGet(numberOfItems);
+    }
+
+    public void batchCompleted(long numberOfItems, long durationMillis) {
+        itemsProcessed(numberOfItems);
+        batchLatency.record(durationMillis);
+    }
+
+    public void transactionCommitted(long durationMillis) {
+        commitTime.record(durationMillis);
+    }
+
+    /**
+     * Closes the provided transaction and records how long it took.
+     * Like {@link Transaction#close()}, the transaction is only committed if it was marked successful.
+     */
+    public void commit(Transaction transaction) {
+        long start = System.nanoTime();
+        try {
+            transaction.close();
+        } finally {
+            transactionCommitted(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    public void cacheLookups(String cacheName, long hits, long misses) {
+        AtomicLong[] hitsAndMisses = cacheLookups.computeIfAbsent(cacheName, k -> new AtomicLong[]{new AtomicLong(0), new AtomicLong(0)});
+        hitsAndMisses[0].addAndGet(hits);
+        hitsAndMisses[1].addAndGet(misses);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getItemsProcessed() {
+        return itemsProcessed.get();
+    }
+
+    @Override
+    public double getItemsPerSecond() {
+        long duration = getDurationMillis();
+        return duration > 0 ? 1000.0 * getItemsProcessed() / duration : 0.0;
+    }
+
+    @Override
+    public long getDurationMillis() {
+        long start = startedAt;
+        long end = isRunning() ? System.currentTimeMillis() : stoppedAt;
+        return start > 0 ? end - start : 0;
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batchLatency.getCount();
+    }
+
+    @Override
+    public long getBatchLatencyP99Millis() {
+        return batchLatency.getPercentile(99);
+    }
+
+    @Override
+    public long getCommitCount() {
+        return commitTime.getCount();
+    }
+
+    @Override
+    public long getCommitTimeP99Millis() {
+        return commitTime.getPercentile(99);
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = 0;
+        long total = 0;
+        for (AtomicLong[] hitsAndMisses : cacheLookups.values()) {
+            hits += hitsAndMisses[0].get();
+            total += hitsAndMisses[0].get() + hitsAndMisses[1].get();
+        }
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stoppedAt < 0;
+    }
+
+    public LatencyHistogram getBatchLatency() {
+        return batchLatency;
+    }
+
+    public LatencyHistogram getCommitTime() {
+        return commitTime;
+    }
+
+    public JvmSnapshot getJvmAtStart() {
+        return jvmAtStart;
+    }
+
+    public JvmSnapshot getJvmAtStop() {
+        return jvmAtStop;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("name", getName());
+        values.put("durationMillis", getDurationMillis());
+        values.put("itemsProcessed", getItemsProcessed());
+        values.put("itemsPerSecond", getItemsPerSecond());
+        values.put("batchLatencyMillis", batchLatency.toMap());
+        values.put("commitTimeMillis", commitTime.toMap());
+
+        Map<String, Object> caches = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong[]> cache : cacheLookups.entrySet()) {
+            long hits = cache.getValue()[0].get();
+            long misses = cache.getValue()[1].get();
+            Map<String, Number> cacheValues = new LinkedHashMap<>();
+            cacheValues.put("hits", hits);
+            cacheValues.put("misses", misses);
+            cacheValues.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+            caches.put(cache.getKey(), cacheValues);
+        }
+        values.put("caches", caches);
+
+        if (jvmAtStart != null) {
+            values.put("jvmAtStart", jvmAtStart.toMap());
+        }
+        if (jvmAtStop != null) {
+            values.put("jvmAtStop", jvmAtStop.toMap());
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.eol.globi.metrics;
+
+public interface StageMetricsMXBean {
+
+    String getName();
+
+    long getItemsProcessed();
+
+    double getItemsPerSecond();
+
+    long getDurationMillis();
+
+    long getBatchCount();
+
+    long getBatchLatencyP99Millis();
+
+    long getCommitCount();
+
+    long getCommitTimeP99Millis();
+
+    double getCacheHitRate();
+
+    boolean isRunning();
+}
@@ -0,0 +1,410 @@
+package org.eol.globi.tool;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.eol.globi.data.StudyImporterException;
+import org.eol.globi.util.CSVTSVUtil;
+import org.eol.globi.util.DateUtil;
+import org.eol.globi.util.ResourceUtil;
+import org.globalbioticinteractions.cache.CacheUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Keeps track of completed indexing stages, so that a rerun can resume at the first incomplete stage.
+ * <p>
+ * Each stage is recorded with a fingerprint of its inputs in a tsv file kept in the graph store directory: as started
+ * when it starts, and as completed, or failed if it reported failures, when it ends. A stage is skipped if it completed
+ * before with the same input fingerprint and no earlier stage had to be (re-)run in the current run: once a stage runs,
+ * all subsequent stages run also, because they build on the graph produced by it. For the same reason, the
+ * checkpoints of stages that write files derived from the graph are dropped whenever a stage that writes to the graph
+ * runs, even if those file stages are not part of the current run.
+ * <p>
+ * Because stages are not idempotent, a run only resumes at a clean stage boundary, that is, on a graph that holds
+ * the writes of the skipped stages, and nothing else. Otherwise, e.g., after a stage failed half-way or changed inputs
+ * of a stage that completed before, the graph is restored from the snapshot taken at the start of the last stage, if
+ * enabled, or rebuilt from scratch, re-running the stages skipped so far.
+ */
+public class IndexerCheckpoints {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexerCheckpoints.class);
+
+    public static final String CHECKPOINTS_FILENAME = "indexer-checkpoints.tsv";
+
+    private static final String STARTED = "started";
+    private static final String COMPLETED = "completed";
+    private static final String FAILED = "failed";
+
+    private static final String TARGET_GRAPH = "graph";
+    private static final String TARGET_FILES = "files";
+
+    private final File storeDir;
+    private final File checkpointFile;
+    private final Map<String, Checkpoint> checkpoints = new LinkedHashMap<>();
+    private final List<SkippedStage> skippedStages = new ArrayList<>();
+
+    private boolean resuming = true;
+    private boolean rebuildable = true;
+    private File snapshotDir = null;
+    private Runnable graphShutdown = () -> {
+    };
+
+    public interface Stage {
+        /**
+         * @return true if the stage completed without failures, false if it completed, but reported failures
+         */
+        boolean run() throws StudyImporterException;
+    }
+
+    public interface Fingerprint {
+        String calculate() throws IOException;
+    }
+
+    public IndexerCheckpoints(File storeDir) throws IOException {
+        this.storeDir = storeDir;
+        this.checkpointFile = new File(storeDir, CHECKPOINTS_FILENAME);
+        load();
+    }
+
+    public void setResuming(boolean resuming) {
+        this.resuming = resuming;
+    }
+
+    public boolean isResuming() {
+        return resuming;
+    }
+
+    /**
+     * @param rebuildable false if the graph cannot be rebuilt by the stages of this run, e.g., if the import of
+     *                    datasets is skipped, in which case a run fails rather than rebuilding the graph
+     */
+    public void setRebuildable(boolean rebuildable) {
+        this.rebuildable = rebuildable;
+    }
+
+    /**
+     * @param snapshotDir location of a copy of the graph store taken at the start of each stage, or null to not keep
+     *                    snapshots
+     */
+    public void setSnapshotDir(File snapshotDir) {
+        this.snapshotDir = snapshotDir;
+    }
+
+    /**
+     * @param graphShutdown closes the graph store, so that it can be copied, restored or cleared; the graph store is
+     *                      expected to re-open on next use
+     */
+    public void setGraphShutdown(Runnable graphShutdown) {
+        this.graphShutdown = graphShutdown;
+    }
+
+    public boolean isCompleted(String stageName, String fingerprint) {
+        Checkpoint checkpoint = checkpoints.get(stageName);
+        return checkpoint != null
+                && StringUtils.equals(checkpoint.status, COMPLETED)
+                && StringUtils.equals(checkpoint.fingerprint, fingerprint);
+    }
+
+    /**
+     * Runs a stage that writes to the graph, unless it can be skipped.
+     */
+    public void run(String stageName, Fingerprint inputs, Stage stage) throws StudyImporterException {
+        String fingerprint = calculateFingerprint(stageName, inputs);
+        if (isResuming() && isCompleted(stageName, fingerprint)) {
+            LOG.info("skipping [" + stageName + "]: inputs unchanged since completion at [" + checkpoints.get(stageName).recordedAt + "]");
+            skippedStages.add(new SkippedStage(stageName, fingerprint, stage));
+        } else {
+            if (isResuming()) {
+                setResuming(false);
+                resumeAtStageBoundary();
+            }
+            runStage(stageName, fingerprint, stage);
+        }
+    }
+
+    /**
+     * Runs a stage that only writes files derived from the graph, unless it can be skipped. Such a stage is also
+     * re-run if its outputs changed, e.g., because they were removed, since it completed.
+     */
+    public void run(String stageName, Fingerprint inputs, Fingerprint outputs, Stage stage) throws StudyImporterException {
+        String fingerprint = calculateFingerprint(stageName, inputs);
+        if (isResuming() && isCompleted(stageName, withOutputs(stageName, fingerprint, outputs))) {
+            LOG.info("skipping [" + stageName + "]: inputs and outputs unchanged since completion at [" + checkpoints.get(stageName).recordedAt + "]");
+        } else {
+            checkpoints.put(stageName, new Checkpoint(fingerprint, STARTED, TARGET_FILES));
+            save();
+            boolean completed = stage.run();
+            checkpoints.put(stageName, new Checkpoint(withOutputs(stageName, fingerprint, outputs), completed ? COMPLETED : FAILED, TARGET_FILES));
+            save();
+            logFailures(stageName, completed);
+        }
+    }
+
+    private void runStage(String stageName, String fingerprint, Stage stage) throws StudyImporterException {
+        checkpoints.remove(stageName);
+        // files derived from the graph are outdated once the graph changes
+        checkpoints.values().removeIf(checkpoint -> StringUtils.equals(checkpoint.target, TARGET_FILES));
+        save();
+        if (snapshotDir != null) {
+            takeSnapshot();
+        }
+        checkpoints.put(stageName, new Checkpoint(fingerprint, STARTED, TARGET_GRAPH));
+        save();
+        boolean completed = stage.run();
+        checkpoints.put(stageName, new Checkpoint(fingerprint, completed ? COMPLETED : FAILED, TARGET_GRAPH));
+        save();
+        logFailures(stageName, completed);
+    }
+
+    private static void logFailures(String stageName, boolean completed) {
+        if (!completed) {
+            LOG.warn("[" + stageName + "] reported failures: not marking it as completed, so that it runs again in next run");
+        }
+    }
+
+    private void resumeAtStageBoundary() throws StudyImporterException {
+        int stagesInGraph = stagesInGraph();
+        if (stagesInGraph < 0 && snapshotDir != null && snapshotDir.isDirectory()) {
+            LOG.info("graph holds writes of stages that were not skipped: restoring snapshot [" + snapshotDir.getAbsolutePath() + "]");
+            restoreSnapshot();
+            stagesInGraph = stagesInGraph();
+        }
+        if (stagesInGraph < 0) {
+            rebuild();
+            stagesInGraph = 0;
+        }
+        for (SkippedStage skipped : skippedStages.subList(stagesInGraph, skippedStages.size())) {
+            LOG.info("re-running [" + skipped.name + "] to resume at a clean stage boundary");
+            runStage(skipped.name, skipped.fingerprint, skipped.stage);
+        }
+        skippedStages.clear();
+    }
+
+    /**
+     * @return number of leading skipped stages that the graph holds the writes of, or -1 if the graph also holds
+     * (partial) writes of other stages
+     */
+    private int stagesInGraph() {
+        int stagesInGraph = 0;
+        while (stagesInGraph < skippedStages.size()
+                && isCompleted(skippedStages.get(stagesInGraph).name, skippedStages.get(stagesInGraph).fingerprint)) {
+            stagesInGraph++;
+        }
+        long stagesRecorded = checkpoints.values()
+                .stream()
+                .filter(checkpoint -> StringUtils.equals(checkpoint.target, TARGET_GRAPH))
+                .count();
+        return stagesRecorded == stagesInGraph ? stagesInGraph : -1;
+    }
+
+    private void rebuild() throws StudyImporterException {
+        if (!rebuildable) {
+            throw new StudyImporterException("graph in [" + storeDir.getAbsolutePath() + "] holds (partial) writes of stages " + checkpoints.keySet()
+                    + " that cannot be rebuilt by this run: please provide a graph at a clean stage boundary, or ignore checkpoints");
+        }
+        LOG.info("graph holds writes of stages that were not skipped: rebuilding graph in [" + storeDir.getAbsolutePath() + "] from scratch");
+        graphShutdown.run();
+        try {
+            FileUtils.deleteDirectory(storeDir);
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to clear graph in [" + storeDir.getAbsolutePath() + "]", e);
+        }
+        checkpoints.clear();
+        save();
+    }
+
+    private void takeSnapshot() throws StudyImporterException {
+        graphShutdown.run();
+        File tmpDir = new File(snapshotDir.getParentFile(), snapshotDir.getName() + ".tmp");
+        try {
+            FileUtils.deleteDirectory(tmpDir);
+            FileUtils.copyDirectory(storeDir, tmpDir);
+            FileUtils.deleteDirectory(snapshotDir);
+            FileUtils.moveDirectory(tmpDir, snapshotDir);
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to take snapshot of graph in [" + storeDir.getAbsolutePath() + "]", e);
+        }
+    }
+
+    private void restoreSnapshot() throws StudyImporterException {
+        graphShutdown.run();
+        try {
+            FileUtils.deleteDirectory(storeDir);
+            FileUtils.copyDirectory(snapshotDir, storeDir);
+            load();
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to restore snapshot [" + snapshotDir.getAbsolutePath() + "]", e);
+        }
+    }
+
+    private String calculateFingerprint(String stageName, Fingerprint inputs) throws StudyImporterException {
+        try {
+            return inputs.calculate();
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to calculate input fingerprint of [" + stageName + "]", e);
+        }
+    }
+
+    private String withOutputs(String stageName, String fingerprint, Fingerprint outputs) throws StudyImporterException {
+        try {
+            return sha256(fingerprint + "\n" + outputs.calculate());
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to calculate output fingerprint of [" + stageName + "]", e);
+        }
+    }
+
+    private void load() throws IOException {
+        checkpoints.clear();
+        if (checkpointFile.exists()) {
+            for (String line : FileUtils.readLines(checkpointFile, StandardCharsets.UTF_8)) {
+                String[] values = CSVTSVUtil.splitTSV(line);
+                if (values.length > 2) {
+                    // checkpoints without status and target were recorded on completion of stages writing to the graph
+                    checkpoints.put(values[0], new Checkpoint(values[1], values[2],
+                            values.length > 3 ? values[3] : COMPLETED,
+                            values.length > 4 ? values[4] : TARGET_GRAPH));
+                }
+            }
+        }
+    }
+
+    private void save() throws StudyImporterException {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, Checkpoint> checkpoint : checkpoints.entrySet()) {
+            lines.append(checkpoint.getKey())
+                    .append('\t')
+                    .append(checkpoint.getValue().fingerprint)
+                    .append('\t')
+                    .append(checkpoint.getValue().recordedAt)
+                    .append('\t')
+                    .append(checkpoint.getValue().status)
+                    .append('\t')
+                    .append(checkpoint.getValue().target)
+                    .append('\n');
+        }
+        try {
+            FileUtils.writeStringToFile(checkpointFile, lines.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to save indexer checkpoints to [" + checkpointFile.getAbsolutePath() + "]", e);
+        }
+    }
+
+    public static String noInputs() {
+        return sha256("");
+    }
+
+    /**
+     * @return fingerprint of the set of dataset versions (namespace and content sha256) found in the access logs
+     * of the provided dataset cache
+     */
+    public static String datasetFingerprint(File datasetDir) throws IOException {
+        SortedSet<String> datasetVersions = new TreeSet<>();
+        if (datasetDir.isDirectory()) {
+            Collection<File> accessLogs = FileUtils.listFiles(datasetDir, new String[]{"tsv"}, true);
+            for (File accessLog : accessLogs) {
+                if (StringUtils.equals(accessLog.getName(), "access.tsv")) {
+                    List<String> lines = FileUtils.readLines(accessLog, StandardCharsets.UTF_8);
+                    for (String line : lines) {
+                        String[] values = CSVTSVUtil.splitTSV(line);
+                        if (values.length > 2 && StringUtils.isNotBlank(values[2])) {
+                            datasetVersions.add(values[0] + "\t" + values[2]);
+                        }
+                    }
+                }
+            }
+        }
+        return sha256(StringUtils.join(datasetVersions, "\n"));
+    }
+
+    /**
+     * @return fingerprint of the content of the provided resources
+     */
+    public static String resourceFingerprint(String... resources) throws IOException {
+        StringBuilder contentHashes = new StringBuilder();
+        for (String resource : resources) {
+            try (InputStream is = ResourceUtil.asInputStream(resource)) {
+                contentHashes.append(is == null ? "" : CacheUtil.calculateContentHash(is, new NullOutputStream()));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("failed to calculate hash of [" + resource + "]", e);
+            } catch (IOException e) {
+                LOG.warn("failed to read [" + resource + "], assuming it is unavailable", e);
+            }
+            contentHashes.append('\n');
+        }
+        return sha256(contentHashes.toString());
+    }
+
+    /**
+     * @return fingerprint of the provided option values
+     */
+    public static String optionFingerprint(String... options) {
+        return sha256(StringUtils.join(options, "\n"));
+    }
+
+    /**
+     * @return fingerprint of the existence and size of the provided files
+     */
+    public static String fileFingerprint(Collection<File> files) {
+        StringBuilder fileStates = new StringBuilder();
+        for (File file : files) {
+            fileStates.append(file.getPath())
+                    .append('\t')
+                    .append(file.isFile() ? file.length() : -1)
+                    .append('\n');
+        }
+        return sha256(fileStates.toString());
+    }
+
+    private static String sha256(String value) {
+        try {
+            return CacheUtil.calculateContentHash(new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8)), new NullOutputStream());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException("failed to calculate sha256 hash", e);
+        }
+    }
+
+    private static final class Checkpoint {
+        private final String fingerprint;
+        private final String recordedAt;
+        private final String status;
+        private final String target;
+
+        Checkpoint(String fingerprint, String status, String target) {
+            this(fingerprint, DateUtil.nowDateString(), status, target);
+        }
+
+        Checkpoint(String fingerprint, String recordedAt, String status, String target) {
+            this.fingerprint = fingerprint;
+            this.recordedAt = recordedAt;
+            this.status = status;
+            this.target = target;
+        }
+    }
+
+    private static final class SkippedStage {
+        private final String name;
+        private final String fingerprint;
+        private final Stage stage;
+
+        SkippedStage(String name, String fingerprint, Stage stage) {
+            this.name = name;
+            this.fingerprint = fingerprint;
+            this.stage = stage;
+        }
+    }
+
+}
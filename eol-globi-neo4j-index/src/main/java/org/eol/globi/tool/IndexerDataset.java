@@ -10,6 +10,7 @@ import org.eol.globi.data.NodeFactoryNeo4j;
 import org.eol.globi.data.ParserFactoryLocal;
 import org.eol.globi.data.StudyImporterException;
 import org.eol.globi.db.GraphServiceFactory;
+import org.eol.globi.metrics.IndexerMetrics;
 import org.eol.globi.service.DOIResolverImpl;
 import org.eol.globi.service.DatasetLocal;
 import org.globalbioticinteractions.dataset.DatasetRegistry;
@@ -23,6 +24,9 @@ public class IndexerDataset implements IndexerNeo4j {
     private static final Logger LOG = LoggerFactory.getLogger(IndexerDataset.class);
 
     private final DatasetRegistry registry;
+    private int numberOfWorkers = 1;
+    private boolean failures = false;
+    private IndexerMetrics metrics = new IndexerMetrics();
 
     public IndexerDataset(DatasetRegistry registry) {
         this.registry = registry;
@@ -30,10 +34,28 @@ public class IndexerDataset implements IndexerNeo4j {
 
     @Override
     public void index(GraphServiceFactory graphService) {
-        indexDatasets(graphService, this.registry);
+        failures = !indexDatasets(graphService, this.registry, getNumberOfWorkers(), metrics);
     }
 
-    private static void indexDatasets(GraphServiceFactory factory, DatasetRegistry registry) {
+    @Override
+    public boolean hasFailures() {
+        return failures;
+    }
+
+    public int getNumberOfWorkers() {
+        return numberOfWorkers;
+    }
+
+    public void setNumberOfWorkers(int numberOfWorkers) {
+        this.numberOfWorkers = numberOfWorkers;
+    }
+
+    @Override
+    public void setMetrics(IndexerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private static boolean indexDatasets(GraphServiceFactory factory, DatasetRegistry registry, int numberOfWorkers, IndexerMetrics metrics) {
         try {
             final Collection<String> namespaces = registry.findNamespaces();
 
@@ -42,15 +64,19 @@ public class IndexerDataset implements IndexerNeo4j {
 
             final GraphDatabaseService graphService1 = factory.getGraphService();
             NodeFactoryNeo4j nodeFactory = new NodeFactoryNeo4j(graphService1);
+            nodeFactory.setMetrics(metrics);
 
             DatasetImporterForRegistry importer = new DatasetImporterForRegistry(new ParserFactoryLocal(), nodeFactory, registry);
             importer.setDatasetFilter(x -> !DatasetUtil.isDeprecated(x));
             importer.setDataset(new DatasetLocal(inStream -> inStream));
             importer.setLogger(new NullImportLogger());
+            importer.setNumberOfWorkers(numberOfWorkers);
+            importer.setTransactionFactory(nodeFactory::beginBatch);
             importer.importStudy();
-
+            return true;
         } catch (DatasetRegistryException | StudyImporterException e) {
             LOG.error("problem encountered while importing [" + DatasetImporterForRegistry.class.getName() + "]", e);
+            return false;
         }
     }
 
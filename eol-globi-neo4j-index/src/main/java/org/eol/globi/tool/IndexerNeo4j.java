@@ -1,9 +1,23 @@
 package org.eol.globi.tool;
 
 import org.eol.globi.db.GraphServiceFactory;
+import org.eol.globi.metrics.IndexerMetrics;
 
 public interface IndexerNeo4j {
 
     void index(GraphServiceFactory graphServiceFactory);
 
+    /**
+     * @return true if the last run reported failures that it recovered from, e.g., datasets that failed to import
+     */
+    default boolean hasFailures() {
+        return false;
+    }
+
+    /**
+     * @param metrics run metrics to report into, ignored by indexers that do not report metrics
+     */
+    default void setMetrics(IndexerMetrics metrics) {
+    }
+
 }
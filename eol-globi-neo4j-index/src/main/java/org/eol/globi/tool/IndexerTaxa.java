@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.eol.globi.db.GraphServiceFactory;
 import org.eol.globi.domain.Taxon;
+import org.eol.globi.metrics.IndexerMetrics;
 import org.eol.globi.opentree.OpenTreeTaxonIndex;
 import org.eol.globi.taxon.ResolvingTaxonIndex;
 import org.eol.globi.taxon.TaxonCacheService;
@@ -19,12 +20,13 @@ public class IndexerTaxa implements IndexerNeo4j {
     private static final Logger LOG = LoggerFactory.getLogger(IndexerTaxa.class);
 
     private final TaxonCacheService taxonCacheService;
+    private IndexerMetrics metrics = new IndexerMetrics();
 
     public IndexerTaxa(TaxonCacheService taxonCacheService) {
         this.taxonCacheService = taxonCacheService;
     }
 
-    public static void indexTaxa(GraphServiceFactory graphService, TaxonCacheService taxonCacheService) {
+    public static void indexTaxa(GraphServiceFactory graphService, TaxonCacheService taxonCacheService, IndexerMetrics metrics) {
         LOG.info("resolving names with taxon cache ...");
         try {
             ResolvingTaxonIndex index = new ResolvingTaxonIndex(taxonCacheService, graphService.getGraphService());
@@ -41,18 +43,23 @@ public class IndexerTaxa implements IndexerNeo4j {
                 }
             };
 
-            new NameResolver(index, taxonCacheFilter).index(graphService);
+            NameResolver nameResolver = new NameResolver(index, taxonCacheFilter);
+            nameResolver.setMetrics(metrics);
+            nameResolver.index(graphService);
 
             LOG.info("adding same and similar terms for resolved taxa...");
             List<IndexerNeo4j> linkers = new ArrayList<>();
             //appendOpenTreeTaxonLinker(linkers);
 
-            linkers.forEach(x -> new IndexerTimed(x)
+            linkers.forEach(x -> new IndexerTimed(x, metrics)
                     .index(graphService));
             LOG.info("adding same and similar terms for resolved taxa done.");
 
         } finally {
             taxonCacheService.shutdown();
+            metrics.currentStage().cacheLookups("taxonCache",
+                    taxonCacheService.getLookupHitCount(),
+                    taxonCacheService.getLookupMissCount());
         }
         LOG.info("resolving names with taxon cache done.");
     }
@@ -70,6 +77,11 @@ public class IndexerTaxa implements IndexerNeo4j {
 
     @Override
     public void index(GraphServiceFactory graphService) {
-        indexTaxa(graphService, taxonCacheService);
+        indexTaxa(graphService, taxonCacheService, metrics);
+    }
+
+    @Override
+    public void setMetrics(IndexerMetrics metrics) {
+        this.metrics = metrics;
     }
 }
@@ -1,30 +1,49 @@
 package org.eol.globi.tool;
 
-import org.apache.commons.lang.time.StopWatch;
+import org.eol.globi.metrics.IndexerMetrics;
+import org.eol.globi.metrics.StageMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.eol.globi.db.GraphServiceFactory;
-import org.neo4j.graphdb.GraphDatabaseService;
 
+/**
+ * Runs an indexer as a stage of the provided {@link IndexerMetrics}, logging its duration,
+ * throughput and heap usage on completion.
+ */
 public class IndexerTimed implements IndexerNeo4j {
     private static final Logger LOG = LoggerFactory.getLogger(IndexerTimed.class);
     private final IndexerNeo4j indexer;
+    private IndexerMetrics metrics;
 
-    public IndexerTimed(IndexerNeo4j indexer) {
+    public IndexerTimed(IndexerNeo4j indexer, IndexerMetrics metrics) {
         this.indexer = indexer;
+        this.metrics = metrics;
     }
 
     @Override
     public void index(GraphServiceFactory graphService) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
         String linkName = indexer.getClass().getSimpleName();
         LOG.info(linkName + " started...");
+        StageMetrics stage = metrics.startStage(linkName);
         try {
+            indexer.setMetrics(metrics);
             indexer.index(graphService);
         } finally {
-            stopWatch.stop();
-            LOG.info(linkName + " completed in [" + stopWatch.getTime() / 1000 + "]s");
+            metrics.stopStage(stage);
+            LOG.info(linkName + " completed in [" + stage.getDurationMillis() / 1000 + "]s"
+                    + " processing [" + stage.getItemsProcessed() + "] items"
+                    + String.format(" ([%.1f] /s)", stage.getItemsPerSecond())
+                    + " with [" + stage.getJvmAtStop().getHeapUsed() / (1024 * 1024) + "]MB heap used");
         }
     }
+
+    @Override
+    public boolean hasFailures() {
+        return indexer.hasFailures();
+    }
+
+    @Override
+    public void setMetrics(IndexerMetrics metrics) {
+        this.metrics = metrics;
+    }
 }
@@ -8,6 +8,7 @@ import org.eol.globi.domain.NameType;
 import org.eol.globi.domain.RelTypes;
 import org.eol.globi.domain.TaxonNode;
 import org.eol.globi.domain.Term;
+import org.eol.globi.metrics.IndexerMetrics;
 import org.eol.globi.service.PropertyEnricherException;
 import org.eol.globi.service.TaxonUtil;
 import org.eol.globi.taxon.TermMatcher;
@@ -29,11 +30,17 @@ public class LinkerTermMatcher implements IndexerNeo4j {
 
     private static final Logger LOG = LoggerFactory.getLogger(LinkerTermMatcher.class);
     private final TermMatcher termMatcher;
+    private IndexerMetrics metrics = new IndexerMetrics();
 
     public LinkerTermMatcher(TermMatcher termMatcher) {
         this.termMatcher = termMatcher;
     }
 
+    @Override
+    public void setMetrics(IndexerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
 
     @Override
     public void index(GraphServiceFactory factory) {
@@ -49,7 +56,7 @@ public class LinkerTermMatcher implements IndexerNeo4j {
                 if (counter % BATCH_SIZE == 0) {
                     handleBatch(graphDb, termMatcher, nodeMap, counter);
                     transaction.success();
-                    transaction.close();
+                    metrics.currentStage().commit(transaction);
                     transaction = graphDb.beginTx();
                 }
                 TaxonNode node = new TaxonNode(hit);
@@ -59,7 +66,7 @@ public class LinkerTermMatcher implements IndexerNeo4j {
             handleBatch(graphDb, termMatcher, nodeMap, counter);
             transaction.success();
         } finally {
-            transaction.close();
+            metrics.currentStage().commit(transaction);
         }
     }
 
@@ -90,6 +97,7 @@ public class LinkerTermMatcher implements IndexerNeo4j {
         }
         stopWatch.stop();
         LOG.info(msgPrefix + " completed in [" + stopWatch.getTime() + "] ms (" + (1.0 * stopWatch.getTime() / BATCH_SIZE) + " ms/name )");
+        metrics.currentStage().batchCompleted(termRequests.size(), stopWatch.getTime());
 
         nodeMap.clear();
     }
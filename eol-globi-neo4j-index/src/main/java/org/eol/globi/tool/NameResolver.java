@@ -1,6 +1,7 @@
 package org.eol.globi.tool;
 
 import org.apache.commons.lang.time.StopWatch;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.eol.globi.data.NodeFactoryException;
@@ -12,6 +13,8 @@ import org.eol.globi.domain.Study;
 import org.eol.globi.domain.StudyNode;
 import org.eol.globi.domain.Taxon;
 import org.eol.globi.domain.TaxonNode;
+import org.eol.globi.metrics.IndexerMetrics;
+import org.eol.globi.metrics.StageMetrics;
 import org.eol.globi.util.NodeUtil;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -21,11 +24,29 @@ import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.IndexHits;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class NameResolver implements IndexerNeo4j {
     private static final Logger LOG = LoggerFactory.getLogger(NameResolver.class);
 
+    private static final Long END_OF_QUEUE = -1L;
+    private static final int MIN_QUEUE_CAPACITY = 1000;
+    private static final long OFFER_TIMEOUT_MS = 1000L;
+
     private final TaxonIndex taxonIndex;
     private final TaxonFilter taxonFilter;
+    private IndexerMetrics metrics = new IndexerMetrics();
 
     public void setBatchSize(Long batchSize) {
         this.batchSize = batchSize;
@@ -33,6 +54,21 @@ public class NameResolver implements IndexerNeo4j {
 
     private Long batchSize = 10000L;
 
+    private int numberOfWorkers = 1;
+
+    public void setNumberOfWorkers(int numberOfWorkers) {
+        this.numberOfWorkers = numberOfWorkers;
+    }
+
+    public int getNumberOfWorkers() {
+        return numberOfWorkers;
+    }
+
+    @Override
+    public void setMetrics(IndexerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public NameResolver(TaxonIndex index) {
         this(index, new KnownBadNameFilter());
     }
@@ -64,16 +100,8 @@ public class NameResolver implements IndexerNeo4j {
                         if (describedAs == null) {
                             LOG.warn("failed to find original taxon description for specimen for [" + study1.getCitation() + "]");
                         } else {
-                            final TaxonNode describedAsTaxon = new TaxonNode(describedAs.getEndNode());
                             try {
-                                if (taxonFilter.shouldInclude(describedAsTaxon)) {
-                                    Taxon resolvedTaxon = taxonIndex.getOrCreateTaxon(describedAsTaxon);
-                                    if (resolvedTaxon != null) {
-                                        specimen.classifyAs(resolvedTaxon);
-                                    }
-                                }
-                            } catch (NodeFactoryException e) {
-                                LOG.warn("failed to create taxon with name [" + describedAsTaxon.getName() + "] and id [" + describedAsTaxon.getExternalId() + "]", e);
+                                resolveName(specimen, new TaxonNode(describedAs.getEndNode()));
                             } finally {
                                 count++;
                                 if (count % batchSize == 0) {
@@ -82,10 +110,11 @@ public class NameResolver implements IndexerNeo4j {
                                     if (duration > 0) {
                                         LOG.info("resolved batch of [" + batchSize + "] names in " + getProgressMsg(batchSize, duration));
                                     }
+                                    metrics.currentStage().batchCompleted(batchSize, duration);
                                     watchForBatch.reset();
                                     watchForBatch.start();
                                     transaction.success();
-                                    transaction.close();
+                                    metrics.currentStage().commit(transaction);
                                     transaction = graphService.beginTx();
                                 }
                             }
@@ -97,9 +126,253 @@ public class NameResolver implements IndexerNeo4j {
             studies.close();
             watchForEntireRun.stop();
             transaction.success();
+            metrics.currentStage().itemsProcessed(count % batchSize);
             LOG.info("resolved [" + count + "] names in " + getProgressMsg(count, watchForEntireRun.getTime()));
         } finally {
-            transaction.close();
+            metrics.currentStage().commit(transaction);
+        }
+    }
+
+    private void resolveName(SpecimenNode specimen, TaxonNode describedAsTaxon) {
+        try {
+            if (taxonFilter.shouldInclude(describedAsTaxon)) {
+                Taxon resolvedTaxon = taxonIndex.getOrCreateTaxon(describedAsTaxon);
+                if (resolvedTaxon != null) {
+                    specimen.classifyAs(resolvedTaxon);
+                }
+            }
+        } catch (NodeFactoryException e) {
+            LOG.warn("failed to create taxon with name [" + describedAsTaxon.getName() + "] and id [" + describedAsTaxon.getExternalId() + "]", e);
+        }
+    }
+
+    /**
+     * Resolves names using a pool of workers, each committing its own batched transactions.
+     * <p>
+     * Specimen node ids are streamed to the workers by a single producer. To avoid concurrent
+     * creation of the same taxon, specimens are partitioned across workers by the key that
+     * the taxon index uses to look up their originally described taxon (external id, or name if no id is available).
+     * Batches that fail to commit (e.g., because of lock contention) are retried sequentially
+     * after all workers have completed. If a worker stops unexpectedly, streaming is cancelled and
+     * the failure of the worker is rethrown.
+     * <p>
+     * Note that the provided {@link TaxonIndex} is shared across workers and must be thread-safe.
+     */
+    public void resolveNamesInParallel(Long batchSize, int numberOfWorkers, GraphDatabaseService graphService) {
+        StopWatch watchForEntireRun = new StopWatch();
+        watchForEntireRun.start();
+
+        int queueCapacity = (int) Math.max(MIN_QUEUE_CAPACITY, Math.min(Integer.MAX_VALUE, batchSize * 2));
+        List<BlockingQueue<Long>> queues = new ArrayList<>();
+        List<Future<?>> workers = new ArrayList<>();
+        Queue<Long> retryQueue = new ConcurrentLinkedQueue<>();
+        AtomicLong count = new AtomicLong(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfWorkers);
+        for (int i = 0; i < numberOfWorkers; i++) {
+            BlockingQueue<Long> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            workers.add(executor.submit(new NameResolverWorker(i, queue, batchSize, graphService, retryQueue, count)));
+        }
+
+        LOG.info("resolving names using [" + numberOfWorkers + "] workers...");
+        try {
+            streamSpecimensToResolve(graphService, queues, workers);
+        } finally {
+            for (int i = 0; i < queues.size(); i++) {
+                signalEndOfQueue(queues.get(i), workers.get(i));
+            }
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+        for (Future<?> worker : workers) {
+            assertCompleted(worker);
+        }
+
+        if (!retryQueue.isEmpty()) {
+            LOG.info("retrying [" + retryQueue.size() + "] names that failed to resolve in parallel...");
+            List<Long> retries = new ArrayList<>(retryQueue);
+            NameResolverWorker retryWorker = new NameResolverWorker(numberOfWorkers, null, batchSize, graphService, null, count);
+            for (int i = 0; i < retries.size(); i += batchSize) {
+                retryWorker.resolveBatch(retries.subList(i, (int) Math.min(retries.size(), i + batchSize)));
+            }
+        }
+
+        watchForEntireRun.stop();
+        LOG.info("resolved [" + count.get() + "] names in " + getProgressMsg(count.get(), watchForEntireRun.getTime()));
+    }
+
+    private void streamSpecimensToResolve(GraphDatabaseService graphService, List<BlockingQueue<Long>> queues, List<Future<?>> workers) {
+        Index<Node> studyIndex = NodeUtil.forNodes(graphService, "studies");
+        try (Transaction transaction = graphService.beginTx()) {
+            IndexHits<Node> studies = studyIndex.query("title", "*");
+            for (Node studyNode : studies) {
+                final Study study = new StudyNode(studyNode);
+                final Iterable<Relationship> specimenNodes = NodeUtil.getSpecimensSupportedAndRefutedBy(study);
+                for (Relationship specimenNode : specimenNodes) {
+                    Node specimen = specimenNode.getEndNode();
+                    if (specimen.getSingleRelationship(NodeUtil.asNeo4j(RelTypes.CLASSIFIED_AS), Direction.OUTGOING) == null) {
+                        final Relationship describedAs = specimen.getSingleRelationship(NodeUtil.asNeo4j(RelTypes.ORIGINALLY_DESCRIBED_AS), Direction.OUTGOING);
+                        if (describedAs == null) {
+                            LOG.warn("failed to find original taxon description for specimen for [" + study.getCitation() + "]");
+                        } else {
+                            String key = lookupKeyFor(new TaxonNode(describedAs.getEndNode()));
+                            int workerIndex = ((key == null ? 0 : key.hashCode()) & Integer.MAX_VALUE) % queues.size();
+                            offerOrFail(queues.get(workerIndex), workers.get(workerIndex), specimen.getId());
+                        }
+                    }
+                }
+            }
+            studies.close();
+            transaction.success();
+        }
+    }
+
+    private static String lookupKeyFor(Taxon taxon) {
+        return StringUtils.isBlank(taxon.getExternalId())
+                ? taxon.getName()
+                : taxon.getExternalId();
+    }
+
+    private static void offerOrFail(BlockingQueue<Long> queue, Future<?> worker, Long specimenNodeId) {
+        try {
+            while (!queue.offer(specimenNodeId, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (worker.isDone()) {
+                    assertCompleted(worker);
+                    throw new IllegalStateException("name resolving worker stopped before all names were queued");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while queueing names for resolving", e);
+        }
+    }
+
+    private static void signalEndOfQueue(BlockingQueue<Long> queue, Future<?> worker) {
+        try {
+            boolean signalled = false;
+            while (!signalled && !worker.isDone()) {
+                signalled = queue.offer(END_OF_QUEUE, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            worker.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertCompleted(Future<?> worker) {
+        try {
+            worker.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("name resolving worker failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for name resolving worker", e);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.info("waiting for name resolving workers to complete...");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class NameResolverWorker implements Runnable {
+        private final int workerIndex;
+        private final BlockingQueue<Long> queue;
+        private final Long batchSize;
+        private final GraphDatabaseService graphService;
+        private final Queue<Long> retryQueue;
+        private final AtomicLong count;
+
+        NameResolverWorker(int workerIndex,
+                           BlockingQueue<Long> queue,
+                           Long batchSize,
+                           GraphDatabaseService graphService,
+                           Queue<Long> retryQueue,
+                           AtomicLong count) {
+            this.workerIndex = workerIndex;
+            this.queue = queue;
+            this.batchSize = batchSize;
+            this.graphService = graphService;
+            this.retryQueue = retryQueue;
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            StopWatch watchForWorker = new StopWatch();
+            watchForWorker.start();
+            long workerCount = 0;
+            List<Long> batch = new ArrayList<>();
+            boolean done = false;
+            while (!done) {
+                Long specimenNodeId;
+                try {
+                    specimenNodeId = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (END_OF_QUEUE.equals(specimenNodeId)) {
+                    done = true;
+                } else {
+                    batch.add(specimenNodeId);
+                }
+                if (batch.size() >= batchSize || (done && !batch.isEmpty())) {
+                    workerCount += resolveBatch(batch);
+                    batch.clear();
+                }
+            }
+            watchForWorker.stop();
+            LOG.info("worker [" + workerIndex + "] resolved [" + workerCount + "] names in " + getProgressMsg(workerCount, watchForWorker.getTime()));
+        }
+
+        long resolveBatch(List<Long> specimenNodeIds) {
+            StopWatch watchForBatch = new StopWatch();
+            watchForBatch.start();
+            long resolved = 0;
+            StageMetrics stage = metrics.currentStage();
+            try {
+                Transaction transaction = graphService.beginTx();
+                try {
+                    for (Long specimenNodeId : specimenNodeIds) {
+                        SpecimenNode specimen = new SpecimenNode(graphService.getNodeById(specimenNodeId));
+                        Node specimenNode = specimen.getUnderlyingNode();
+                        if (specimenNode.getSingleRelationship(NodeUtil.asNeo4j(RelTypes.CLASSIFIED_AS), Direction.OUTGOING) == null) {
+                            Relationship describedAs = specimenNode.getSingleRelationship(NodeUtil.asNeo4j(RelTypes.ORIGINALLY_DESCRIBED_AS), Direction.OUTGOING);
+                            if (describedAs != null) {
+                                resolveName(specimen, new TaxonNode(describedAs.getEndNode()));
+                                resolved++;
+                            }
+                        }
+                    }
+                    transaction.success();
+                } finally {
+                    stage.commit(transaction);
+                }
+            } catch (RuntimeException ex) {
+                if (retryQueue == null) {
+                    LOG.warn("worker [" + workerIndex + "] failed to resolve batch of [" + specimenNodeIds.size() + "] names", ex);
+                } else {
+                    LOG.warn("worker [" + workerIndex + "] failed to resolve batch of [" + specimenNodeIds.size() + "] names, scheduling batch for retry", ex);
+                    retryQueue.addAll(specimenNodeIds);
+                }
+                resolved = 0;
+            }
+            watchForBatch.stop();
+            count.addAndGet(resolved);
+            final long duration = watchForBatch.getTime();
+            stage.batchCompleted(resolved, duration);
+            if (duration > 0 && resolved > 0) {
+                LOG.info("worker [" + workerIndex + "] resolved batch of [" + resolved + "] names in " + getProgressMsg(resolved, duration));
+            }
+            return resolved;
         }
     }
 
@@ -110,7 +383,11 @@ public class NameResolver implements IndexerNeo4j {
     @Override
     public void index(GraphServiceFactory graphService) {
         LOG.info("name resolving started...");
-        resolveNames(batchSize, graphService.getGraphService());
+        if (getNumberOfWorkers() > 1) {
+            resolveNamesInParallel(batchSize, getNumberOfWorkers(), graphService.getGraphService());
+        } else {
+            resolveNames(batchSize, graphService.getGraphService());
+        }
         LOG.info("name resolving complete.");
 
     }
@@ -8,13 +8,18 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.eol.globi.Version;
 import org.eol.globi.data.StudyImporterException;
 import org.eol.globi.db.GraphServiceFactory;
 import org.eol.globi.db.GraphServiceFactoryImpl;
+import org.eol.globi.export.ExportCompression;
+import org.eol.globi.export.ExportFragments;
 import org.eol.globi.export.GraphExporterImpl;
+import org.eol.globi.metrics.IndexerMetrics;
+import org.eol.globi.metrics.StageMetrics;
 import org.eol.globi.service.DOIResolverCache;
 import org.eol.globi.taxon.NonResolvingTaxonIndex;
 import org.eol.globi.taxon.TaxonCacheService;
@@ -22,6 +27,8 @@ import org.eol.globi.util.HttpUtil;
 import org.globalbioticinteractions.dataset.DatasetRegistry;
 import org.neo4j.graphdb.GraphDatabaseService;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -37,8 +44,20 @@ public class Normalizer {
     private static final String OPTION_SKIP_LINK = "skipLink";
     private static final String OPTION_SKIP_REPORT = "skipReport";
     private static final String OPTION_DATASET_DIR = "datasetDir";
+    private static final String OPTION_RESOLVE_WORKERS = "resolveWorkers";
+    private static final String OPTION_IMPORT_WORKERS = "importWorkers";
+    private static final String OPTION_METRICS_DIR = "metricsDir";
+    private static final String OPTION_METRICS_JMX = "metricsJmx";
+    private static final String OPTION_IGNORE_CHECKPOINTS = "ignoreCheckpoints";
+    private static final String OPTION_CHECKPOINT_SNAPSHOTS = "checkpointSnapshots";
+    private static final String OPTION_EXPORT_COMPRESSION = "exportCompression";
+    private static final String OPTION_EXPORT_FRAGMENTS = "exportFragments";
+    private static final String OPTION_TAXON_INDEX = "taxonIndex";
     private static final String OPTION_SKIP_RESOLVE_CITATIONS = OPTION_SKIP_RESOLVE;
 
+    private static final String TAXON_CACHE = "/taxa/taxonCache.tsv.gz";
+    private static final String TAXON_MAP = "/taxa/taxonMap.tsv.gz";
+
     public static void main(final String[] args) throws StudyImporterException, ParseException {
         String o = Version.getVersionInfo(Normalizer.class);
         LOG.info(o);
@@ -72,6 +91,15 @@ public class Normalizer {
         options.addOption(OPTION_SKIP_LINK, false, "skip taxa cross-reference step");
         options.addOption(OPTION_SKIP_REPORT, false, "skip report generation step");
         options.addOption(OPTION_DATASET_DIR, true, "specifies location of dataset cache");
+        options.addOption(OPTION_RESOLVE_WORKERS, true, "number of parallel workers used to resolve taxon names (default: 1)");
+        options.addOption(OPTION_IMPORT_WORKERS, true, "number of parallel workers used to import datasets (default: 1)");
+        options.addOption(OPTION_METRICS_DIR, true, "specifies location of indexer metrics report; no report is written if not set");
+        options.addOption(OPTION_METRICS_JMX, false, "publish indexer metrics of running stages via jmx");
+        options.addOption(OPTION_IGNORE_CHECKPOINTS, false, "run all stages, including those completed in a previous run with unchanged inputs");
+        options.addOption(OPTION_CHECKPOINT_SNAPSHOTS, false, "keep a copy of the graph taken at the start of the last stage, so that a failed run can resume at the failed stage instead of rebuilding the graph");
+        options.addOption(OPTION_EXPORT_COMPRESSION, true, "compression of exported archives: none, gzip or parallel_gzip (default: parallel_gzip)");
+        options.addOption(OPTION_EXPORT_FRAGMENTS, true, "specifies location of per-dataset export fragments kept across runs; enables incremental export of interactions and citations");
+        options.addOption(OPTION_TAXON_INDEX, true, "specifies location of prebuilt taxon index; built from taxon cache and map if missing");
 
         Option helpOpt = new Option(OPTION_HELP, "help", false, "print this help information");
         options.addOption(helpOpt);
@@ -80,73 +108,141 @@ public class Normalizer {
 
     public void run(CommandLine cmdLine) throws StudyImporterException {
         final GraphServiceFactory factory = new GraphServiceFactoryImpl("./");
+        final IndexerMetrics metrics = new IndexerMetrics();
+        metrics.setJmxEnabled(cmdLine != null && cmdLine.hasOption(OPTION_METRICS_JMX));
         try {
-            importDatasets(cmdLine, factory);
-            resolveAndLinkTaxa(cmdLine, factory);
-            generateReports(cmdLine, factory);
-            exportData(cmdLine, factory.getGraphService());
+            IndexerCheckpoints checkpoints = createCheckpoints(cmdLine, new File("./graph.db"), factory);
+            importDatasets(cmdLine, factory, checkpoints, metrics);
+            resolveAndLinkTaxa(cmdLine, factory, checkpoints, metrics);
+            generateReports(cmdLine, factory, checkpoints, metrics);
+            exportData(cmdLine, factory, checkpoints, metrics);
         } finally {
             factory.clear();
             HttpUtil.shutdown();
+            writeMetricsReport(cmdLine, metrics);
+            metrics.unregisterMBeans();
+        }
+
+    }
+
+    static IndexerCheckpoints createCheckpoints(CommandLine cmdLine, File storeDir, GraphServiceFactory factory) throws StudyImporterException {
+        try {
+            IndexerCheckpoints checkpoints = new IndexerCheckpoints(storeDir);
+            checkpoints.setResuming(cmdLine == null || !cmdLine.hasOption(OPTION_IGNORE_CHECKPOINTS));
+            // without dataset import, a graph cannot be rebuilt from scratch
+            checkpoints.setRebuildable(cmdLine == null || !cmdLine.hasOption(OPTION_SKIP_IMPORT));
+            if (cmdLine != null && cmdLine.hasOption(OPTION_CHECKPOINT_SNAPSHOTS)) {
+                checkpoints.setSnapshotDir(new File(storeDir.getAbsoluteFile().getParentFile(), storeDir.getName() + ".snapshot"));
+            }
+            checkpoints.setGraphShutdown(factory::clear);
+            return checkpoints;
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to read indexer checkpoints in [" + storeDir.getAbsolutePath() + "]", e);
         }
+    }
 
+    static void writeMetricsReport(CommandLine cmdLine, IndexerMetrics metrics) {
+        String metricsDir = cmdLine == null
+                ? null
+                : cmdLine.getOptionValue(OPTION_METRICS_DIR);
+        if (StringUtils.isNotBlank(metricsDir)) {
+            try {
+                metrics.writeReport(new File(metricsDir));
+            } catch (IOException e) {
+                LOG.warn("failed to write indexer metrics to [" + metricsDir + "]", e);
+            }
+        }
     }
 
-    private void exportData(CommandLine cmdLine, GraphDatabaseService graphService) throws StudyImporterException {
+    private void exportData(CommandLine cmdLine, GraphServiceFactory factory, IndexerCheckpoints checkpoints, IndexerMetrics metrics) throws StudyImporterException {
         if (cmdLine == null || !cmdLine.hasOption(OPTION_SKIP_EXPORT)) {
-            exportData(graphService, "./");
+            ExportCompression compression = getExportCompression(cmdLine);
+            ExportFragments fragments = getExportFragments(cmdLine);
+            GraphExporterImpl exporter = createExporter(compression, fragments);
+            checkpoints.run("Export",
+                    () -> getExportFingerprint(cmdLine),
+                    () -> IndexerCheckpoints.fileFingerprint(exporter.getOutputFiles("./")),
+                    () -> {
+                        StageMetrics stage = metrics.startStage("Export");
+                        try {
+                            exporter.export(factory.getGraphService(), "./");
+                            return true;
+                        } finally {
+                            metrics.stopStage(stage);
+                        }
+                    });
         } else {
             LOG.info("skipping data export...");
         }
     }
 
-    private void generateReports(CommandLine cmdLine, GraphServiceFactory graphService) {
+    private void generateReports(CommandLine cmdLine, GraphServiceFactory graphService, IndexerCheckpoints checkpoints, IndexerMetrics metrics) throws StudyImporterException {
         if (cmdLine == null || !cmdLine.hasOption(OPTION_SKIP_REPORT)) {
-            new ReportGenerator(graphService.getGraphService()).run();
+            String stageName = ReportGenerator.class.getSimpleName();
+            checkpoints.run(stageName, IndexerCheckpoints::noInputs, () -> {
+                StageMetrics stage = metrics.startStage(stageName);
+                try {
+                    ReportGenerator reportGenerator = new ReportGenerator(graphService.getGraphService());
+                    reportGenerator.run();
+                    return !reportGenerator.hasFailures();
+                } finally {
+                    metrics.stopStage(stage);
+                }
+            });
         } else {
             LOG.info("skipping report generation ...");
         }
     }
 
-    private void importDatasets(CommandLine cmdLine, GraphServiceFactory factory) throws StudyImporterException {
+    private void importDatasets(CommandLine cmdLine, GraphServiceFactory factory, IndexerCheckpoints checkpoints, IndexerMetrics metrics) throws StudyImporterException {
         if (cmdLine == null || !cmdLine.hasOption(OPTION_SKIP_IMPORT)) {
             String cacheDir = cmdLine == null
                     ? "target/datasets"
                     : cmdLine.getOptionValue(OPTION_DATASET_DIR, "target/datasets");
 
             DatasetRegistry registry = DatasetRegistryUtil.getDatasetRegistry(cacheDir);
-            new IndexerDataset(registry).index(factory);
+            IndexerDataset indexerDataset = new IndexerDataset(registry);
+            indexerDataset.setNumberOfWorkers(getNumberOfImportWorkers(cmdLine));
+            checkpoints.run(IndexerDataset.class.getSimpleName(),
+                    () -> IndexerCheckpoints.datasetFingerprint(new File(cacheDir)),
+                    () -> index(indexerDataset, factory, metrics));
         } else {
             LOG.info("skipping data import...");
         }
     }
 
-    private void resolveAndLinkTaxa(CommandLine cmdLine, GraphServiceFactory graphServiceFactory) {
+    private void resolveAndLinkTaxa(CommandLine cmdLine, GraphServiceFactory graphServiceFactory, IndexerCheckpoints checkpoints, IndexerMetrics metrics) throws StudyImporterException {
         if (cmdLine == null || !cmdLine.hasOption(OPTION_SKIP_RESOLVE_CITATIONS)) {
             LOG.info("resolving citations to DOIs ...");
-            new LinkerDOI(new DOIResolverCache()).index(graphServiceFactory);
+            indexWithCheckpoint(new LinkerDOI(new DOIResolverCache()), graphServiceFactory, checkpoints, metrics);
             //new LinkerDOI(graphService).link();
         } else {
             LOG.info("skipping citation resolving ...");
         }
 
         if (cmdLine == null || !cmdLine.hasOption(OPTION_SKIP_TAXON_CACHE)) {
-            final TaxonCacheService taxonCacheService = new TaxonCacheService(
-                    "/taxa/taxonCache.tsv.gz",
-                    "/taxa/taxonMap.tsv.gz");
+            TaxonCacheService taxonCacheService = new TaxonCacheService(TAXON_CACHE, TAXON_MAP);
+            File taxonIndex = getTaxonIndex(cmdLine);
+            if (taxonIndex != null) {
+                taxonCacheService.setTaxonIndex(taxonIndex);
+            }
             IndexerNeo4j taxonIndexer = new IndexerTaxa(taxonCacheService);
-            taxonIndexer.index(graphServiceFactory);
+            checkpoints.run(IndexerTaxa.class.getSimpleName(),
+                    () -> getTaxaFingerprint(cmdLine),
+                    () -> index(taxonIndexer, graphServiceFactory, metrics));
         } else {
             LOG.info("skipping taxon cache ...");
         }
 
         if (cmdLine == null || !cmdLine.hasOption(OPTION_SKIP_RESOLVE)) {
-            final NonResolvingTaxonIndex taxonIndex = new NonResolvingTaxonIndex(graphServiceFactory.getGraphService());
-            final IndexerNeo4j nameResolver = new NameResolver(taxonIndex);
-            final IndexerNeo4j taxonInteractionIndexer = new TaxonInteractionIndexer();
-
-            Arrays.asList(nameResolver, taxonInteractionIndexer)
-                    .forEach(x -> x.index(graphServiceFactory));
+            // graph may be restored or rebuilt by checkpoints, so the taxon index is created when the stage starts
+            checkpoints.run(NameResolver.class.getSimpleName(), IndexerCheckpoints::noInputs, () -> {
+                final NonResolvingTaxonIndex taxonIndex = new NonResolvingTaxonIndex(graphServiceFactory.getGraphService());
+                final NameResolver nameResolver = new NameResolver(taxonIndex);
+                nameResolver.setNumberOfWorkers(getNumberOfResolveWorkers(cmdLine));
+                return index(nameResolver, graphServiceFactory, metrics);
+            });
+            indexWithCheckpoint(new TaxonInteractionIndexer(), graphServiceFactory, checkpoints, metrics);
         } else {
             LOG.info("skipping taxa resolving ...");
         }
@@ -154,16 +250,124 @@ public class Normalizer {
         if (cmdLine == null || !cmdLine.hasOption(OPTION_SKIP_LINK)) {
             List<IndexerNeo4j> linkers = new ArrayList<>();
             linkers.add(new LinkerTaxonIndex());
-            linkers.forEach(x -> new IndexerTimed(x)
-                    .index(graphServiceFactory));
+            for (IndexerNeo4j linker : linkers) {
+                indexWithCheckpoint(linker, graphServiceFactory, checkpoints, metrics);
+            }
         } else {
             LOG.info("skipping linking ...");
         }
 
     }
 
+    private static void indexWithCheckpoint(IndexerNeo4j indexer, GraphServiceFactory graphServiceFactory, IndexerCheckpoints checkpoints, IndexerMetrics metrics) throws StudyImporterException {
+        checkpoints.run(indexer.getClass().getSimpleName(),
+                IndexerCheckpoints::noInputs,
+                () -> index(indexer, graphServiceFactory, metrics));
+    }
+
+    /**
+     * @return true if indexer completed without failures
+     */
+    private static boolean index(IndexerNeo4j indexer, GraphServiceFactory graphServiceFactory, IndexerMetrics metrics) {
+        IndexerNeo4j timedIndexer = new IndexerTimed(indexer, metrics);
+        timedIndexer.index(graphServiceFactory);
+        return !timedIndexer.hasFailures();
+    }
+
+    static int getNumberOfResolveWorkers(CommandLine cmdLine) {
+        return getNumberOfWorkers(cmdLine, OPTION_RESOLVE_WORKERS);
+    }
+
+    static int getNumberOfImportWorkers(CommandLine cmdLine) {
+        return getNumberOfWorkers(cmdLine, OPTION_IMPORT_WORKERS);
+    }
+
+    private static int getNumberOfWorkers(CommandLine cmdLine, String option) {
+        int numberOfWorkers = cmdLine == null
+                ? 1
+                : NumberUtils.toInt(cmdLine.getOptionValue(option), 1);
+        return Math.max(1, numberOfWorkers);
+    }
+
+    static ExportCompression getExportCompression(CommandLine cmdLine) {
+        String compression = cmdLine == null
+                ? null
+                : cmdLine.getOptionValue(OPTION_EXPORT_COMPRESSION);
+        return StringUtils.isBlank(compression)
+                ? ExportCompression.DEFAULT
+                : ExportCompression.valueOf(StringUtils.upperCase(compression));
+    }
+
     void exportData(GraphDatabaseService graphService, String baseDir) throws StudyImporterException {
-        new GraphExporterImpl().export(graphService, baseDir);
+        exportData(graphService, baseDir, ExportCompression.DEFAULT);
+    }
+
+    /**
+     * @return store of export fragments, or null if export is not incremental. Fragments are only re-used by runs
+     * with the same taxon cache and name resolution options.
+     */
+    static ExportFragments getExportFragments(CommandLine cmdLine) throws StudyImporterException {
+        String fragmentDir = cmdLine == null
+                ? null
+                : cmdLine.getOptionValue(OPTION_EXPORT_FRAGMENTS);
+        if (StringUtils.isBlank(fragmentDir)) {
+            return null;
+        }
+        try {
+            return new ExportFragments(new File(fragmentDir), getExportContext(cmdLine));
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to determine export context", e);
+        }
+    }
+
+    /**
+     * @return fingerprint of export options and of the export context
+     */
+    static String getExportFingerprint(CommandLine cmdLine) throws IOException {
+        String fragmentDir = cmdLine == null
+                ? null
+                : cmdLine.getOptionValue(OPTION_EXPORT_FRAGMENTS);
+        return IndexerCheckpoints.optionFingerprint(
+                OPTION_EXPORT_COMPRESSION + "=" + getExportCompression(cmdLine),
+                OPTION_EXPORT_FRAGMENTS + "=" + (StringUtils.isBlank(fragmentDir) ? "" : new File(fragmentDir).getAbsolutePath()),
+                getExportContext(cmdLine));
+    }
+
+    static String getTaxaFingerprint(CommandLine cmdLine) throws IOException {
+        File taxonIndex = getTaxonIndex(cmdLine);
+        return IndexerCheckpoints.optionFingerprint(
+                IndexerCheckpoints.resourceFingerprint(TAXON_CACHE, TAXON_MAP),
+                OPTION_TAXON_INDEX + "=" + (taxonIndex == null ? "" : taxonIndex.getAbsolutePath()));
+    }
+
+    private static File getTaxonIndex(CommandLine cmdLine) {
+        return cmdLine != null && cmdLine.hasOption(OPTION_TAXON_INDEX)
+                ? new File(cmdLine.getOptionValue(OPTION_TAXON_INDEX))
+                : null;
+    }
+
+    private static String getExportContext(CommandLine cmdLine) throws IOException {
+        StringBuilder context = new StringBuilder();
+        context.append(getTaxaFingerprint(cmdLine));
+        for (String option : Arrays.asList(OPTION_SKIP_TAXON_CACHE, OPTION_SKIP_RESOLVE, OPTION_SKIP_LINK)) {
+            context.append('\t').append(option).append('=').append(cmdLine != null && cmdLine.hasOption(option));
+        }
+        return context.toString();
+    }
+
+    void exportData(GraphDatabaseService graphService, String baseDir, ExportCompression compression) throws StudyImporterException {
+        exportData(graphService, baseDir, compression, null);
+    }
+
+    void exportData(GraphDatabaseService graphService, String baseDir, ExportCompression compression, ExportFragments fragments) throws StudyImporterException {
+        createExporter(compression, fragments).export(graphService, baseDir);
+    }
+
+    private static GraphExporterImpl createExporter(ExportCompression compression, ExportFragments fragments) {
+        GraphExporterImpl exporter = new GraphExporterImpl();
+        exporter.setCompression(compression);
+        exporter.setFragments(fragments);
+        return exporter;
     }
 
 
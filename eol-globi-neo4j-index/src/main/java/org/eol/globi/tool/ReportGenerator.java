@@ -32,6 +32,7 @@ public class ReportGenerator {
 
     private final GraphDatabaseService graphService;
     private final CacheService cacheService;
+    private boolean failures = false;
 
     private GraphDatabaseService getGraphDb() {
         return this.graphService;
@@ -47,6 +48,7 @@ public class ReportGenerator {
     }
 
     public void run() {
+        failures = false;
         LOG.info("report for collection generating ...");
         generateReportForCollection();
         LOG.info("report for collection done.");
@@ -60,6 +62,13 @@ public class ReportGenerator {
         LOG.info("report for source organizations done.");
     }
 
+    /**
+     * @return true if one or more reports failed to generate in last run
+     */
+    public boolean hasFailures() {
+        return failures;
+    }
+
     public void generateReportForSourceIndividuals() {
         generateReportForStudySources(new NamespaceHandler() {
             @Override
@@ -113,6 +122,7 @@ public class ReportGenerator {
             reportForHandler(namespaceHandler, reportCache);
             reportCache.close();
         } catch (PropertyEnricherException e) {
+            failures = true;
             LOG.warn("failed to create report", e);
         }
 
@@ -199,6 +209,7 @@ public class ReportGenerator {
             generateCollectionReport(reportCache);
             reportCache.close();
         } catch (PropertyEnricherException e) {
+            failures = true;
             LOG.warn("failed to generate collection report", e);
         }
     }
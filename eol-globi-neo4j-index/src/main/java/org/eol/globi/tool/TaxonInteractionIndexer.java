@@ -7,23 +7,35 @@ import org.eol.globi.db.GraphServiceFactory;
 import org.eol.globi.domain.InteractType;
 import org.eol.globi.domain.RelTypes;
 import org.eol.globi.domain.SpecimenNode;
+import org.eol.globi.metrics.IndexerMetrics;
+import org.eol.globi.util.LongTripleCounter;
 import org.eol.globi.util.NodeUtil;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
-import org.mapdb.Fun;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.IndexHits;
 
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
 
 public class TaxonInteractionIndexer implements IndexerNeo4j {
     private static final Logger LOG = LoggerFactory.getLogger(TaxonInteractionIndexer.class);
 
+    private static final InteractType[] INTERACT_TYPES = InteractType.values();
+
+    private int batchSize = 10000;
+
+    // maximum number of distinct taxon interactions aggregated in memory before spilling to disk
+    private int maxInteractionsInMemory = 10000000;
+
+    private File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+
+    private IndexerMetrics metrics = new IndexerMetrics();
+
     public void index(GraphDatabaseService graphService) {
         LOG.info("indexing interactions started...");
         indexInteractions(graphService);
@@ -32,46 +44,45 @@ public class TaxonInteractionIndexer implements IndexerNeo4j {
 
 
     public void indexInteractions(GraphDatabaseService graphService) {
-        DB db = DBMaker
-                .newMemoryDirectDB()
-                .compressionEnable()
-                .transactionDisable()
-                .make();
-        final Map<Fun.Tuple3<Long, String, Long>, Long> taxonInteractions = db
-                .createTreeMap("ottIdMap")
-                .make();
-
-        collectTaxonInteractions(taxonInteractions, graphService);
-        createTaxonInteractions(taxonInteractions, graphService);
-
-        db.close();
+        try (LongTripleCounter taxonInteractions = new LongTripleCounter(maxInteractionsInMemory, tmpDir)) {
+            collectTaxonInteractions(taxonInteractions, graphService);
+            createTaxonInteractions(taxonInteractions, graphService);
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to aggregate taxon interactions", e);
+        }
     }
 
-    public void createTaxonInteractions(Map<Fun.Tuple3<Long, String, Long>, Long> taxonInteractions, GraphDatabaseService graphService) {
+    public void createTaxonInteractions(LongTripleCounter taxonInteractions, GraphDatabaseService graphService) throws IOException {
         StopWatch watchForEntireRun = new StopWatch();
         watchForEntireRun.start();
 
-        long count = 0;
-        Transaction tx = null;
-        for (Fun.Tuple3<Long, String, Long> uniqueTaxonInteraction : taxonInteractions.keySet()) {
-            if (count % 1000 == 0) {
-                finalizeTx(tx);
-                tx = graphService.beginTx();
-            }
-            final Node sourceTaxon = graphService.getNodeById(uniqueTaxonInteraction.a);
-            final Node targetTaxon = graphService.getNodeById(uniqueTaxonInteraction.c);
-            if (sourceTaxon != null && targetTaxon != null) {
-                final InteractType relType = InteractType.valueOf(uniqueTaxonInteraction.b);
-                final Long interactionCount = taxonInteractions.get(uniqueTaxonInteraction);
-                createInteraction(sourceTaxon, targetTaxon, relType, false, interactionCount);
-                createInteraction(targetTaxon, sourceTaxon, InteractType.inverseOf(relType), true, interactionCount);
+        final long[] count = {0};
+        final Transaction[] tx = {null};
+        try {
+            taxonInteractions.emit((sourceTaxonId, interactTypeOrdinal, targetTaxonId, interactionCount) -> {
+                if (count[0] % batchSize == 0) {
+                    finalizeTx(tx[0]);
+                    tx[0] = graphService.beginTx();
+                }
+                final Node sourceTaxon = graphService.getNodeById(sourceTaxonId);
+                final Node targetTaxon = graphService.getNodeById(targetTaxonId);
+                if (sourceTaxon != null && targetTaxon != null) {
+                    final InteractType relType = INTERACT_TYPES[interactTypeOrdinal];
+                    createInteraction(sourceTaxon, targetTaxon, relType, false, interactionCount);
+                    createInteraction(targetTaxon, sourceTaxon, InteractType.inverseOf(relType), true, interactionCount);
+                }
+                count[0]++;
+            });
+            finalizeTx(tx[0]);
+            tx[0] = null;
+        } finally {
+            if (tx[0] != null) {
+                tx[0].close();
             }
-            count++;
         }
-        finalizeTx(tx);
 
         watchForEntireRun.stop();
-        LOG.info("created [" + count + "] taxon interactions in " + getProgressMsg(count, watchForEntireRun.getTime()));
+        LOG.info("created [" + count[0] + "] taxon interactions in " + getProgressMsg(count[0], watchForEntireRun.getTime()));
     }
 
     public void createInteraction(Node sourceTaxon, Node targetTaxon, InteractType relType, boolean inverted, Long interactionCount) {
@@ -83,60 +94,81 @@ public class TaxonInteractionIndexer implements IndexerNeo4j {
     public void finalizeTx(Transaction tx) {
         if (tx != null) {
             tx.success();
-            tx.close();
+            metrics.currentStage().commit(tx);
         }
     }
 
-    public void collectTaxonInteractions(Map<Fun.Tuple3<Long, String, Long>, Long> taxonInteractions, GraphDatabaseService graphService) {
+    public void collectTaxonInteractions(LongTripleCounter taxonInteractions, GraphDatabaseService graphService) throws IOException {
         StopWatch watchForEntireRun = new StopWatch();
         watchForEntireRun.start();
         StopWatch watchForBatch = new StopWatch();
         watchForBatch.start();
         long count = 0L;
-        int batchSize = 1000;
+        long countReported = 0L;
+        int walkBatchSize = 1000;
+        final RelationshipType[] interactRelTypes = NodeUtil.asNeo4j(InteractType.values());
+        final RelationshipType classifiedAsRelType = NodeUtil.asNeo4j(RelTypes.CLASSIFIED_AS);
 
         Transaction transaction = graphService.beginTx();
         try {
             Index<Node> taxonIndex = graphService.index().forNodes("taxons");
             IndexHits<Node> taxa = taxonIndex.query("name", "*");
             for (Node sourceTaxon : taxa) {
-                final Iterable<Relationship> classifiedAs = sourceTaxon.getRelationships(Direction.INCOMING, NodeUtil.asNeo4j(RelTypes.CLASSIFIED_AS));
+                final Iterable<Relationship> classifiedAs = sourceTaxon.getRelationships(Direction.INCOMING, classifiedAsRelType);
                 for (Relationship classifiedA : classifiedAs) {
                     Node specimenNode = classifiedA.getStartNode();
-                    final Iterable<Relationship> interactions = specimenNode.getRelationships(Direction.OUTGOING, NodeUtil.asNeo4j(InteractType.values()));
+                    final Iterable<Relationship> interactions = specimenNode.getRelationships(Direction.OUTGOING, interactRelTypes);
                     for (Relationship interaction : interactions) {
-                        final Iterable<Relationship> targetClassifications = interaction.getEndNode().getRelationships(Direction.OUTGOING, NodeUtil.asNeo4j(RelTypes.CLASSIFIED_AS));
+                        final int interactTypeOrdinal = InteractType.valueOf(interaction.getType().name()).ordinal();
+                        final Iterable<Relationship> targetClassifications = interaction.getEndNode().getRelationships(Direction.OUTGOING, classifiedAsRelType);
                         for (Relationship targetClassification : targetClassifications) {
-                            final Node targetTaxonNode = targetClassification.getEndNode();
-                            final Fun.Tuple3<Long, String, Long> interactionKey = new Fun.Tuple3<Long, String, Long>(sourceTaxon.getId(), interaction.getType().name(), targetTaxonNode.getId());
-                            final Long distinctInteractions = taxonInteractions.get(interactionKey);
-                            taxonInteractions.put(interactionKey, distinctInteractions == null ? 1L : (distinctInteractions + 1L));
+                            taxonInteractions.increment(sourceTaxon.getId(), interactTypeOrdinal, targetClassification.getEndNode().getId());
                             count++;
                         }
                     }
                 }
-                if (count % batchSize == 0) {
+                if (count % walkBatchSize == 0) {
                     watchForBatch.stop();
                     final long duration = watchForBatch.getTime();
                     if (duration > 0) {
-                        LOG.info("walked [" + batchSize + "] interactions in " + getProgressMsg(batchSize, duration));
+                        LOG.info("walked [" + walkBatchSize + "] interactions in " + getProgressMsg(walkBatchSize, duration));
                     }
+                    metrics.currentStage().batchCompleted(count - countReported, duration);
+                    countReported = count;
                     watchForBatch.reset();
                     watchForBatch.start();
                     transaction.success();
-                    transaction.close();
+                    metrics.currentStage().commit(transaction);
                     transaction = graphService.beginTx();
                 }
             }
             taxa.close();
             watchForEntireRun.stop();
             transaction.success();
+            metrics.currentStage().itemsProcessed(count - countReported);
         } finally {
-            transaction.close();
+            metrics.currentStage().commit(transaction);
         }
         LOG.info("walked [" + count + "] interactions in " + getProgressMsg(count, watchForEntireRun.getTime()));
     }
 
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setMaxInteractionsInMemory(int maxInteractionsInMemory) {
+        this.maxInteractionsInMemory = maxInteractionsInMemory;
+    }
+
+    public void setTmpDir(File tmpDir) {
+        this.tmpDir = tmpDir;
+    }
+
+    @Override
+    public void setMetrics(IndexerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public static String getProgressMsg(long count, long duration) {
         return String.format("[%.2f] taxon/s over [%.2f] s", (float) count * 1000.0 / duration, duration / 1000.0);
     }
@@ -0,0 +1,100 @@
+package org.eol.globi.data;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.eol.globi.domain.RelTypes;
+import org.eol.globi.domain.SpecimenNode;
+import org.eol.globi.domain.Study;
+import org.eol.globi.domain.StudyNode;
+import org.eol.globi.domain.Taxon;
+import org.eol.globi.util.NodeUtil;
+import org.globalbioticinteractions.dataset.Dataset;
+import org.globalbioticinteractions.dataset.DatasetImpl;
+import org.globalbioticinteractions.dataset.DatasetRegistry;
+import org.globalbioticinteractions.dataset.DatasetRegistryException;
+import org.junit.Test;
+import org.neo4j.graphdb.Transaction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class DatasetImporterForRegistryBatchTest extends GraphDBTestCase {
+
+    @Test
+    public void failedInteractionInBatch() {
+        NodeFactoryNeo4j factory = new NodeFactoryNeo4j(getGraphDb()) {
+            @Override
+            public SpecimenNode createSpecimen(Study study, Taxon taxon, RelTypes... types) throws NodeFactoryException {
+                if (StringUtils.equals(taxon.getName(), "bad")) {
+                    // fails in a nested transaction, which marks the batch around it as failed
+                    try (Transaction tx = getGraphDb().beginTx()) {
+                        getGraphDb().createNode();
+                        throw new NodeFactoryException("kaboom!");
+                    }
+                }
+                return super.createSpecimen(study, taxon, types);
+            }
+        };
+
+        DatasetImporterForRegistry importer = new DatasetImporterForRegistry(null, factory, new DatasetRegistry() {
+            @Override
+            public Collection<String> findNamespaces() throws DatasetRegistryException {
+                return Arrays.asList("good/one", "bad/namespace", "good/two");
+            }
+
+            @Override
+            public Dataset datasetFor(String namespace) throws DatasetRegistryException {
+                return StringUtils.equals(namespace, "bad/namespace")
+                        ? datasetWithInteractions(namespace, "bad")
+                        : datasetWithInteractions(namespace, namespace + "/a", namespace + "/b", namespace + "/c");
+            }
+        });
+        importer.setNumberOfWorkers(2);
+        importer.setTransactionFactory(factory::beginBatch);
+
+        String failure = null;
+        try {
+            importer.importStudy();
+        } catch (StudyImporterException ex) {
+            failure = ex.getMessage();
+        }
+        assertThat(failure, is("failed to import one or more repositories: [bad/namespace]"));
+
+        Map<String, Integer> specimenCounts = new TreeMap<>();
+        try (Transaction tx = getGraphDb().beginTx()) {
+            for (StudyNode study : NodeUtil.findAllStudies(getGraphDb())) {
+                specimenCounts.put(study.getCitation(), getSpecimenCount(study));
+            }
+            tx.success();
+        }
+        assertThat(specimenCounts.toString(), is("{good/one/a=2, good/one/b=2, good/one/c=2, good/two/a=2, good/two/b=2, good/two/c=2}"));
+    }
+
+    private static Dataset datasetWithInteractions(String namespace, String... sourceTaxonNames) {
+        StringBuilder interactions = new StringBuilder("sourceTaxonName\tinteractionTypeId\ttargetTaxonName\treferenceCitation\n");
+        for (String sourceTaxonName : sourceTaxonNames) {
+            interactions.append(sourceTaxonName).append("\tRO:0002470\tprey\t").append(sourceTaxonName).append('\n');
+        }
+        return new DatasetImpl(namespace, URI.create("some:uri"), in -> in) {
+            @Override
+            public InputStream retrieve(URI resource) throws IOException {
+                if (StringUtils.endsWith(resource.toString(), "globi.json")) {
+                    return IOUtils.toInputStream("{\"format\":\"globi\"}", StandardCharsets.UTF_8);
+                } else if (StringUtils.endsWith(resource.toString(), "interactions.tsv")) {
+                    return IOUtils.toInputStream(interactions.toString(), StandardCharsets.UTF_8);
+                }
+                throw new IOException();
+            }
+        };
+    }
+
+}
@@ -37,10 +37,13 @@ import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransactionFailureException;
+import org.neo4j.graphdb.index.Index;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
@@ -139,6 +142,77 @@ public class NodeFactoryNeo4jTest extends GraphDBTestCase {
         Assert.assertNotNull(foundLocationNoDepth);
     }
 
+    @Test
+    public void findLocationsSharingLatitude() throws NodeFactoryException {
+        for (int i = 0; i < 100; i++) {
+            getNodeFactory().getOrCreateLocation(new LocationImpl(1.2d, (double) i, null, null));
+        }
+        LocationNode location = getNodeFactory().findLocation(new LocationImpl(1.2d, 42.0d, null, null));
+        assertThat(location.getLongitude(), is(42.0d));
+        assertThat(getNodeFactory().findLocation(new LocationImpl(1.2d, 42.0d, 1.0d, null)), is(nullValue()));
+        assertThat(getNodeFactory().findLocation(new LocationImpl(1.2d, 142.0d, null, null)), is(nullValue()));
+    }
+
+    @Test
+    public void warmUpLocationCacheFromIndex() throws NodeFactoryException {
+        LocationImpl providedLocation = new LocationImpl(1.2d, 1.4d, null, null);
+        providedLocation.setLocality("some locale");
+        LocationNode location = getNodeFactory().getOrCreateLocation(providedLocation);
+
+        LocationCache cache = new LocationCache();
+        try (Transaction tx = getGraphDb().beginTx()) {
+            Node foundLocation = cache.find(providedLocation, getGraphDb(), NodeUtil.forNodes(getGraphDb(), "locations"));
+            assertThat(foundLocation.getId(), is(location.getNodeID()));
+            assertThat(cache.size(), is(1));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void ignoreCachedLocationWithReusedNodeId() throws NodeFactoryException {
+        LocationImpl providedLocation = new LocationImpl(1.2d, 1.4d, null, null);
+        LocationCache cache = new LocationCache();
+        try (Transaction tx = getGraphDb().beginTx()) {
+            Index<Node> locations = NodeUtil.forNodes(getGraphDb(), "locations");
+            cache.find(providedLocation, getGraphDb(), locations);
+            cache.add(providedLocation, getGraphDb().createNode());
+            assertThat(cache.find(providedLocation, getGraphDb(), locations), is(nullValue()));
+            assertThat(cache.size(), is(0));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void findLocationAfterRolledBackBatch() throws NodeFactoryException {
+        NodeFactoryNeo4j factory = new NodeFactoryNeo4j(getGraphDb());
+        LocationImpl providedLocation = new LocationImpl(1.2d, 1.4d, null, null);
+        try (BatchTransaction batch = factory.beginBatch()) {
+            factory.getOrCreateLocation(providedLocation);
+        }
+
+        LocationNode location = factory.getOrCreateLocation(new LocationImpl(2.2d, 2.4d, null, null));
+        assertThat(factory.findLocation(providedLocation), is(nullValue()));
+        assertThat(factory.findLocation(new LocationImpl(2.2d, 2.4d, null, null)).getNodeID(), is(location.getNodeID()));
+    }
+
+    @Test
+    public void keepCachedLocationsAfterRolledBackBatch() throws NodeFactoryException {
+        NodeFactoryNeo4j factory = new NodeFactoryNeo4j(getGraphDb());
+        LocationNode committed = factory.getOrCreateLocation(new LocationImpl(2.2d, 2.4d, null, null));
+        LocationCache cache = LocationCache.forGraph(getGraphDb());
+        assertThat(cache.size(), is(1));
+
+        LocationImpl rolledBack = new LocationImpl(1.2d, 1.4d, null, null);
+        try (BatchTransaction batch = factory.beginBatch()) {
+            factory.getOrCreateLocation(rolledBack);
+            assertThat(cache.size(), is(2));
+        }
+
+        assertThat(cache.size(), is(1));
+        assertThat(factory.findLocation(rolledBack), is(nullValue()));
+        assertThat(factory.findLocation(new LocationImpl(2.2d, 2.4d, null, null)).getNodeID(), is(committed.getNodeID()));
+    }
+
     @Test
     public void createFindLocationByLocality() throws NodeFactoryException {
         LocationImpl providedLocation = new LocationImpl(null, null, null, null);
@@ -443,4 +517,64 @@ public class NodeFactoryNeo4jTest extends GraphDBTestCase {
         );
     }
 
+    @Test
+    public void createInteractionsInBatch() throws NodeFactoryException, InterruptedException {
+        NodeFactoryNeo4j factory = new NodeFactoryNeo4j(getGraphDb());
+
+        try (BatchTransaction batch = factory.beginBatch()) {
+            LocationNode location = factory.getOrCreateLocation(new LocationImpl(1.2d, 1.4d, -1.0d, null));
+            LocationNode sameLocation = factory.getOrCreateLocation(new LocationImpl(1.2d, 1.4d, -1.0d, null));
+            assertThat(sameLocation.getNodeID(), is(location.getNodeID()));
+
+            factory.createInteraction(new StudyImpl("some study"));
+            factory.createInteraction(new StudyImpl("some study"));
+            assertThat(countStudiesInOtherThread(), is(0));
+            batch.success();
+        }
+        assertThat(countStudiesInOtherThread(), is(1));
+    }
+
+    @Test
+    public void rollbackBatchOnFailedOperation() throws NodeFactoryException, InterruptedException {
+        NodeFactoryNeo4j factory = new NodeFactoryNeo4j(getGraphDb());
+
+        TransactionFailureException commitFailure = null;
+        try (BatchTransaction batch = factory.beginBatch()) {
+            factory.createInteraction(new StudyImpl("some study"));
+            try {
+                SpecimenNode specimenWithoutStudy = new SpecimenNode(getGraphDb().createNode(), null);
+                factory.setUnixEpochProperty(specimenWithoutStudy, new Date());
+            } catch (NodeFactoryException ex) {
+                // failed operation marks batch as failed
+            }
+            batch.success();
+        } catch (TransactionFailureException ex) {
+            commitFailure = ex;
+        }
+        assertThat(commitFailure, is(notNullValue()));
+        assertThat(countStudiesInOtherThread(), is(0));
+    }
+
+    @Test
+    public void fullBatch() throws NodeFactoryException {
+        NodeFactoryNeo4j factory = new NodeFactoryNeo4j(getGraphDb());
+        factory.setMaxNodesPerBatch(3);
+
+        try (BatchTransaction batch = factory.beginBatch()) {
+            factory.createInteraction(new StudyImpl("some study"));
+            assertThat(batch.isFull(), is(false));
+            factory.createInteraction(new StudyImpl("some study"));
+            assertThat(batch.isFull(), is(true));
+            batch.success();
+        }
+    }
+
+    private int countStudiesInOtherThread() throws InterruptedException {
+        final List<StudyNode> studies = new ArrayList<>();
+        Thread reader = new Thread(() -> studies.addAll(NodeUtil.findAllStudies(getGraphDb())));
+        reader.start();
+        reader.join();
+        return studies.size();
+    }
+
 }
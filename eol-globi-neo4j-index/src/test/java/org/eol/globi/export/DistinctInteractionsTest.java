@@ -0,0 +1,80 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class DistinctInteractionsTest {
+
+    private File tmpDir;
+
+    @Before
+    public void createTmpDir() throws IOException {
+        tmpDir = new File("target/distinct-interactions-test" + UUID.randomUUID());
+        FileUtils.forceMkdir(tmpDir);
+    }
+
+    @After
+    public void deleteTmpDir() {
+        FileUtils.deleteQuietly(tmpDir);
+    }
+
+    @Test
+    public void aggregateInMemory() throws IOException {
+        DistinctInteractions interactions = new DistinctInteractions(1000, tmpDir);
+        addSomeInteractions(interactions);
+        assertThat(interactions.getNumberOfSpilledRuns(), is(0));
+        assertThat(emit(interactions), is(expectedInteractions()));
+    }
+
+    @Test
+    public void aggregateWithSpilledRuns() throws IOException {
+        DistinctInteractions interactions = new DistinctInteractions(2, tmpDir);
+        addSomeInteractions(interactions);
+        assertThat(interactions.getNumberOfSpilledRuns() > 1, is(true));
+        assertThat(emit(interactions), is(expectedInteractions()));
+        assertThat(tmpDir.list().length, is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownInteractionType() throws IOException {
+        new DistinctInteractions(10, tmpDir).add(1L, "EOL:1", "NOT_AN_INTERACTION", "EOL:2");
+    }
+
+    private static void addSomeInteractions(DistinctInteractions interactions) throws IOException {
+        interactions.add(2L, "EOL:1", "ATE", "EOL:9");
+        interactions.add(1L, "EOL:2", "PREYS_UPON", "EOL:3");
+        interactions.add(2L, "EOL:1", "ATE", "EOL:4");
+        interactions.add(1L, "EOL:2", "ATE", "EOL:3");
+        interactions.add(2L, "EOL:1", "ATE", "EOL:9");
+        interactions.add(1L, "EOL:10", "ATE", "EOL:3");
+        interactions.add(2L, "EOL:1", "ATE", "EOL:5");
+    }
+
+    private static List<String> expectedInteractions() {
+        List<String> expected = new ArrayList<>();
+        expected.add("1 EOL:10 ATE [EOL:3]");
+        expected.add("1 EOL:2 ATE [EOL:3]");
+        expected.add("1 EOL:2 PREYS_UPON [EOL:3]");
+        expected.add("2 EOL:1 ATE [EOL:9, EOL:4, EOL:5]");
+        return expected;
+    }
+
+    private static List<String> emit(DistinctInteractions interactions) throws IOException {
+        List<String> emitted = new ArrayList<>();
+        interactions.emit((studyId, sourceTaxonId, interactionType, targetTaxonIds) ->
+                emitted.add(studyId + " " + sourceTaxonId + " " + interactionType + " " + targetTaxonIds));
+        return emitted;
+    }
+
+}
@@ -0,0 +1,152 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class ExportColumnarTest {
+
+    private File tmpDir;
+
+    @Before
+    public void createTmpDir() throws IOException {
+        tmpDir = new File("target/export-columnar-test" + UUID.randomUUID());
+        FileUtils.forceMkdir(tmpDir);
+    }
+
+    @After
+    public void deleteTmpDir() {
+        FileUtils.deleteQuietly(tmpDir);
+    }
+
+    @Test
+    public void writeAndReadColumns() throws IOException {
+        File file = new File(tmpDir, "interactions.parquet");
+        try (ExportColumnar columnar = new ExportColumnar(file, Collections.emptyMap(), 2, ExportColumnar.DEFAULT_ROW_GROUP_BYTES)) {
+            columnar.append(new String[]{"sourceTaxonName", "interactionTypeName", "targetTaxonName"});
+            columnar.append(new String[]{"Homo sapiens", "eats", "Ariopsis felis"});
+            columnar.append(new String[]{"Homo sapiens", "eats", "Canis lupus"});
+            columnar.append(Arrays.stream(new String[]{"Ariopsis felis", "eatenBy", null}));
+        }
+
+        byte[] bytes = FileUtils.readFileToByteArray(file);
+        assertThat(new String(bytes, 0, 4, StandardCharsets.US_ASCII), is("PAR1"));
+        assertThat(new String(bytes, bytes.length - 4, 4, StandardCharsets.US_ASCII), is("PAR1"));
+
+        try (ExportColumnarReader reader = new ExportColumnarReader(file)) {
+            assertThat(reader.getColumns(), is(Arrays.asList("sourceTaxonName", "interactionTypeName", "targetTaxonName")));
+            assertThat(reader.getColumnType("sourceTaxonName"), is(ExportColumnar.ColumnType.STRING));
+            assertThat(reader.getRowGroupCount(), is(2));
+            assertThat(reader.getRowCount(0), is(2));
+            assertThat(reader.getRowCount(1), is(1));
+            assertThat(reader.readColumn(0, "sourceTaxonName"), is(Arrays.<Object>asList("Homo sapiens", "Homo sapiens")));
+            assertThat(reader.readColumn(0, "targetTaxonName"), is(Arrays.<Object>asList("Ariopsis felis", "Canis lupus")));
+            assertThat(reader.readColumn(1, "interactionTypeName"), is(Arrays.<Object>asList("eatenBy")));
+            assertThat(reader.readColumn(1, "targetTaxonName"), is(Collections.singletonList(null)));
+        }
+    }
+
+    @Test
+    public void writeAndReadTypedColumns() throws IOException {
+        File file = new File(tmpDir, "interactions.parquet");
+        try (ExportColumnar columnar = new ExportColumnar(file, ExportFlatInteractions.COLUMN_TYPES)) {
+            columnar.append(new String[]{"decimalLatitude", "decimalLongitude", "eventDateUnixEpoch", "sourceLastSeenAtUnixEpoch", "localityName"});
+            columnar.append(new String[]{"12.5", "-45.25", "1234567890000", "2017-09-19T17:01:39Z", "some place"});
+            columnar.append(new String[]{"", "", "-1000", "1500000000000", ""});
+        }
+
+        try (ExportColumnarReader reader = new ExportColumnarReader(file)) {
+            assertThat(reader.getColumnType("decimalLatitude"), is(ExportColumnar.ColumnType.DOUBLE));
+            assertThat(reader.getColumnType("eventDateUnixEpoch"), is(ExportColumnar.ColumnType.TIMESTAMP_MILLIS));
+            assertThat(reader.getColumnType("localityName"), is(ExportColumnar.ColumnType.STRING));
+            assertThat(reader.readColumn(0, "decimalLatitude"), is(Arrays.<Object>asList(12.5d, null)));
+            assertThat(reader.readColumn(0, "decimalLongitude"), is(Arrays.<Object>asList(-45.25d, null)));
+            assertThat(reader.readColumn(0, "eventDateUnixEpoch"), is(Arrays.<Object>asList(1234567890000L, -1000L)));
+            assertThat(reader.readColumn(0, "sourceLastSeenAtUnixEpoch"), is(Arrays.<Object>asList(1505840499000L, 1500000000000L)));
+            assertThat(reader.readColumn(0, "localityName"), is(Arrays.<Object>asList("some place", null)));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidTypedValue() throws IOException {
+        try (ExportColumnar columnar = new ExportColumnar(new File(tmpDir, "invalid.parquet"), ExportFlatInteractions.COLUMN_TYPES)) {
+            columnar.append(new String[]{"decimalLatitude"});
+            columnar.append(new String[]{"somewhere north"});
+        }
+    }
+
+    @Test
+    public void writeAndReadManyDistinctValues() throws IOException {
+        File file = new File(tmpDir, "interactions.parquet");
+        try (ExportColumnar columnar = new ExportColumnar(file)) {
+            columnar.append(new String[]{"id", "type", "path"});
+            for (int i = 0; i < 1000; i++) {
+                columnar.append(new String[]{"id:" + i + " é", i % 2 == 0 ? "eats" : "eatenBy", "path:" + (i % 400)});
+            }
+        }
+
+        try (ExportColumnarReader reader = new ExportColumnarReader(file)) {
+            assertThat(reader.getRowGroupCount(), is(1));
+            assertThat(reader.readColumn(0, "id").get(999), is("id:999 é"));
+            assertThat(reader.readColumn(0, "type").subList(0, 3), is(Arrays.<Object>asList("eats", "eatenBy", "eats")));
+            assertThat(reader.readColumn(0, "path").get(999), is("path:199"));
+        }
+    }
+
+    @Test
+    public void limitRowGroupsByBufferedBytes() throws IOException {
+        File file = new File(tmpDir, "interactions.parquet");
+        try (ExportColumnar columnar = new ExportColumnar(file, Collections.emptyMap(), ExportColumnar.DEFAULT_ROW_GROUP_SIZE, 1024)) {
+            columnar.append(new String[]{"id", "type", "remarks"});
+            for (int i = 0; i < 100; i++) {
+                columnar.append(new String[]{"id:" + i, "eats", ""});
+            }
+        }
+
+        try (ExportColumnarReader reader = new ExportColumnarReader(file)) {
+            assertThat(reader.getRowGroupCount(), is(15));
+            assertThat(reader.getRowCount(0), is(7));
+            assertThat(reader.readColumn(14, "id").get(1), is("id:99"));
+            assertThat(reader.readColumn(14, "remarks").get(1), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void writeAndReadEmpty() throws IOException {
+        File file = new File(tmpDir, "empty.parquet");
+        new ExportColumnar(file).close();
+
+        try (ExportColumnarReader reader = new ExportColumnarReader(file)) {
+            assertThat(reader.getColumns().size(), is(0));
+            assertThat(reader.getRowGroupCount(), is(0));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rowLengthMismatch() throws IOException {
+        try (ExportColumnar columnar = new ExportColumnar(new File(tmpDir, "mismatch.parquet"))) {
+            columnar.append(new String[]{"one", "two"});
+            columnar.append(new String[]{"only one"});
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void notAColumnarFile() throws IOException {
+        File file = new File(tmpDir, "interactions.tsv");
+        FileUtils.writeStringToFile(file, "sourceTaxonName\tinteractionTypeName\n", "UTF-8");
+        new ExportColumnarReader(file);
+    }
+
+}
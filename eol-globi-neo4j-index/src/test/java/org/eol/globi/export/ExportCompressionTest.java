@@ -0,0 +1,73 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ExportCompressionTest {
+
+    private File exportDir;
+
+    @Before
+    public void init() throws IOException {
+        exportDir = new File("target/compression-test" + UUID.randomUUID());
+        FileUtils.forceMkdir(exportDir);
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(exportDir);
+    }
+
+    @Test
+    public void gzip() throws IOException {
+        for (ExportCompression compression : new ExportCompression[]{ExportCompression.GZIP, ExportCompression.PARALLEL_GZIP}) {
+            File file = new File(exportDir, "some" + compression + ".tsv.gz");
+            assertThat(compression.fileFor(file), is(file));
+            write(compression, file);
+            try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+                assertThat(IOUtils.toString(is, StandardCharsets.UTF_8), is("some\tcontent\n"));
+            }
+        }
+    }
+
+    @Test
+    public void none() throws IOException {
+        File file = new File(exportDir, "some.tsv.gz");
+        File uncompressed = new File(exportDir, "some.tsv");
+        assertThat(ExportCompression.NONE.fileFor(file), is(uncompressed));
+
+        write(ExportCompression.NONE, file);
+        assertThat(file.exists(), is(false));
+        assertThat(FileUtils.readFileToString(uncompressed, StandardCharsets.UTF_8), is("some\tcontent\n"));
+    }
+
+    @Test
+    public void neverCompressFilesWithoutGzSuffix() throws IOException {
+        File file = new File(exportDir, "meta.xml");
+        assertThat(ExportCompression.PARALLEL_GZIP.fileFor(file), is(file));
+        write(ExportCompression.PARALLEL_GZIP, file);
+        assertThat(FileUtils.readFileToString(file, StandardCharsets.UTF_8), is("some\tcontent\n"));
+    }
+
+    private static void write(ExportCompression compression, File file) throws IOException {
+        try (OutputStream os = compression.open(file)) {
+            IOUtils.write("some\tcontent\n", os, StandardCharsets.UTF_8);
+        }
+    }
+
+}
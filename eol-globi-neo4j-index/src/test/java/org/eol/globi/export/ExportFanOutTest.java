@@ -0,0 +1,140 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ExportFanOutTest {
+
+    private File exportDir;
+
+    @Before
+    public void init() {
+        exportDir = new File("target/fan-out-test" + UUID.randomUUID());
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(exportDir);
+    }
+
+    @Test
+    public void writeRowOnceToTsvAndCsv() throws IOException {
+        File tsv = new File(exportDir, "tsv/some.tsv.gz");
+        File csv = new File(exportDir, "csv/some.csv");
+        try (ExportFanOut fanOut = new ExportFanOut(2)) {
+            fanOut.setQueueCapacity(1);
+            ExportUtil.Appender appender = ExportUtil.fanOut(Arrays.asList(
+                    fanOut.open(tsv, new ExportUtil.TsvValueJoiner()),
+                    fanOut.open(csv, new ExportUtil.CsvValueJoiner())));
+            fanOut.submit(() -> {
+                appender.append(Stream.of("one", "two\tthree"));
+                appender.append(Stream.of("four", "five,six"));
+            });
+        }
+
+        try (InputStream is = new GZIPInputStream(new FileInputStream(tsv))) {
+            assertThat(IOUtils.toString(is, StandardCharsets.UTF_8), is("one\ttwo three\nfour\tfive,six\n"));
+        }
+        assertThat(FileUtils.readFileToString(csv, StandardCharsets.UTF_8), is("one,two\tthree\nfour,\"five,six\"\n"));
+    }
+
+    @Test
+    public void failedSource() throws IOException {
+        ExportFanOut fanOut = new ExportFanOut(1);
+        fanOut.open(new File(exportDir, "some.tsv"), new ExportUtil.TsvValueJoiner());
+        fanOut.submit(() -> {
+            throw new IOException("kaboom!");
+        });
+        try {
+            fanOut.close();
+            fail("expected failure");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage(), is("kaboom!"));
+        }
+    }
+
+    @Test
+    public void failedWriter() throws IOException {
+        Writer writer = new Writer() {
+            @Override
+            public void write(char[] chars, int off, int len) throws IOException {
+                throw new IOException("kaboom!");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AppenderQueued appender = new AppenderQueued(writer, new ExportUtil.TsvValueJoiner(), 1);
+        Thread writerThread = new Thread(appender);
+        writerThread.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                appender.append(Stream.of("one"));
+            }
+            appender.close();
+            fail("expected failure");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage(), is("kaboom!"));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void failedWriterWithUncheckedException() throws IOException {
+        Writer writer = new Writer() {
+            @Override
+            public void write(char[] chars, int off, int len) {
+                throw new IllegalStateException("kaboom!");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AppenderQueued appender = new AppenderQueued(writer, new ExportUtil.TsvValueJoiner(), 1);
+        Thread writerThread = new Thread(appender);
+        writerThread.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                appender.append(Stream.of("one"));
+            }
+            appender.close();
+            fail("expected failure");
+        } catch (IOException ex) {
+            assertThat(ex.getCause().getMessage(), is("kaboom!"));
+        }
+        try {
+            appender.close();
+            fail("expected failure");
+        } catch (IOException ex) {
+            assertThat(ex.getCause().getMessage(), is("kaboom!"));
+        }
+    }
+
+}
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.net.URI;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.Date;
 
 import static org.hamcrest.Matchers.containsString;
@@ -79,6 +80,24 @@ public class ExportFlatInteractionsTest extends GraphDBTestCase {
         assertThat(actualExport, containsString(firstRefute));
     }
 
+    @Test
+    public void exportSingleDataset() throws NodeFactoryException, IOException, ParseException {
+        createTestData(12.0);
+        resolveNames();
+
+        ExportFlatInteractions exporter = new ExportFlatInteractions(new ExportUtil.TsvValueJoiner(), "interactions.tsv.gz");
+        final StringWriter writer = new StringWriter();
+        exporter.export(getGraphDb(), ExportUtil.AppenderWriter.of(writer));
+
+        final StringWriter datasetWriter = new StringWriter();
+        ExportUtil.writeResults(ExportUtil.AppenderWriter.of(datasetWriter), getGraphDb(), exporter.createDatasetQuery(), Collections.singletonMap("namespace", "some/namespace"), true);
+        assertThat(datasetWriter.toString(), is(writer.toString()));
+
+        final StringWriter otherWriter = new StringWriter();
+        ExportUtil.writeResults(ExportUtil.AppenderWriter.of(otherWriter), getGraphDb(), exporter.createDatasetQuery(), Collections.singletonMap("namespace", "other/namespace"), true);
+        assertThat(otherWriter.toString().split("\\n").length, is(1));
+    }
+
     private void createTestData(Double length) throws NodeFactoryException, ParseException {
         Study myStudy = factory.createStudy(new StudyImpl("myStudy", null, null));
         specimenEatCatAndDog(length, myStudy, "Homo sapiens", "EOL:333", RelTypes.COLLECTED, RelTypes.SUPPORTS);
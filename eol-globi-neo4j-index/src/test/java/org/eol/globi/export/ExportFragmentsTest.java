@@ -0,0 +1,206 @@
+package org.eol.globi.export;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.eol.globi.data.GraphDBTestCase;
+import org.eol.globi.data.NodeFactoryException;
+import org.eol.globi.data.NodeFactoryWithDatasetContext;
+import org.eol.globi.domain.RelTypes;
+import org.eol.globi.domain.StudyConstant;
+import org.eol.globi.domain.StudyImpl;
+import org.eol.globi.util.NodeUtil;
+import org.globalbioticinteractions.dataset.DatasetConstant;
+import org.globalbioticinteractions.dataset.DatasetImpl;
+import org.globalbioticinteractions.doi.DOI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ExportFragmentsTest extends GraphDBTestCase {
+
+    private File tmpDir;
+
+    @Before
+    public void createTmpDir() throws IOException {
+        tmpDir = new File("target/export-fragments-test" + UUID.randomUUID());
+        FileUtils.forceMkdir(tmpDir);
+    }
+
+    @After
+    public void deleteTmpDir() {
+        FileUtils.deleteQuietly(tmpDir);
+    }
+
+    @Test
+    public void exportCitations() throws IOException, NodeFactoryException {
+        createStudies();
+
+        ExportFragments fragments = new ExportFragments(new File(tmpDir, "fragments"), "some context");
+        Map<File, ExportUtil.ValueJoiner> files = tsvAndCsv();
+        exportCitations(fragments, files);
+
+        String expectedTsv = "doi\tcitation" +
+                "\n10.some/doi\tsome citation" +
+                "\n10.some/otherdoi\tsome other citation" +
+                "\n10.some/unhasheddoi\tsome unhashed citation" +
+                "\n10.some/nodatasetdoi\tsome citation without dataset\n";
+        assertThat(gunzip(new File(tmpDir, "citations.tsv.gz")), is(expectedTsv));
+        assertThat(gunzip(new File(tmpDir, "citations.csv.gz")), is(expectedTsv.replace('\t', ',')));
+
+        File fragmentDir = fragmentDirFor(fragments, "some/namespace", "some-hash");
+        assertThat(new File(fragmentDir, "citations.tsv.gz").isFile(), is(true));
+        assertThat(new File(fragmentDir, "citations.csv.gz").isFile(), is(true));
+        // datasets without content hash are not kept
+        assertThat(new File(tmpDir, "fragments/citations").list().length, is(2));
+    }
+
+    @Test
+    public void reuseFragmentsOfUnchangedDatasets() throws IOException, NodeFactoryException {
+        createStudies();
+
+        File storeDir = new File(tmpDir, "fragments");
+        Map<File, ExportUtil.ValueJoiner> files = tsvAndCsv();
+        exportCitations(new ExportFragments(storeDir, "some context"), files);
+
+        ExportFragments fragments = new ExportFragments(storeDir, "some context");
+        File fragment = new File(fragmentDirFor(fragments, "some/namespace", "some-hash"), "citations.tsv.gz");
+        gzip(fragment, "10.some/doi\tsome citation from fragment\n");
+
+        exportCitations(fragments, files);
+
+        assertThat(gunzip(new File(tmpDir, "citations.tsv.gz")), is("doi\tcitation" +
+                "\n10.some/doi\tsome citation from fragment" +
+                "\n10.some/otherdoi\tsome other citation" +
+                "\n10.some/unhasheddoi\tsome unhashed citation" +
+                "\n10.some/nodatasetdoi\tsome citation without dataset\n"));
+    }
+
+    @Test
+    public void regenerateFragmentsInOtherContext() throws IOException, NodeFactoryException {
+        createStudies();
+
+        File storeDir = new File(tmpDir, "fragments");
+        Map<File, ExportUtil.ValueJoiner> files = tsvAndCsv();
+        ExportFragments fragments = new ExportFragments(storeDir, "some context");
+        exportCitations(fragments, files);
+        File fragment = new File(fragmentDirFor(fragments, "some/namespace", "some-hash"), "citations.tsv.gz");
+        gzip(fragment, "10.some/doi\tsome citation from fragment\n");
+
+        ExportFragments otherFragments = new ExportFragments(storeDir, "some other context");
+        exportCitations(otherFragments, files);
+
+        assertThat(gunzip(new File(tmpDir, "citations.tsv.gz")).contains("from fragment"), is(false));
+        assertThat(fragment.exists(), is(false));
+        assertThat(new File(fragmentDirFor(otherFragments, "some/namespace", "some-hash"), "citations.tsv.gz").isFile(), is(true));
+    }
+
+    @Test
+    public void regenerateFragmentsOfChangedDatasetProperties() throws IOException, NodeFactoryException {
+        createStudies();
+
+        File storeDir = new File(tmpDir, "fragments");
+        Map<File, ExportUtil.ValueJoiner> files = tsvAndCsv();
+        exportCitations(new ExportFragments(storeDir, "some context"), files);
+
+        try (Transaction tx = getGraphDb().beginTx()) {
+            Node dataset = getGraphDb().index().forNodes("datasets").get(DatasetConstant.NAMESPACE, "some/namespace").getSingle();
+            dataset.setProperty(DatasetConstant.LAST_SEEN_AT, "1234");
+            dataset.setProperty(DatasetConstant.CITATION, "some dataset citation accessed later");
+            Node study = dataset.getSingleRelationship(NodeUtil.asNeo4j(RelTypes.IN_DATASET), Direction.INCOMING).getStartNode();
+            study.setProperty(StudyConstant.CITATION, "some citation found by doi");
+            tx.success();
+        }
+
+        ExportFragments fragments = new ExportFragments(storeDir, "some context");
+        exportCitations(fragments, files);
+        String incremental = gunzip(new File(tmpDir, "citations.tsv.gz"));
+
+        exportCitations(new ExportFragments(new File(tmpDir, "otherFragments"), "some context"), files);
+        assertThat(incremental, is(gunzip(new File(tmpDir, "citations.tsv.gz"))));
+        assertThat(incremental.contains("some citation found by doi"), is(true));
+        assertThat(new File(storeDir, "citations/some%2Fnamespace").list().length, is(1));
+    }
+
+    @Test
+    public void exportUncompressed() throws IOException, NodeFactoryException {
+        createStudies();
+
+        ExportFragments fragments = new ExportFragments(new File(tmpDir, "fragments"), "some context");
+        fragments.setCompression(ExportCompression.NONE);
+        exportCitations(fragments, tsvAndCsv());
+        exportCitations(fragments, tsvAndCsv());
+
+        String tsv = FileUtils.readFileToString(new File(tmpDir, "citations.tsv"), StandardCharsets.UTF_8);
+        assertThat(tsv.split("\n").length, is(5));
+        assertThat(tsv.startsWith("doi\tcitation\n"), is(true));
+    }
+
+    private void exportCitations(ExportFragments fragments, Map<File, ExportUtil.ValueJoiner> files) throws IOException {
+        fragments.export(getGraphDb(), "citations", ExportCitations.DATASET_CYPHER_QUERY, ExportCitations.NO_DATASET_CYPHER_QUERY, files);
+    }
+
+    private File fragmentDirFor(ExportFragments fragments, String namespace, String contentHash) throws UnsupportedEncodingException {
+        return fragments.fragmentDirFor("citations", namespace, ExportFragments.versionOf(getGraphDb(), namespace, contentHash));
+    }
+
+    private Map<File, ExportUtil.ValueJoiner> tsvAndCsv() {
+        Map<File, ExportUtil.ValueJoiner> files = new LinkedHashMap<>();
+        files.put(new File(tmpDir, "citations.tsv.gz"), new ExportUtil.TsvValueJoiner());
+        files.put(new File(tmpDir, "citations.csv.gz"), new ExportUtil.CsvValueJoiner());
+        return files;
+    }
+
+    private void createStudies() throws IOException, NodeFactoryException {
+        NodeFactoryWithDatasetContext factory = new NodeFactoryWithDatasetContext(nodeFactory, datasetFor("some/namespace", "some-hash"));
+        factory.createStudy(new StudyImpl("some title", new DOI("some", "doi"), "some citation"));
+
+        NodeFactoryWithDatasetContext otherFactory = new NodeFactoryWithDatasetContext(nodeFactory, datasetFor("some/othernamespace", "some-other-hash"));
+        otherFactory.createStudy(new StudyImpl("some other title", new DOI("some", "otherdoi"), "some other citation"));
+
+        NodeFactoryWithDatasetContext unhashedFactory = new NodeFactoryWithDatasetContext(nodeFactory, datasetFor("some/unhashednamespace", null));
+        unhashedFactory.createStudy(new StudyImpl("some unhashed title", new DOI("some", "unhasheddoi"), "some unhashed citation"));
+
+        getNodeFactory().getOrCreateStudy(new StudyImpl("some title without dataset", new DOI("some", "nodatasetdoi"), "some citation without dataset"));
+    }
+
+    private static DatasetImpl datasetFor(String namespace, String contentHash) throws IOException {
+        DatasetImpl dataset = new DatasetImpl(namespace, URI.create("http://example.com/" + namespace), inStream -> inStream);
+        if (contentHash != null) {
+            dataset.setConfig(new ObjectMapper().readTree("{\"contentHash\":\"" + contentHash + "\"}"));
+        }
+        return dataset;
+    }
+
+    private static void gzip(File file, String content) throws IOException {
+        try (GZIPOutputStream os = new GZIPOutputStream(FileUtils.openOutputStream(file))) {
+            IOUtils.write(content, os, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String gunzip(File file) throws IOException {
+        try (InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+    }
+
+}
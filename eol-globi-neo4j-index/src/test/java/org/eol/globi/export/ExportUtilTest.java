@@ -9,6 +9,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -55,4 +56,26 @@ public class ExportUtilTest {
         assertThat(writer.getBuffer().toString(), is("\"o\"\"n\ne\",two,\"three\r\n\t\"\n"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void writeRowSameAsJoin() throws IOException {
+        String[] values = {"o\"n,e", "", null, " two\t\n", "three\r\n\t", "<four>"};
+        ExportUtil.ValueJoiner[] joiners = {
+                new ExportUtil.TsvValueJoiner(),
+                new ExportUtil.CsvValueJoiner(),
+                new ExportUtil.NQuadValueJoiner()
+        };
+        for (ExportUtil.ValueJoiner joiner : joiners) {
+            StringWriter writer = new StringWriter();
+            ((ExportUtil.RowWriter) joiner).writeRow(writer, values);
+            assertThat(writer.toString(), is(joiner.join(Stream.of(values)) + "\n"));
+        }
+    }
+
+    @Test
+    public void writeBlankNQuadRow() throws IOException {
+        StringWriter writer = new StringWriter();
+        new ExportUtil.NQuadValueJoiner().writeRow(writer, new String[]{"", " "});
+        assertThat(writer.toString(), is("\n"));
+    }
+
+}
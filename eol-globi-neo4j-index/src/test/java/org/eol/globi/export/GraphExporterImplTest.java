@@ -31,7 +31,10 @@ public class GraphExporterImplTest extends GraphDBTestCase {
         resolveNames();
         try {
             new GraphExporterImpl().export(getGraphDb(), tmpDirPath.getAbsolutePath() + "/");
-            assertThat(tmpDirPath.list().length, is(6));
+            assertThat(tmpDirPath.list().length, is(9));
+            assertThat(new File(tmpDirPath, "tsv/interactions.tsv.gz").exists(), is(true));
+            assertThat(new File(tmpDirPath, "csv/interactions.csv.gz").exists(), is(true));
+            assertThat(new File(tmpDirPath, "columnar/interactions.parquet").exists(), is(true));
         } finally {
             FileUtils.deleteQuietly(tmpDirPath);
         }
@@ -0,0 +1,162 @@
+package org.eol.globi.metrics;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.eol.globi.db.GraphServiceFactory;
+import org.eol.globi.tool.IndexerNeo4j;
+import org.eol.globi.tool.IndexerTimed;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class IndexerMetricsTest {
+
+    @Test
+    public void reportIntoRunningStage() {
+        IndexerMetrics metrics = new IndexerMetrics();
+
+        new IndexerTimed(new OuterIndexer(), metrics).index(null);
+        metrics.currentStage().itemsProcessed(1);
+
+        List<StageMetrics> stages = metrics.getStages();
+        assertThat(stages.size(), is(3));
+
+        StageMetrics outer = stages.get(0);
+        assertThat(outer.getName(), is("OuterIndexer"));
+        assertThat(outer.isRunning(), is(false));
+        assertThat(outer.getItemsProcessed(), is(30L));
+        assertThat(outer.getBatchCount(), is(2L));
+        assertThat(outer.getBatchLatency().getMax(), is(100L));
+        assertThat(outer.getCommitCount(), is(1L));
+        assertThat(outer.getCacheHitRate(), is(0.75));
+        assertThat(outer.getJvmAtStop().getHeapUsed() > 0, is(true));
+
+        StageMetrics inner = stages.get(1);
+        assertThat(inner.getName(), is("OuterIndexer/InnerIndexer"));
+        assertThat(inner.getItemsProcessed(), is(7L));
+
+        assertThat(stages.get(2).getName(), is("unstaged"));
+        assertThat(stages.get(2).getItemsProcessed(), is(1L));
+    }
+
+    @Test
+    public void uniqueStageNames() {
+        IndexerMetrics metrics = new IndexerMetrics();
+        metrics.stopStage(metrics.startStage("some stage"));
+        metrics.stopStage(metrics.startStage("some stage"));
+
+        assertThat(metrics.getStages().get(0).getName(), is("some stage"));
+        assertThat(metrics.getStages().get(1).getName(), is("some stage#2"));
+    }
+
+    @Test
+    public void latencyPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getPercentile(50), is(0L));
+
+        for (int i = 0; i < 98; i++) {
+            histogram.record(3);
+        }
+        histogram.record(100);
+        histogram.record(1000);
+
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getPercentile(50), is(3L));
+        // percentiles are reported as the upper bound of their power-of-two bucket
+        assertThat(histogram.getPercentile(99), is(127L));
+        assertThat(histogram.getPercentile(100), is(1000L));
+        assertThat(histogram.getMax(), is(1000L));
+    }
+
+    @Test
+    public void writeReport() throws IOException {
+        File reportDir = new File("target/indexer-metrics-test" + UUID.randomUUID());
+        FileUtils.forceMkdir(reportDir);
+        try {
+            IndexerMetrics metrics = new IndexerMetrics();
+            StageMetrics stage = metrics.startStage("some, stage");
+            stage.batchCompleted(10, 2);
+            stage.cacheLookups("taxonCache", 1, 1);
+            metrics.stopStage(stage);
+
+            metrics.writeReport(reportDir);
+
+            JsonNode report = new ObjectMapper().readTree(new File(reportDir, "indexer-metrics.json"));
+            JsonNode stageReport = report.get("stages").get(0);
+            assertThat(stageReport.get("name").asText(), is("some, stage"));
+            assertThat(stageReport.get("itemsProcessed").asLong(), is(10L));
+            assertThat(stageReport.get("batchLatencyMillis").get("p99").asLong(), is(2L));
+            assertThat(stageReport.get("caches").get("taxonCache").get("hitRate").asDouble(), is(0.5));
+            assertThat(stageReport.has("jvmAtStop"), is(true));
+
+            String csv = FileUtils.readFileToString(new File(reportDir, "indexer-metrics.csv"), StandardCharsets.UTF_8);
+            assertThat(csv, containsString("stage,metric,value\n"));
+            assertThat(csv, containsString("\"some, stage\",itemsProcessed,10\n"));
+            assertThat(csv, containsString("\"some, stage\",caches.taxonCache.hits,1\n"));
+            assertThat(csv, containsString("\"some, stage\",jvmAtStop.heapUsed,"));
+        } finally {
+            FileUtils.deleteQuietly(reportDir);
+        }
+    }
+
+    @Test
+    public void registerRunningStagesWithJmx() throws Exception {
+        IndexerMetrics metrics = new IndexerMetrics();
+        metrics.setJmxEnabled(true);
+
+        StageMetrics stage = metrics.startStage("jmx stage");
+        stage.itemsProcessed(12);
+
+        ObjectName name = new ObjectName("org.eol.globi:type=IndexerStage,name=" + ObjectName.quote("jmx stage"));
+        Object itemsProcessed = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ItemsProcessed");
+        assertThat(itemsProcessed, is(12L));
+
+        metrics.stopStage(stage);
+        metrics.unregisterMBeans();
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name), is(false));
+    }
+
+    private static class OuterIndexer implements IndexerNeo4j {
+        private IndexerMetrics metrics;
+
+        @Override
+        public void index(GraphServiceFactory graphServiceFactory) {
+            metrics.currentStage().batchCompleted(10, 5);
+            metrics.currentStage().batchCompleted(20, 100);
+            metrics.currentStage().transactionCommitted(3);
+            metrics.currentStage().cacheLookups("someCache", 3, 1);
+            new IndexerTimed(new InnerIndexer(), metrics).index(graphServiceFactory);
+        }
+
+        @Override
+        public void setMetrics(IndexerMetrics metrics) {
+            this.metrics = metrics;
+        }
+    }
+
+    private static class InnerIndexer implements IndexerNeo4j {
+        private IndexerMetrics metrics;
+
+        @Override
+        public void index(GraphServiceFactory graphServiceFactory) {
+            metrics.currentStage().itemsProcessed(7);
+        }
+
+        @Override
+        public void setMetrics(IndexerMetrics metrics) {
+            this.metrics = metrics;
+        }
+    }
+
+}
@@ -0,0 +1,220 @@
+package org.eol.globi.tool;
+
+import org.apache.commons.io.FileUtils;
+import org.eol.globi.data.StudyImporterException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+public class IndexerCheckpointsTest {
+
+    private File storeDir;
+    private List<String> stagesRun;
+
+    @Before
+    public void init() {
+        storeDir = new File("target/checkpoints-test" + UUID.randomUUID());
+        stagesRun = new ArrayList<>();
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(storeDir);
+    }
+
+    @Test
+    public void skipCompletedStages() throws IOException, StudyImporterException {
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "stage2")));
+        assertThat(new File(storeDir, IndexerCheckpoints.CHECKPOINTS_FILENAME).exists(), is(true));
+
+        stagesRun.clear();
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        assertThat(stagesRun.isEmpty(), is(true));
+    }
+
+    @Test
+    public void rebuildOnChangedStage() throws IOException, StudyImporterException {
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        FileUtils.touch(new File(storeDir, "graph.file"));
+        stagesRun.clear();
+        runStages(new IndexerCheckpoints(storeDir), "one", "changed");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "stage2")));
+        assertThat(new File(storeDir, "graph.file").exists(), is(false));
+
+        stagesRun.clear();
+        runStages(new IndexerCheckpoints(storeDir), "changed", "changed");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "stage2")));
+    }
+
+    @Test
+    public void resumeAtNewStage() throws IOException, StudyImporterException {
+        new IndexerCheckpoints(storeDir).run("stage1", () -> "one", () -> stagesRun.add("stage1"));
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "stage2")));
+    }
+
+    @Test
+    public void rebuildOnFailedStage() throws IOException, StudyImporterException {
+        IndexerCheckpoints checkpoints = new IndexerCheckpoints(storeDir);
+        checkpoints.run("stage1", () -> "one", () -> stagesRun.add("stage1"));
+        try {
+            checkpoints.run("stage2", () -> "two", () -> {
+                throw new StudyImporterException("kaboom!");
+            });
+            fail("expected failure");
+        } catch (StudyImporterException ex) {
+            assertThat(ex.getMessage(), is("kaboom!"));
+        }
+
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "stage1", "stage2")));
+    }
+
+    @Test
+    public void doNotCompleteStageWithFailures() throws IOException, StudyImporterException {
+        IndexerCheckpoints checkpoints = new IndexerCheckpoints(storeDir);
+        checkpoints.run("stage1", () -> "one", () -> stagesRun.add("stage1"));
+        checkpoints.run("stage2", () -> "two", () -> !stagesRun.add("stage2"));
+        assertThat(checkpoints.isCompleted("stage1", "one"), is(true));
+        assertThat(checkpoints.isCompleted("stage2", "two"), is(false));
+
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "stage2", "stage1", "stage2")));
+    }
+
+    @Test
+    public void resumeFromSnapshot() throws IOException, StudyImporterException {
+        File snapshotDir = new File(storeDir, "snapshot");
+        File graphDir = new File(storeDir, "graph.db");
+        IndexerCheckpoints checkpoints = new IndexerCheckpoints(graphDir);
+        checkpoints.setSnapshotDir(snapshotDir);
+        checkpoints.run("stage1", () -> "one", () -> {
+            write(new File(graphDir, "stage1.file"));
+            return stagesRun.add("stage1");
+        });
+        try {
+            checkpoints.run("stage2", () -> "two", () -> {
+                write(new File(graphDir, "stage2.file"));
+                throw new StudyImporterException("kaboom!");
+            });
+            fail("expected failure");
+        } catch (StudyImporterException ex) {
+            assertThat(ex.getMessage(), is("kaboom!"));
+        }
+
+        List<String> shutdowns = new ArrayList<>();
+        checkpoints = new IndexerCheckpoints(graphDir);
+        checkpoints.setSnapshotDir(snapshotDir);
+        checkpoints.setGraphShutdown(() -> shutdowns.add("shutdown"));
+        runStages(checkpoints, "one", "two");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "stage2")));
+        assertThat(new File(graphDir, "stage1.file").exists(), is(true));
+        assertThat(new File(graphDir, "stage2.file").exists(), is(false));
+        assertThat(shutdowns.isEmpty(), is(false));
+    }
+
+    @Test(expected = StudyImporterException.class)
+    public void failOnUnrebuildableGraph() throws IOException, StudyImporterException {
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        IndexerCheckpoints checkpoints = new IndexerCheckpoints(storeDir);
+        checkpoints.setRebuildable(false);
+        runStages(checkpoints, "changed", "two");
+    }
+
+    @Test
+    public void rerunStageWithChangedOutputs() throws IOException, StudyImporterException {
+        File output = new File(storeDir, "output.txt");
+        IndexerCheckpoints checkpoints = new IndexerCheckpoints(storeDir);
+        IndexerCheckpoints.Stage export = () -> {
+            write(output);
+            return stagesRun.add("export");
+        };
+        checkpoints.run("export", () -> "one", () -> IndexerCheckpoints.fileFingerprint(Collections.singletonList(output)), export);
+
+        checkpoints = new IndexerCheckpoints(storeDir);
+        checkpoints.run("export", () -> "one", () -> IndexerCheckpoints.fileFingerprint(Collections.singletonList(output)), export);
+        assertThat(stagesRun, is(Collections.singletonList("export")));
+
+        FileUtils.deleteQuietly(output);
+        checkpoints = new IndexerCheckpoints(storeDir);
+        checkpoints.run("export", () -> "one", () -> IndexerCheckpoints.fileFingerprint(Collections.singletonList(output)), export);
+        assertThat(stagesRun, is(Arrays.asList("export", "export")));
+
+        checkpoints = new IndexerCheckpoints(storeDir);
+        checkpoints.run("export", () -> "changed", () -> IndexerCheckpoints.fileFingerprint(Collections.singletonList(output)), export);
+        assertThat(stagesRun, is(Arrays.asList("export", "export", "export")));
+    }
+
+    @Test
+    public void rerunExportAfterGraphStageRanWithoutExport() throws IOException, StudyImporterException {
+        File output = new File(storeDir, "output.txt");
+        IndexerCheckpoints.Stage export = () -> {
+            write(output);
+            return stagesRun.add("export");
+        };
+        IndexerCheckpoints checkpoints = new IndexerCheckpoints(storeDir);
+        checkpoints.run("stage1", () -> "one", () -> stagesRun.add("stage1"));
+        checkpoints.run("export", () -> "one", () -> IndexerCheckpoints.fileFingerprint(Collections.singletonList(output)), export);
+
+        // new graph stage, export skipped
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "export", "stage2")));
+
+        checkpoints = new IndexerCheckpoints(storeDir);
+        runStages(checkpoints, "one", "two");
+        checkpoints.run("export", () -> "one", () -> IndexerCheckpoints.fileFingerprint(Collections.singletonList(output)), export);
+        assertThat(stagesRun, is(Arrays.asList("stage1", "export", "stage2", "export")));
+    }
+
+    @Test
+    public void ignoreCheckpoints() throws IOException, StudyImporterException {
+        runStages(new IndexerCheckpoints(storeDir), "one", "two");
+        IndexerCheckpoints checkpoints = new IndexerCheckpoints(storeDir);
+        checkpoints.setResuming(false);
+        runStages(checkpoints, "one", "two");
+        assertThat(stagesRun, is(Arrays.asList("stage1", "stage2", "stage1", "stage2")));
+    }
+
+    @Test
+    public void datasetFingerprint() throws URISyntaxException, IOException {
+        URL resource = getClass().getResource("datasets-test/globalbioticinteractions/template-dataset/access.tsv");
+        assertNotNull(resource);
+        File datasetDir = new File(resource.toURI()).getParentFile().getParentFile().getParentFile();
+
+        String fingerprint = IndexerCheckpoints.datasetFingerprint(datasetDir);
+        assertThat(fingerprint, is(IndexerCheckpoints.datasetFingerprint(datasetDir)));
+        assertThat(fingerprint, is(not(IndexerCheckpoints.datasetFingerprint(storeDir))));
+        assertThat(IndexerCheckpoints.datasetFingerprint(storeDir), is(IndexerCheckpoints.noInputs()));
+    }
+
+    private static void write(File file) throws StudyImporterException {
+        try {
+            FileUtils.touch(file);
+        } catch (IOException e) {
+            throw new StudyImporterException("failed to write [" + file.getAbsolutePath() + "]", e);
+        }
+    }
+
+    private void runStages(IndexerCheckpoints checkpoints, String inputs1, String inputs2) throws StudyImporterException {
+        checkpoints.run("stage1", () -> inputs1, () -> stagesRun.add("stage1"));
+        checkpoints.run("stage2", () -> inputs2, () -> stagesRun.add("stage2"));
+    }
+
+}
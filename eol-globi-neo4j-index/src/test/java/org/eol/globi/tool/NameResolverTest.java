@@ -2,9 +2,11 @@ package org.eol.globi.tool;
 
 import org.eol.globi.data.GraphDBTestCase;
 import org.eol.globi.data.NodeFactoryException;
+import org.eol.globi.data.TaxonIndex;
 import org.eol.globi.db.GraphServiceFactory;
 import org.eol.globi.domain.RelTypes;
 import org.eol.globi.domain.Specimen;
+import org.eol.globi.domain.Study;
 import org.eol.globi.domain.StudyImpl;
 import org.eol.globi.domain.Taxon;
 import org.eol.globi.domain.TaxonImpl;
@@ -43,7 +45,42 @@ public class NameResolverTest extends GraphDBTestCase {
         assertResolveNames(RelTypes.SUPPORTS);
     }
 
+    @Test
+    public void doNameResolvingInParallel() throws NodeFactoryException, PropertyEnricherException {
+        assertResolveNames(RelTypes.COLLECTED, 3);
+    }
+
+    @Test(expected = IllegalStateException.class, timeout = 60000)
+    public void failingWorkerInParallel() throws NodeFactoryException {
+        Study study = nodeFactory.createStudy(new StudyImpl("bla", null, null));
+        for (int i = 0; i < 1500; i++) {
+            nodeFactory.createSpecimen(study, new TaxonImpl("Homo sapiens", "NCBI:9606"));
+        }
+
+        final NameResolver nameResolver = new NameResolver(new TaxonIndex() {
+            @Override
+            public Taxon getOrCreateTaxon(Taxon taxon) {
+                throw new Error("kaboom!");
+            }
+
+            @Override
+            public Taxon findTaxonByName(String name) {
+                return null;
+            }
+
+            @Override
+            public Taxon findTaxonById(String externalId) {
+                return null;
+            }
+        });
+        nameResolver.resolveNamesInParallel(1L, 2, getGraphDb());
+    }
+
     private void assertResolveNames(RelTypes relTypes) throws NodeFactoryException {
+        assertResolveNames(relTypes, 1);
+    }
+
+    private void assertResolveNames(RelTypes relTypes, int numberOfWorkers) throws NodeFactoryException {
         Specimen human = nodeFactory.createSpecimen(nodeFactory.createStudy(new StudyImpl("bla", null, null)), new TaxonImpl("Homo sapiens", "NCBI:9606"), relTypes);
         Specimen animal = nodeFactory.createSpecimen(nodeFactory.createStudy(new StudyImpl("bla", null, null)), new TaxonImpl("Animalia", "WORMS:2"), relTypes);
         human.ate(animal);
@@ -55,6 +92,7 @@ public class NameResolverTest extends GraphDBTestCase {
 
         final NameResolver nameResolver = new NameResolver(new NonResolvingTaxonIndex(getGraphDb()));
         nameResolver.setBatchSize(1L);
+        nameResolver.setNumberOfWorkers(numberOfWorkers);
 
         final GraphServiceFactory factory = new GraphServiceFactory() {
 
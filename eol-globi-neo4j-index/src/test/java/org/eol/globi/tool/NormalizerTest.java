@@ -12,16 +12,26 @@ import org.eol.globi.data.NodeFactoryNeo4j;
 import org.eol.globi.data.StudyImporterException;
 import org.eol.globi.data.StudyImporterTestFactory;
 import org.eol.globi.db.GraphServiceFactoryProxy;
+import org.eol.globi.export.ExportCompression;
+import org.eol.globi.metrics.IndexerMetrics;
 import org.eol.globi.domain.Study;
+import org.eol.globi.domain.StudyNode;
+import org.eol.globi.util.NodeUtil;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Transaction;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.List;
+import java.util.UUID;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertNotNull;
 import static org.hamcrest.MatcherAssert.assertThat;
 public class NormalizerTest extends GraphDBTestCase {
@@ -29,7 +39,7 @@ public class NormalizerTest extends GraphDBTestCase {
     private final static Logger LOG = LoggerFactory.getLogger(NormalizerTest.class);
 
     @Test
-    public void handleOptions() throws ParseException {
+    public void handleOptions() throws ParseException, StudyImporterException, IOException {
         CommandLine commandLine = Normalizer.parseOptions(new String[]{"-h"});
         assertThat(commandLine.hasOption("h"), is(true));
         commandLine = Normalizer.parseOptions(new String[]{"--help"});
@@ -50,6 +60,57 @@ public class NormalizerTest extends GraphDBTestCase {
 
         commandLine = Normalizer.parseOptions(new String[]{"-datasetDir", "some/bla"});
         assertThat(commandLine.getOptionValue("datasetDir"), is("some/bla"));
+        assertThat(Normalizer.getNumberOfResolveWorkers(commandLine), is(1));
+
+        commandLine = Normalizer.parseOptions(new String[]{"-resolveWorkers", "4"});
+        assertThat(Normalizer.getNumberOfResolveWorkers(commandLine), is(4));
+        assertThat(Normalizer.getNumberOfImportWorkers(commandLine), is(1));
+
+        commandLine = Normalizer.parseOptions(new String[]{"-importWorkers", "3"});
+        assertThat(Normalizer.getNumberOfImportWorkers(commandLine), is(3));
+
+        commandLine = Normalizer.parseOptions(new String[]{"-metricsDir", "some/metrics", "-metricsJmx"});
+        assertThat(commandLine.getOptionValue("metricsDir"), is("some/metrics"));
+        assertThat(commandLine.hasOption("metricsJmx"), is(true));
+
+        commandLine = Normalizer.parseOptions(new String[]{"-ignoreCheckpoints"});
+        assertThat(commandLine.hasOption("ignoreCheckpoints"), is(true));
+        assertThat(Normalizer.getExportCompression(commandLine), is(ExportCompression.PARALLEL_GZIP));
+
+        commandLine = Normalizer.parseOptions(new String[]{"-exportCompression", "none"});
+        assertThat(Normalizer.getExportCompression(commandLine), is(ExportCompression.NONE));
+        assertThat(Normalizer.getExportFragments(commandLine), is(nullValue()));
+
+        String fingerprintNoCompression = Normalizer.getExportFingerprint(commandLine);
+        assertThat(fingerprintNoCompression, is(not(Normalizer.getExportFingerprint(null))));
+
+        commandLine = Normalizer.parseOptions(new String[]{"-exportFragments", "target/export-fragments"});
+        assertThat(Normalizer.getExportFragments(commandLine), is(notNullValue()));
+        assertThat(Normalizer.getExportFingerprint(commandLine), is(not(Normalizer.getExportFingerprint(null))));
+
+        commandLine = Normalizer.parseOptions(new String[]{"-taxonIndex", "target/taxonIndex.gti"});
+        assertThat(Normalizer.getTaxaFingerprint(commandLine), is(not(Normalizer.getTaxaFingerprint(null))));
+        assertThat(Normalizer.getExportFingerprint(commandLine), is(not(Normalizer.getExportFingerprint(null))));
+
+        commandLine = Normalizer.parseOptions(new String[]{"-checkpointSnapshots"});
+        assertThat(commandLine.hasOption("checkpointSnapshots"), is(true));
+    }
+
+    @Test
+    public void writeMetricsReportOnlyIfRequested() throws ParseException, IOException {
+        File metricsDir = new File("target/metrics-test" + UUID.randomUUID());
+        try {
+            Normalizer.writeMetricsReport(Normalizer.parseOptions(new String[]{}), new IndexerMetrics());
+            assertThat(new File(IndexerMetrics.REPORT_NAME + ".json").exists(), is(false));
+            assertThat(new File(IndexerMetrics.REPORT_NAME + ".csv").exists(), is(false));
+
+            FileUtils.forceMkdir(metricsDir);
+            Normalizer.writeMetricsReport(Normalizer.parseOptions(new String[]{"-metricsDir", metricsDir.getPath()}), new IndexerMetrics());
+            assertThat(new File(metricsDir, IndexerMetrics.REPORT_NAME + ".json").exists(), is(true));
+            assertThat(new File(metricsDir, IndexerMetrics.REPORT_NAME + ".csv").exists(), is(true));
+        } finally {
+            FileUtils.deleteQuietly(metricsDir);
+        }
     }
 
     @Test
@@ -86,6 +147,23 @@ public class NormalizerTest extends GraphDBTestCase {
         dataNormalizationTool.exportData(getGraphDb(), baseDir);
     }
 
+    @Test
+    public void doParallelImport() throws URISyntaxException {
+        URL resource = getClass().getResource("datasets-test/globalbioticinteractions/template-dataset/access.tsv");
+        assertNotNull(resource);
+        String datasetDirTest = new File(resource.toURI()).getParentFile().getParentFile().getParentFile().getAbsolutePath();
+        final IndexerDataset indexerDataset = new IndexerDataset(DatasetRegistryUtil.getDatasetRegistry(datasetDirTest));
+        indexerDataset.setNumberOfWorkers(2);
+        indexerDataset.index(new GraphServiceFactoryProxy(getGraphDb()));
+
+        try (Transaction tx = getGraphDb().beginTx()) {
+            List<StudyNode> studies = NodeUtil.findAllStudies(getGraphDb());
+            assertThat(studies.size(), is(1));
+            assertThat(getSpecimenCount(studies.get(0)), is(22));
+            tx.success();
+        }
+    }
+
     private static void importData(Class<? extends DatasetImporter> importer, NodeFactoryNeo4j factory) throws StudyImporterException {
         DatasetImporter datasetImporter = createStudyImporter(importer, factory);
         LOG.info("[" + importer + "] importing ...");
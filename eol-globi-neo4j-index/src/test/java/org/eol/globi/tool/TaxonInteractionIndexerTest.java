@@ -30,6 +30,18 @@ public class TaxonInteractionIndexerTest extends GraphDBTestCase {
 
     @Test
     public void buildTaxonInterIndex() throws NodeFactoryException, PropertyEnricherException {
+        assertTaxonInteractionIndex(new TaxonInteractionIndexer());
+    }
+
+    @Test
+    public void buildTaxonInterIndexSpillToDisk() throws NodeFactoryException, PropertyEnricherException {
+        TaxonInteractionIndexer indexer = new TaxonInteractionIndexer();
+        indexer.setMaxInteractionsInMemory(1);
+        indexer.setBatchSize(1);
+        assertTaxonInteractionIndex(indexer);
+    }
+
+    private void assertTaxonInteractionIndex(TaxonInteractionIndexer indexer) throws NodeFactoryException {
         Specimen human = nodeFactory.createSpecimen(nodeFactory.createStudy(new StudyImpl("bla", null, null)), new TaxonImpl("Homo sapiens", "NCBI:9606"));
         Specimen animal = nodeFactory.createSpecimen(nodeFactory.createStudy(new StudyImpl("bla", null, null)), new TaxonImpl("Canis lupus", "WORMS:2"));
         human.ate(animal);
@@ -44,7 +56,7 @@ public class TaxonInteractionIndexerTest extends GraphDBTestCase {
         new NameResolver(new NonResolvingTaxonIndex(getGraphDb()))
                 .index(new GraphServiceFactoryProxy(getGraphDb()));
 
-        new TaxonInteractionIndexer().index(getGraphDb());
+        indexer.index(getGraphDb());
 
         Taxon homoSapiens = taxonIndex.findTaxonByName("Homo sapiens");
         assertNotNull(homoSapiens);
@@ -0,0 +1,24 @@
+package org.eol.globi.server;
+
+import org.eol.globi.util.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@ControllerAdvice
+public class ServiceUnavailableHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceUnavailableHandler.class);
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public void serviceUnavailable(ServiceUnavailableException ex, HttpServletResponse response) throws IOException {
+        LOG.warn("shedding load: [" + ex.getMessage() + "]");
+        response.setHeader("Retry-After", Integer.toString(ex.getRetryAfterSeconds()));
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), ex.getMessage());
+    }
+
+}
@@ -2,24 +2,41 @@ package org.eol.globi.server.util;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
 import org.eol.globi.util.CypherQuery;
 import org.eol.globi.util.CypherUtil;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.AbstractHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class CypherHttpMessageConverter extends AbstractHttpMessageConverter<CypherQuery> {
 
+    private static final ResultCache DEFAULT_CACHE = ResultCache.fromSystemProperties();
+
+    private final ResultCache cache;
+
     public CypherHttpMessageConverter() {
+        this(DEFAULT_CACHE);
+    }
+
+    public CypherHttpMessageConverter(ResultCache cache) {
         super(MediaType.parseMediaType("application/json;charset=UTF-8"),
                 MediaType.parseMediaType("application/ld+json;charset=UTF-8"),
                 MediaType.parseMediaType("text/html;charset=UTF-8"),
@@ -27,6 +44,7 @@ public class CypherHttpMessageConverter extends AbstractHttpMessageConverter<Cyp
                 MediaType.parseMediaType("text/tab-separated-values;charset=UTF-8"),
                 MediaType.parseMediaType("text/csv;charset=UTF-8"),
                 MediaType.parseMediaType("image/svg+xml;charset=UTF-8"));
+        this.cache = cache;
     }
 
     @Override
@@ -52,21 +70,69 @@ public class CypherHttpMessageConverter extends AbstractHttpMessageConverter<Cyp
             throw new IOException("found unsupported return format type request for [" + contentType.toString() + "]");
         }
 
-        cypherQuery = optimizeQueryForType(cypherQuery, formatter);
+        CypherQuery query = optimizeQueryForType(cypherQuery, formatter);
 
-        if (formatter instanceof ResultFormatterStreaming) {
-            HttpResponse res = CypherUtil.execute(cypherQuery);
-            try (InputStream is = IOUtils.buffer(res.getEntity().getContent());
-                 OutputStream os = IOUtils.buffer(outputMessage.getBody())) {
-                ((ResultFormatterStreaming) formatter).format(is, os);
-                os.flush();
+        if (cache == null) {
+            write(query, formatter, contentType, outputMessage.getBody());
+        } else {
+            writeCached(query, formatter, contentType, outputMessage);
+        }
+    }
+
+    private void writeCached(CypherQuery query, ResultFormatter formatter, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        // results that outgrow the cache are passed on to the response as they are produced
+        OverflowOutputStream result = new OverflowOutputStream(cache.getMaxEntryBytes(), outputMessage);
+        ResultCache.Entry entry = cache.getOrLoad(cacheKeyFor(query, contentType), () -> {
+            write(query, formatter, contentType, result);
+            return result.hasOverflowed() ? null : result.toByteArray();
+        });
+
+        if (entry != null) {
+            outputMessage.getHeaders().setETag(entry.getETag());
+            if (isNotModified(entry, outputMessage)) {
+                ((ServerHttpResponse) outputMessage).setStatusCode(HttpStatus.NOT_MODIFIED);
+            } else {
+                outputMessage.getBody().write(entry.getBody());
             }
+        } else if (!result.hasOverflowed()) {
+            write(query, formatter, contentType, outputMessage.getBody());
+        }
+    }
+
+    private static boolean isNotModified(ResultCache.Entry entry, HttpOutputMessage outputMessage) {
+        boolean notModified = false;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (outputMessage instanceof ServerHttpResponse && attributes instanceof ServletRequestAttributes) {
+            String ifNoneMatch = ((ServletRequestAttributes) attributes).getRequest().getHeader("If-None-Match");
+            notModified = StringUtils.isNotBlank(ifNoneMatch)
+                    && (StringUtils.equals(ifNoneMatch.trim(), "*")
+                    || Arrays.asList(StringUtils.split(ifNoneMatch, ", ")).contains(entry.getETag()));
+        }
+        return notModified;
+    }
+
+    private static void write(CypherQuery query, ResultFormatter formatter, MediaType contentType, OutputStream outputStream) throws IOException {
+        if (formatter instanceof ResultFormatterStreaming) {
+            CypherUtil.execute(query, content -> {
+                try (OutputStream os = IOUtils.buffer(new CloseShieldOutputStream(outputStream))) {
+                    ((ResultFormatterStreaming) formatter).format(IOUtils.buffer(content), os);
+                    os.flush();
+                }
+                return null;
+            });
         } else {
-            String result = CypherUtil.executeRemote(cypherQuery);
-            StreamUtils.copy(formatter.format(result), contentType.getCharSet(), outputMessage.getBody());
+            String result = CypherUtil.executeRemote(query);
+            StreamUtils.copy(formatter.format(result), contentType.getCharSet(), outputStream);
         }
     }
 
+    static String cacheKeyFor(CypherQuery query, MediaType contentType) {
+        Map<String, String> params = query.getParams() == null
+                ? Collections.emptyMap()
+                : new TreeMap<>(query.getParams());
+        return contentType + "\n" + query.getVersionedQuery() + "\n" + params;
+    }
+
     static CypherQuery optimizeQueryForType(CypherQuery cypherQuery, ResultFormatter formatter) {
         if (formatter instanceof ResultFormatterSVG) {
             cypherQuery = attemptQueryRewrite(cypherQuery, " LIMIT ");
@@ -75,6 +141,49 @@ public class CypherHttpMessageConverter extends AbstractHttpMessageConverter<Cyp
         return cypherQuery;
     }
 
+    /**
+     * Keeps up to a maximum number of bytes in memory. Once more bytes are written, the kept bytes and all following
+     * bytes are passed on to the response.
+     */
+    static class OverflowOutputStream extends OutputStream {
+        private final long maxBytes;
+        private final HttpOutputMessage outputMessage;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream overflow = null;
+
+        OverflowOutputStream(long maxBytes, HttpOutputMessage outputMessage) {
+            this.maxBytes = maxBytes;
+            this.outputMessage = outputMessage;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (overflow == null && buffer.size() + len > maxBytes) {
+                overflow = outputMessage.getBody();
+                buffer.writeTo(overflow);
+                buffer = null;
+            }
+            if (overflow == null) {
+                buffer.write(b, off, len);
+            } else {
+                overflow.write(b, off, len);
+            }
+        }
+
+        boolean hasOverflowed() {
+            return overflow != null;
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
     private static CypherQuery attemptQueryRewrite(CypherQuery cypherQuery, String limit_) {
         if (StringUtils.contains(cypherQuery.getQuery(), limit_)) {
             String[] queryParts = StringUtils.splitByWholeSeparator(cypherQuery.getQuery(), limit_);
@@ -0,0 +1,432 @@
+package org.eol.globi.server.util;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.eol.globi.util.CypherEmbedded;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Caches formatted query results by key, bounded by the total number of cached bytes.
+ * <p>
+ * Least recently used results are evicted first, and results expire after a time to live. If a cache dir is
+ * configured, results evicted from memory are kept on disk (again bounded by bytes) and are promoted back into memory
+ * on their next use. Concurrent requests for the same uncached key are coalesced: only the first one loads the result,
+ * the others wait for it. All cached results are dropped when the graph version changes.
+ * <p>
+ * The graph version is taken from neo4j.graph.version, from the file configured by neo4j.graph.version.file (e.g.,
+ * written on deployment of a new graph) or, for a graph opened in process, from its store id. Without any of these,
+ * caching is disabled, because cached results could not be told apart from results of an updated graph.
+ */
+public class ResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ResultCache.class);
+
+    public static final String MAX_BYTES = "globi.cache.max.bytes";
+    public static final String MAX_ENTRY_BYTES = "globi.cache.max.entry.bytes";
+    public static final String TTL_SECONDS = "globi.cache.ttl.seconds";
+    public static final String CACHE_DIR = "globi.cache.dir";
+    public static final String MAX_DISK_BYTES = "globi.cache.max.disk.bytes";
+    public static final String GRAPH_VERSION = "neo4j.graph.version";
+    public static final String GRAPH_VERSION_FILE = "neo4j.graph.version.file";
+
+    public interface Loader {
+        /**
+         * @return the result to be cached, or null if the result should not be cached
+         */
+        byte[] load() throws IOException;
+    }
+
+    public static final class Entry {
+        private final String key;
+        private final byte[] body;
+        private final String etag;
+        private final long createdAt;
+        private final String graphVersion;
+
+        Entry(String key, byte[] body, String etag, long createdAt, String graphVersion) {
+            this.key = key;
+            this.body = body;
+            this.etag = etag;
+            this.createdAt = createdAt;
+            this.graphVersion = graphVersion;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlMillis;
+    private final File cacheDir;
+    private final long maxDiskBytes;
+    private final Supplier<String> graphVersion;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private long cachedBytes = 0;
+    private boolean graphVersionKnown = false;
+    private String currentGraphVersion = null;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    public ResultCache(long maxBytes, long maxEntryBytes, long ttlMillis, File cacheDir, long maxDiskBytes, Supplier<String> graphVersion) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.ttlMillis = ttlMillis;
+        this.cacheDir = cacheDir;
+        this.maxDiskBytes = maxDiskBytes;
+        this.graphVersion = graphVersion;
+    }
+
+    /**
+     * @return a cache configured by system properties, or null if caching is disabled (globi.cache.max.bytes=0) or
+     * no graph version is available
+     */
+    public static ResultCache fromSystemProperties() {
+        long maxBytes = longProperty(MAX_BYTES, 64L * 1024 * 1024);
+        if (maxBytes <= 0) {
+            return null;
+        }
+        Supplier<String> graphVersion = graphVersionFromSystemProperties();
+        if (graphVersion == null) {
+            LOG.warn("result cache disabled: no graph version available, please configure [" + GRAPH_VERSION + "] or [" + GRAPH_VERSION_FILE + "]");
+            return null;
+        }
+        String cacheDir = System.getProperty(CACHE_DIR);
+        return new ResultCache(maxBytes,
+                longProperty(MAX_ENTRY_BYTES, 4L * 1024 * 1024),
+                longProperty(TTL_SECONDS, 24L * 60 * 60) * 1000L,
+                StringUtils.isBlank(cacheDir) ? null : new File(StringUtils.trim(cacheDir)),
+                longProperty(MAX_DISK_BYTES, 1024L * 1024 * 1024),
+                graphVersion);
+    }
+
+    static Supplier<String> graphVersionFromSystemProperties() {
+        Supplier<String> graphVersion = null;
+        if (StringUtils.isNotBlank(System.getProperty(GRAPH_VERSION))) {
+            graphVersion = () -> System.getProperty(GRAPH_VERSION);
+        } else if (StringUtils.isNotBlank(System.getProperty(GRAPH_VERSION_FILE))) {
+            graphVersion = new VersionFile(new File(StringUtils.trim(System.getProperty(GRAPH_VERSION_FILE))));
+        } else if (StringUtils.isNotBlank(System.getProperty(CypherEmbedded.GRAPH_DIR))) {
+            // a graph opened in process does not change while it is served
+            graphVersion = () -> CypherEmbedded.getInstance().getStoreVersion();
+        }
+        return graphVersion;
+    }
+
+    private static long longProperty(String name, long defaultValue) {
+        return NumberUtils.toLong(StringUtils.trim(System.getProperty(name)), defaultValue);
+    }
+
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public Entry get(String key) {
+        String version = checkGraphVersion();
+        Entry entry = getFromMemory(key);
+        if (entry == null && cacheDir != null) {
+            entry = getFromDisk(key, version);
+            if (entry != null) {
+                put(entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @return the cached result for the key, loading it if needed. Returns null if the result could not be cached, in
+     * which case the caller has to produce the result itself, unless the provided loader was used.
+     */
+    public Entry getOrLoad(String key, Loader loader) throws IOException {
+        Entry entry = get(key);
+        if (entry == null) {
+            CompletableFuture<Entry> load = new CompletableFuture<>();
+            CompletableFuture<Entry> inProgress = loading.putIfAbsent(key, load);
+            if (inProgress == null) {
+                entry = load(key, loader, load);
+            } else {
+                entry = await(inProgress);
+            }
+        }
+        return entry;
+    }
+
+    public void clear() {
+        clearMemory();
+        clearDisk();
+    }
+
+    private synchronized void clearMemory() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    private void clearDisk() {
+        if (cacheDir != null) {
+            FileUtils.deleteQuietly(cacheDir);
+        }
+    }
+
+    synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    private Entry load(String key, Loader loader, CompletableFuture<Entry> load) throws IOException {
+        Entry entry = null;
+        try {
+            // another request may have completed loading in the meantime
+            entry = get(key);
+            if (entry == null) {
+                String version = getCurrentGraphVersion();
+                byte[] body = loader.load();
+                if (body != null && body.length <= maxEntryBytes) {
+                    entry = new Entry(key, body, etagFor(body), clock.getAsLong(), version);
+                    put(entry);
+                }
+            }
+        } finally {
+            loading.remove(key);
+            load.complete(entry);
+        }
+        return entry;
+    }
+
+    private static Entry await(CompletableFuture<Entry> inProgress) throws IOException {
+        try {
+            return inProgress.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for result", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to wait for result", e.getCause());
+        }
+    }
+
+    private String checkGraphVersion() {
+        String version = graphVersion.get();
+        boolean changed = false;
+        synchronized (this) {
+            if (!graphVersionKnown) {
+                graphVersionKnown = true;
+                currentGraphVersion = version;
+            } else if (!Objects.equals(version, currentGraphVersion)) {
+                LOG.info("graph version changed from [" + currentGraphVersion + "] to [" + version + "]: clearing cached results");
+                clearMemory();
+                currentGraphVersion = version;
+                changed = true;
+            }
+        }
+        if (changed) {
+            // results on disk are keyed by graph version, so they are outdated, but no longer found, in the meantime
+            clearDisk();
+        }
+        return version;
+    }
+
+    private synchronized String getCurrentGraphVersion() {
+        return currentGraphVersion;
+    }
+
+    private synchronized Entry getFromMemory(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(key);
+            cachedBytes -= entry.body.length;
+            entry = null;
+        }
+        return entry;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return clock.getAsLong() - entry.createdAt > ttlMillis;
+    }
+
+    private void put(Entry entry) {
+        List<Entry> evicted = putInMemory(entry);
+        // disk is accessed outside of the lock, so that other requests are not held up by it
+        if (cacheDir != null && !evicted.isEmpty()) {
+            for (Entry evictedEntry : evicted) {
+                putOnDisk(evictedEntry);
+            }
+            pruneDisk();
+        }
+    }
+
+    /**
+     * @return entries evicted from memory that are to be kept on disk
+     */
+    private synchronized List<Entry> putInMemory(Entry entry) {
+        List<Entry> evicted = new ArrayList<>();
+        // results loaded before a graph version change are outdated
+        if (Objects.equals(entry.graphVersion, currentGraphVersion)) {
+            Entry previous = entries.put(entry.key, entry);
+            if (previous != null) {
+                cachedBytes -= previous.body.length;
+            }
+            cachedBytes += entry.body.length;
+            Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+            while (cachedBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+                Entry evictedEntry = leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                cachedBytes -= evictedEntry.body.length;
+                if (cacheDir != null && !isExpired(evictedEntry)) {
+                    evicted.add(evictedEntry);
+                }
+            }
+        }
+        return evicted;
+    }
+
+    // results on disk may outlive a restart, so their keys include the graph version
+    private static String diskKeyFor(String key, String graphVersion) {
+        return graphVersion + "\n" + key;
+    }
+
+    private File fileFor(String diskKey) {
+        return new File(cacheDir, sha256(diskKey.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Entry getFromDisk(String key, String graphVersion) {
+        String diskKey = diskKeyFor(key, graphVersion);
+        File file = fileFor(diskKey);
+        Entry entry = null;
+        if (file.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                String storedKey = new String(readBytes(in), StandardCharsets.UTF_8);
+                long createdAt = in.readLong();
+                String etag = in.readUTF();
+                byte[] body = readBytes(in);
+                entry = StringUtils.equals(diskKey, storedKey) ? new Entry(key, body, etag, createdAt, graphVersion) : null;
+            } catch (IOException e) {
+                LOG.warn("failed to read cached result [" + file.getAbsolutePath() + "]", e);
+            }
+            if (entry == null || isExpired(entry)) {
+                FileUtils.deleteQuietly(file);
+                entry = null;
+            }
+        }
+        return entry;
+    }
+
+    private void putOnDisk(Entry entry) {
+        String diskKey = diskKeyFor(entry.key, entry.graphVersion);
+        File file = fileFor(diskKey);
+        try {
+            FileUtils.forceMkdir(cacheDir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                writeBytes(out, diskKey.getBytes(StandardCharsets.UTF_8));
+                out.writeLong(entry.createdAt);
+                out.writeUTF(entry.etag);
+                writeBytes(out, entry.body);
+            }
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(file);
+            LOG.warn("failed to cache result in [" + file.getAbsolutePath() + "]", e);
+        }
+    }
+
+    private void pruneDisk() {
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            long diskBytes = 0;
+            for (File file : files) {
+                diskBytes += file.length();
+            }
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < files.length && diskBytes > maxDiskBytes; i++) {
+                diskBytes -= files[i].length();
+                FileUtils.deleteQuietly(files[i]);
+            }
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String etagFor(byte[] body) {
+        return "\"" + sha256(body) + "\"";
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return Hex.encodeHexString(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Reads the graph version from a file, again whenever the file is modified.
+     */
+    static final class VersionFile implements Supplier<String> {
+        private final File file;
+        private long lastModified = -1;
+        private String version = null;
+
+        VersionFile(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public synchronized String get() {
+            long modified = file.lastModified();
+            if (modified != lastModified) {
+                lastModified = modified;
+                try {
+                    version = file.isFile() ? StringUtils.trim(FileUtils.readFileToString(file, StandardCharsets.UTF_8)) : null;
+                } catch (IOException e) {
+                    LOG.warn("failed to read graph version from [" + file.getAbsolutePath() + "]", e);
+                    version = null;
+                }
+            }
+            return version;
+        }
+    }
+
+}
@@ -1,19 +1,27 @@
 package org.eol.globi.server.util;
 
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.codehaus.jackson.JsonNode;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-public class ResultFormatterDOT implements ResultFormatter {
+public class ResultFormatterDOT implements ResultFormatterStreaming {
+    private static final List<ResultField> SOURCE_TAXON_RESULT_FIELDS = Arrays.asList(ResultField.SOURCE_TAXON_NAME, ResultField.SOURCE_TAXON_PATH, ResultField.SOURCE_TAXON_EXTERNAL_ID, ResultField.SOURCE_TAXON_PATH_IDS);
+    private static final List<ResultField> TARGET_TAXON_RESULT_FIELDS = Arrays.asList(ResultField.TARGET_TAXON_NAME, ResultField.TARGET_TAXON_PATH, ResultField.TARGET_TAXON_EXTERNAL_ID, ResultField.TARGET_TAXON_PATH_IDS);
+
     protected static String getSafeLabel(String string) {
         return string.replaceAll("\\W", "_");
     }
@@ -29,45 +37,54 @@ public class ResultFormatterDOT implements ResultFormatter {
 
     @Override
     public String format(final String content) throws ResultFormattingException {
-        StringBuilder builder = dotPrefix();
-        JsonNode results;
-        try {
-            results = RequestHelper.parse(content);
-        } catch (IOException e) {
-            throw new ResultFormattingException("failed to parse", e);
-        }
-        JsonNode columns = results.get("columns");
-        Map<String, Integer> nameIndex = new HashMap<String, Integer>();
-        for (int i = 0; i < columns.size(); i++) {
-            nameIndex.put(columns.get(i).getTextValue(), i);
-        }
+        return ResultFormatterStreaming.formatAsString(this, content);
+    }
 
-        List<ResultField> sourceTaxonResultFields = Arrays.asList(ResultField.SOURCE_TAXON_NAME, ResultField.SOURCE_TAXON_PATH, ResultField.SOURCE_TAXON_EXTERNAL_ID, ResultField.SOURCE_TAXON_PATH_IDS);
-        List<ResultField> targetTaxonResultFields = Arrays.asList(ResultField.TARGET_TAXON_NAME, ResultField.TARGET_TAXON_PATH, ResultField.TARGET_TAXON_EXTERNAL_ID, ResultField.TARGET_TAXON_PATH_IDS);
-        JsonNode rows = results.get("data");
-        for (JsonNode row : rows) {
-            Integer sourceTaxonIndex = getTaxonLabel(nameIndex, sourceTaxonResultFields);
-            Integer targetTaxonIndex = getTaxonLabel(nameIndex, targetTaxonResultFields);
+    @Override
+    public void format(InputStream is, OutputStream os) throws ResultFormattingException {
+        try (InputStream inputStream = is) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new CloseShieldOutputStream(os), StandardCharsets.UTF_8));
+            dotPrefix(writer);
+            ResultRowReader.read(inputStream, new ResultRowReader.RowHandler() {
+                private Integer sourceTaxonIndex;
+                private Integer targetTaxonIndex;
+                private Integer interactionTypeIndex;
 
-            Integer interactionTypeIndex = nameIndex.get(ResultField.INTERACTION_TYPE.getLabel());
-            if (null != sourceTaxonIndex && null != targetTaxonIndex && null != interactionTypeIndex) {
-                JsonNode sourceTaxon = row.get(sourceTaxonIndex);
-                JsonNode targetTaxon = row.get(targetTaxonIndex);
-                JsonNode type = row.get(interactionTypeIndex);
-                if (sourceTaxon != null && targetTaxon != null && type != null) {
-                    String sourceId = getSafeLabel(sourceTaxon.getTextValue());
-                    if (targetTaxon.isArray()) {
-                        for (JsonNode targetTaxonItem : targetTaxon) {
-                            appendEdge(builder, targetTaxonItem, type, sourceId);
+                @Override
+                public void onColumns(List<String> columnNames) {
+                    Map<String, Integer> nameIndex = new HashMap<String, Integer>();
+                    for (int i = 0; i < columnNames.size(); i++) {
+                        nameIndex.put(columnNames.get(i), i);
+                    }
+                    sourceTaxonIndex = getTaxonLabel(nameIndex, SOURCE_TAXON_RESULT_FIELDS);
+                    targetTaxonIndex = getTaxonLabel(nameIndex, TARGET_TAXON_RESULT_FIELDS);
+                    interactionTypeIndex = nameIndex.get(ResultField.INTERACTION_TYPE.getLabel());
+                }
+
+                @Override
+                public void onRow(JsonNode row) throws IOException {
+                    if (null != sourceTaxonIndex && null != targetTaxonIndex && null != interactionTypeIndex) {
+                        JsonNode sourceTaxon = row.get(sourceTaxonIndex);
+                        JsonNode targetTaxon = row.get(targetTaxonIndex);
+                        JsonNode type = row.get(interactionTypeIndex);
+                        if (sourceTaxon != null && targetTaxon != null && type != null) {
+                            String sourceId = getSafeLabel(sourceTaxon.getTextValue());
+                            if (targetTaxon.isArray()) {
+                                for (JsonNode targetTaxonItem : targetTaxon) {
+                                    appendEdge(writer, targetTaxonItem, type, sourceId);
+                                }
+                            } else {
+                                appendEdge(writer, targetTaxon, type, sourceId);
+                            }
                         }
-                    } else {
-                        appendEdge(builder, targetTaxon, type, sourceId);
                     }
                 }
-            }
+            });
+            dotSuffix(writer);
+            writer.close();
+        } catch (IOException e) {
+            throw new ResultFormattingException("failed to format result", e);
         }
-        dotSuffix(builder);
-        return builder.toString();
     }
 
     protected Integer getTaxonLabel(Map<String, Integer> nameIndex, List<ResultField> sourceTaxonResultFields) {
@@ -79,30 +96,28 @@ public class ResultFormatterDOT implements ResultFormatter {
         return sourceTaxonIndex;
     }
 
-    private void appendEdge(StringBuilder builder, JsonNode targetTaxon, JsonNode type, String sourceId) {
+    private void appendEdge(Writer writer, JsonNode targetTaxon, JsonNode type, String sourceId) throws IOException {
         String targetId = getSafeLabel(targetTaxon.getTextValue());
-        appendEdge(builder, type, sourceId, targetId);
+        appendEdge(writer, type, sourceId, targetId);
     }
 
-    private void appendEdge(StringBuilder builder, JsonNode type, String sourceId, String targetId) {
-        builder.append(sourceId);
-        builder.append("->");
-        builder.append(targetId);
-        builder.append("[label=\"");
-        builder.append(type.getTextValue());
-        builder.append("\"];\n");
+    private void appendEdge(Writer writer, JsonNode type, String sourceId, String targetId) throws IOException {
+        writer.append(sourceId);
+        writer.append("->");
+        writer.append(targetId);
+        writer.append("[label=\"");
+        writer.append(type.getTextValue());
+        writer.append("\"];\n");
     }
 
-    private void dotSuffix(StringBuilder builder) {
-        builder.append(" }");
+    private void dotSuffix(Writer writer) throws IOException {
+        writer.append(" }");
     }
 
-    private StringBuilder dotPrefix() {
-        StringBuilder builder = new StringBuilder();
-        builder.append("// generated by GloBI (see http://globalbioticinteractions.org) on ");
-        builder.append(DateTimeFormat.fullDateTime().withZoneUTC().print(new DateTime()));
-        builder.append("\n");
-        builder.append("digraph GloBI {\n");
-        return builder;
+    private void dotPrefix(Writer writer) throws IOException {
+        writer.append("// generated by GloBI (see http://globalbioticinteractions.org) on ");
+        writer.append(DateTimeFormat.fullDateTime().withZoneUTC().print(new DateTime()));
+        writer.append("\n");
+        writer.append("digraph GloBI {\n");
     }
 }
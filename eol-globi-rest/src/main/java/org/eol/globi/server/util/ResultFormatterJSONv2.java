@@ -1,98 +1,104 @@
 package org.eol.globi.server.util;
 
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.eol.globi.server.CypherQueryBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
-public class ResultFormatterJSONv2 implements ResultFormatter {
+public class ResultFormatterJSONv2 implements ResultFormatterStreaming {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     @Override
     public String format(String result) throws ResultFormattingException {
-        try {
-            JsonNode jsonNode = RequestHelper.parse(result);
-            return format(jsonNode);
-        } catch (IOException e) {
-            throw new ResultFormattingException("failed to format result", e);
-        }
+        return ResultFormatterStreaming.formatAsString(this, result);
     }
 
-    private String format(JsonNode jsonNode) throws IOException {
-        List<String> columnNames = new ArrayList<String>();
-
-        JsonNode columns = jsonNode.get("columns");
-        if (columns == null) {
-            throw new IllegalArgumentException("columns array expected, but not found");
-        }
-        for (JsonNode column : columns) {
-            columnNames.add(column.getTextValue());
-        }
+    @Override
+    public void format(InputStream is, OutputStream os) throws ResultFormattingException {
+        try (InputStream inputStream = is) {
+            JsonGenerator generator = MAPPER.getJsonFactory().createJsonGenerator(os, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            ResultRowReader.read(inputStream, new ResultRowReader.RowHandler() {
+                private List<String> columnNames;
+
+                @Override
+                public void onColumns(List<String> columnNames) {
+                    this.columnNames = columnNames;
+                }
 
-        JsonNode data = jsonNode.get("data");
-        if (data == null) {
-            throw new IllegalArgumentException("data array expected, but not found");
+                @Override
+                public void onRow(JsonNode row) throws IOException {
+                    for (Map<String, Object> result : format(columnNames, row)) {
+                        generator.writeObject(result);
+                    }
+                }
+            });
+            generator.writeEndArray();
+            generator.flush();
+        } catch (IOException e) {
+            throw new ResultFormattingException("failed to format result", e);
         }
+    }
 
+    private List<Map<String, Object>> format(List<String> columnNames, JsonNode row) {
         List<Map<String, Object>> resultList = new ArrayList<Map<String, Object>>();
         if (isInteractionQuery(columnNames)) {
-            for (JsonNode row : data) {
-                Map<String, Object> interaction = new HashMap<String, Object>();
+            Map<String, Object> interaction = new HashMap<String, Object>();
 
-                Map<String, String> sourceTaxon = new HashMap<String, String>();
-                interaction.put("source", sourceTaxon);
+            Map<String, String> sourceTaxon = new HashMap<String, String>();
+            interaction.put("source", sourceTaxon);
 
-                Map<String, String> targetTaxon = new HashMap<String, String>();
-                interaction.put("target", targetTaxon);
+            Map<String, String> targetTaxon = new HashMap<String, String>();
+            interaction.put("target", targetTaxon);
 
-                List<Map<String, String>> targetTaxa = new ArrayList<Map<String, String>>();
+            List<Map<String, String>> targetTaxa = new ArrayList<Map<String, String>>();
 
-                for (int i = 0; i < row.size(); i++) {
-                    parseRow(columnNames, row, interaction, sourceTaxon, targetTaxon, targetTaxa, i);
-                }
+            for (int i = 0; i < row.size(); i++) {
+                parseRow(columnNames, row, interaction, sourceTaxon, targetTaxon, targetTaxa, i);
+            }
 
-                if (targetTaxa.size() > 0) {
-                    for (Map<String, String> aTargetTaxon : targetTaxa) {
-                        Map<String, Object> anotherInteraction = new HashMap<String, Object>();
-                        resultList.add(anotherInteraction);
-                        anotherInteraction.putAll(interaction);
-                        anotherInteraction.put("target", aTargetTaxon);
-                    }
-                } else {
-                    resultList.add(interaction);
+            if (targetTaxa.size() > 0) {
+                for (Map<String, String> aTargetTaxon : targetTaxa) {
+                    Map<String, Object> anotherInteraction = new HashMap<String, Object>();
+                    resultList.add(anotherInteraction);
+                    anotherInteraction.putAll(interaction);
+                    anotherInteraction.put("target", aTargetTaxon);
                 }
+            } else {
+                resultList.add(interaction);
             }
         } else if (isTaxonQuery(columnNames)) {
-            for (JsonNode row : data) {
-                Map<String, Object> taxon = new TreeMap<String, Object>();
-                for (int i = 0; i < row.size(); i++) {
-                    taxon.put(columns.get(i).asText(), row.get(i).asText());
-                }
-                resultList.add(taxon);
+            Map<String, Object> taxon = new TreeMap<String, Object>();
+            for (int i = 0; i < row.size(); i++) {
+                taxon.put(columnNames.get(i), row.get(i).asText());
             }
+            resultList.add(taxon);
+        } else {
+            resultList.add(new HashMap<String, Object>());
         }
-        addAllDataColumns(jsonNode, columnNames, resultList);
-        return new ObjectMapper().writeValueAsString(resultList);
+        addAllDataColumns(row, columnNames, resultList);
+        return resultList;
     }
 
-    private void addAllDataColumns(JsonNode jsonNode, List<String> columnNames, List<Map<String, Object>> interactions) {
-        JsonNode rows = jsonNode.get("data");
-        for (int j = 0; j < rows.size(); j++) {
-            Map<String, Object> values = new HashMap<String, Object>();
-            JsonNode row = rows.get(j);
-            for (int k = 0; k < row.size(); k++) {
-                values.put(columnNames.get(k), row.get(k));
-            }
-            if (interactions.size() <= j) {
-                interactions.add(values);
-            } else {
-                interactions.get(j).putAll(values);
-            }
+    private void addAllDataColumns(JsonNode row, List<String> columnNames, List<Map<String, Object>> results) {
+        Map<String, Object> values = new HashMap<String, Object>();
+        for (int k = 0; k < row.size(); k++) {
+            values.put(columnNames.get(k), row.get(k));
+        }
+        for (Map<String, Object> result : results) {
+            result.putAll(values);
         }
     }
 
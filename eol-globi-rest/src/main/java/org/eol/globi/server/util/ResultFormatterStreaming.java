@@ -1,9 +1,18 @@
 package org.eol.globi.server.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 public interface ResultFormatterStreaming extends ResultFormatter {
 
     void format(InputStream is, OutputStream os) throws ResultFormattingException;
+
+    static String formatAsString(ResultFormatterStreaming formatter, String result) throws ResultFormattingException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        formatter.format(new ByteArrayInputStream(result.getBytes(StandardCharsets.UTF_8)), os);
+        return new String(os.toByteArray(), StandardCharsets.UTF_8);
+    }
 }
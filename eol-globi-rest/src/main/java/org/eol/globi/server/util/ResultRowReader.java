@@ -0,0 +1,75 @@
+package org.eol.globi.server.util;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads cypher results like {"columns": [...], "data": [[...], ...]} one row at a time, so that results can be
+ * formatted without holding the entire result in memory.
+ */
+public class ResultRowReader {
+
+    public interface RowHandler {
+        void onColumns(List<String> columnNames) throws IOException;
+
+        void onRow(JsonNode row) throws IOException;
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void read(InputStream is, RowHandler handler) throws IOException {
+        JsonParser parser = MAPPER.getJsonFactory().createJsonParser(is);
+        boolean hasColumns = false;
+        boolean hasData = false;
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("columns".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    handler.onColumns(readColumns(parser));
+                    hasColumns = true;
+                } else if ("data".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    if (!hasColumns) {
+                        throw new IllegalArgumentException("columns array expected before data array, but not found");
+                    }
+                    while (nextIsNotEndOfArray(parser)) {
+                        handler.onRow(parser.readValueAsTree());
+                    }
+                    hasData = true;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (!hasColumns) {
+            throw new IllegalArgumentException("columns array expected, but not found");
+        }
+        if (!hasData) {
+            throw new IllegalArgumentException("data array expected, but not found");
+        }
+    }
+
+    private static List<String> readColumns(JsonParser parser) throws IOException {
+        List<String> columnNames = new ArrayList<>();
+        while (nextIsNotEndOfArray(parser)) {
+            columnNames.add(parser.getText());
+        }
+        return columnNames;
+    }
+
+    private static boolean nextIsNotEndOfArray(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new IOException("unexpected end of result");
+        }
+        return token != JsonToken.END_ARRAY;
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.eol.globi.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.helpers.Settings;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.store.StoreId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Executes cypher queries against a graph.db opened read-only in process, instead of going through a remote neo4j
+ * REST endpoint.
+ * <p>
+ * Enabled by setting neo4j.graph.dir to the directory of an exported graph.db. Results are handed to the response
+ * handler in the same json layout as returned by the REST cypher endpoint, so existing formatters work unchanged.
+ */
+public class CypherEmbedded {
+    private static final Logger LOG = LoggerFactory.getLogger(CypherEmbedded.class);
+
+    public static final String GRAPH_DIR = "neo4j.graph.dir";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static CypherEmbedded instance = null;
+    private static boolean initialized = false;
+
+    private final GraphDatabaseService graphDb;
+
+    public CypherEmbedded(GraphDatabaseService graphDb) {
+        this.graphDb = graphDb;
+    }
+
+    /**
+     * @return embedded graph configured by neo4j.graph.dir, or null if queries are to be sent to a remote endpoint
+     */
+    public static synchronized CypherEmbedded getInstance() {
+        if (!initialized) {
+            initialized = true;
+            String graphDir = StringUtils.trim(System.getProperty(GRAPH_DIR));
+            if (StringUtils.isNotBlank(graphDir)) {
+                instance = new CypherEmbedded(openReadOnly(new File(graphDir)));
+            }
+        }
+        return instance;
+    }
+
+    private static GraphDatabaseService openReadOnly(File storeDir) {
+        LOG.info("opening graph [" + storeDir.getAbsolutePath() + "] read-only...");
+        final GraphDatabaseService graphService = new GraphDatabaseFactory()
+                .newEmbeddedDatabaseBuilder(storeDir)
+                .setConfig(GraphDatabaseSettings.read_only, Settings.TRUE)
+                .newGraphDatabase();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (graphService.isAvailable(0)) {
+                graphService.shutdown();
+            }
+        }));
+        LOG.info("opening graph [" + storeDir.getAbsolutePath() + "] read-only done.");
+        return graphService;
+    }
+
+    /**
+     * @return version of the graph, derived from the id of its store
+     */
+    public String getStoreVersion() {
+        StoreId storeId = ((GraphDatabaseAPI) graphDb).storeId();
+        return storeId.getCreationTime() + "-" + storeId.getRandomId() + "-" + storeId.getUpgradeId();
+    }
+
+    /**
+     * Executes the query and streams its result rows into the handler. The transaction is kept open until the handler
+     * is done with the result.
+     */
+    public <T> T execute(CypherQuery query, CypherTransport.ResponseHandler<T> handler) throws IOException {
+        try (Transaction tx = graphDb.beginTx();
+             Result result = graphDb.execute(unescape(query.getVersionedQuery()), paramsFor(query));
+             InputStream content = new CypherResultInputStream(result)) {
+            T value = handler.handle(content);
+            tx.success();
+            return value;
+        } catch (QueryExecutionException ex) {
+            throw new IOException("failed to execute query [" + query.getVersionedQuery() + "]", ex);
+        }
+    }
+
+    // query and params are escaped for json, as they are meant to be sent to the REST cypher endpoint
+    static Map<String, Object> paramsFor(CypherQuery query) throws IOException {
+        Map<String, Object> params = new HashMap<>();
+        if (query.getParams() != null) {
+            for (Map.Entry<String, String> param : query.getParams().entrySet()) {
+                params.put(param.getKey(), unescape(param.getValue()));
+            }
+        }
+        return params;
+    }
+
+    private static String unescape(String value) throws IOException {
+        return value == null ? null : MAPPER.readValue("\"" + value + "\"", String.class);
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.eol.globi.util;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Renders an embedded cypher result as {"columns": [...], "data": [[...], ...]}, just like the neo4j REST cypher
+ * endpoint does. Rows are only pulled from the result when the reader needs more bytes.
+ * <p>
+ * Nodes and relationships are rendered as a map of their properties.
+ */
+class CypherResultInputStream extends InputStream {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Result result;
+    private final List<String> columns;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final JsonGenerator generator;
+
+    private byte[] chunk = new byte[0];
+    private int position = 0;
+    private boolean done = false;
+
+    CypherResultInputStream(Result result) throws IOException {
+        this.result = result;
+        this.columns = result.columns();
+        this.generator = MAPPER.getJsonFactory().createJsonGenerator(buffer, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("columns");
+        for (String column : columns) {
+            generator.writeString(column);
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("data");
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? chunk[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, chunk.length - position);
+        System.arraycopy(chunk, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return chunk.length - position;
+    }
+
+    @Override
+    public void close() {
+        result.close();
+    }
+
+    private boolean fill() throws IOException {
+        while (position >= chunk.length && !done) {
+            if (result.hasNext()) {
+                writeRow(result.next());
+            } else {
+                generator.writeEndArray();
+                generator.writeEndObject();
+                done = true;
+            }
+            generator.flush();
+            chunk = buffer.toByteArray();
+            buffer.reset();
+            position = 0;
+        }
+        return position < chunk.length;
+    }
+
+    private void writeRow(Map<String, Object> row) throws IOException {
+        generator.writeStartArray();
+        for (String column : columns) {
+            writeValue(row.get(column));
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value instanceof Node || value instanceof Relationship) {
+            writeProperties((PropertyContainer) value);
+        } else if (value instanceof Path) {
+            generator.writeStartArray();
+            for (PropertyContainer element : (Path) value) {
+                writeProperties(element);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Iterable) {
+            generator.writeStartArray();
+            for (Object item : (Iterable<?>) value) {
+                writeValue(item);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    private void writeProperties(PropertyContainer container) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> property : new TreeMap<>(container.getAllProperties()).entrySet()) {
+            generator.writeFieldName(property.getKey());
+            generator.writeObject(property.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.eol.globi.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes cypher requests through a dedicated pool of keep-alive connections.
+ * <p>
+ * The number of requests in flight is bounded: when all permits are taken for longer than the queue timeout, requests
+ * are rejected with a {@link ServiceUnavailableException} instead of piling up on blocked sockets.
+ */
+public class CypherTransport {
+
+    public static final String POOL_SIZE = "neo4j.cypher.pool.size";
+    public static final String MAX_IN_FLIGHT = "neo4j.cypher.max.in.flight";
+    public static final String QUEUE_TIMEOUT_MS = "neo4j.cypher.queue.timeout.ms";
+    public static final String RETRY_AFTER_SECONDS = "neo4j.cypher.retry.after.seconds";
+
+    private static final long KEEP_ALIVE_DEFAULT_MS = 30 * 1000;
+    private static final long MAX_IDLE_SECONDS = 60;
+
+    private static CypherTransport instance = null;
+
+    public interface ResponseHandler<T> {
+        T handle(InputStream content) throws IOException;
+    }
+
+    private final CloseableHttpClient client;
+    private final Semaphore inFlight;
+    private final long queueTimeoutMs;
+    private final int retryAfterSeconds;
+
+    public CypherTransport(int poolSize, int maxInFlight, long queueTimeoutMs, int retryAfterSeconds) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(poolSize);
+        // all cypher requests go to a single route
+        connectionManager.setDefaultMaxPerRoute(poolSize);
+
+        RequestConfig config = RequestConfig.custom()
+                .setSocketTimeout(HttpUtil.TIMEOUT_DEFAULT)
+                .setConnectTimeout(HttpUtil.TIMEOUT_SHORT)
+                .setConnectionRequestTimeout(HttpUtil.TIMEOUT_SHORT)
+                .build();
+
+        this.client = HttpUtil.createHttpClientBuilder(HttpUtil.TIMEOUT_DEFAULT)
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_SECONDS, TimeUnit.SECONDS)
+                .setDefaultRequestConfig(config)
+                .build();
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public static synchronized CypherTransport getInstance() {
+        if (instance == null) {
+            int poolSize = intProperty(POOL_SIZE, 32);
+            instance = new CypherTransport(poolSize,
+                    intProperty(MAX_IN_FLIGHT, poolSize),
+                    intProperty(QUEUE_TIMEOUT_MS, 250),
+                    intProperty(RETRY_AFTER_SECONDS, 5));
+        }
+        return instance;
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Math.max(1, NumberUtils.toInt(StringUtils.trim(System.getProperty(name)), defaultValue));
+    }
+
+    private static ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAliveMs > 0 ? keepAliveMs : KEEP_ALIVE_DEFAULT_MS;
+        };
+    }
+
+    /**
+     * Executes the request and hands the response body to the handler. The connection and the in-flight permit are
+     * held until the handler is done with the body.
+     */
+    public <T> T execute(HttpUriRequest request, ResponseHandler<T> handler) throws IOException {
+        acquire();
+        try (CloseableHttpResponse response = client.execute(request)) {
+            HttpEntity entity = response.getEntity();
+            try {
+                checkStatus(response);
+                try (InputStream content = entity == null ? new ByteArrayInputStream(new byte[0]) : entity.getContent()) {
+                    return handler.handle(content);
+                }
+            } finally {
+                EntityUtils.consumeQuietly(entity);
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    int getAvailablePermits() {
+        return inFlight.availablePermits();
+    }
+
+    private void acquire() throws IOException {
+        try {
+            if (!inFlight.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new ServiceUnavailableException("too many cypher queries in flight, please try again later", retryAfterSeconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to execute cypher query");
+        }
+    }
+
+    private static void checkStatus(HttpResponse response) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode >= 300) {
+            throw new HttpResponseException(statusCode, response.getStatusLine().getReasonPhrase());
+        }
+    }
+
+}
@@ -4,13 +4,13 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.apache.http.HttpResponse;
+import org.apache.commons.io.IOUtils;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicResponseHandler;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -21,15 +21,20 @@ public class CypherUtil {
     private static final Logger LOG = LoggerFactory.getLogger(CypherUtil.class);
 
     public static String executeCypherQuery(CypherQuery query) throws IOException {
-        HttpPost httpPost = getCypherRequest(query);
-        BasicResponseHandler responseHandler = new BasicResponseHandler();
-        return HttpUtil.getHttpClient().execute(httpPost, responseHandler);
+        return executeQuery(query, content -> IOUtils.toString(content, StandardCharsets.UTF_8));
+    }
+
+    private static <T> T executeQuery(CypherQuery query, CypherTransport.ResponseHandler<T> handler) throws IOException {
+        CypherEmbedded embedded = CypherEmbedded.getInstance();
+        return embedded == null
+                ? CypherTransport.getInstance().execute(getCypherRequest(query), handler)
+                : embedded.execute(query, handler);
     }
 
     public static HttpPost getCypherRequest(CypherQuery query) throws UnsupportedEncodingException {
         HttpPost httpPost = new HttpPost(getCypherURI());
         HttpUtil.addJsonHeaders(httpPost);
-        httpPost.setEntity(new StringEntity(wrapQuery(query)));
+        httpPost.setEntity(new StringEntity(wrapQuery(query), StandardCharsets.UTF_8));
         return httpPost;
     }
 
@@ -38,27 +43,23 @@ public class CypherUtil {
         return StringUtils.isBlank(value) ? "https://neo4j.globalbioticinteractions.org/db/data/cypher" : StringUtils.trim(value);
     }
 
-    private static String wrapQuery(CypherQuery cypherQuery) {
-        String query = "{\"query\":\"";
-        query += cypherQuery.getVersionedQuery();
-        query += " \", \"params\": {" + buildJSONParamList(cypherQuery.getParams()) + " } }";
-        return query;
-    }
-
-    private static String buildJSONParamList(Map<String, String> paramMap) {
-        StringBuilder builder = new StringBuilder();
-        if (paramMap != null) {
-            populateParams(paramMap, builder);
+    // query and params are expected to be escaped for json already
+    static String wrapQuery(CypherQuery cypherQuery) {
+        StringBuilder builder = new StringBuilder(256)
+                .append("{\"query\":\"")
+                .append(cypherQuery.getVersionedQuery())
+                .append(" \", \"params\": {");
+        if (cypherQuery.getParams() != null) {
+            populateParams(cypherQuery.getParams(), builder);
         }
-        return builder.toString();
+        return builder.append(" } }").toString();
     }
 
     private static void populateParams(Map<String, String> paramMap, StringBuilder builder) {
         Iterator<Map.Entry<String, String>> iterator = paramMap.entrySet().iterator();
         while (iterator.hasNext()) {
             Map.Entry<String, String> param = iterator.next();
-            String jsonParam = "\"" + param.getKey() + "\" : \"" + param.getValue() + "\"";
-            builder.append(jsonParam);
+            builder.append('"').append(param.getKey()).append("\" : \"").append(param.getValue()).append('"');
             if (iterator.hasNext()) {
                 builder.append(", ");
             }
@@ -80,11 +81,14 @@ public class CypherUtil {
         LOG.warn(status + " query: [" + query.getVersionedQuery() + "] with params [" + query.getParams() + "]");
     }
 
-    public static HttpResponse execute(CypherQuery cypherQuery) throws IOException {
+    /**
+     * Streams the query result into the provided handler.
+     */
+    public static <T> T execute(CypherQuery cypherQuery, CypherTransport.ResponseHandler<T> handler) throws IOException {
         StopWatch stopWatch = logQueryStart(cypherQuery);
-        HttpPost req = getCypherRequest(cypherQuery);
+        T result = executeQuery(cypherQuery, handler);
         logQueryFinish(cypherQuery, stopWatch);
-        return HttpUtil.getHttpClient().execute(req);
+        return result;
     }
 
     private static void logQueryFinish(CypherQuery cypherQuery, StopWatch stopWatch) {
@@ -0,0 +1,16 @@
+package org.eol.globi.util;
+
+import java.io.IOException;
+
+public class ServiceUnavailableException extends IOException {
+    private final int retryAfterSeconds;
+
+    public ServiceUnavailableException(String msg, int retryAfterSeconds) {
+        super(msg);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,23 @@
+package org.eol.globi.server;
+
+import org.eol.globi.util.ServiceUnavailableException;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ServiceUnavailableHandlerTest {
+
+    @Test
+    public void retryAfter() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new ServiceUnavailableHandler().serviceUnavailable(new ServiceUnavailableException("too busy", 5), response);
+        assertThat(response.getStatus(), is(503));
+        assertThat(response.getHeader("Retry-After"), is("5"));
+        assertThat(response.getErrorMessage(), is("too busy"));
+    }
+
+}
@@ -2,9 +2,21 @@ package org.eol.globi.server.util;
 
 import org.eol.globi.util.CypherQuery;
 import org.hamcrest.core.Is;
+import org.junit.After;
 import org.junit.Test;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -39,4 +51,50 @@ public class CypherHttpMessageConverterTest {
         });
     }
 
-}
\ No newline at end of file
+    @After
+    public void resetRequestAttributes() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void cacheKeyIgnoresParamOrder() {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("one", "1");
+        params.put("two", "2");
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("two", "2");
+        reversed.put("one", "1");
+        String key = CypherHttpMessageConverter.cacheKeyFor(new CypherQuery("bla  bal", params), ResultFormatterFactory.JSON);
+        assertThat(CypherHttpMessageConverter.cacheKeyFor(new CypherQuery("bla bal", reversed), ResultFormatterFactory.JSON), Is.is(key));
+        assertThat(CypherHttpMessageConverter.cacheKeyFor(new CypherQuery("bla bal", reversed), MediaType.parseMediaType("text/csv;charset=UTF-8")).equals(key), Is.is(false));
+    }
+
+    @Test
+    public void writeCachedResult() throws IOException {
+        ResultCache cache = cacheWithResult(new CypherQuery("bla bal"), "{\"columns\":[]}");
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        new CypherHttpMessageConverter(cache).write(new CypherQuery("bla bal"), ResultFormatterFactory.JSON, outputMessage);
+        assertThat(outputMessage.getBodyAsString(StandardCharsets.UTF_8), Is.is("{\"columns\":[]}"));
+        assertThat(outputMessage.getHeaders().getETag(), Is.is(ResultCache.etagFor("{\"columns\":[]}".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void notModified() throws IOException {
+        ResultCache cache = cacheWithResult(new CypherQuery("bla bal"), "{\"columns\":[]}");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", ResultCache.etagFor("{\"columns\":[]}".getBytes(StandardCharsets.UTF_8)));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new CypherHttpMessageConverter(cache).write(new CypherQuery("bla bal"), ResultFormatterFactory.JSON, new ServletServerHttpResponse(response));
+        assertThat(response.getStatus(), Is.is(HttpStatus.NOT_MODIFIED.value()));
+        assertThat(response.getContentAsByteArray().length, Is.is(0));
+    }
+
+    private static ResultCache cacheWithResult(CypherQuery query, String result) throws IOException {
+        ResultCache cache = new ResultCache(1024, 1024, 60 * 1000, null, 0, () -> "some version");
+        cache.getOrLoad(CypherHttpMessageConverter.cacheKeyFor(query, ResultFormatterFactory.JSON), () -> result.getBytes(StandardCharsets.UTF_8));
+        return cache;
+    }
+
+}
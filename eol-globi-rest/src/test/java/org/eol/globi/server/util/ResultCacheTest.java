@@ -0,0 +1,206 @@
+package org.eol.globi.server.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class ResultCacheTest {
+
+    private File cacheDir;
+
+    @Before
+    public void createCacheDir() {
+        cacheDir = new File("target/result-cache-test" + UUID.randomUUID());
+    }
+
+    @After
+    public void deleteCacheDir() {
+        FileUtils.deleteQuietly(cacheDir);
+    }
+
+    @Test
+    public void loadOnce() throws IOException {
+        ResultCache cache = new ResultCache(1024, 1024, 1000, null, 0, () -> "1");
+        AtomicInteger loads = new AtomicInteger(0);
+        ResultCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return bytes("some result");
+        };
+        ResultCache.Entry entry = cache.getOrLoad("some key", loader);
+        assertThat(new String(entry.getBody(), StandardCharsets.UTF_8), is("some result"));
+        assertThat(entry.getETag(), is(ResultCache.etagFor(bytes("some result"))));
+        assertThat(cache.getOrLoad("some key", loader).getETag(), is(entry.getETag()));
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void doNotCacheLargeOrMissingResults() throws IOException {
+        ResultCache cache = new ResultCache(1024, 4, 1000, null, 0, () -> "1");
+        assertThat(cache.getOrLoad("some key", () -> bytes("too large")), is(nullValue()));
+        assertThat(cache.getOrLoad("some key", () -> null), is(nullValue()));
+        assertThat(cache.getCachedBytes(), is(0L));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws IOException {
+        ResultCache cache = new ResultCache(10, 10, 1000, null, 0, () -> "1");
+        cache.getOrLoad("one", () -> bytes("12345"));
+        cache.getOrLoad("two", () -> bytes("12345"));
+        cache.get("one");
+        cache.getOrLoad("three", () -> bytes("12345"));
+        assertThat(cache.get("one"), is(notNullValue()));
+        assertThat(cache.get("two"), is(nullValue()));
+        assertThat(cache.get("three"), is(notNullValue()));
+        assertThat(cache.getCachedBytes(), is(10L));
+    }
+
+    @Test
+    public void expire() throws IOException {
+        ResultCache cache = new ResultCache(1024, 1024, 1000, null, 0, () -> "1");
+        AtomicLong now = new AtomicLong(0);
+        cache.setClock(now::get);
+        cache.getOrLoad("some key", () -> bytes("some result"));
+        now.set(1000);
+        assertThat(cache.get("some key"), is(notNullValue()));
+        now.set(1001);
+        assertThat(cache.get("some key"), is(nullValue()));
+        assertThat(cache.getCachedBytes(), is(0L));
+    }
+
+    @Test
+    public void clearOnGraphVersionChange() throws IOException {
+        AtomicReference<String> version = new AtomicReference<>("1");
+        ResultCache cache = new ResultCache(1024, 1024, 1000, cacheDir, 1024, version::get);
+        cache.getOrLoad("some key", () -> bytes("some result"));
+        version.set("2");
+        assertThat(cache.get("some key"), is(nullValue()));
+        assertThat(cache.getCachedBytes(), is(0L));
+    }
+
+    @Test
+    public void keepEvictedOnDisk() throws IOException {
+        ResultCache cache = new ResultCache(10, 10, 1000, cacheDir, 1024, () -> "1");
+        cache.getOrLoad("one", () -> bytes("12345"));
+        cache.getOrLoad("two", () -> bytes("12345"));
+        cache.getOrLoad("three", () -> bytes("12345"));
+        assertThat(cacheDir.list().length, is(1));
+
+        ResultCache.Entry entry = cache.get("one");
+        assertThat(new String(entry.getBody(), StandardCharsets.UTF_8), is("12345"));
+        assertThat(entry.getETag(), is(ResultCache.etagFor(bytes("12345"))));
+
+        ResultCache restarted = new ResultCache(10, 10, 1000, cacheDir, 1024, () -> "1");
+        assertThat(restarted.get("two"), is(notNullValue()));
+        ResultCache restartedWithOtherGraph = new ResultCache(10, 10, 1000, cacheDir, 1024, () -> "2");
+        assertThat(restartedWithOtherGraph.get("two"), is(nullValue()));
+    }
+
+    @Test
+    public void doNotCacheResultLoadedBeforeGraphVersionChange() throws IOException {
+        AtomicReference<String> version = new AtomicReference<>("1");
+        ResultCache cache = new ResultCache(1024, 1024, 1000, null, 0, version::get);
+        cache.getOrLoad("some key", () -> {
+            version.set("2");
+            cache.get("other key");
+            return bytes("some result");
+        });
+        assertThat(cache.get("some key"), is(nullValue()));
+    }
+
+    @Test
+    public void graphVersionFromFile() throws IOException {
+        File versionFile = new File(cacheDir.getParentFile(), cacheDir.getName() + ".version");
+        try {
+            ResultCache.VersionFile version = new ResultCache.VersionFile(versionFile);
+            assertThat(version.get(), is(nullValue()));
+            FileUtils.writeStringToFile(versionFile, "1\n", StandardCharsets.UTF_8);
+            assertThat(version.get(), is("1"));
+            FileUtils.writeStringToFile(versionFile, "2", StandardCharsets.UTF_8);
+            assertThat(versionFile.setLastModified(versionFile.lastModified() + 2000), is(true));
+            assertThat(version.get(), is("2"));
+        } finally {
+            FileUtils.deleteQuietly(versionFile);
+        }
+    }
+
+    @Test
+    public void disableCacheWithoutGraphVersion() {
+        String graphVersion = System.getProperty(ResultCache.GRAPH_VERSION);
+        try {
+            System.clearProperty(ResultCache.GRAPH_VERSION);
+            assertThat(ResultCache.graphVersionFromSystemProperties(), is(nullValue()));
+            assertThat(ResultCache.fromSystemProperties(), is(nullValue()));
+            System.setProperty(ResultCache.GRAPH_VERSION, "1");
+            assertThat(ResultCache.fromSystemProperties(), is(notNullValue()));
+        } finally {
+            if (graphVersion == null) {
+                System.clearProperty(ResultCache.GRAPH_VERSION);
+            } else {
+                System.setProperty(ResultCache.GRAPH_VERSION, graphVersion);
+            }
+        }
+    }
+
+    @Test
+    public void coalesceConcurrentLoads() throws Exception {
+        ResultCache cache = new ResultCache(1024, 1024, 1000, null, 0, () -> "1");
+        AtomicInteger loads = new AtomicInteger(0);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch waiting = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ResultCache.Entry>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.getOrLoad("some key", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    waiting.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return bytes("some result");
+            })));
+            loading.await(10, TimeUnit.SECONDS);
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.getOrLoad("some key", () -> {
+                    loads.incrementAndGet();
+                    return bytes("another result");
+                })));
+            }
+            Thread.sleep(100);
+            waiting.countDown();
+            for (Future<ResultCache.Entry> result : results) {
+                assertThat(new String(result.get().getBody(), StandardCharsets.UTF_8), is("some result"));
+            }
+            assertThat(loads.get(), is(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -3,6 +3,11 @@ package org.eol.globi.server.util;
 import org.hamcrest.core.Is;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -39,5 +44,18 @@ public class ResultFormatterDOTTest {
         assertThat(dots, is(notNullValue()));
     }
 
+    @Test
+    public void formatterStreaming() throws ResultFormattingException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new ResultFormatterDOT().format(new ByteArrayInputStream(("{\n" +
+                "  \"columns\" : [ \"source_taxon_name\", \"interaction_type\", \"target_taxon_name\" ],\n" +
+                "  \"data\" : [ [ \"Vireo olivaceus\", \"preysOn\", [ \"Diptera\", \"Arachnida\" ] ], [ \"Colaptes auratus\", \"preysOn\", \"Hymenoptera\" ] ] }").getBytes(StandardCharsets.UTF_8)), os);
+        String dots = new String(os.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(dots, endsWith("digraph GloBI {\n" +
+                "Vireo_olivaceus->Diptera[label=\"preysOn\"];\n" +
+                "Vireo_olivaceus->Arachnida[label=\"preysOn\"];\n" +
+                "Colaptes_auratus->Hymenoptera[label=\"preysOn\"];\n" +
+                " }"));
+    }
 
 }
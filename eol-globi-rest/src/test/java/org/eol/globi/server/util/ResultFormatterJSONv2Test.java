@@ -5,7 +5,10 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.eol.globi.server.CypherTestUtil;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.core.AnyOf.anyOf;
 import static org.hamcrest.core.Is.is;
@@ -189,4 +192,23 @@ public class ResultFormatterJSONv2Test {
         assertThat(taxon.has("id"), is(true));
         return taxon;
     }
+
+    @Test
+    public void formatStreamingWithTargetTaxa() throws IOException {
+        String result = "{\n" +
+                "  \"columns\" : [ \"source_taxon_name\", \"interaction_type\", \"target_taxon_name\" ],\n" +
+                "  \"data\" : [ [ \"Vireo olivaceus\", \"preysOn\", [ \"Diptera\", \"Arachnida\" ] ], [ \"Colaptes auratus\", \"preysOn\", [ \"Hymenoptera\" ] ] ] }";
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new ResultFormatterJSONv2().format(new ByteArrayInputStream(result.getBytes(StandardCharsets.UTF_8)), os);
+
+        JsonNode jsonNode = new ObjectMapper().readTree(os.toString(StandardCharsets.UTF_8.name()));
+        assertThat(jsonNode.size(), is(3));
+        assertThat(jsonNode.get(0).get("target").get("name").asText(), is("Diptera"));
+        assertThat(jsonNode.get(1).get("target").get("name").asText(), is("Arachnida"));
+        assertThat(jsonNode.get(1).get("source_taxon_name").asText(), is("Vireo olivaceus"));
+        assertThat(jsonNode.get(2).get("source").get("name").asText(), is("Colaptes auratus"));
+        assertThat(jsonNode.get(2).get("source_taxon_name").asText(), is("Colaptes auratus"));
+    }
+
 }
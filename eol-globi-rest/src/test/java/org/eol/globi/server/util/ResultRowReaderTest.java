@@ -0,0 +1,67 @@
+package org.eol.globi.server.util;
+
+import org.codehaus.jackson.JsonNode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ResultRowReaderTest {
+
+    @Test
+    public void readRows() throws IOException {
+        List<String> columns = new ArrayList<>();
+        List<JsonNode> rows = new ArrayList<>();
+        ResultRowReader.read(toStream("{\"columns\":[\"one\",\"two\"],\"stats\":{\"some\":[1,2]},\"data\":[[\"a\",[\"b\",\"c\"]],[\"d\",null]]}"), new ResultRowReader.RowHandler() {
+            @Override
+            public void onColumns(List<String> columnNames) {
+                columns.addAll(columnNames);
+            }
+
+            @Override
+            public void onRow(JsonNode row) {
+                rows.add(row);
+            }
+        });
+        assertThat(columns.toString(), is("[one, two]"));
+        assertThat(rows.size(), is(2));
+        assertThat(rows.get(0).toString(), is("[\"a\",[\"b\",\"c\"]]"));
+        assertThat(rows.get(1).get(1).isNull(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingColumns() throws IOException {
+        ResultRowReader.read(toStream("{\"data\":[]}"), new NoopRowHandler());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingData() throws IOException {
+        ResultRowReader.read(toStream("{\"columns\":[]}"), new NoopRowHandler());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedResult() throws IOException {
+        ResultRowReader.read(toStream("{\"columns\":[\"one\"],\"data\":[[\"a\"],"), new NoopRowHandler());
+    }
+
+    private static ByteArrayInputStream toStream(String result) {
+        return new ByteArrayInputStream(result.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class NoopRowHandler implements ResultRowReader.RowHandler {
+        @Override
+        public void onColumns(List<String> columnNames) {
+        }
+
+        @Override
+        public void onRow(JsonNode row) {
+        }
+    }
+
+}
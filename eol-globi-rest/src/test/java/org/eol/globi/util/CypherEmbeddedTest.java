@@ -0,0 +1,108 @@
+package org.eol.globi.util;
+
+import org.apache.commons.io.IOUtils;
+import org.eol.globi.server.util.ResultFormatterJSONv2;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.TreeMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+
+public class CypherEmbeddedTest {
+
+    private GraphDatabaseService graphDb;
+
+    @Before
+    public void createGraph() {
+        graphDb = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        try (Transaction tx = graphDb.beginTx()) {
+            Node donald = graphDb.createNode();
+            donald.setProperty("name", "Donald \"the\" Duck");
+            donald.setProperty("externalId", "some:id");
+            Node mickey = graphDb.createNode();
+            mickey.setProperty("name", "Mickey Mouse");
+            tx.success();
+        }
+    }
+
+    @After
+    public void shutdownGraph() {
+        graphDb.shutdown();
+    }
+
+    @Test
+    public void executeWithEscapedParams() throws IOException {
+        CypherQuery query = new CypherQuery("MATCH (n) WHERE n.name = {name} RETURN n.name as name, n.externalId as id, [n.name, 1] as list",
+                Collections.singletonMap("name", "Donald \\\"the\\\" Duck"));
+        String result = new CypherEmbedded(graphDb).execute(query, CypherEmbeddedTest::toString);
+        assertThat(result, is("{\"columns\":[\"name\",\"id\",\"list\"],\"data\":[[\"Donald \\\"the\\\" Duck\",\"some:id\",[\"Donald \\\"the\\\" Duck\",1]]]}"));
+    }
+
+    @Test
+    public void executeReturningNodes() throws IOException {
+        CypherQuery query = new CypherQuery("MATCH (n) WHERE exists(n.externalId) RETURN n", new TreeMap<>());
+        String result = new CypherEmbedded(graphDb).execute(query, CypherEmbeddedTest::toString);
+        assertThat(result, is("{\"columns\":[\"n\"],\"data\":[[{\"externalId\":\"some:id\",\"name\":\"Donald \\\"the\\\" Duck\"}]]}"));
+    }
+
+    @Test
+    public void executeEmptyResult() throws IOException {
+        CypherQuery query = new CypherQuery("MATCH (n) WHERE n.name = {name} RETURN n.name as name",
+                Collections.singletonMap("name", "Goofy"));
+        String result = new CypherEmbedded(graphDb).execute(query, CypherEmbeddedTest::toString);
+        assertThat(result, is("{\"columns\":[\"name\"],\"data\":[]}"));
+    }
+
+    @Test
+    public void storeVersion() {
+        String version = new CypherEmbedded(graphDb).getStoreVersion();
+        assertThat(version, is(new CypherEmbedded(graphDb).getStoreVersion()));
+
+        GraphDatabaseService otherGraphDb = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        try {
+            assertThat(new CypherEmbedded(otherGraphDb).getStoreVersion(), is(not(version)));
+        } finally {
+            otherGraphDb.shutdown();
+        }
+    }
+
+    @Test
+    public void streamIntoFormatter() throws IOException {
+        CypherQuery query = new CypherQuery("MATCH (n) RETURN n.name as source_taxon_name, 'interactsWith' as interaction_type, 'Goofy' as target_taxon_name ORDER BY n.name");
+        String result = new CypherEmbedded(graphDb).execute(query, content -> {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            new ResultFormatterJSONv2().format(content, os);
+            return new String(os.toByteArray(), StandardCharsets.UTF_8);
+        });
+        assertThat(result.contains("\"source\":{\"name\":\"Mickey Mouse\"}"), is(true));
+        assertThat(result.contains("\"source\":{\"name\":\"Donald \\\"the\\\" Duck\"}"), is(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidQuery() throws IOException {
+        new CypherEmbedded(graphDb).execute(new CypherQuery("MATCH (n RETURN n"), CypherEmbeddedTest::toString);
+    }
+
+    private static String toString(InputStream content) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        int b;
+        while ((b = content.read()) != -1) {
+            os.write(b);
+        }
+        return IOUtils.toString(os.toByteArray(), StandardCharsets.UTF_8.name());
+    }
+
+}
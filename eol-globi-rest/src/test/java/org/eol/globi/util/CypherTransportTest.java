@@ -0,0 +1,116 @@
+package org.eol.globi.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+
+public class CypherTransportTest {
+
+    private HttpServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ok", exchange -> respond(exchange, 200, "{\"columns\":[]}"));
+        server.createContext("/error", exchange -> respond(exchange, 500, "oops"));
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "slow");
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void execute() throws IOException {
+        CypherTransport transport = new CypherTransport(2, 2, 100, 5);
+        for (int i = 0; i < 5; i++) {
+            assertThat(transport.execute(get("/ok"), CypherTransportTest::toString), is("{\"columns\":[]}"));
+        }
+        assertThat(transport.getAvailablePermits(), is(2));
+    }
+
+    @Test
+    public void releasePermitOnError() throws IOException {
+        CypherTransport transport = new CypherTransport(1, 1, 100, 5);
+        try {
+            transport.execute(get("/error"), CypherTransportTest::toString);
+            fail("expected error response");
+        } catch (HttpResponseException ex) {
+            assertThat(ex.getStatusCode(), is(500));
+        }
+        assertThat(transport.getAvailablePermits(), is(1));
+        assertThat(transport.execute(get("/ok"), CypherTransportTest::toString), is("{\"columns\":[]}"));
+    }
+
+    @Test
+    public void rejectWhenSaturated() throws Exception {
+        CypherTransport transport = new CypherTransport(1, 1, 50, 7);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = executor.submit(() -> transport.execute(get("/slow"), CypherTransportTest::toString));
+            while (transport.getAvailablePermits() > 0) {
+                Thread.sleep(10);
+            }
+            try {
+                transport.execute(get("/ok"), CypherTransportTest::toString);
+                fail("expected request to be rejected");
+            } catch (ServiceUnavailableException ex) {
+                assertThat(ex.getRetryAfterSeconds(), is(7));
+            }
+            release.countDown();
+            assertThat(slow.get(10, TimeUnit.SECONDS), is("slow"));
+            assertThat(transport.execute(get("/ok"), CypherTransportTest::toString), is("{\"columns\":[]}"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private HttpGet get(String path) {
+        return new HttpGet("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    private static String toString(InputStream content) throws IOException {
+        return IOUtils.toString(content, StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+}
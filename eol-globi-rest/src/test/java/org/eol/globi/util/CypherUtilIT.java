@@ -3,7 +3,6 @@ package org.eol.globi.util;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.io.output.ProxyOutputStream;
-import org.apache.http.HttpResponse;
 import org.eol.globi.server.util.RequestHelper;
 import org.hamcrest.core.Is;
 import org.junit.Test;
@@ -29,7 +28,6 @@ public class CypherUtilIT {
         HashMap<String, String> params = new HashMap<String, String>() {{
             put("accordingTo", "(?i).*(\\\\Qgomexsi\\\\E).*");
         }};
-        HttpResponse execute = CypherUtil.execute(new CypherQuery(query, params, CypherUtil.CYPHER_VERSION_2_3));
         ProxyOutputStream proxyOutputStream = new ProxyOutputStream(new NullOutputStream()) {
             AtomicLong count = new AtomicLong(0L);
             @Override
@@ -42,7 +40,8 @@ public class CypherUtilIT {
 
         };
 
-        IOUtils.copy(execute.getEntity().getContent(), proxyOutputStream);
+        CypherUtil.execute(new CypherQuery(query, params, CypherUtil.CYPHER_VERSION_2_3),
+                content -> IOUtils.copy(content, proxyOutputStream));
         proxyOutputStream.flush();
         proxyOutputStream.close();
     }
@@ -63,9 +62,8 @@ public class CypherUtilIT {
         HashMap<String, String> params = new HashMap<String, String>() {{
             put("accordingTo", "http://arctos.database.museum/guid/MSB:Para:1678");
         }};
-        HttpResponse execute = CypherUtil.execute(new CypherQuery(query, params, CypherUtil.CYPHER_VERSION_2_3));
-
-        String body = IOUtils.toString(execute.getEntity().getContent(), StandardCharsets.UTF_8);
+        String body = CypherUtil.execute(new CypherQuery(query, params, CypherUtil.CYPHER_VERSION_2_3),
+                content -> IOUtils.toString(content, StandardCharsets.UTF_8));
         boolean nonEmpty = RequestHelper.nonEmptyData(body);
         assertThat(nonEmpty, Is.is(true));
     }
@@ -86,9 +84,8 @@ public class CypherUtilIT {
         HashMap<String, String> params = new HashMap<String, String>() {{
             put("accordingTo", "http://arctos.database.museum/guid/MSB:Para:1678999999999999");
         }};
-        HttpResponse execute = CypherUtil.execute(new CypherQuery(query, params, CypherUtil.CYPHER_VERSION_2_3));
-
-        String body = IOUtils.toString(execute.getEntity().getContent(), StandardCharsets.UTF_8);
+        String body = CypherUtil.execute(new CypherQuery(query, params, CypherUtil.CYPHER_VERSION_2_3),
+                content -> IOUtils.toString(content, StandardCharsets.UTF_8));
         boolean nonEmpty = RequestHelper.nonEmptyData(body);
         assertThat(nonEmpty, Is.is(false));
     }
@@ -0,0 +1,107 @@
+package org.eol.globi.taxon;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads (and, for gzipped resources, decompresses) the underlying stream on a dedicated thread, a bounded number of
+ * blocks ahead of the consumer.
+ */
+class ReadAheadInputStream extends InputStream {
+
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final BlockingQueue<byte[]> blocks;
+    private final Thread reader;
+    private volatile Throwable failure = null;
+
+    private byte[] block = null;
+    private int position = 0;
+    private boolean done = false;
+
+    ReadAheadInputStream(InputStream is, int blockSize, int maxBlocksAhead) {
+        this.blocks = new ArrayBlockingQueue<>(maxBlocksAhead);
+        this.reader = new Thread(() -> readAhead(is, blockSize), "read-ahead");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void readAhead(InputStream is, int blockSize) {
+        boolean closed = false;
+        try (InputStream in = is) {
+            int length;
+            do {
+                byte[] buffer = new byte[blockSize];
+                length = IOUtils.read(in, buffer);
+                if (length > 0) {
+                    blocks.put(length == blockSize ? buffer : Arrays.copyOf(buffer, length));
+                }
+            } while (length == blockSize);
+        } catch (InterruptedException e) {
+            // stream was closed before it was read completely
+            closed = true;
+        } catch (Throwable th) {
+            failure = th;
+        } finally {
+            if (!closed) {
+                endOfStream();
+            }
+        }
+    }
+
+    private void endOfStream() {
+        try {
+            blocks.put(END_OF_STREAM);
+        } catch (InterruptedException e) {
+            // stream was closed before it was read completely
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? block[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, block.length - position);
+        System.arraycopy(block, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        reader.interrupt();
+    }
+
+    private boolean fill() throws IOException {
+        if (!done && (block == null || position >= block.length)) {
+            try {
+                block = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for data");
+            }
+            position = 0;
+            done = block == END_OF_STREAM;
+        }
+        if (done && failure != null) {
+            throw new IOException("failed to read", failure);
+        }
+        return !done;
+    }
+
+}
@@ -0,0 +1,279 @@
+package org.eol.globi.taxon;
+
+import org.apache.commons.io.FileUtils;
+import org.mapdb.Fun;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts taxon cache entries for the MapDB pump, which expects its source in descending key order, or in any other
+ * given order, e.g., for writing a {@link TaxonIndexFile}.
+ * <p>
+ * Entries are collected in batches. Each full batch is sorted and spilled to disk by a pool of workers, while new
+ * entries keep coming in. The spilled runs are merged when the sorted entries are read. Of entries that are equal in
+ * the sort order, the first one added is kept, so the result only depends on the order in which entries are added.
+ */
+class TaxonCachePresort implements Closeable {
+
+    private static final Comparator<Fun.Tuple2<String, Map<String, String>>> DESCENDING_KEYS = (a, b) -> b.a.compareTo(a.a);
+
+    private final File dir;
+    private final int batchSize;
+    private final Comparator<Fun.Tuple2<String, Map<String, String>>> order;
+    private final ThreadPoolExecutor pool;
+
+    private List<Fun.Tuple2<String, Map<String, String>>> batch;
+    private final List<Future<File>> runs = new ArrayList<>();
+    private final List<Closeable> runReaders = new ArrayList<>();
+
+    TaxonCachePresort(File dir, int batchSize, int workers) {
+        this(dir, batchSize, workers, DESCENDING_KEYS);
+    }
+
+    TaxonCachePresort(File dir, int batchSize, int workers, Comparator<Fun.Tuple2<String, Map<String, String>>> order) {
+        this.dir = dir;
+        this.batchSize = batchSize;
+        this.order = order;
+        this.batch = new ArrayList<>(batchSize);
+        int poolSize = Math.max(1, workers);
+        // when all workers are busy, the caller sorts and spills the batch itself, which bounds the batches in memory
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(poolSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "taxon-cache-presort");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    void add(Fun.Tuple2<String, Map<String, String>> entry) {
+        List<Fun.Tuple2<String, Map<String, String>>> full = null;
+        File runFile = null;
+        CompletableFuture<File> run = null;
+        synchronized (this) {
+            batch.add(entry);
+            if (batch.size() >= batchSize) {
+                full = batch;
+                batch = new ArrayList<>(batchSize);
+                runFile = new File(dir, "run" + runs.size());
+                run = new CompletableFuture<>();
+                runs.add(run);
+            }
+        }
+        if (run != null) {
+            spillAsync(full, runFile, run);
+        }
+    }
+
+    /**
+     * @return all added entries in sort order, keeping the first added of equal entries
+     */
+    synchronized Iterator<Fun.Tuple2<String, Map<String, String>>> sorted() throws IOException {
+        List<Iterator<Fun.Tuple2<String, Map<String, String>>>> iterators = new ArrayList<>();
+        for (Future<File> run : runs) {
+            RunReader reader = new RunReader(awaitRun(run));
+            runReaders.add(reader);
+            iterators.add(reader);
+        }
+        batch.sort(order);
+        iterators.add(batch.iterator());
+        return new MergingIterator(iterators, order);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        pool.shutdownNow();
+        for (Closeable reader : runReaders) {
+            reader.close();
+        }
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private void spillAsync(List<Fun.Tuple2<String, Map<String, String>>> entries, File runFile, CompletableFuture<File> run) {
+        // submitted outside of the lock, so that other callers can keep adding while the caller runs the spill
+        pool.execute(() -> {
+            try {
+                run.complete(spill(entries, runFile));
+            } catch (Throwable e) {
+                run.completeExceptionally(e);
+            }
+        });
+    }
+
+    private static File awaitRun(Future<File> run) throws IOException {
+        try {
+            return run.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while sorting taxon cache", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to sort taxon cache", e.getCause());
+        }
+    }
+
+    private File spill(List<Fun.Tuple2<String, Map<String, String>>> entries, File runFile) throws IOException {
+        entries.sort(order);
+        FileUtils.forceMkdir(runFile.getParentFile());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile)))) {
+            out.writeInt(entries.size());
+            for (Fun.Tuple2<String, Map<String, String>> entry : entries) {
+                writeString(out, entry.a);
+                out.writeInt(entry.b.size());
+                for (Map.Entry<String, String> property : entry.b.entrySet()) {
+                    writeString(out, property.getKey());
+                    writeString(out, property.getValue());
+                }
+            }
+        }
+        return runFile;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        String value = null;
+        if (length >= 0) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static class RunReader implements Iterator<Fun.Tuple2<String, Map<String, String>>>, Closeable {
+        private final DataInputStream in;
+        private int remaining;
+
+        RunReader(File runFile) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile)));
+            this.remaining = in.readInt();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Fun.Tuple2<String, Map<String, String>> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                String key = readString(in);
+                int size = in.readInt();
+                Map<String, String> properties = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    properties.put(readString(in), readString(in));
+                }
+                remaining--;
+                return new Fun.Tuple2<>(key, properties);
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to read sorted taxon cache entries", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Merges sorted sources, given in the order their entries were added. Ties are broken by source order
+     * and, because batches are sorted stably, duplicates within a source keep their order too.
+     */
+    private static class MergingIterator implements Iterator<Fun.Tuple2<String, Map<String, String>>> {
+        private final List<Iterator<Fun.Tuple2<String, Map<String, String>>>> sources;
+        private final Comparator<Fun.Tuple2<String, Map<String, String>>> order;
+        private final PriorityQueue<Head> heads;
+        private Fun.Tuple2<String, Map<String, String>> next;
+        private Fun.Tuple2<String, Map<String, String>> last;
+
+        MergingIterator(List<Iterator<Fun.Tuple2<String, Map<String, String>>>> sources, Comparator<Fun.Tuple2<String, Map<String, String>>> order) {
+            this.sources = sources;
+            this.order = order;
+            this.heads = new PriorityQueue<>(Math.max(1, sources.size()), Comparator
+                    .<Head, Fun.Tuple2<String, Map<String, String>>>comparing(head -> head.entry, order)
+                    .thenComparingInt(head -> head.source));
+            for (int i = 0; i < sources.size(); i++) {
+                advance(i);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !heads.isEmpty()) {
+                Head head = heads.poll();
+                advance(head.source);
+                if (last == null || order.compare(head.entry, last) != 0) {
+                    next = head.entry;
+                    last = head.entry;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Fun.Tuple2<String, Map<String, String>> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Fun.Tuple2<String, Map<String, String>> entry = next;
+            next = null;
+            return entry;
+        }
+
+        private void advance(int source) {
+            Iterator<Fun.Tuple2<String, Map<String, String>>> iterator = sources.get(source);
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), source));
+            }
+        }
+    }
+
+    private static class Head {
+        private final Fun.Tuple2<String, Map<String, String>> entry;
+        private final int source;
+
+        Head(Fun.Tuple2<String, Map<String, String>> entry, int source) {
+            this.entry = entry;
+            this.source = source;
+        }
+    }
+
+}
@@ -25,31 +25,42 @@ import org.mapdb.Fun;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class TaxonCacheService extends CacheService implements PropertyEnricher, TermMatcher {
     private static final Logger LOG = LoggerFactory.getLogger(TaxonCacheService.class);
 
-    private BTreeMap<String, Map<String, String>> resolvedIdToTaxonMap = null;
+    private volatile BTreeMap<String, Map<String, String>> resolvedIdToTaxonMap = null;
 
-    private TaxonLookupServiceImpl taxonLookupService = null;
+    private volatile TaxonLookupServiceCached taxonLookupService = null;
+
+    private volatile TaxonIndexFile taxonIndexFile = null;
+
+    // lookup statistics of lookup services closed on shutdown
+    private long closedLookupHitCount = 0;
+    private long closedLookupMissCount = 0;
 
 
     // maximum number of expected taxon links related to a given taxon id
     private int maxTaxonLinks = 125;
 
+    // maximum number of name/id lookups kept in memory
+    private int maxCachedLookups = 500000;
+
+    // number of threads used to build the taxon cache and taxon map index
+    private int buildThreads = Runtime.getRuntime().availableProcessors();
+
+    // optional prebuilt taxon index, used instead of the taxon cache and taxon map index
+    private File taxonIndex = null;
+
     private final TermResource<Taxon> taxonCache;
     private final TermResource<Triple<Taxon, NameType, Taxon>> taxonMap;
 
@@ -90,7 +101,7 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
             Taxon[] taxaMatched = lookupTerm(value);
             for (Taxon taxonMatch : taxaMatched) {
                 String resolvedId = taxonMatch.getExternalId();
-                Map<String, String> enrichedSingle = resolvedIdToTaxonMap.get(StringUtils.lowerCase(resolvedId));
+                Map<String, String> enrichedSingle = getResolvedTaxon(StringUtils.lowerCase(resolvedId));
                 if (enrichedSingle != null) {
                     if (enriched == null) {
                         enriched = new ArrayList<>();
@@ -106,7 +117,7 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
     private Taxon[] lookupTerm(String value) throws PropertyEnricherException {
         Taxon[] ids;
         try {
-            ids = taxonLookupService.lookupTermsByName(StringUtils.lowerCase(value));
+            ids = getTaxonLookupService().lookupTermsByName(StringUtils.lowerCase(value));
         } catch (IOException e) {
             throw new PropertyEnricherException("failed to lookup [" + value + "]", e);
         }
@@ -130,14 +141,65 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
     }
 
     private void lazyInit() throws PropertyEnricherException {
-        if (resolvedIdToTaxonMap == null || taxonLookupService == null) {
+        if ((resolvedIdToTaxonMap == null && taxonIndexFile == null) || taxonLookupService == null) {
             init();
         }
     }
 
-    private void init() throws PropertyEnricherException {
-        initTaxonCache();
-        initTaxonIdMap();
+    private synchronized void init() throws PropertyEnricherException {
+        if (taxonIndex != null) {
+            if (taxonIndexFile == null || taxonLookupService == null) {
+                initTaxonIndexFile();
+            }
+        } else {
+            if (resolvedIdToTaxonMap == null) {
+                initTaxonCache();
+            }
+            if (taxonLookupService == null) {
+                initTaxonIdMap();
+            }
+        }
+    }
+
+    private Map<String, String> getResolvedTaxon(String resolvedId) throws PropertyEnricherException {
+        TaxonIndexFile indexFile = taxonIndexFile;
+        if (indexFile != null) {
+            return indexFile.getTaxon(resolvedId);
+        }
+        BTreeMap<String, Map<String, String>> map = resolvedIdToTaxonMap;
+        if (map == null) {
+            throw new PropertyEnricherException("taxon cache not available: service not initialized or already shut down");
+        }
+        return map.get(resolvedId);
+    }
+
+    private void initTaxonIndexFile() throws PropertyEnricherException {
+        try {
+            TaxonIndexFile indexFile = taxonIndex.exists() ? TaxonIndexFile.open(taxonIndex) : null;
+            if (indexFile != null && !indexFile.isBuiltFrom(taxonCache, taxonMap)) {
+                LOG.info("taxon index [" + taxonIndex.getAbsolutePath() + "] was built from another version of taxon cache [" + taxonCache.getResource() + "] or taxon map [" + taxonMap.getResource() + "], rebuilding...");
+                indexFile.close();
+                indexFile = null;
+            }
+            if (indexFile == null) {
+                TaxonIndexFile.build(taxonCache, taxonMap, taxonIndex, getBuildThreads());
+                indexFile = TaxonIndexFile.open(taxonIndex);
+            }
+            indexFile.setMaxHits(getMaxTaxonLinks());
+            LOG.info("using taxon index [" + taxonIndex.getAbsolutePath() + "] built from taxon cache with sha256 [" + indexFile.getTaxonCacheSha256() + "] and taxon map with sha256 [" + indexFile.getTaxonMapSha256() + "]");
+            this.taxonIndexFile = indexFile;
+            this.taxonLookupService = new TaxonLookupServiceCached(indexFile, getMaxCachedLookups());
+        } catch (IOException e) {
+            throw new PropertyEnricherException("failed to open taxon index [" + taxonIndex.getAbsolutePath() + "]", e);
+        }
+    }
+
+    private TaxonLookupService getTaxonLookupService() throws PropertyEnricherException {
+        TaxonLookupService lookupService = taxonLookupService;
+        if (lookupService == null) {
+            throw new PropertyEnricherException("taxon lookup not available: service not initialized or already shut down");
+        }
+        return lookupService;
     }
 
     private void initTaxonIdMap() throws PropertyEnricherException {
@@ -146,9 +208,10 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
             if (!luceneDir.exists()) {
                 buildIndex(luceneDir);
             }
-            this.taxonLookupService = new TaxonLookupServiceImpl(new SimpleFSDirectory(luceneDir)) {{
+            TaxonLookupServiceImpl lookupService = new TaxonLookupServiceImpl(new SimpleFSDirectory(luceneDir)) {{
                 setMaxHits(getMaxTaxonLinks());
             }};
+            this.taxonLookupService = new TaxonLookupServiceCached(lookupService, getMaxCachedLookups());
 
         } catch (IOException e) {
             throw new PropertyEnricherException("problem initiating taxon cache index", e);
@@ -162,25 +225,14 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
         TaxonLookupBuilder taxonLookupService = new TaxonLookupBuilder(indexDir) {{
             start();
         }};
-        final AtomicInteger count = new AtomicInteger(0);
         LOG.info("local taxon map of [" + taxonMap.getResource() + "] building...");
 
         StopWatch watch = new StopWatch();
         watch.start();
-        BufferedReader reader = CacheServiceUtil.createBufferedReader(taxonMap.getResource());
-
-        reader.lines()
-                .filter(taxonMap.getValidator())
-                .map(taxonMap.getParser())
-                .forEach(triple -> {
-                    addIfNeeded(taxonLookupService, triple.getLeft().getExternalId(), triple.getRight().getExternalId());
-                    addIfNeeded(taxonLookupService, triple.getLeft().getName(), triple.getRight().getExternalId());
-                    addIfNeeded(taxonLookupService, triple.getRight().getExternalId(), triple.getRight().getExternalId());
-                    addIfNeeded(taxonLookupService, triple.getRight().getName(), triple.getRight().getExternalId());
-                    count.incrementAndGet();
-                });
+        long count = new TermResourceLoader<>(taxonMap, getBuildThreads())
+                .load(triple -> addTaxonMapEntry(taxonLookupService, triple));
         watch.stop();
-        logCacheLoadStats(watch.getTime(), count.get());
+        logCacheLoadStats(watch.getTime(), (int) count);
         LOG.info("local taxon map of [" + taxonMap.getResource() + "] built.");
         watch.reset();
         taxonLookupService.finish();
@@ -203,12 +255,14 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
             watch.start();
             String tmpTaxonCacheName = "taxonCacheById" + UUID.randomUUID();
             BTreeMap<String, Map<String, String>> tmpResolvedIdToTaxonMap = null;
-            try {
+            File presortDir = new File(getCacheDir().getAbsolutePath(), "presort" + UUID.randomUUID());
+            try (TaxonCachePresort presort = new TaxonCachePresort(presortDir, 100000, getBuildThreads())) {
+                new TermResourceLoader<>(taxonCache, getBuildThreads())
+                        .load(taxon -> presort.add(new Fun.Tuple2<>(valueOrNoMatch(taxon.getExternalId()), TaxonUtil.taxonToMap(taxon))));
                 tmpResolvedIdToTaxonMap = db
                         .createTreeMap(tmpTaxonCacheName)
-                        .pumpPresort(100000)
                         .pumpIgnoreDuplicates()
-                        .pumpSource(taxonCacheIterator(taxonCache))
+                        .pumpSource(presort.sorted())
                         .keySerializer(BTreeKeySerializer.STRING)
                         .make();
                 db.commit();
@@ -229,7 +283,14 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
         }
     }
 
-    private void addIfNeeded(TaxonImportListener lookupService, String providedKey, String resolvedId) {
+    static void addTaxonMapEntry(TaxonImportListener lookupService, Triple<Taxon, NameType, Taxon> triple) {
+        addIfNeeded(lookupService, triple.getLeft().getExternalId(), triple.getRight().getExternalId());
+        addIfNeeded(lookupService, triple.getLeft().getName(), triple.getRight().getExternalId());
+        addIfNeeded(lookupService, triple.getRight().getExternalId(), triple.getRight().getExternalId());
+        addIfNeeded(lookupService, triple.getRight().getName(), triple.getRight().getExternalId());
+    }
+
+    private static void addIfNeeded(TaxonImportListener lookupService, String providedKey, String resolvedId) {
         if (TaxonUtil.isNonEmptyValue(providedKey) && TaxonUtil.isNonEmptyValue(resolvedId)) {
             lookupService.addTerm(StringUtils.lowerCase(providedKey), new TaxonImpl(null, resolvedId));
         }
@@ -262,7 +323,7 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
                         .limit(getMaxTaxonLinks())
                         .collect(Collectors.toList());
                 for (String resolvedId : idsDistinct) {
-                    Map<String, String> resolved = resolvedIdToTaxonMap.get(resolvedId);
+                    Map<String, String> resolved = getResolvedTaxon(resolvedId);
                     if (resolved != null) {
                         Taxon resolvedTaxon = TaxonUtil.mapToTaxon(resolved);
                         termMatchListener.foundTaxonForTerm(nodeId, term, resolvedTaxon, NameType.SAME_AS);
@@ -282,47 +343,36 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
         this.maxTaxonLinks = maxTaxonLinks;
     }
 
-    static private String valueOrNoMatch(String value) {
-        return TaxonUtil.isNonEmptyValue(value) ? StringUtils.lowerCase(value) : PropertyAndValueDictionary.NO_MATCH;
+    public int getMaxCachedLookups() {
+        return maxCachedLookups;
     }
 
-    static public Iterator<Fun.Tuple2<String, Map<String, String>>> taxonCacheIterator(final TermResource<Taxon> config) throws IOException {
+    public void setMaxCachedLookups(int maxCachedLookups) {
+        this.maxCachedLookups = maxCachedLookups;
+    }
 
-        return new Iterator<Fun.Tuple2<String, Map<String, String>>>() {
-            private BufferedReader reader = CacheServiceUtil.createBufferedReader(config.getResource());
-            private AtomicBoolean lineAvailable = new AtomicBoolean(false);
-            private String currentLine = null;
+    public File getTaxonIndex() {
+        return taxonIndex;
+    }
 
-            @Override
-            public boolean hasNext() {
-                try {
-                    return proceedToNextValidLine();
-                } catch (IOException e) {
-                    LOG.error("failed to get next line", e);
-                    return false;
-                }
-            }
+    /**
+     * @param taxonIndex prebuilt taxon index file to use instead of the taxon cache and taxon map index. If the file
+     *                   does not exist yet, it is built from the taxon cache and taxon map on first use.
+     */
+    public void setTaxonIndex(File taxonIndex) {
+        this.taxonIndex = taxonIndex;
+    }
 
-            private boolean proceedToNextValidLine() throws IOException {
-                while (!lineAvailable.get() && (currentLine = reader.readLine()) != null) {
-                    if (config.getValidator().test(currentLine)) {
-                        lineAvailable.set(true);
-                    }
-                }
-                return lineAvailable.get();
-            }
+    public int getBuildThreads() {
+        return buildThreads;
+    }
 
-            @Override
-            public Fun.Tuple2<String, Map<String, String>> next() {
-                final Taxon taxon = config.getParser().apply(currentLine);
-                lineAvailable.set(false);
-                return new Fun.Tuple2<>(valueOrNoMatch(taxon.getExternalId()), TaxonUtil.taxonToMap(taxon));
-            }
+    public void setBuildThreads(int buildThreads) {
+        this.buildThreads = buildThreads;
+    }
 
-            public void remove() {
-                throw new UnsupportedOperationException("remove");
-            }
-        };
+    static String valueOrNoMatch(String value) {
+        return TaxonUtil.isNonEmptyValue(value) ? StringUtils.lowerCase(value) : PropertyAndValueDictionary.NO_MATCH;
     }
 
     static public void logCacheLoadStats(long time, int numberOfItems) {
@@ -340,19 +390,48 @@ public class TaxonCacheService extends CacheService implements PropertyEnricher,
     }
 
     @Override
-    public void shutdown() {
+    public synchronized void shutdown() {
         if (resolvedIdToTaxonMap != null) {
             close(resolvedIdToTaxonMap.getEngine());
             resolvedIdToTaxonMap = null;
         }
         if (taxonLookupService != null) {
+            LOG.info(String.format("taxon lookup cache: [%d] hits, [%d] misses, hit rate [%.1f]%%",
+                    taxonLookupService.getHitCount(),
+                    taxonLookupService.getMissCount(),
+                    taxonLookupService.getHitRate() * 100.0));
+            closedLookupHitCount += taxonLookupService.getHitCount();
+            closedLookupMissCount += taxonLookupService.getMissCount();
             try {
                 taxonLookupService.close();
-            } catch (IOException e) {
+            } catch (Exception e) {
                 // ignore
             }
             taxonLookupService = null;
         }
+        if (taxonIndexFile != null) {
+            try {
+                taxonIndexFile.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            taxonIndexFile = null;
+        }
+    }
+
+    /**
+     * @return number of taxon lookups answered by the lookup cache, including those of lookup caches closed on shutdown
+     */
+    public synchronized long getLookupHitCount() {
+        return closedLookupHitCount + (taxonLookupService == null ? 0 : taxonLookupService.getHitCount());
+    }
+
+    /**
+     * @return number of taxon lookups not answered by the lookup cache, including those of lookup caches closed on
+     * shutdown
+     */
+    public synchronized long getLookupMissCount() {
+        return closedLookupMissCount + (taxonLookupService == null ? 0 : taxonLookupService.getMissCount());
     }
 
     static public void close(Engine engine) {
@@ -0,0 +1,297 @@
+package org.eol.globi.taxon;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Triple;
+import org.eol.globi.domain.NameType;
+import org.eol.globi.domain.Taxon;
+import org.eol.globi.domain.TaxonImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, memory-mapped taxon resolution index: a prebuilt replacement for the taxon lookup lucene index and the
+ * MapDB taxon cache that {@link TaxonCacheService} otherwise builds from taxonCache.tsv and taxonMap.tsv.
+ * <p>
+ * The file holds a sorted string pool, a name to resolved id table and a resolved id to taxon record table. Strings
+ * are referenced by their position in the pool, and the pool is sorted, so a lookup is a binary search on the pool
+ * followed by a binary search on the referencing table. The header holds the sha256 hashes of the resources the index
+ * was built from.
+ */
+public class TaxonIndexFile implements TaxonLookupService, AutoCloseable {
+
+    static final int MAGIC = 0x47544958; // GTIX
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 136;
+
+    // largest string or record that fits into the overlap of adjacent mapped segments
+    static final int MAX_ITEM_BYTES = 1 << 26;
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final RandomAccessFile file;
+    private final ByteBuffer[] segments;
+
+    private final String taxonCacheSha256;
+    private final String taxonMapSha256;
+    private final int stringCount;
+    private final int nameCount;
+    private final int recordCount;
+    private final long stringOffsetsPos;
+    private final long stringDataPos;
+    private final long namesPos;
+    private final long namesByIdPos;
+    private final long recordIndexPos;
+    private final long recordDataPos;
+
+    private volatile int maxHits = Integer.MAX_VALUE;
+
+    /**
+     * Builds an index file from the taxon cache and taxon map resources. The file is written next to the
+     * destination first, and then moved into place.
+     */
+    public static void build(TermResource<Taxon> taxonCache, TermResource<Triple<Taxon, NameType, Taxon>> taxonMap, File destination, int workers) throws IOException {
+        new TaxonIndexFileWriter(taxonCache, taxonMap, workers).write(destination);
+    }
+
+    public static TaxonIndexFile open(File indexFile) throws IOException {
+        return new TaxonIndexFile(indexFile);
+    }
+
+    private TaxonIndexFile(File indexFile) throws IOException {
+        this.file = new RandomAccessFile(indexFile, "r");
+        try {
+            this.segments = map(file.getChannel());
+            if (file.length() < HEADER_SIZE || getInt(0) != MAGIC) {
+                throw new IOException("[" + indexFile.getAbsolutePath() + "] is not a taxon index file");
+            }
+            if (getInt(4) != FORMAT_VERSION) {
+                throw new IOException("unsupported taxon index format version [" + getInt(4) + "] in [" + indexFile.getAbsolutePath() + "]");
+            }
+            this.taxonCacheSha256 = Hex.encodeHexString(getBytes(8, 32));
+            this.taxonMapSha256 = Hex.encodeHexString(getBytes(40, 32));
+            this.stringCount = getInt(72);
+            this.nameCount = getInt(76);
+            this.recordCount = getInt(80);
+            this.stringOffsetsPos = getLong(88);
+            this.stringDataPos = getLong(96);
+            this.namesPos = getLong(104);
+            this.namesByIdPos = getLong(112);
+            this.recordIndexPos = getLong(120);
+            this.recordDataPos = getLong(128);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer[] map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int segmentCount = (int) Math.max(1, (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        ByteBuffer[] segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = i * SEGMENT_SIZE;
+            // adjacent segments overlap, so that strings and records never have to be read across segments
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + MAX_ITEM_BYTES, size - start));
+        }
+        return segments;
+    }
+
+    public String getTaxonCacheSha256() {
+        return taxonCacheSha256;
+    }
+
+    public String getTaxonMapSha256() {
+        return taxonMapSha256;
+    }
+
+    /**
+     * @return true if the index was built from the current content of given taxon cache and taxon map
+     */
+    public boolean isBuiltFrom(TermResource<Taxon> taxonCache, TermResource<Triple<Taxon, NameType, Taxon>> taxonMap) throws IOException {
+        return StringUtils.equals(taxonCacheSha256, Hex.encodeHexString(TaxonIndexFileWriter.sha256(taxonCache.getResource())))
+                && StringUtils.equals(taxonMapSha256, Hex.encodeHexString(TaxonIndexFileWriter.sha256(taxonMap.getResource())));
+    }
+
+    public int getMaxHits() {
+        return maxHits;
+    }
+
+    public void setMaxHits(int maxHits) {
+        this.maxHits = maxHits;
+    }
+
+    /**
+     * @param resolvedId lower case resolved taxon id
+     * @return properties of the resolved taxon, or null if not found
+     */
+    public Map<String, String> getTaxon(String resolvedId) {
+        Map<String, String> taxon = null;
+        int keyRef = findString(resolvedId);
+        if (keyRef >= 0) {
+            int low = 0;
+            int high = recordCount - 1;
+            while (low <= high && taxon == null) {
+                int mid = (low + high) >>> 1;
+                long entryPos = recordIndexPos + mid * 12L;
+                int midRef = getInt(entryPos);
+                if (midRef < keyRef) {
+                    low = mid + 1;
+                } else if (midRef > keyRef) {
+                    high = mid - 1;
+                } else {
+                    taxon = readRecord(recordDataPos + getLong(entryPos + 4));
+                }
+            }
+        }
+        return taxon;
+    }
+
+    @Override
+    public Taxon[] lookupTermsByName(String taxonName) {
+        List<Taxon> taxa = new ArrayList<>();
+        int nameRef = findString(taxonName);
+        if (nameRef >= 0) {
+            for (int i = lowerBound(namesPos, nameCount, nameRef, false); i < nameCount && taxa.size() < getMaxHits(); i++) {
+                long entryPos = namesPos + i * 8L;
+                if (getInt(entryPos) != nameRef) {
+                    break;
+                }
+                taxa.add(new TaxonImpl(null, getString(getInt(entryPos + 4))));
+            }
+        }
+        return taxa.toArray(new Taxon[0]);
+    }
+
+    @Override
+    public Taxon[] lookupTermsById(String taxonId) {
+        List<Taxon> taxa = new ArrayList<>();
+        int idRef = findString(taxonId);
+        if (idRef >= 0) {
+            for (int i = lowerBound(namesByIdPos, nameCount, idRef, true); i < nameCount && taxa.size() < getMaxHits(); i++) {
+                if (idRefByIdOrder(i) != idRef) {
+                    break;
+                }
+                taxa.add(new TaxonImpl(null, taxonId));
+            }
+        }
+        return taxa.toArray(new Taxon[0]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int idRefByIdOrder(int i) {
+        return getInt(namesPos + getInt(namesByIdPos + i * 4L) * 8L + 4);
+    }
+
+    private int lowerBound(long tablePos, int count, int ref, boolean byId) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int midRef = byId ? idRefByIdOrder(mid) : getInt(tablePos + mid * 8L);
+            if (midRef < ref) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Map<String, String> readRecord(long pos) {
+        int propertyCount = getInt(pos);
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < propertyCount; i++) {
+            long propertyPos = pos + 4 + i * 8L;
+            int valueRef = getInt(propertyPos + 4);
+            properties.put(getString(getInt(propertyPos)), valueRef < 0 ? null : getString(valueRef));
+        }
+        return properties;
+    }
+
+    private int findString(String value) {
+        return StringUtils.isNotBlank(value) ? refOf(value) : -1;
+    }
+
+    /**
+     * @return position of given string in the string pool, or -1 if not found
+     */
+    int refOf(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int found = -1;
+        int low = 0;
+        int high = stringCount - 1;
+        while (low <= high && found < 0) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareString(mid, bytes);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                found = mid;
+            }
+        }
+        return found;
+    }
+
+    private int compareString(int ref, byte[] bytes) {
+        long start = getLong(stringOffsetsPos + ref * 8L);
+        int length = (int) (getLong(stringOffsetsPos + (ref + 1) * 8L) - start);
+        ByteBuffer segment = segmentFor(stringDataPos + start);
+        int offset = offsetIn(stringDataPos + start);
+        int common = Math.min(length, bytes.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(segment.get(offset + i) & 0xff, bytes[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, bytes.length);
+    }
+
+    private String getString(int ref) {
+        long start = getLong(stringOffsetsPos + ref * 8L);
+        int length = (int) (getLong(stringOffsetsPos + (ref + 1) * 8L) - start);
+        return new String(getBytes(stringDataPos + start, length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] getBytes(long pos, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer segment = segmentFor(pos);
+        int offset = offsetIn(pos);
+        for (int i = 0; i < length; i++) {
+            bytes[i] = segment.get(offset + i);
+        }
+        return bytes;
+    }
+
+    private int getInt(long pos) {
+        return segmentFor(pos).getInt(offsetIn(pos));
+    }
+
+    private long getLong(long pos) {
+        return segmentFor(pos).getLong(offsetIn(pos));
+    }
+
+    private ByteBuffer segmentFor(long pos) {
+        return segments[(int) (pos / SEGMENT_SIZE)];
+    }
+
+    private static int offsetIn(long pos) {
+        return (int) (pos % SEGMENT_SIZE);
+    }
+
+}
@@ -0,0 +1,293 @@
+package org.eol.globi.taxon;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.tuple.Triple;
+import org.eol.globi.domain.NameType;
+import org.eol.globi.domain.Taxon;
+import org.eol.globi.service.TaxonUtil;
+import org.eol.globi.util.ResourceUtil;
+import org.mapdb.Fun;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes a {@link TaxonIndexFile}. Strings, names and records are sorted by a {@link TaxonCachePresort} each, which
+ * spills sorted runs to disk, so that the index is written from merged runs instead of being built in memory. Once
+ * the string pool is written, strings are referenced by looking them up in the partially written index.
+ */
+class TaxonIndexFileWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(TaxonIndexFileWriter.class);
+
+    private static final int PRESORT_BATCH_SIZE = 100000;
+    private static final String PAIRED = "paired";
+    private static final String NAME_INDEX = "index";
+
+    // sorting strings by code point gives the same order as comparing their utf-8 bytes
+    private static final Comparator<String> CODE_POINT_ORDER = TaxonIndexFileWriter::compareCodePoints;
+    private static final Comparator<Fun.Tuple2<String, Map<String, String>>> KEY_ORDER =
+            Comparator.comparing(entry -> entry.a, CODE_POINT_ORDER);
+    // names are sorted by name and then by id, and names by id are sorted by id and then by name
+    private static final Comparator<Fun.Tuple2<String, Map<String, String>>> PAIR_ORDER = KEY_ORDER
+            .thenComparing(entry -> entry.b.get(PAIRED), CODE_POINT_ORDER);
+
+    private final TermResource<Taxon> taxonCache;
+    private final TermResource<Triple<Taxon, NameType, Taxon>> taxonMap;
+    private final int workers;
+    private final int presortBatchSize;
+
+    TaxonIndexFileWriter(TermResource<Taxon> taxonCache, TermResource<Triple<Taxon, NameType, Taxon>> taxonMap, int workers) {
+        this(taxonCache, taxonMap, workers, PRESORT_BATCH_SIZE);
+    }
+
+    TaxonIndexFileWriter(TermResource<Taxon> taxonCache, TermResource<Triple<Taxon, NameType, Taxon>> taxonMap, int workers, int presortBatchSize) {
+        this.taxonCache = taxonCache;
+        this.taxonMap = taxonMap;
+        this.workers = workers;
+        this.presortBatchSize = presortBatchSize;
+    }
+
+    void write(File destination) throws IOException {
+        LOG.info("taxon index [" + destination.getAbsolutePath() + "] building...");
+        File parentDir = destination.getAbsoluteFile().getParentFile();
+        String tmpName = destination.getName() + ".tmp" + UUID.randomUUID();
+        File tmpFile = new File(parentDir, tmpName);
+        File presortDir = new File(parentDir, tmpName + ".presort");
+        try (TaxonCachePresort strings = new TaxonCachePresort(new File(presortDir, "strings"), presortBatchSize, workers, KEY_ORDER);
+             TaxonCachePresort records = new TaxonCachePresort(new File(presortDir, "records"), presortBatchSize, workers, KEY_ORDER);
+             TaxonCachePresort names = new TaxonCachePresort(new File(presortDir, "names"), presortBatchSize, workers, PAIR_ORDER);
+             TaxonCachePresort namesById = new TaxonCachePresort(new File(presortDir, "namesById"), presortBatchSize, workers, PAIR_ORDER)) {
+            new TermResourceLoader<>(taxonCache, workers).load(taxon -> {
+                Map<String, String> properties = TaxonUtil.taxonToMap(taxon);
+                String key = TaxonCacheService.valueOrNoMatch(taxon.getExternalId());
+                records.add(new Fun.Tuple2<>(key, properties));
+                addString(strings, key);
+                for (Map.Entry<String, String> property : properties.entrySet()) {
+                    addString(strings, property.getKey());
+                    addString(strings, property.getValue());
+                }
+            });
+
+            TaxonImportListener nameCollector = new TaxonImportListener() {
+                @Override
+                public void addTerm(Taxon term) {
+                    addTerm(term.getName(), term);
+                }
+
+                @Override
+                public void addTerm(String key, Taxon taxon) {
+                    names.add(new Fun.Tuple2<>(key, Collections.singletonMap(PAIRED, taxon.getExternalId())));
+                    addString(strings, key);
+                    addString(strings, taxon.getExternalId());
+                }
+
+                @Override
+                public void start() {
+                }
+
+                @Override
+                public void finish() {
+                }
+            };
+            new TermResourceLoader<>(taxonMap, workers)
+                    .load(triple -> TaxonCacheService.addTaxonMapEntry(nameCollector, triple));
+
+            FileUtils.forceMkdirParent(tmpFile);
+            FileUtils.forceMkdir(presortDir);
+            String summary = writeIndex(tmpFile, new File(presortDir, "data"), strings, names, namesById, records);
+            Files.move(tmpFile.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.info("taxon index [" + destination.getAbsolutePath() + "] with " + summary + " built.");
+        } finally {
+            FileUtils.deleteQuietly(tmpFile);
+            FileUtils.deleteQuietly(presortDir);
+        }
+    }
+
+    /**
+     * Names by id are sorted by id and then by name, which is the order of their index in the name table for equal
+     * ids, because the name table is sorted by name and then by id.
+     *
+     * @return summary of the written index
+     */
+    private String writeIndex(File indexFile,
+                              File dataFile,
+                              TaxonCachePresort strings,
+                              TaxonCachePresort names,
+                              TaxonCachePresort namesById,
+                              TaxonCachePresort records) throws IOException {
+        byte[] taxonCacheSha256 = sha256(taxonCache.getResource());
+        byte[] taxonMapSha256 = sha256(taxonMap.getResource());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 1024 * 1024))) {
+            out.write(new byte[TaxonIndexFile.HEADER_SIZE]);
+            long stringOffsetsPos = TaxonIndexFile.HEADER_SIZE;
+
+            int stringCount = 0;
+            long stringOffset = 0;
+            try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile), 1024 * 1024))) {
+                Iterator<Fun.Tuple2<String, Map<String, String>>> sortedStrings = strings.sorted();
+                while (sortedStrings.hasNext()) {
+                    byte[] bytes = sortedStrings.next().a.getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > TaxonIndexFile.MAX_ITEM_BYTES) {
+                        throw new IOException("cannot index strings longer than [" + TaxonIndexFile.MAX_ITEM_BYTES + "] bytes");
+                    }
+                    out.writeLong(stringOffset);
+                    data.write(bytes);
+                    stringOffset += bytes.length;
+                    stringCount++;
+                }
+            }
+            out.writeLong(stringOffset);
+            long stringDataPos = stringOffsetsPos + 8L * (stringCount + 1);
+            appendFile(out, dataFile);
+            long namesPos = stringDataPos + stringOffset;
+            out.flush();
+
+            // the string pool alone is a valid index, which is used to look up string references
+            writeHeader(indexFile, taxonCacheSha256, taxonMapSha256, stringCount, 0, 0, stringDataPos, namesPos, namesPos, namesPos, namesPos);
+            try (TaxonIndexFile pool = TaxonIndexFile.open(indexFile)) {
+                int nameCount = 0;
+                Iterator<Fun.Tuple2<String, Map<String, String>>> sortedNames = names.sorted();
+                while (sortedNames.hasNext()) {
+                    Fun.Tuple2<String, Map<String, String>> name = sortedNames.next();
+                    String id = name.b.get(PAIRED);
+                    out.writeInt(refOf(pool, name.a));
+                    out.writeInt(refOf(pool, id));
+                    Map<String, String> nameById = new HashMap<>();
+                    nameById.put(PAIRED, name.a);
+                    nameById.put(NAME_INDEX, Integer.toString(nameCount++));
+                    namesById.add(new Fun.Tuple2<>(id, nameById));
+                }
+                long namesByIdPos = namesPos + 8L * nameCount;
+
+                Iterator<Fun.Tuple2<String, Map<String, String>>> sortedNamesById = namesById.sorted();
+                while (sortedNamesById.hasNext()) {
+                    out.writeInt(Integer.parseInt(sortedNamesById.next().b.get(NAME_INDEX)));
+                }
+                long recordIndexPos = namesByIdPos + 4L * nameCount;
+
+                int recordCount = 0;
+                long recordOffset = 0;
+                try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile), 1024 * 1024))) {
+                    Iterator<Fun.Tuple2<String, Map<String, String>>> sortedRecords = records.sorted();
+                    while (sortedRecords.hasNext()) {
+                        Fun.Tuple2<String, Map<String, String>> record = sortedRecords.next();
+                        out.writeInt(refOf(pool, record.a));
+                        out.writeLong(recordOffset);
+                        data.writeInt(record.b.size());
+                        for (Map.Entry<String, String> property : record.b.entrySet()) {
+                            data.writeInt(refOf(pool, property.getKey()));
+                            data.writeInt(property.getValue() == null ? -1 : refOf(pool, property.getValue()));
+                        }
+                        recordOffset += 4 + 8L * record.b.size();
+                        recordCount++;
+                    }
+                }
+                long recordDataPos = recordIndexPos + 12L * recordCount;
+                appendFile(out, dataFile);
+                out.flush();
+
+                writeHeader(indexFile, taxonCacheSha256, taxonMapSha256, stringCount, nameCount, recordCount, stringDataPos, namesPos, namesByIdPos, recordIndexPos, recordDataPos);
+                return "[" + recordCount + "] taxa and [" + nameCount + "] names";
+            }
+        }
+    }
+
+    private static void writeHeader(File indexFile,
+                                    byte[] taxonCacheSha256,
+                                    byte[] taxonMapSha256,
+                                    int stringCount,
+                                    int nameCount,
+                                    int recordCount,
+                                    long stringDataPos,
+                                    long namesPos,
+                                    long namesByIdPos,
+                                    long recordIndexPos,
+                                    long recordDataPos) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(indexFile, "rw")) {
+            out.writeInt(TaxonIndexFile.MAGIC);
+            out.writeInt(TaxonIndexFile.FORMAT_VERSION);
+            out.write(taxonCacheSha256);
+            out.write(taxonMapSha256);
+            out.writeInt(stringCount);
+            out.writeInt(nameCount);
+            out.writeInt(recordCount);
+            out.writeInt(0);
+            out.writeLong(TaxonIndexFile.HEADER_SIZE);
+            out.writeLong(stringDataPos);
+            out.writeLong(namesPos);
+            out.writeLong(namesByIdPos);
+            out.writeLong(recordIndexPos);
+            out.writeLong(recordDataPos);
+        }
+    }
+
+    private static void appendFile(DataOutputStream out, File file) throws IOException {
+        try (InputStream is = new FileInputStream(file)) {
+            IOUtils.copyLarge(is, out);
+        }
+    }
+
+    private static int refOf(TaxonIndexFile pool, String value) throws IOException {
+        int ref = pool.refOf(value);
+        if (ref < 0) {
+            throw new IOException("missing string [" + value + "] in taxon index");
+        }
+        return ref;
+    }
+
+    private static void addString(TaxonCachePresort strings, String value) {
+        if (value != null) {
+            strings.add(new Fun.Tuple2<>(value, Collections.emptyMap()));
+        }
+    }
+
+    static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int codePointA = a.codePointAt(i);
+            int codePointB = b.codePointAt(j);
+            if (codePointA != codePointB) {
+                return Integer.compare(codePointA, codePointB);
+            }
+            i += Character.charCount(codePointA);
+            j += Character.charCount(codePointB);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    static byte[] sha256(String resource) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream is = new DigestInputStream(ResourceUtil.asInputStream(resource), digest)) {
+                IOUtils.copy(is, NullOutputStream.NULL_OUTPUT_STREAM);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("failed to calculate sha256 hash of [" + resource + "]", e);
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.eol.globi.taxon;
+
+import org.eol.globi.domain.Taxon;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe, bounded least-recently-used cache in front of a {@link TaxonLookupService}.
+ * <p>
+ * Entries are spread over independently locked segments to keep contention low when
+ * many threads resolve names concurrently. Cached arrays are shared across callers and
+ * must be treated as read-only.
+ */
+public class TaxonLookupServiceCached implements TaxonLookupService, AutoCloseable {
+
+    private static final int DEFAULT_NUMBER_OF_SEGMENTS = 16;
+
+    private final TaxonLookupService lookupService;
+    private final Segment[] nameSegments;
+    private final Segment[] idSegments;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    public TaxonLookupServiceCached(TaxonLookupService lookupService, int maxCacheSize) {
+        this(lookupService, maxCacheSize, DEFAULT_NUMBER_OF_SEGMENTS);
+    }
+
+    public TaxonLookupServiceCached(TaxonLookupService lookupService, int maxCacheSize, int numberOfSegments) {
+        this.lookupService = lookupService;
+        int maxSegmentSize = Math.max(1, maxCacheSize / numberOfSegments);
+        this.nameSegments = createSegments(numberOfSegments, maxSegmentSize);
+        this.idSegments = createSegments(numberOfSegments, maxSegmentSize);
+    }
+
+    private static Segment[] createSegments(int numberOfSegments, int maxSegmentSize) {
+        Segment[] segments = new Segment[numberOfSegments];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(maxSegmentSize);
+        }
+        return segments;
+    }
+
+    @Override
+    public Taxon[] lookupTermsByName(String taxonName) throws IOException {
+        Segment segment = segmentFor(nameSegments, taxonName);
+        Taxon[] taxa = taxonName == null ? null : segment.get(taxonName);
+        if (taxa == null) {
+            misses.incrementAndGet();
+            taxa = lookupService.lookupTermsByName(taxonName);
+            if (taxonName != null) {
+                segment.put(taxonName, taxa);
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return taxa;
+    }
+
+    @Override
+    public Taxon[] lookupTermsById(String taxonId) throws IOException {
+        Segment segment = segmentFor(idSegments, taxonId);
+        Taxon[] taxa = taxonId == null ? null : segment.get(taxonId);
+        if (taxa == null) {
+            misses.incrementAndGet();
+            taxa = lookupService.lookupTermsById(taxonId);
+            if (taxonId != null) {
+                segment.put(taxonId, taxa);
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return taxa;
+    }
+
+    private static Segment segmentFor(Segment[] segments, String key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public void clear() {
+        for (Segment segment : nameSegments) {
+            segment.clear();
+        }
+        for (Segment segment : idSegments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        clear();
+        if (lookupService instanceof AutoCloseable) {
+            ((AutoCloseable) lookupService).close();
+        }
+    }
+
+    private static final class Segment {
+        private final Map<String, Taxon[]> entries;
+
+        Segment(final int maxSize) {
+            this.entries = new LinkedHashMap<String, Taxon[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Taxon[]> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized Taxon[] get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(String key, Taxon[] value) {
+            entries.put(key, value);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+    }
+
+}
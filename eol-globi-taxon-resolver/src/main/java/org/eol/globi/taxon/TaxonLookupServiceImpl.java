@@ -20,9 +20,9 @@ import java.io.IOException;
 public class TaxonLookupServiceImpl implements TaxonLookupService, AutoCloseable {
     private static final Logger LOG = LoggerFactory.getLogger(TaxonLookupServiceImpl.class);
 
-    private Directory indexDir;
-    private IndexSearcher indexSearcher;
-    private int maxHits = Integer.MAX_VALUE;
+    private final Directory indexDir;
+    private volatile IndexSearcher indexSearcher;
+    private volatile int maxHits = Integer.MAX_VALUE;
 
     public TaxonLookupServiceImpl(Directory indexDir) {
         this.indexDir = indexDir;
@@ -38,10 +38,23 @@ public class TaxonLookupServiceImpl implements TaxonLookupService, AutoCloseable
         return findTaxon(TaxonLookupServiceConstants.FIELD_ID, taxonId);
     }
 
-    private Taxon[] findTaxon(String fieldName1, String fieldValue) throws IOException {
-        if (indexSearcher == null) {
-            indexSearcher = new IndexSearcher(IndexReader.open(indexDir));
+    private IndexSearcher getIndexSearcher() throws IOException {
+        IndexSearcher searcher = indexSearcher;
+        if (searcher == null) {
+            synchronized (this) {
+                searcher = indexSearcher;
+                if (searcher == null) {
+                    searcher = new IndexSearcher(IndexReader.open(indexDir));
+                    indexSearcher = searcher;
+                }
+            }
         }
+        return searcher;
+    }
+
+    private Taxon[] findTaxon(String fieldName1, String fieldValue) throws IOException {
+        // index searchers are thread-safe, so a single (safely published) instance is shared across threads
+        IndexSearcher indexSearcher = getIndexSearcher();
 
         Taxon[] terms = new TaxonImpl[0];
         if (StringUtils.isNotBlank(fieldValue) && indexSearcher != null) {
@@ -100,7 +113,7 @@ public class TaxonLookupServiceImpl implements TaxonLookupService, AutoCloseable
     }
 
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         if (indexSearcher != null) {
             indexSearcher.close();
             indexSearcher = null;
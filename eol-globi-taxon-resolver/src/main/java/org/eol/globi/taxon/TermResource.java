@@ -7,4 +7,11 @@ public interface TermResource<T> {
     String getResource();
     Function<String, T> getParser();
     Predicate<String> getValidator();
+
+    /**
+     * @return the parsed term if the line is valid, null otherwise
+     */
+    default T parseValid(String line) {
+        return getValidator().test(line) ? getParser().apply(line) : null;
+    }
 }
@@ -0,0 +1,139 @@
+package org.eol.globi.taxon;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.eol.globi.util.ResourceUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Loads the terms of a term resource through a pipeline: the resource is read and decompressed on its own thread,
+ * lines are split into numbered chunks on the calling thread, and each line is parsed and validated exactly once by a
+ * pool of workers. Parsed chunks are handed to the consumer on the calling thread in input order, so that loading
+ * gives the same result as reading the resource line by line, e.g., for duplicate terms or terms listed in order of
+ * preference.
+ */
+class TermResourceLoader<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(TermResourceLoader.class);
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int READ_AHEAD_BLOCK_SIZE = 1024 * 1024;
+    private static final int READ_AHEAD_BLOCKS = 16;
+    private static final long REPORT_INTERVAL_MS = 10 * 1000;
+
+    private final TermResource<T> resource;
+    private final int workers;
+
+    TermResourceLoader(TermResource<T> resource, int workers) {
+        this.resource = resource;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * @return number of valid terms handed to the consumer
+     */
+    long load(Consumer<T> consumer) throws IOException {
+        long lineCount = 0;
+        long termCount = 0;
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "term-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // chunks in flight, in input order; bounded, so that parsing does not run far ahead of the consumer
+        Deque<Future<List<T>>> chunks = new ArrayDeque<>();
+        int maxChunksInFlight = workers * 2;
+
+        StopWatch watch = new StopWatch();
+        watch.start();
+        long lastReport = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ReadAheadInputStream(ResourceUtil.asInputStream(resource.getResource()), READ_AHEAD_BLOCK_SIZE, READ_AHEAD_BLOCKS),
+                StandardCharsets.UTF_8))) {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == CHUNK_SIZE) {
+                    chunks.add(submit(pool, chunk));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    lineCount += CHUNK_SIZE;
+                    while (chunks.size() >= maxChunksInFlight) {
+                        termCount += consume(chunks.poll(), consumer);
+                    }
+                    if (watch.getTime() - lastReport > REPORT_INTERVAL_MS) {
+                        lastReport = watch.getTime();
+                        logProgress(lineCount, termCount, lastReport);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunks.add(submit(pool, chunk));
+                lineCount += chunk.size();
+            }
+            while (!chunks.isEmpty()) {
+                termCount += consume(chunks.poll(), consumer);
+            }
+        } catch (RuntimeException ex) {
+            throw new IOException("failed to load [" + resource.getResource() + "]", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+        watch.stop();
+        logProgress(lineCount, termCount, watch.getTime());
+        return termCount;
+    }
+
+    private Future<List<T>> submit(ExecutorService pool, List<String> chunk) {
+        return pool.submit(() -> {
+            List<T> terms = new ArrayList<>(chunk.size());
+            for (String line : chunk) {
+                T term = resource.parseValid(line);
+                if (term != null) {
+                    terms.add(term);
+                }
+            }
+            return terms;
+        });
+    }
+
+    private long consume(Future<List<T>> chunk, Consumer<T> consumer) throws IOException {
+        List<T> terms;
+        try {
+            terms = chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while loading terms", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to load [" + resource.getResource() + "]", e.getCause());
+        }
+        for (T term : terms) {
+            consumer.accept(term);
+        }
+        return terms.size();
+    }
+
+    private void logProgress(long lineCount, long termCount, long timeMs) {
+        LOG.info(String.format("[%s]: read [%d] lines, loaded [%d] terms in [%.1f] s at [%.1f] lines/s",
+                resource.getResource(),
+                lineCount,
+                termCount,
+                timeMs / 1000.0,
+                timeMs == 0 ? 0.0 : lineCount * 1000.0 / timeMs));
+    }
+
+}
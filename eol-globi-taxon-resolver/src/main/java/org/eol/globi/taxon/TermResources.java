@@ -6,7 +6,6 @@ import org.eol.globi.domain.NameType;
 import org.eol.globi.domain.Taxon;
 import org.eol.globi.service.TaxonUtil;
 
-import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -26,12 +25,17 @@ public class TermResources {
 
             @Override
             public Predicate<String> getValidator() {
-                return ((Predicate<String>) Objects::nonNull)
-                        .and(line1 -> {
-                            final Triple<Taxon, NameType, Taxon> triple = getParser().apply(line1);
-                            return TaxonUtil.nonBlankNodeOrNonBlankId(triple.getLeft())
-                                    && TaxonUtil.nonBlankNodeOrNonBlankId(triple.getRight());
-                        });
+                return line -> parseValid(line) != null;
+            }
+
+            @Override
+            public Triple<Taxon, NameType, Taxon> parseValid(String line) {
+                final Triple<Taxon, NameType, Taxon> triple = line == null ? null : getParser().apply(line);
+                return triple != null
+                        && TaxonUtil.nonBlankNodeOrNonBlankId(triple.getLeft())
+                        && TaxonUtil.nonBlankNodeOrNonBlankId(triple.getRight())
+                        ? triple
+                        : null;
             }
 
         };
@@ -52,12 +56,16 @@ public class TermResources {
 
             @Override
             public Predicate<String> getValidator() {
-                return ((Predicate<String>) Objects::nonNull)
-                        .and(line1 -> {
-                            final Taxon taxon = getParser().apply(line1);
-                            return taxon != null
-                                    && StringUtils.isNotBlank(taxon.getPath());
-                        });
+                return line -> parseValid(line) != null;
+            }
+
+            @Override
+            public Taxon parseValid(String line) {
+                final Taxon taxon = line == null ? null : getParser().apply(line);
+                return taxon != null
+                        && StringUtils.isNotBlank(taxon.getPath())
+                        ? taxon
+                        : null;
             }
         };
     }
@@ -0,0 +1,52 @@
+package org.eol.globi.taxon;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ReadAheadInputStreamTest {
+
+    @Test
+    public void readAhead() throws IOException {
+        InputStream is = new ReadAheadInputStream(IOUtils.toInputStream("some bytes to read", StandardCharsets.UTF_8), 4, 2);
+        assertThat(IOUtils.toString(is, StandardCharsets.UTF_8), is("some bytes to read"));
+        assertThat(is.read(), is(-1));
+    }
+
+    @Test(timeout = 10000)
+    public void rethrowUncheckedFailure() throws IOException {
+        InputStream failing = new ByteArrayInputStream("some bytes".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos > 0) {
+                    throw new IllegalStateException("kaboom!");
+                }
+                return super.read(b, off, len);
+            }
+        };
+        InputStream is = new ReadAheadInputStream(failing, 4, 2);
+        byte[] block = new byte[4];
+        assertThat(is.read(block), is(4));
+        try {
+            is.read(block);
+            fail("expected failure");
+        } catch (IOException ex) {
+            assertThat(ex.getCause().getMessage(), is("kaboom!"));
+        }
+        try {
+            is.read();
+            fail("expected failure");
+        } catch (IOException ex) {
+            assertThat(ex.getCause().getMessage(), is("kaboom!"));
+        }
+    }
+
+}
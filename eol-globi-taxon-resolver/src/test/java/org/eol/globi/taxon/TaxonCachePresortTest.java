@@ -0,0 +1,86 @@
+package org.eol.globi.taxon;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.Fun;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TaxonCachePresortTest {
+
+    private File presortDir;
+
+    @Before
+    public void init() {
+        presortDir = new File("target/presort" + UUID.randomUUID());
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(presortDir);
+    }
+
+    @Test
+    public void sortDescendingAcrossSpilledRuns() throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(String.format("key%03d", i));
+        }
+        Collections.shuffle(keys);
+
+        List<String> sortedKeys = new ArrayList<>();
+        try (TaxonCachePresort presort = new TaxonCachePresort(presortDir, 7, 3)) {
+            for (String key : keys) {
+                presort.add(new Fun.Tuple2<>(key, Collections.singletonMap("name", key + "name")));
+            }
+            Iterator<Fun.Tuple2<String, Map<String, String>>> sorted = presort.sorted();
+            while (sorted.hasNext()) {
+                Fun.Tuple2<String, Map<String, String>> entry = sorted.next();
+                assertThat(entry.b.get("name"), is(entry.a + "name"));
+                sortedKeys.add(entry.a);
+            }
+        }
+        assertThat(sortedKeys.size(), is(100));
+        assertThat(sortedKeys.get(0), is("key099"));
+        assertThat(sortedKeys.get(99), is("key000"));
+        assertThat(presortDir.exists(), is(false));
+    }
+
+    @Test
+    public void mergeDuplicateKeys() throws IOException {
+        try (TaxonCachePresort presort = new TaxonCachePresort(presortDir, 2, 2)) {
+            presort.add(new Fun.Tuple2<>("b", Collections.singletonMap("name", null)));
+            presort.add(new Fun.Tuple2<>("a", Collections.singletonMap("name", "one")));
+            presort.add(new Fun.Tuple2<>("a", Collections.singletonMap("name", "two")));
+            List<String> sortedKeys = new ArrayList<>();
+            presort.sorted().forEachRemaining(entry -> sortedKeys.add(entry.a));
+            assertThat(sortedKeys.toString(), is("[b, a]"));
+        }
+    }
+
+    @Test
+    public void keepFirstAddedOfDuplicateKeys() throws IOException {
+        try (TaxonCachePresort presort = new TaxonCachePresort(presortDir, 3, 4)) {
+            for (int i = 0; i < 100; i++) {
+                presort.add(new Fun.Tuple2<>("key" + (i % 10), Collections.singletonMap("name", "name" + i)));
+            }
+            List<String> sorted = new ArrayList<>();
+            presort.sorted().forEachRemaining(entry -> sorted.add(entry.a + "=" + entry.b.get("name")));
+            assertThat(sorted.toString(), is("[key9=name9, key8=name8, key7=name7, key6=name6, key5=name5, " +
+                    "key4=name4, key3=name3, key2=name2, key1=name1, key0=name0]"));
+        }
+    }
+
+}
@@ -26,6 +26,11 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -297,6 +302,35 @@ public class TaxonCacheServiceTest {
         assertThat(enrichedTaxon.getThumbnailUrl(), is(""));
     }
 
+    @Test
+    public void enrichByNameConcurrently() throws InterruptedException, ExecutionException {
+        final TaxonCacheService cacheService = getTaxonCacheService();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final Map<String, String> properties = Collections.singletonMap(PropertyAndValueDictionary.NAME, "Green-winged teal");
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    try {
+                        return TaxonUtil.mapToTaxon(cacheService.enrichFirstMatch(properties)).getExternalId();
+                    } catch (PropertyEnricherException e) {
+                        throw new Exception(e);
+                    }
+                }
+            }));
+        }
+        for (Future<String> result : results) {
+            assertThat(result.get(), is("EOL:1276240"));
+        }
+        executor.shutdown();
+
+        assertThat(cacheService.getLookupHitCount() + cacheService.getLookupMissCount(), is(100L));
+        assertTrue(cacheService.getLookupHitCount() > 0L);
+        cacheService.shutdown();
+        assertThat(cacheService.getLookupHitCount() + cacheService.getLookupMissCount(), is(100L));
+    }
+
     private TaxonCacheService getTaxonCacheService() {
         final TaxonCacheService cacheService = new TaxonCacheService(TAXON_CACHE_TEST_RESOURCE, TAXON_MAP_TEST_RESOURCE);
         cacheService.setCacheDir(mapdbDir);
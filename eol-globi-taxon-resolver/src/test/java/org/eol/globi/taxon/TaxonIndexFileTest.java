@@ -0,0 +1,169 @@
+package org.eol.globi.taxon;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.tuple.Triple;
+import org.eol.globi.domain.NameType;
+import org.eol.globi.domain.PropertyAndValueDictionary;
+import org.eol.globi.domain.Taxon;
+import org.eol.globi.service.CacheServiceUtil;
+import org.eol.globi.service.PropertyEnricherException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class TaxonIndexFileTest {
+
+    private static final String TAXON_CACHE = "/org/eol/globi/taxon/taxonCache10k.tsv.gz";
+    private static final String TAXON_MAP = "/org/eol/globi/taxon/taxonMap10k.tsv.gz";
+
+    private File cacheDir;
+
+    @Before
+    public void init() {
+        cacheDir = new File("target/taxonIndex" + UUID.randomUUID());
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(cacheDir);
+    }
+
+    @Test
+    public void buildAndOpen() throws IOException {
+        File indexFile = new File(cacheDir, "taxonIndex.gti");
+        TaxonIndexFile.build(TermResources.defaultTaxonCacheResource("/org/eol/globi/taxon/taxonCache.tsv"),
+                TermResources.defaultTaxonMapResource("/org/eol/globi/taxon/taxonMap.tsv"),
+                indexFile, 2);
+
+        try (TaxonIndexFile index = TaxonIndexFile.open(indexFile)) {
+            assertThat(index.getTaxonCacheSha256().length(), is(64));
+            assertThat(index.getTaxonMapSha256().length(), is(64));
+
+            Taxon[] taxa = index.lookupTermsByName("green-winged teal");
+            assertThat(taxa.length, is(1));
+            assertThat(taxa[0].getExternalId(), is("EOL:1276240"));
+            assertThat(index.lookupTermsById("EOL:1276240").length > 0, is(true));
+
+            Map<String, String> taxon = index.getTaxon("eol:1276240");
+            assertThat(taxon.get(PropertyAndValueDictionary.NAME), is("Anas crecca carolinensis"));
+            assertThat(taxon.get(PropertyAndValueDictionary.THUMBNAIL_URL), is("http://media.eol.org/content/2012/11/04/08/35791_98_68.jpg"));
+
+            assertThat(index.lookupTermsByName("donald duck").length, is(0));
+            assertThat(index.lookupTermsByName("").length, is(0));
+            assertThat(index.getTaxon("eol:0"), is(nullValue()));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void openInvalidFile() throws IOException {
+        File notAnIndex = new File(cacheDir, "notAnIndex.gti");
+        FileUtils.writeStringToFile(notAnIndex, "not an index, but long enough to hold a header of a taxon index file, or so it seems, right?" +
+                " well, it is going to take a few more characters to get there.", "UTF-8");
+        TaxonIndexFile.open(notAnIndex);
+    }
+
+    @Test
+    public void sameMatchesAsTaxonCache() throws IOException, PropertyEnricherException {
+        TaxonCacheService taxonCache = new TaxonCacheService(TAXON_CACHE, TAXON_MAP);
+        taxonCache.setCacheDir(new File(cacheDir, "mapdb"));
+
+        TaxonCacheService taxonIndex = new TaxonCacheService(TAXON_CACHE, TAXON_MAP);
+        taxonIndex.setCacheDir(new File(cacheDir, "index"));
+        taxonIndex.setTaxonIndex(new File(cacheDir, "index/taxonIndex.gti"));
+
+        Set<String> keys = new HashSet<>();
+        TermResource<Triple<Taxon, NameType, Taxon>> taxonMap = TermResources.defaultTaxonMapResource(TAXON_MAP);
+        CacheServiceUtil.createBufferedReader(TAXON_MAP)
+                .lines()
+                .map(taxonMap::parseValid)
+                .filter(triple -> triple != null)
+                .forEach(triple -> {
+                    keys.add(triple.getLeft().getName());
+                    keys.add(triple.getLeft().getExternalId());
+                    keys.add(triple.getRight().getName());
+                    keys.add(triple.getRight().getExternalId());
+                });
+
+        int matched = 0;
+        for (String key : keys) {
+            Set<Map<String, String>> expected = enrich(taxonCache, key);
+            assertThat("mismatch for [" + key + "]", enrich(taxonIndex, key), is(expected));
+            matched += expected.isEmpty() ? 0 : 1;
+        }
+        assertThat(matched > 100, is(true));
+        taxonCache.shutdown();
+        taxonIndex.shutdown();
+    }
+
+    @Test
+    public void sameIndexFromSpilledRuns() throws IOException {
+        TermResource<Taxon> taxonCache = TermResources.defaultTaxonCacheResource(TAXON_CACHE);
+        TermResource<Triple<Taxon, NameType, Taxon>> taxonMap = TermResources.defaultTaxonMapResource(TAXON_MAP);
+        File indexFile = new File(cacheDir, "taxonIndex.gti");
+        TaxonIndexFile.build(taxonCache, taxonMap, indexFile, 2);
+        File spilledIndexFile = new File(cacheDir, "taxonIndexSpilled.gti");
+        new TaxonIndexFileWriter(taxonCache, taxonMap, 2, 100).write(spilledIndexFile);
+
+        try (TaxonIndexFile index = TaxonIndexFile.open(indexFile);
+             TaxonIndexFile spilledIndex = TaxonIndexFile.open(spilledIndexFile)) {
+            assertThat(spilledIndexFile.length(), is(indexFile.length()));
+            List<Triple<Taxon, NameType, Taxon>> triples = CacheServiceUtil.createBufferedReader(TAXON_MAP)
+                    .lines()
+                    .map(taxonMap::parseValid)
+                    .filter(triple -> triple != null)
+                    .collect(Collectors.toList());
+            for (Triple<Taxon, NameType, Taxon> triple : triples) {
+                String name = triple.getLeft().getName();
+                String id = triple.getRight().getExternalId();
+                assertThat(idsOf(spilledIndex.lookupTermsByName(name)), is(idsOf(index.lookupTermsByName(name))));
+                assertThat(spilledIndex.lookupTermsById(id).length, is(index.lookupTermsById(id).length));
+                assertThat(spilledIndex.getTaxon(id.toLowerCase()), is(index.getTaxon(id.toLowerCase())));
+            }
+        }
+        assertThat(cacheDir.list().length, is(2));
+    }
+
+    @Test
+    public void rebuildIndexOfOtherResources() throws IOException, PropertyEnricherException {
+        File indexFile = new File(cacheDir, "taxonIndex.gti");
+        TaxonIndexFile.build(TermResources.defaultTaxonCacheResource("/org/eol/globi/taxon/taxonCache.tsv"),
+                TermResources.defaultTaxonMapResource("/org/eol/globi/taxon/taxonMap.tsv"),
+                indexFile, 2);
+
+        TaxonCacheService taxonIndex = new TaxonCacheService(TAXON_CACHE, TAXON_MAP);
+        taxonIndex.setCacheDir(new File(cacheDir, "index"));
+        taxonIndex.setTaxonIndex(indexFile);
+        enrich(taxonIndex, "Homo sapiens");
+        taxonIndex.shutdown();
+
+        try (TaxonIndexFile index = TaxonIndexFile.open(indexFile)) {
+            assertThat(index.isBuiltFrom(TermResources.defaultTaxonCacheResource(TAXON_CACHE), TermResources.defaultTaxonMapResource(TAXON_MAP)), is(true));
+            assertThat(index.isBuiltFrom(TermResources.defaultTaxonCacheResource("/org/eol/globi/taxon/taxonCache.tsv"), TermResources.defaultTaxonMapResource(TAXON_MAP)), is(false));
+        }
+    }
+
+    private static List<String> idsOf(Taxon[] taxa) {
+        return Arrays.stream(taxa).map(Taxon::getExternalId).collect(Collectors.toList());
+    }
+
+    private static Set<Map<String, String>> enrich(TaxonCacheService service, String name) throws PropertyEnricherException {
+        List<Map<String, String>> enriched = service.enrichAllMatches(Collections.singletonMap(PropertyAndValueDictionary.NAME, name));
+        return enriched == null ? Collections.emptySet() : enriched.stream().collect(Collectors.toSet());
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.eol.globi.taxon;
+
+import org.eol.globi.domain.Taxon;
+import org.eol.globi.domain.TaxonImpl;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TaxonLookupServiceCachedTest {
+
+    @Test
+    public void lookupCached() throws IOException {
+        AtomicInteger counter = new AtomicInteger(0);
+        TaxonLookupServiceCached cached = new TaxonLookupServiceCached(countingLookup(counter), 10);
+
+        Taxon[] taxa = cached.lookupTermsByName("some name");
+        assertThat(taxa.length, is(1));
+        assertThat(taxa[0].getExternalId(), is("id:some name"));
+        assertThat(counter.get(), is(1));
+
+        cached.lookupTermsByName("some name");
+        assertThat(counter.get(), is(1));
+        assertThat(cached.getHitCount(), is(1L));
+        assertThat(cached.getMissCount(), is(1L));
+        assertThat(cached.getHitRate(), is(0.5));
+
+        cached.lookupTermsById("some name");
+        assertThat(counter.get(), is(2));
+    }
+
+    @Test
+    public void lookupEvictLeastRecentlyUsed() throws IOException {
+        AtomicInteger counter = new AtomicInteger(0);
+        TaxonLookupServiceCached cached = new TaxonLookupServiceCached(countingLookup(counter), 1, 1);
+
+        cached.lookupTermsByName("one");
+        cached.lookupTermsByName("two");
+        assertThat(counter.get(), is(2));
+
+        cached.lookupTermsByName("two");
+        assertThat(counter.get(), is(2));
+
+        cached.lookupTermsByName("one");
+        assertThat(counter.get(), is(3));
+    }
+
+    @Test
+    public void lookupNull() throws IOException {
+        AtomicInteger counter = new AtomicInteger(0);
+        TaxonLookupServiceCached cached = new TaxonLookupServiceCached(countingLookup(counter), 10);
+
+        cached.lookupTermsByName(null);
+        cached.lookupTermsByName(null);
+        assertThat(counter.get(), is(2));
+    }
+
+    private static TaxonLookupService countingLookup(final AtomicInteger counter) {
+        return new TaxonLookupService() {
+            @Override
+            public Taxon[] lookupTermsByName(String taxonName) {
+                counter.incrementAndGet();
+                return new Taxon[]{new TaxonImpl(taxonName, "id:" + taxonName)};
+            }
+
+            @Override
+            public Taxon[] lookupTermsById(String taxonId) {
+                counter.incrementAndGet();
+                return new Taxon[]{new TaxonImpl(null, taxonId)};
+            }
+        };
+    }
+
+}
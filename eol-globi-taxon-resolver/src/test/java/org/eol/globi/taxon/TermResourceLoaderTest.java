@@ -0,0 +1,98 @@
+package org.eol.globi.taxon;
+
+import org.eol.globi.domain.Taxon;
+import org.eol.globi.service.CacheServiceUtil;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TermResourceLoaderTest {
+
+    @Test
+    public void loadGzippedTaxonCache() throws IOException {
+        TermResource<Taxon> resource = TermResources.defaultTaxonCacheResource("/org/eol/globi/taxon/taxonCache10k.tsv.gz");
+        Set<String> loaded = ConcurrentHashMap.newKeySet();
+        long count = new TermResourceLoader<>(resource, 4).load(taxon -> loaded.add(taxon.getExternalId() + "|" + taxon.getName()));
+        assertThat(count, is(countSequentially(resource)));
+        assertThat(loaded.size() > 0, is(true));
+    }
+
+    @Test
+    public void parseEachLineOnce() throws IOException {
+        TermResource<Taxon> defaultResource = TermResources.defaultTaxonCacheResource("/org/eol/globi/taxon/taxonCache.tsv");
+        AtomicInteger parseCount = new AtomicInteger(0);
+        TermResource<Taxon> resource = new TermResource<Taxon>() {
+            @Override
+            public String getResource() {
+                return defaultResource.getResource();
+            }
+
+            @Override
+            public Function<String, Taxon> getParser() {
+                return line -> {
+                    parseCount.incrementAndGet();
+                    return defaultResource.getParser().apply(line);
+                };
+            }
+
+            @Override
+            public Predicate<String> getValidator() {
+                return line -> parseValid(line) != null;
+            }
+
+            @Override
+            public Taxon parseValid(String line) {
+                Taxon taxon = getParser().apply(line);
+                return taxon != null && taxon.getPath() != null ? taxon : null;
+            }
+        };
+
+        new TermResourceLoader<>(resource, 2).load(taxon -> {
+        });
+        long lineCount = CacheServiceUtil.createBufferedReader(resource.getResource()).lines().count();
+        assertThat(lineCount > 0, is(true));
+        assertThat((long) parseCount.get(), is(lineCount));
+    }
+
+    @Test
+    public void consumeInInputOrder() throws IOException {
+        TermResource<Taxon> resource = TermResources.defaultTaxonCacheResource("/org/eol/globi/taxon/taxonCache10k.tsv.gz");
+        List<String> loaded = new ArrayList<>();
+        new TermResourceLoader<>(resource, 4).load(taxon -> loaded.add(taxon.getExternalId()));
+        List<String> expected = CacheServiceUtil.createBufferedReader(resource.getResource())
+                .lines()
+                .map(resource::parseValid)
+                .filter(Objects::nonNull)
+                .map(Taxon::getExternalId)
+                .collect(Collectors.toList());
+        assertThat(loaded, is(expected));
+    }
+
+    @Test(expected = IOException.class)
+    public void failingConsumer() throws IOException {
+        TermResource<Taxon> resource = TermResources.defaultTaxonCacheResource("/org/eol/globi/taxon/taxonCache10k.tsv.gz");
+        new TermResourceLoader<>(resource, 2).load(taxon -> {
+            throw new IllegalStateException("kaboom!");
+        });
+    }
+
+    private static long countSequentially(TermResource<Taxon> resource) throws IOException {
+        return CacheServiceUtil.createBufferedReader(resource.getResource())
+                .lines()
+                .filter(resource.getValidator())
+                .count();
+    }
+
+}